@@ -0,0 +1,693 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Ignore;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;
+import com.baidu.bjf.remoting.protobuf.code.ICodeGenerator;
+import com.baidu.bjf.remoting.protobuf.code.TemplateCodeGenerator;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Annotation processor to generate codec classes of types annotated by {@link ProtobufClass} or with fields annotated
+ * by {@link Protobuf}, including fields inherited from super classes, during javac compilation. The codec class is
+ * named as {@link com.baidu.bjf.remoting.protobuf.ProtobufProxy#getFullClassName(Class)}, so it is loaded by
+ * {@link com.baidu.bjf.remoting.protobuf.ProtobufProxy} directly without compiling at runtime.
+ * 
+ * <p>
+ * Codec source is generated by {@link TemplateCodeGenerator}, the same as runtime, which reads the loaded target
+ * class. Target class could not be loaded during its own annotation processing, so types are collected during
+ * processing rounds, and their codecs are generated once javac has written the class files of target types. Codec
+ * sources are compiled by an in-process javac into memory, and the class files are written through
+ * {@link javax.annotation.processing.Filer} with the target type as the only originating element, so the processor is
+ * registered as isolating for Gradle incremental compilation.
+ * </p>
+ * 
+ * <p>
+ * It works with javac only, which reports when class files are written, and the class output should be a directory
+ * on file system to load target types from. Otherwise a warning is reported and codecs are compiled at runtime as
+ * before.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class JprotobufCodecProcessor extends AbstractProcessor {
+
+    /** The binary names of target types already collected. */
+    private final Set<String> collected = new HashSet<String>();
+
+    /** The target types waiting for their class files to generate codec, by binary name. */
+    private final Map<String, TypeElement> pending = new LinkedHashMap<String, TypeElement>();
+
+    /** The binary names of types whose class files are written by javac. */
+    private final Set<String> written = new HashSet<String>();
+
+    /** Whether javac reports the end of whole compilation, since java 9. */
+    private final boolean compilationEvent = hasCompilationEvent();
+
+    /** The javac task, null if not running in javac. */
+    private JavacTask task;
+
+    /** The class output directory. */
+    private File outputDir;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.annotation.processing.AbstractProcessor#init(javax.annotation.processing.ProcessingEnvironment)
+     */
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        try {
+            task = JavacTask.instance(processingEnv);
+        } catch (RuntimeException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "jprotobuf codecs are only generated by javac, codecs will be compiled at runtime.");
+            return;
+        }
+        task.addTaskListener(new CodecTaskListener());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedAnnotationTypes()
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // fields marked by @Protobuf may be inherited from super classes out of current compilation
+        return Collections.singleton("*");
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+     * javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (task == null) {
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collect(type);
+        }
+        if (!pending.isEmpty() && outputDir == null) {
+            outputDir = getOutputDir();
+        }
+        // annotations are not claimed, other processors may handle them too
+        return false;
+    }
+
+    /**
+     * Collect the type and its member types which need codec.
+     *
+     * @param type the type
+     */
+    private void collect(TypeElement type) {
+        for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(member);
+        }
+        if (type.getKind() != ElementKind.CLASS || !isMessageType(type)) {
+            return;
+        }
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        if (collected.add(binaryName) && isCodecType(type)) {
+            pending.put(binaryName, type);
+        }
+    }
+
+    /**
+     * Checks if the type is marked by {@link ProtobufClass} or has fields marked by {@link Protobuf}, declared by
+     * itself or its super classes.
+     *
+     * @param type the type
+     * @return true, if is message type
+     */
+    private boolean isMessageType(TypeElement type) {
+        if (type.getAnnotation(ProtobufClass.class) != null) {
+            return true;
+        }
+        TypeElement t = type;
+        while (t != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (field.getAnnotation(Protobuf.class) != null) {
+                    return true;
+                }
+            }
+            TypeMirror superclass = t.getSuperclass();
+            t = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if codec could be generated for the message type. The type should be a concrete class which is not
+     * private, inner or local, not marked by {@link Ignore}, and has public default constructor, otherwise an error is
+     * reported as the codec could not be created at runtime either.
+     *
+     * @param type the type
+     * @return true, if is codec type
+     */
+    private boolean isCodecType(TypeElement type) {
+        if (type.getAnnotation(Ignore.class) != null || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        Element element = type;
+        while (element instanceof TypeElement) {
+            TypeElement t = (TypeElement) element;
+            if (t.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+            if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            element = t.getEnclosingElement();
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Class '" + type.getQualifiedName()
+                + "' must has public default constructor method with no parameters.", type);
+        return false;
+    }
+
+    /**
+     * Gets the class output directory.
+     *
+     * @return the class output directory, or null if it is not on file system
+     */
+    private File getOutputDir() {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", "jprotobuf");
+            URI uri = file.toUri();
+            if ("file".equals(uri.getScheme())) {
+                return new File(uri).getParentFile();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // not on file system
+        }
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "Class output is not a directory, jprotobuf codecs will be compiled at runtime.");
+        pending.clear();
+        return null;
+    }
+
+    /**
+     * Generate and compile codecs of pending types whose class files are written.
+     *
+     * @param last whether javac has finished, so types could not be loaded are reported
+     */
+    private void generateCodecs(boolean last) {
+        Map<String, TypeElement> types = new LinkedHashMap<String, TypeElement>();
+        for (Map.Entry<String, TypeElement> entry : pending.entrySet()) {
+            if (written.contains(entry.getKey())) {
+                types.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (types.isEmpty() || outputDir == null) {
+            return;
+        }
+
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        Map<String, TypeElement> origins = new LinkedHashMap<String, TypeElement>();
+        List<URL> classPath;
+        try (URLClassLoader loader = new OutputClassLoader(outputDir, getClass().getClassLoader())) {
+            for (Map.Entry<String, TypeElement> entry : types.entrySet()) {
+                TypeElement type = entry.getValue();
+                try {
+                    Class<?> cls = Class.forName(entry.getKey(), false, loader);
+                    TemplateCodeGenerator cg = new TemplateCodeGenerator(cls);
+                    sources.put(cg.getFullClassName(), cg.getCode());
+                    origins.put(cg.getFullClassName(), type);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // class files of its dependencies may be written later
+                    if (!last) {
+                        continue;
+                    }
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Class '"
+                            + type.getQualifiedName() + "' could not be loaded to generate codec: " + e, type);
+                } catch (RuntimeException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Failed to generate codec of class '" + type.getQualifiedName() + "': " + e.getMessage(),
+                            type);
+                }
+                pending.remove(entry.getKey());
+            }
+            classPath = Arrays.asList(loader.getURLs());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to load classes from '" + outputDir + "': " + e.getMessage());
+            return;
+        }
+        if (!sources.isEmpty()) {
+            compile(sources, origins, classPath);
+        }
+    }
+
+    /**
+     * Compile codec sources in memory and write the class files through {@link javax.annotation.processing.Filer}.
+     *
+     * @param sources the codec sources by full class name
+     * @param origins the target types by full class name of codec
+     * @param classPath the class path used to load target types
+     */
+    private void compile(Map<String, String> sources, Map<String, TypeElement> origins, List<URL> classPath) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            units.add(new SourceFile(source.getKey(), source.getValue()));
+        }
+
+        String version = processingEnv.getSourceVersion().name().substring("RELEASE_".length());
+        if (Integer.parseInt(version) < 9) {
+            version = "1." + version;
+        }
+        List<String> options = new ArrayList<String>();
+        options.add("-proc:none");
+        options.add("-source");
+        options.add(version);
+        options.add("-target");
+        options.add(version);
+        options.add("-Xlint:-options");
+
+        StandardJavaFileManager standardManager =
+                compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try (ClassOutputManager manager = new ClassOutputManager(standardManager)) {
+            standardManager.setLocation(StandardLocation.CLASS_PATH, getClassPath(classPath));
+            Boolean result = compiler.getTask(null, manager, diagnostics, options, null, units).call();
+            if (result == null || !result.booleanValue()) {
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    TypeElement origin = diagnostic.getSource() == null ? null
+                            : origins.get(((SourceFile) diagnostic.getSource()).className);
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Failed to compile codec: " + diagnostic.getMessage(null), origin);
+                }
+                return;
+            }
+            for (ClassFile file : manager.files) {
+                writeClass(file.className, file.toByteArray(), origins.get(getCodecClassName(file.className)));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to compile codecs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the full class name of codec which the compiled class belongs to.
+     *
+     * @param className the compiled class name, may be a nested class of codec
+     * @return the full class name of codec
+     */
+    private static String getCodecClassName(String className) {
+        int index = className.indexOf(ICodeGenerator.DEFAULT_SUFFIX_CLASSNAME);
+        return index < 0 ? className : className.substring(0, index + ICodeGenerator.DEFAULT_SUFFIX_CLASSNAME.length());
+    }
+
+    /**
+     * Write the class file through {@link javax.annotation.processing.Filer}.
+     *
+     * @param className the class name
+     * @param bytes the class file content
+     * @param origin the target type
+     */
+    private void writeClass(String className, byte[] bytes, TypeElement origin) {
+        try (OutputStream out = processingEnv.getFiler().createClassFile(className, origin).openOutputStream()) {
+            out.write(bytes);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write codec class '" + className + "': " + e.getMessage(), origin);
+        }
+    }
+
+    /**
+     * Gets the class path to compile codecs, which is the class path used to load target types, the processor class
+     * path and class path of current process.
+     *
+     * @param classPath the class path used to load target types, starts with the class output directory
+     * @return the class path
+     */
+    private List<File> getClassPath(List<URL> classPath) {
+        Set<File> files = new LinkedHashSet<File>();
+        addFiles(files, classPath);
+        for (ClassLoader cl = getClass().getClassLoader(); cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                addFiles(files, Arrays.asList(((URLClassLoader) cl).getURLs()));
+            }
+        }
+        for (String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!path.isEmpty()) {
+                files.add(new File(path));
+            }
+        }
+        return new ArrayList<File>(files);
+    }
+
+    /**
+     * Adds local files of the URLs.
+     *
+     * @param files the files
+     * @param urls the URLs
+     */
+    private static void addFiles(Set<File> files, List<URL> urls) {
+        for (URL url : urls) {
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    files.add(new File(url.toURI()));
+                } catch (Exception e) {
+                    files.add(new File(url.getPath()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if javac reports the end of whole compilation.
+     *
+     * @return true, if javac is java 9 or later
+     */
+    private static boolean hasCompilationEvent() {
+        for (TaskEvent.Kind kind : TaskEvent.Kind.values()) {
+            if ("COMPILATION".equals(kind.name())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Listener of javac to generate codecs after class files of target types are written.
+     */
+    private final class CodecTaskListener implements TaskListener {
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.sun.source.util.TaskListener#started(com.sun.source.util.TaskEvent)
+         */
+        @Override
+        public void started(TaskEvent e) {
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.sun.source.util.TaskListener#finished(com.sun.source.util.TaskEvent)
+         */
+        @Override
+        public void finished(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.GENERATE && e.getTypeElement() != null) {
+                written.add(task.getElements().getBinaryName(e.getTypeElement()).toString());
+                // without the end of compilation, try once all target types are written
+                if (!compilationEvent && !pending.isEmpty() && written.containsAll(pending.keySet())) {
+                    generateCodecs(false);
+                }
+            } else if ("COMPILATION".equals(e.getKind().name())) {
+                generateCodecs(true);
+            }
+        }
+    }
+
+    /**
+     * Java source of codec in memory.
+     */
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        /** The full class name. */
+        private final String className;
+
+        /** The source code. */
+        private final String code;
+
+        /**
+         * Instantiates a new source file.
+         *
+         * @param className the full class name
+         * @param code the source code
+         */
+        SourceFile(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.className = className;
+            this.code = code;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see javax.tools.SimpleJavaFileObject#getCharContent(boolean)
+         */
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * Class file compiled in memory.
+     */
+    private static final class ClassFile extends SimpleJavaFileObject {
+
+        /** The binary class name. */
+        private final String className;
+
+        /** The class file content. */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Instantiates a new class file.
+         *
+         * @param className the binary class name
+         */
+        ClassFile(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see javax.tools.SimpleJavaFileObject#openOutputStream()
+         */
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+        /**
+         * Gets the class file content.
+         *
+         * @return the class file content
+         */
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * File manager which keeps compiled class files in memory instead of writing them to class output.
+     */
+    private static final class ClassOutputManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        /** The compiled class files. */
+        private final List<ClassFile> files = new ArrayList<ClassFile>();
+
+        /**
+         * Instantiates a new class output manager.
+         *
+         * @param fileManager the delegate file manager
+         */
+        ClassOutputManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see javax.tools.ForwardingJavaFileManager#getJavaFileForOutput(javax.tools.JavaFileManager.Location,
+         * java.lang.String, javax.tools.JavaFileObject.Kind, javax.tools.FileObject)
+         */
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) throws IOException {
+            if (kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            ClassFile file = new ClassFile(className);
+            files.add(file);
+            return file;
+        }
+    }
+
+    /**
+     * Class loader which loads classes of class output directory by itself first, so the classes just written are
+     * used even if the processor class path contains an old copy of the directory. Classes not found by the processor
+     * class path, such as super classes from class path of the compilation, are located through
+     * {@link javax.annotation.processing.Filer} and loaded from the directory or jar containing them.
+     */
+    private final class OutputClassLoader extends URLClassLoader {
+
+        /**
+         * Instantiates a new output class loader.
+         *
+         * @param outputDir the class output directory
+         * @param parent the parent
+         * @throws MalformedURLException the malformed URL exception
+         */
+        OutputClassLoader(File outputDir, ClassLoader parent) throws MalformedURLException {
+            super(new URL[] { outputDir.toURI().toURL() }, parent);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.net.URLClassLoader#findClass(java.lang.String)
+         */
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            try {
+                return super.findClass(name);
+            } catch (ClassNotFoundException e) {
+                URL root = findClassPathRoot(name);
+                if (root == null) {
+                    throw e;
+                }
+                addURL(root);
+                return super.findClass(name);
+            }
+        }
+
+        /**
+         * Find the directory or jar of class path of the compilation which contains the class.
+         *
+         * @param name the class name
+         * @return the URL of directory or jar, null if not found
+         */
+        private URL findClassPathRoot(String name) {
+            int index = name.lastIndexOf('.');
+            String pkg = index < 0 ? "" : name.substring(0, index);
+            String path = name.replace('.', '/') + ".class";
+            try {
+                URI uri = processingEnv.getFiler()
+                        .getResource(StandardLocation.CLASS_PATH, pkg, path.substring(index + 1)).toUri();
+                String s = uri.toString();
+                if ("jar".equals(uri.getScheme()) && s.endsWith("!/" + path)) {
+                    return new URL(s.substring("jar:".length(), s.length() - path.length() - 2));
+                }
+                if ("file".equals(uri.getScheme()) && s.endsWith("/" + path)) {
+                    return new URL(s.substring(0, s.length() - path.length()));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // not found
+            }
+            return null;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.ClassLoader#loadClass(java.lang.String, boolean)
+         */
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null && findResource(name.replace('.', '/') + ".class") != null) {
+                    c = findClass(name);
+                }
+                if (c == null) {
+                    return super.loadClass(name, resolve);
+                }
+                if (resolve) {
+                    resolveClass(c);
+                }
+                return c;
+            }
+        }
+    }
+}
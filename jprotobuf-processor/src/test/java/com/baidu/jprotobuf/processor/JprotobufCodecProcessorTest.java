@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * Test {@link JprotobufCodecProcessor} by compiling sources with javac in process.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class JprotobufCodecProcessorTest {
+
+    private static final String ADDRESS = "package demo;\n"
+            + "import com.baidu.bjf.remoting.protobuf.FieldType;\n"
+            + "import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;\n"
+            + "public class Address {\n"
+            + "    @Protobuf(fieldType = FieldType.STRING, order = 1)\n"
+            + "    public String city;\n"
+            + "}\n";
+
+    private static final String PERSON = "package demo;\n"
+            + "import java.util.List;\n"
+            + "import com.baidu.bjf.remoting.protobuf.FieldType;\n"
+            + "import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;\n"
+            + "import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;\n"
+            + "@ProtobufClass\n"
+            + "public class Person {\n"
+            + "    @Protobuf(fieldType = FieldType.STRING, order = 1)\n"
+            + "    public String name;\n"
+            + "    @Protobuf(fieldType = FieldType.INT32, order = 2)\n"
+            + "    private int id;\n"
+            + "    @Protobuf(fieldType = FieldType.INT64, order = 3)\n"
+            + "    public List<Long> values;\n"
+            + "    @Protobuf(fieldType = FieldType.OBJECT, order = 4)\n"
+            + "    public Address address;\n"
+            + "    public int getId() { return id; }\n"
+            + "    public void setId(int id) { this.id = id; }\n"
+            + "}\n";
+
+    private static final String BASE = "package demo;\n"
+            + "import com.baidu.bjf.remoting.protobuf.FieldType;\n"
+            + "import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;\n"
+            + "public abstract class Base {\n"
+            + "    @Protobuf(fieldType = FieldType.STRING, order = 1)\n"
+            + "    public String baseName;\n"
+            + "}\n";
+
+    private static final String CHILD = "package demo;\n"
+            + "public class Child extends Base {\n"
+            + "    public int notMapped;\n"
+            + "}\n";
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("jprotobuf-processor").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Compile sources with the processor, the class path is also the processor path as javac does by default.
+     *
+     * @param out the class output directory
+     * @param classPath extra class path
+     * @param diagnostics the diagnostics
+     * @param sources pairs of class name and source
+     * @return true, if successful
+     */
+    private static boolean compile(File out, List<File> classPath, DiagnosticCollector<JavaFileObject> diagnostics,
+            String... sources) {
+        return compile(null, out, classPath, diagnostics, sources);
+    }
+
+    /**
+     * Compile sources with the processor by the file manager.
+     *
+     * @param fileManager the file manager, null to use the standard one
+     * @param out the class output directory
+     * @param classPath extra class path
+     * @param diagnostics the diagnostics
+     * @param sources pairs of class name and source
+     * @return true, if successful
+     */
+    private static boolean compile(JavaFileManager fileManager, File out, List<File> classPath,
+            DiagnosticCollector<JavaFileObject> diagnostics, String... sources) {
+        out.mkdirs();
+        StringBuilder path = new StringBuilder(System.getProperty("java.class.path"));
+        for (File f : classPath) {
+            path.append(File.pathSeparator).append(f.getAbsolutePath());
+        }
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (int i = 0; i < sources.length; i += 2) {
+            final String code = sources[i + 1];
+            units.add(new SimpleJavaFileObject(URI.create("string:///" + sources[i].replace('.', '/') + ".java"),
+                    JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return code;
+                }
+            });
+        }
+        List<String> options = Arrays.asList("-d", out.getAbsolutePath(), "-classpath", path.toString(),
+                "-processorpath", path.toString(), "-processor", JprotobufCodecProcessor.class.getName());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        return compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+    }
+
+    private static File codecFile(File out, String className) {
+        return new File(out, className.replace('.', File.separatorChar) + "$$JProtoBufClass.class");
+    }
+
+    @Test
+    public void testGenerateTemplateCodec() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile(dir, new ArrayList<File>(),
+                diagnostics, "demo.Address", ADDRESS, "demo.Person", PERSON));
+        Assert.assertTrue(codecFile(dir, "demo.Person").isFile());
+        Assert.assertTrue(codecFile(dir, "demo.Address").isFile());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+                getClass().getClassLoader())) {
+            Class<Object> cls = (Class<Object>) loader.loadClass("demo.Person");
+            Codec<Object> codec = ProtobufProxy.create(cls);
+            // codec compiled ahead of time from template source is loaded
+            Assert.assertEquals("demo.Person$$JProtoBufClass", codec.getClass().getName());
+            Assert.assertSame(loader, codec.getClass().getClassLoader());
+
+            Object person = cls.newInstance();
+            cls.getField("name").set(person, "jprotobuf");
+            cls.getMethod("setId", int.class).invoke(person, 100);
+            cls.getField("values").set(person, Arrays.asList(1L, -1L));
+            Object address = loader.loadClass("demo.Address").newInstance();
+            address.getClass().getField("city").set(address, "beijing");
+            cls.getField("address").set(person, address);
+
+            byte[] bytes = codec.encode(person);
+            Object decoded = codec.decode(bytes);
+            Assert.assertEquals("jprotobuf", cls.getField("name").get(decoded));
+            Assert.assertEquals(100, cls.getMethod("getId").invoke(decoded));
+            Assert.assertEquals(Arrays.asList(1L, -1L), cls.getField("values").get(decoded));
+            Object decodedAddress = cls.getField("address").get(decoded);
+            Assert.assertEquals("beijing", decodedAddress.getClass().getField("city").get(decodedAddress));
+        }
+    }
+
+    @Test
+    public void testWriteThroughFiler() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final List<String> outputs = new ArrayList<String>();
+        try (StandardJavaFileManager standardManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardManager) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className,
+                        JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+                    outputs.add(className);
+                    return super.getJavaFileForOutput(location, className, kind, sibling);
+                }
+            };
+            Assert.assertTrue(diagnostics.getDiagnostics().toString(),
+                    compile(fileManager, dir, new ArrayList<File>(), diagnostics, "demo.Address", ADDRESS));
+        }
+        // codec class file is written to class output by the file manager of the compilation
+        Assert.assertTrue(outputs.toString(), outputs.contains("demo.Address$$JProtoBufClass"));
+        Assert.assertTrue(codecFile(dir, "demo.Address").isFile());
+    }
+
+    @Test
+    public void testInheritedFields() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(),
+                compile(dir, new ArrayList<File>(), diagnostics, "demo.Base", BASE, "demo.Child", CHILD));
+        // abstract class has no codec
+        Assert.assertFalse(codecFile(dir, "demo.Base").exists());
+        Assert.assertTrue(codecFile(dir, "demo.Child").isFile());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+                getClass().getClassLoader())) {
+            Class<Object> cls = (Class<Object>) loader.loadClass("demo.Child");
+            Codec<Object> codec = ProtobufProxy.create(cls);
+            Assert.assertSame(loader, codec.getClass().getClassLoader());
+            Object child = cls.newInstance();
+            Field field = cls.getField("baseName");
+            field.set(child, "base");
+            Assert.assertEquals("base", field.get(codec.decode(codec.encode(child))));
+        }
+    }
+
+    @Test
+    public void testInheritedFieldsFromClassPath() throws Exception {
+        File base = new File(dir, "base");
+        File out = new File(dir, "out");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Assert.assertTrue(compile(base, new ArrayList<File>(), diagnostics, "demo.Base", BASE));
+
+        // no @Protobuf annotation in sources of this compilation
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(),
+                compile(out, Arrays.asList(base), diagnostics, "demo.Child", CHILD));
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), codecFile(out, "demo.Child").isFile());
+        Assert.assertFalse(new File(out, "demo/Base.class").exists());
+    }
+
+    @Test
+    public void testRejectNonPublicConstructor() {
+        String source = "package demo;\n"
+                + "import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;\n"
+                + "@ProtobufClass\n"
+                + "public class Hidden {\n"
+                + "    public String name;\n"
+                + "    Hidden() {\n"
+                + "    }\n"
+                + "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Assert.assertFalse(compile(dir, new ArrayList<File>(), diagnostics, "demo.Hidden", source));
+
+        boolean reported = false;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR
+                    && diagnostic.getMessage(null).contains("public default constructor")) {
+                reported = true;
+            }
+        }
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), reported);
+        Assert.assertFalse(codecFile(dir, "demo.Hidden").exists());
+    }
+
+    @Test
+    public void testIgnoredClass() {
+        String source = "package demo;\n"
+                + "import com.baidu.bjf.remoting.protobuf.annotation.Ignore;\n"
+                + "import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;\n"
+                + "@Ignore\n"
+                + "@ProtobufClass\n"
+                + "public class Ignored {\n"
+                + "    public String name;\n"
+                + "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Assert.assertTrue(compile(dir, new ArrayList<File>(), diagnostics, "demo.Ignored", source));
+        Assert.assertTrue(new File(dir, "demo/Ignored.class").isFile());
+        Assert.assertFalse(codecFile(dir, "demo.Ignored").exists());
+    }
+}
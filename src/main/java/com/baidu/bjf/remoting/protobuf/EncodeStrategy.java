@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf;
+
+/**
+ * Encode strategy of generated {@link Codec#encode(Object)}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public enum EncodeStrategy {
+
+    /**
+     * compute size of nested messages first then write fields from front to back into {@link com.google.protobuf.CodedOutputStream}.
+     */
+    SIZE_FIRST,
+
+    /**
+     * write fields from back to front into a tail first buffer, length of nested message is known once it is written,
+     * so no size pass is required.
+     */
+    REVERSE
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Map;
+
+import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
+
+/**
+ * Handle of {@link IDLProxyObject}s created by {@link ProtobufIDLProxy#createHandle(String)}.
+ *
+ * <p>
+ * Classes and codecs of the proxy objects are compiled by a child {@link JdkCompiler} of this handle only. They are
+ * unloaded after the handle is closed and the proxy objects and their values are no longer referenced.
+ * </p>
+ * 
+ * <p>
+ * Closing the handle only drops its references to the proxy objects, it does not invalidate them. Any
+ * {@link IDLProxyObject} got from the handle, created by {@link IDLProxyObject#newInstnace()} or
+ * {@link IDLProxyObject#decode(byte[])}, and any target object of them, is still usable after close, and keeps all
+ * classes of the handle loaded as long as it is reachable.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class IDLProxyHandle implements Closeable {
+
+    /** The proxy objects by message name. */
+    private volatile Map<String, IDLProxyObject> proxyObjects;
+
+    /**
+     * Instantiates a new IDL proxy handle.
+     *
+     * @param proxyObjects the proxy objects by message name
+     */
+    IDLProxyHandle(Map<String, IDLProxyObject> proxyObjects) {
+        this.proxyObjects = Collections.unmodifiableMap(proxyObjects);
+    }
+
+    /**
+     * Gets the proxy objects by message name.
+     *
+     * @return the proxy objects
+     * @throws IllegalStateException if handle is closed
+     */
+    public Map<String, IDLProxyObject> getProxyObjects() {
+        Map<String, IDLProxyObject> ret = proxyObjects;
+        if (ret == null) {
+            throw new IllegalStateException("IDL proxy handle is closed.");
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the proxy object.
+     *
+     * @param name the message name
+     * @return the proxy object, or null if not found
+     * @throws IllegalStateException if handle is closed
+     */
+    public IDLProxyObject getProxyObject(String name) {
+        return getProxyObjects().get(name);
+    }
+
+    /**
+     * Checks if is closed.
+     *
+     * @return true, if is closed
+     */
+    public boolean isClosed() {
+        return proxyObjects == null;
+    }
+
+    /**
+     * Close the handle, proxy objects are no longer available from it. Proxy objects got before are not invalidated,
+     * classes of the handle are unloaded only after all of them and their target objects become unreachable.
+     */
+    @Override
+    public void close() {
+        proxyObjects = null;
+    }
+}
@@ -56,8 +56,8 @@ public final class MapEntry<K, V> extends AbstractMessage {
         public final Parser<MapEntry<K, V>> parser;
 
         public Metadata(Descriptor descriptor, MapEntry<K, V> defaultInstance, WireFormat.FieldType keyType,
-                WireFormat.FieldType valueType) {
-            super(keyType, defaultInstance.key, valueType, defaultInstance.value);
+                WireFormat.FieldType valueType, ProtobufProxyConfig config) {
+            super(keyType, defaultInstance.key, valueType, defaultInstance.value, config);
             this.descriptor = descriptor;
             this.parser = new AbstractParser<MapEntry<K, V>>() {
 
@@ -76,10 +76,10 @@ public final class MapEntry<K, V> extends AbstractMessage {
 
     /** Create a default MapEntry instance. */
     private MapEntry(Descriptor descriptor, WireFormat.FieldType keyType, K defaultKey, WireFormat.FieldType valueType,
-            V defaultValue) {
+            V defaultValue, ProtobufProxyConfig config) {
         this.key = defaultKey;
         this.value = defaultValue;
-        this.metadata = new Metadata<K, V>(descriptor, this, keyType, valueType);
+        this.metadata = new Metadata<K, V>(descriptor, this, keyType, valueType, config);
     }
 
     /** Create a MapEntry with the provided key and value. */
@@ -112,7 +112,15 @@ public final class MapEntry<K, V> extends AbstractMessage {
      */
     public static <K, V> MapEntry<K, V> newDefaultInstance(Descriptor descriptor, WireFormat.FieldType keyType,
             K defaultKey, WireFormat.FieldType valueType, V defaultValue) {
-        return new MapEntry<K, V>(descriptor, keyType, defaultKey, valueType, defaultValue);
+        return newDefaultInstance(descriptor, keyType, defaultKey, valueType, defaultValue, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Create a default MapEntry instance whose codecs of message values are looked up by the config.
+     */
+    public static <K, V> MapEntry<K, V> newDefaultInstance(Descriptor descriptor, WireFormat.FieldType keyType,
+            K defaultKey, WireFormat.FieldType valueType, V defaultValue, ProtobufProxyConfig config) {
+        return new MapEntry<K, V>(descriptor, keyType, defaultKey, valueType, defaultValue, config);
     }
 
     public K getKey() {
@@ -63,6 +63,9 @@ public class MapEntryLite<K, V> {
         /** The default value. */
         public final V defaultValue;
 
+        /** The config to look up codecs of message values. */
+        public final ProtobufProxyConfig config;
+
         /**
          * Instantiates a new metadata.
          *
@@ -70,12 +73,15 @@ public class MapEntryLite<K, V> {
          * @param defaultKey the default key
          * @param valueType the value type
          * @param defaultValue the default value
+         * @param config the config to look up codecs of message values
          */
-        public Metadata(WireFormat.FieldType keyType, K defaultKey, WireFormat.FieldType valueType, V defaultValue) {
+        public Metadata(WireFormat.FieldType keyType, K defaultKey, WireFormat.FieldType valueType, V defaultValue,
+                ProtobufProxyConfig config) {
             this.keyType = keyType;
             this.defaultKey = defaultKey;
             this.valueType = valueType;
             this.defaultValue = defaultValue;
+            this.config = config;
         }
     }
 
@@ -101,9 +107,11 @@ public class MapEntryLite<K, V> {
      * @param defaultKey the default key
      * @param valueType the value type
      * @param defaultValue the default value
+     * @param config the config to look up codecs of message values
      */
-    private MapEntryLite(WireFormat.FieldType keyType, K defaultKey, WireFormat.FieldType valueType, V defaultValue) {
-        this.metadata = new Metadata<K, V>(keyType, defaultKey, valueType, defaultValue);
+    private MapEntryLite(WireFormat.FieldType keyType, K defaultKey, WireFormat.FieldType valueType, V defaultValue,
+            ProtobufProxyConfig config) {
+        this.metadata = new Metadata<K, V>(keyType, defaultKey, valueType, defaultValue, config);
         this.key = defaultKey;
         this.value = defaultValue;
     }
@@ -156,7 +164,24 @@ public class MapEntryLite<K, V> {
      */
     public static <K, V> MapEntryLite<K, V> newDefaultInstance(WireFormat.FieldType keyType, K defaultKey,
             WireFormat.FieldType valueType, V defaultValue) {
-        return new MapEntryLite<K, V>(keyType, defaultKey, valueType, defaultValue);
+        return newDefaultInstance(keyType, defaultKey, valueType, defaultValue, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Creates a default MapEntryLite message instance, codecs of message values are looked up by the config.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param keyType the key type
+     * @param defaultKey the default key
+     * @param valueType the value type
+     * @param defaultValue the default value
+     * @param config the config to look up codecs of message values
+     * @return the map entry lite
+     */
+    public static <K, V> MapEntryLite<K, V> newDefaultInstance(WireFormat.FieldType keyType, K defaultKey,
+            WireFormat.FieldType valueType, V defaultValue, ProtobufProxyConfig config) {
+        return new MapEntryLite<K, V>(keyType, defaultKey, valueType, defaultValue, config);
     }
 
     /**
@@ -171,8 +196,8 @@ public class MapEntryLite<K, V> {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     static <K, V> void writeTo(CodedOutputStream output, Metadata<K, V> metadata, K key, V value) throws IOException {
-        CodedConstant.writeElement(output, metadata.keyType, KEY_FIELD_NUMBER, key);
-        CodedConstant.writeElement(output, metadata.valueType, VALUE_FIELD_NUMBER, value);
+        CodedConstant.writeElement(output, metadata.keyType, KEY_FIELD_NUMBER, key, metadata.config);
+        CodedConstant.writeElement(output, metadata.valueType, VALUE_FIELD_NUMBER, value, metadata.config);
     }
 
     /**
@@ -186,8 +211,8 @@ public class MapEntryLite<K, V> {
      * @return the int
      */
     static <K, V> int computeSerializedSize(Metadata<K, V> metadata, K key, V value) {
-        return CodedConstant.computeElementSize(metadata.keyType, KEY_FIELD_NUMBER, key)
-                + CodedConstant.computeElementSize(metadata.valueType, VALUE_FIELD_NUMBER, value);
+        return CodedConstant.computeElementSize(metadata.keyType, KEY_FIELD_NUMBER, key, metadata.config)
+                + CodedConstant.computeElementSize(metadata.valueType, VALUE_FIELD_NUMBER, value, metadata.config);
     }
 
     /**
@@ -198,17 +223,18 @@ public class MapEntryLite<K, V> {
      * @param extensionRegistry the extension registry
      * @param type the type
      * @param value the value
+     * @param config the config to look up codec of message value
      * @return the t
      * @throws IOException Signals that an I/O exception has occurred.
      */
     @SuppressWarnings("unchecked")
     static <T> T parseField(CodedInputStream input, ExtensionRegistryLite extensionRegistry, WireFormat.FieldType type,
-            T value) throws IOException {
+            T value, ProtobufProxyConfig config) throws IOException {
         switch (type) {
             case MESSAGE:
                 int length = input.readRawVarint32();
                 final int oldLimit = input.pushLimit(length);
-                Codec<? extends Object> codec = ProtobufProxy.create(value.getClass());
+                Codec<? extends Object> codec = ProtobufProxy.create(value.getClass(), config);
                 T ret = (T) codec.decode(input.readRawBytes(length));
                 input.popLimit(oldLimit);
                 return ret;
@@ -287,9 +313,9 @@ public class MapEntryLite<K, V> {
                 break;
             }
             if (tag == CodedConstant.makeTag(KEY_FIELD_NUMBER, metadata.keyType.getWireType())) {
-                key = parseField(input, extensionRegistry, metadata.keyType, key);
+                key = parseField(input, extensionRegistry, metadata.keyType, key, metadata.config);
             } else if (tag == CodedConstant.makeTag(VALUE_FIELD_NUMBER, metadata.valueType.getWireType())) {
-                value = parseField(input, extensionRegistry, metadata.valueType, value);
+                value = parseField(input, extensionRegistry, metadata.valueType, value, metadata.config);
             } else {
                 if (!input.skipField(tag)) {
                     break;
@@ -321,9 +347,9 @@ public class MapEntryLite<K, V> {
                 break;
             }
             if (tag == CodedConstant.makeTag(KEY_FIELD_NUMBER, metadata.keyType.getWireType())) {
-                key = parseField(input, extensionRegistry, metadata.keyType, key);
+                key = parseField(input, extensionRegistry, metadata.keyType, key, metadata.config);
             } else if (tag == CodedConstant.makeTag(VALUE_FIELD_NUMBER, metadata.valueType.getWireType())) {
-                value = parseField(input, extensionRegistry, metadata.valueType, value);
+                value = parseField(input, extensionRegistry, metadata.valueType, value, metadata.config);
             } else {
                 if (!input.skipField(tag)) {
                     break;
@@ -283,7 +283,7 @@ public class ProtobufIDLGenerator {
                     required = "";
                 }
 
-                if (field.isList()) {
+                if (field.isList() || field.isArray()) {
                     required = "repeated";
                 }
 
@@ -42,6 +42,8 @@ import com.baidu.bjf.remoting.protobuf.utils.CodePrinter;
 import com.baidu.bjf.remoting.protobuf.utils.JDKCompilerHelper;
 import com.baidu.bjf.remoting.protobuf.utils.JavaStyleFormatter;
 import com.baidu.bjf.remoting.protobuf.utils.StringUtils;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
 import com.baidu.jprotobuf.com.squareup.protoparser.DataType;
 import com.baidu.jprotobuf.com.squareup.protoparser.DataType.ScalarType;
 import com.baidu.jprotobuf.com.squareup.protoparser.EnumConstantElement;
@@ -969,11 +971,12 @@ public class ProtobufIDLProxy {
      * @param compiledClass the compiled class
      * @param mappedUniName the mapped uni name
      * @param isUniName the is uni name
+     * @param compiler the compiler of message and enum classes
      * @return the list
      */
     private static List<Class<?>> createEnumClasses(Map<String, EnumElement> enumTypes,
             Map<String, String> packageMapping, boolean debug, boolean generateSouceOnly, File sourceOutputDir,
-            Set<String> compiledClass, Map<String, String> mappedUniName, boolean isUniName) {
+            Set<String> compiledClass, Map<String, String> mappedUniName, boolean isUniName, Compiler compiler) {
 
         List<Class<?>> ret = new ArrayList<Class<?>>();
         Set<String> enumNames = new HashSet<String>();
@@ -999,8 +1002,8 @@ public class ProtobufIDLProxy {
             }
 
             if (!generateSouceOnly) {
-                Class<?> newClass = JDKCompilerHelper.getJdkCompiler().compile(codeDependent.getClassName(),
-                        codeDependent.code, ProtobufIDLProxy.class.getClassLoader(), null, -1);
+                Class<?> newClass = compiler.compile(codeDependent.getClassName(), codeDependent.code,
+                        ProtobufIDLProxy.class.getClassLoader(), null, -1);
                 ret.add(newClass);
             } else {
                 // need to output source code to target path
@@ -1025,11 +1028,13 @@ public class ProtobufIDLProxy {
      * @param packages the packages
      * @param mappedUniName the mapped uni name
      * @param isUniName the is uni name
+     * @param compiler the compiler of message and enum classes
      * @return the list
      */
     private static List<Class<?>> createMessageClass(ProtoFile protoFile, boolean multi, boolean debug,
             boolean generateSouceOnly, File sourceOutputDir, List<CodeDependent> cds, Set<String> compiledClass,
-            Set<String> enumNames, Set<String> packages, Map<String, String> mappedUniName, boolean isUniName) {
+            Set<String> enumNames, Set<String> packages, Map<String, String> mappedUniName, boolean isUniName,
+            Compiler compiler) {
 
         List<TypeElement> types = protoFile.typeElements();
         if (types == null || types.isEmpty()) {
@@ -1086,8 +1091,8 @@ public class ProtobufIDLProxy {
                 CodePrinter.printCode(codeDependent.code, "generate jprotobuf code");
             }
             if (!generateSouceOnly) {
-                Class<?> newClass = JDKCompilerHelper.getJdkCompiler().compile(codeDependent.getClassName(),
-                        codeDependent.code, ProtobufIDLProxy.class.getClassLoader(), null, -1);
+                Class<?> newClass = compiler.compile(codeDependent.getClassName(), codeDependent.code,
+                        ProtobufIDLProxy.class.getClassLoader(), null, -1);
                 ret.add(newClass);
             } else {
                 // need to output source code to target path
@@ -1302,7 +1307,102 @@ public class ProtobufIDLProxy {
     }
 
     /**
-     * Do create.
+     * Creates the handle of proxy objects, whose classes are unloaded after the handle is closed and the proxy objects
+     * are no longer referenced. Use this instead of {@link #create(String)} if proxy objects are created repeatedly
+     * at runtime.
+     *
+     * @param data the data
+     * @return the IDL proxy handle
+     */
+    public static IDLProxyHandle createHandle(String data) {
+        return createHandle(data, false, null);
+    }
+
+    /**
+     * Creates the handle of proxy objects.
+     *
+     * @param data the data
+     * @param debug the debug
+     * @param path the path
+     * @return the IDL proxy handle
+     * @see #createHandle(String)
+     */
+    public static IDLProxyHandle createHandle(String data, boolean debug, File path) {
+        ProtoFile protoFile = ProtoParser.parse(DEFAULT_FILE_NAME, data);
+        try {
+            return createHandle(Arrays.asList(protoFile), debug, path);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the handle of proxy objects.
+     *
+     * @param is the is
+     * @param debug the debug
+     * @param path the path
+     * @return the IDL proxy handle
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @see #createHandle(String)
+     */
+    public static IDLProxyHandle createHandle(InputStream is, boolean debug, File path) throws IOException {
+        ProtoFile protoFile = ProtoParser.parseUtf8(DEFAULT_FILE_NAME, is);
+        return createHandle(Arrays.asList(protoFile), debug, path);
+    }
+
+    /**
+     * Creates the handle of proxy objects.
+     *
+     * @param reader the reader
+     * @param debug the debug
+     * @param path the path
+     * @return the IDL proxy handle
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @see #createHandle(String)
+     */
+    public static IDLProxyHandle createHandle(Reader reader, boolean debug, File path) throws IOException {
+        ProtoFile protoFile = ProtoParser.parse(DEFAULT_FILE_NAME, reader);
+        return createHandle(Arrays.asList(protoFile), debug, path);
+    }
+
+    /**
+     * Creates the handle of proxy objects.
+     *
+     * @param file the file
+     * @param debug the debug
+     * @param path the path
+     * @return the IDL proxy handle
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @see #createHandle(String)
+     */
+    public static IDLProxyHandle createHandle(File file, boolean debug, File path) throws IOException {
+        // to find all PROTO file if using import command
+        List<ProtoFile> protoFiles = findRelateProtoFiles(file, new HashSet<String>());
+        Collections.reverse(protoFiles);
+        return createHandle(protoFiles, debug, path);
+    }
+
+    /**
+     * Creates the handle of proxy objects by a child compiler. Class names need not be unique as classes of each
+     * handle are defined by its own class loader.
+     *
+     * @param protoFiles the proto files
+     * @param debug the debug
+     * @param path the path
+     * @return the IDL proxy handle
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static IDLProxyHandle createHandle(List<ProtoFile> protoFiles, boolean debug, File path)
+            throws IOException {
+        JdkCompiler compiler = JDKCompilerHelper.newChildJdkCompiler();
+        Map<String, IDLProxyObject> proxyObjects = doCreatePro(protoFiles, true, debug, path, false, null,
+                new ArrayList<CodeDependent>(), new HashSet<String>(), new HashMap<String, String>(), false, compiler);
+        return new IDLProxyHandle(proxyObjects);
+    }
+
+    /**
+     * Do create by default compiler.
      *
      * @param protoFile the proto file
      * @param multi the multi
@@ -1319,12 +1419,35 @@ public class ProtobufIDLProxy {
     private static Map<String, IDLProxyObject> doCreate(ProtoFile protoFile, boolean multi, boolean debug, File path,
             boolean generateSouceOnly, File sourceOutputDir, List<CodeDependent> cds, Map<String, String> mappedUniName,
             boolean isUniName) throws IOException {
+        return doCreate(protoFile, multi, debug, path, generateSouceOnly, sourceOutputDir, cds, mappedUniName,
+                isUniName, JDKCompilerHelper.getJdkCompiler());
+    }
+
+    /**
+     * Do create.
+     *
+     * @param protoFile the proto file
+     * @param multi the multi
+     * @param debug the debug
+     * @param path the path
+     * @param generateSouceOnly the generate souce only
+     * @param sourceOutputDir the source output dir
+     * @param cds the cds
+     * @param mappedUniName the mapped uni name
+     * @param isUniName the is uni name
+     * @param compiler the compiler of message and enum classes
+     * @return the map
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Map<String, IDLProxyObject> doCreate(ProtoFile protoFile, boolean multi, boolean debug, File path,
+            boolean generateSouceOnly, File sourceOutputDir, List<CodeDependent> cds, Map<String, String> mappedUniName,
+            boolean isUniName, Compiler compiler) throws IOException {
         return doCreatePro(Arrays.asList(protoFile), multi, debug, path, generateSouceOnly, sourceOutputDir, cds,
-                new HashSet<String>(), mappedUniName, isUniName);
+                new HashSet<String>(), mappedUniName, isUniName, compiler);
     }
 
     /**
-     * Do create pro.
+     * Do create pro by default compiler.
      *
      * @param file the file
      * @param multi the multi
@@ -1342,6 +1465,30 @@ public class ProtobufIDLProxy {
     private static Map<String, IDLProxyObject> doCreatePro(File file, boolean multi, boolean debug, File path,
             boolean generateSouceOnly, File sourceOutputDir, List<CodeDependent> cds, Set<String> compiledClass,
             Map<String, String> mappedUniName, boolean isUniName) throws IOException {
+        return doCreatePro(file, multi, debug, path, generateSouceOnly, sourceOutputDir, cds, compiledClass,
+                mappedUniName, isUniName, JDKCompilerHelper.getJdkCompiler());
+    }
+
+    /**
+     * Do create pro.
+     *
+     * @param file the file
+     * @param multi the multi
+     * @param debug the debug
+     * @param path the path
+     * @param generateSouceOnly the generate souce only
+     * @param sourceOutputDir the source output dir
+     * @param cds the cds
+     * @param compiledClass the compiled class
+     * @param mappedUniName the mapped uni name
+     * @param isUniName the is uni name
+     * @param compiler the compiler of message and enum classes
+     * @return the map
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Map<String, IDLProxyObject> doCreatePro(File file, boolean multi, boolean debug, File path,
+            boolean generateSouceOnly, File sourceOutputDir, List<CodeDependent> cds, Set<String> compiledClass,
+            Map<String, String> mappedUniName, boolean isUniName, Compiler compiler) throws IOException {
 
         checkDirectory(generateSouceOnly, sourceOutputDir);
 
@@ -1349,7 +1496,7 @@ public class ProtobufIDLProxy {
         List<ProtoFile> protoFiles = findRelateProtoFiles(file, new HashSet<String>());
         Collections.reverse(protoFiles);
         return doCreatePro(protoFiles, multi, debug, path, generateSouceOnly, sourceOutputDir, cds, compiledClass,
-                mappedUniName, isUniName);
+                mappedUniName, isUniName, compiler);
 
     }
 
@@ -1366,12 +1513,14 @@ public class ProtobufIDLProxy {
      * @param compiledClass the compiled class
      * @param mappedUniName the mapped uni name
      * @param isUniName the is uni name
+     * @param compiler the compiler of message and enum classes
      * @return the map
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private static Map<String, IDLProxyObject> doCreatePro(List<ProtoFile> protoFiles, boolean multi, boolean debug,
             File path, boolean generateSouceOnly, File sourceOutputDir, List<CodeDependent> cds,
-            Set<String> compiledClass, Map<String, String> mappedUniName, boolean isUniName) throws IOException {
+            Set<String> compiledClass, Map<String, String> mappedUniName, boolean isUniName, Compiler compiler)
+            throws IOException {
 
         int count = 0;
 
@@ -1418,13 +1567,13 @@ public class ProtobufIDLProxy {
 
         // create enum type classes
         List<Class<?>> clsList = createEnumClasses(enumTypes, packageMapping, debug, generateSouceOnly, sourceOutputDir,
-                compiledClass, mappedUniName, isUniName);
+                compiledClass, mappedUniName, isUniName, compiler);
 
         for (ProtoFile protoFile : protoFiles) {
             // create message type classes
             List<Class<?>> messageClasses =
                     createMessageClass(protoFile, multi, debug, generateSouceOnly, sourceOutputDir, cds, compiledClass,
-                            new HashSet<String>(enumTypes.keySet()), packages, mappedUniName, isUniName);
+                            new HashSet<String>(enumTypes.keySet()), packages, mappedUniName, isUniName, compiler);
             clsList.addAll(messageClasses);
 
         }
@@ -22,20 +22,47 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.baidu.bjf.remoting.protobuf.annotation.Ignore;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;
+import com.baidu.bjf.remoting.protobuf.code.AbstractCodeGenerator;
+import com.baidu.bjf.remoting.protobuf.code.CodecWarmer;
+import com.baidu.bjf.remoting.protobuf.code.CodedConstant;
 import com.baidu.bjf.remoting.protobuf.code.ICodeGenerator;
 import com.baidu.bjf.remoting.protobuf.code.TemplateCodeGenerator;
 import com.baidu.bjf.remoting.protobuf.utils.ClassHelper;
+import com.baidu.bjf.remoting.protobuf.utils.ClassScanner;
 import com.baidu.bjf.remoting.protobuf.utils.CodePrinter;
+import com.baidu.bjf.remoting.protobuf.utils.FieldUtils;
 import com.baidu.bjf.remoting.protobuf.utils.JDKCompilerHelper;
 import com.baidu.bjf.remoting.protobuf.utils.StringUtils;
 import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
@@ -69,9 +96,32 @@ public final class ProtobufProxy {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProtobufProxy.class.getName());
 
     /**
-     * cached {@link Codec} instance by class name.
+     * cached {@link Codec} instance by class. Codecs are kept along with their target classes, so classes with the same
+     * name from different class loaders have their own codecs, and codecs are released once the class is unloaded.
+     * There is no cache by class name, every lookup has the target class.
      */
-    private static final Map<String, Codec> CACHED = new ConcurrentHashMap<String, Codec>();
+    private static final CodecClassValue CACHED = new CodecClassValue();
+
+    /**
+     * Classes with cached {@link Codec}, weakly referenced to not prevent classes from being unloaded. Guarded by
+     * itself.
+     */
+    private static final Set<Class<?>> CACHED_CLASSES =
+            Collections.newSetFromMap(new WeakHashMap<Class<?>, Boolean>());
+
+    /**
+     * {@link Codec} creations in progress by class, concurrent callers of the same class wait for the one creation
+     * instead of generating and compiling it again. Only used if cache is enabled, as each call creates its own codec
+     * without cache.
+     */
+    private static final ConcurrentMap<Class<?>, FutureTask<Codec>> CREATING =
+            new ConcurrentHashMap<Class<?>, FutureTask<Codec>>();
+
+    /**
+     * Classes whose {@link Codec} creations are running on current thread. Creating the codec of one of them again,
+     * e.g. from code generation or class initialization, would wait for the single flight task the same thread runs.
+     */
+    private static final ThreadLocal<Set<Class<?>>> IN_FLIGHT = new ThreadLocal<Set<Class<?>>>();
 
     /** The Constant OUTPUT_PATH for target directory to create generated source code out. */
     public static final ThreadLocal<File> OUTPUT_PATH = new ThreadLocal<File>();
@@ -80,13 +130,63 @@ public final class ProtobufProxy {
     public static final ThreadLocal<Boolean> CACHE_ENABLED = new ThreadLocal<Boolean>();
 
     /** The Constant for debug control from environment. */
-    private static final String DEBUG_CONTROL = "X_DEBUG_ENABLE";
+    static final String DEBUG_CONTROL = "X_DEBUG_ENABLE";
+
+    /** The default encode strategy for classes without {@link com.baidu.bjf.remoting.protobuf.annotation.Encoding}. */
+    private static volatile EncodeStrategy encodeStrategy = EncodeStrategy.SIZE_FIRST;
+
+    /** The default thread count of warm up. compilation is serialized by compiler, so a small pool is enough. */
+    private static final int DEFAULT_WARM_UP_THREADS = 2;
+
+    /** The max count of scanned classes to compile in one compilation task during warm up. */
+    private static final int WARM_UP_BATCH_SIZE = 64;
+
+    /** The thread sequence of warm up. */
+    private static final AtomicInteger WARM_UP_THREAD_SEQ = new AtomicInteger();
 
     /**
      * Clear cache.
      */
     public static void clearCache() {
-        CACHED.clear();
+        synchronized (CACHED_CLASSES) {
+            for (Class<?> cls : CACHED_CLASSES) {
+                CACHED.get(cls).set(null);
+            }
+            CACHED_CLASSES.clear();
+        }
+    }
+
+    /**
+     * Gets the cached codec.
+     *
+     * @param <T> the generic type
+     * @param cls the target class
+     * @return the cached codec, null if absent
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Codec<T> getCached(Class<T> cls) {
+        return (Codec<T>) CACHED.get(cls).get();
+    }
+
+    /**
+     * Put codec into cache if absent.
+     *
+     * @param <T> the generic type
+     * @param cls the target class
+     * @param codec the codec
+     * @return the codec cached already if present, otherwise the codec put
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Codec<T> putCached(Class<?> cls, Codec<T> codec) {
+        AtomicReference<Codec<?>> ref = CACHED.get(cls);
+        // along with clear cache, so every cached codec is tracked
+        synchronized (CACHED_CLASSES) {
+            if (ref.compareAndSet(null, codec)) {
+                CACHED_CLASSES.add(cls);
+                return codec;
+            }
+            return (Codec<T>) ref.get();
+        }
     }
 
     /**
@@ -138,21 +238,69 @@ public final class ProtobufProxy {
      * @return proxy instance object.
      */
     public static <T> Codec<T> create(Class<T> cls, boolean debug, File path) {
-        String uniClsName = cls.getName();
         // to check cache early
         if (isCacheEnabled()) {
-            Codec<T> codec = CACHED.get(uniClsName);
+            Codec<T> codec = getCached(cls);
             if (codec != null) {
                 return codec;
             }
         }
-        String className = getFullClassName(cls);
-        Codec<T> codec = loadCompiledClass(uniClsName, className);
+        return createUncached(cls, newConfig(debug, isCacheEnabled(), path));
+    }
+
+    /**
+     * To create a protobuf proxy class for target class on cache miss, from precompiled class or by compiling generated
+     * source.
+     *
+     * @param <T> the generic type
+     * @param cls the target class
+     * @param config the config
+     * @return the codec
+     */
+    private static <T> Codec<T> createUncached(Class<T> cls, ProtobufProxyConfig config) {
+        Codec<T> codec = loadCompiledClass(cls, getFullClassName(cls), config);
         if (codec != null) {
             return codec;
         }
+        return doCreate(cls, config, null, getCodeGenerator(cls));
+    }
+
+    /**
+     * Gets the config, shared instance is returned if cache is enabled and no output path.
+     *
+     * @param debug the debug
+     * @param cacheEnabled the cache enabled
+     * @param path the output path
+     * @return the config
+     */
+    private static ProtobufProxyConfig newConfig(boolean debug, boolean cacheEnabled, File path) {
+        if (cacheEnabled && path == null) {
+            return ProtobufProxyConfig.of(debug, null);
+        }
+        return new ProtobufProxyConfig(debug, cacheEnabled, path);
+    }
+
+    /**
+     * To create a protobuf proxy class for target class by the config captured before, e.g. by codec of outer message.
+     * Settings are read from the config only, no thread local is read or changed.
+     *
+     * @param <T> target object type to be proxied.
+     * @param cls target object class
+     * @param config the config
+     * @return proxy instance object.
+     */
+    public static <T> Codec<T> create(Class<T> cls, ProtobufProxyConfig config) {
+        if (config == null) {
+            throw new NullPointerException("Param 'config' is null.");
+        }
+        if (config.isCacheEnabled()) {
+            Codec<T> codec = getCached(cls);
+            if (codec != null) {
+                return codec;
+            }
+        }
 
-        return create(cls, debug, path, null, getCodeGenerator(cls));
+        return createUncached(cls, config);
     }
 
     /**
@@ -168,15 +316,7 @@ public final class ProtobufProxy {
      */
     public static <T> Codec<T> create(Class<T> cls, boolean debug, File path, Compiler compiler,
             ICodeGenerator codeGenerator) {
-        DEBUG_CONTROLLER.set(debug);
-        OUTPUT_PATH.set(path);
-        try {
-            return doCreate(cls, isDebugEnabled(), compiler, codeGenerator);
-        } finally {
-            DEBUG_CONTROLLER.remove();
-            OUTPUT_PATH.remove();
-        }
-
+        return doCreate(cls, newConfig(debug, isCacheEnabled(), path), compiler, codeGenerator);
     }
 
     /**
@@ -203,6 +343,21 @@ public final class ProtobufProxy {
      * @return proxy instance object.
      */
     protected static <T> Codec<T> doCreate(Class<T> cls, boolean debug, Compiler compiler, ICodeGenerator cg) {
+        return doCreate(cls, newConfig(debug, isCacheEnabled(), OUTPUT_PATH.get()), compiler, cg);
+    }
+
+    /**
+     * To create a protobuf proxy class for target class by the config.
+     *
+     * @param <T> target object type to be proxied.
+     * @param cls target object class
+     * @param config the config
+     * @param compiler the compiler
+     * @param cg the cg
+     * @return proxy instance object.
+     */
+    private static <T> Codec<T> doCreate(Class<T> cls, ProtobufProxyConfig config, Compiler compiler,
+            ICodeGenerator cg) {
         if (cls == null) {
             throw new NullPointerException("Parameter cls is null");
         }
@@ -213,22 +368,143 @@ public final class ProtobufProxy {
             return null;
         }
 
-        String uniClsName = cls.getName();
-        if (isCacheEnabled()) {
-            Codec codec = CACHED.get(uniClsName);
+        if (!config.isCacheEnabled()) {
+            // every call asks for its own codec without cache, so there is no result to share by single flight
+            enterInFlight(cls);
+            Codec<T> codec;
+            try {
+                codec = createCodec(cls, config, compiler, cg);
+            } finally {
+                exitInFlight(cls);
+            }
+            loadRelativeProxyClasses(cg, config, compiler);
+            return codec;
+        }
+        Codec codec = getCached(cls);
+        if (codec != null) {
+            return codec;
+        }
+
+        // single flight, only the thread which runs the task creates codec and others wait for its result
+        enterInFlight(cls);
+        FutureTask<Codec> task = CREATING.computeIfAbsent(cls,
+                k -> new FutureTask<Codec>(() -> createCodec(cls, config, compiler, cg)));
+        try {
+            codec = runTask(task, cls);
+        } finally {
+            CREATING.remove(cls, task);
+            exitInFlight(cls);
+        }
+        // outside of single flight, otherwise two classes relative to each other may wait for each other
+        loadRelativeProxyClasses(cg, config, compiler);
+        return codec;
+    }
+
+    /**
+     * Runs the single flight task if not started yet, and waits for its result.
+     *
+     * @param <V> the result type
+     * @param task the task
+     * @param cls the target class
+     * @return the result
+     */
+    private static <V> V runTask(FutureTask<V> task, Class<?> cls) {
+        try {
+            task.run();
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting codec creation of class " + cls.getName(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Marks codec creation of target class running on current thread, fails fast if current thread is creating the
+     * codec of the same class already, which would wait for itself forever or recurse endlessly.
+     *
+     * @param cls the target class
+     */
+    private static void enterInFlight(Class<?> cls) {
+        Set<Class<?>> inFlight = IN_FLIGHT.get();
+        if (inFlight == null) {
+            inFlight = new HashSet<Class<?>>();
+            IN_FLIGHT.set(inFlight);
+        }
+        if (!inFlight.add(cls)) {
+            throw new IllegalStateException("Codec of class '" + cls.getName()
+                    + "' is already being created by current thread, recursive creation is not supported.");
+        }
+    }
+
+    /**
+     * Unmarks codec creation of target class on current thread.
+     *
+     * @param cls the target class
+     */
+    private static void exitInFlight(Class<?> cls) {
+        Set<Class<?>> inFlight = IN_FLIGHT.get();
+        if (inFlight != null && inFlight.remove(cls) && inFlight.isEmpty()) {
+            IN_FLIGHT.remove();
+        }
+    }
+
+    /**
+     * Try to eager load codecs of relative proxy classes.
+     *
+     * @param cg the cg
+     * @param config the config
+     * @param compiler the compiler
+     */
+    private static void loadRelativeProxyClasses(ICodeGenerator cg, ProtobufProxyConfig config, Compiler compiler) {
+        try {
+            // try to eagle load
+            Set<Class<?>> relativeProxyClasses = cg.getRelativeProxyClasses();
+            for (Class<?> relativeClass : relativeProxyClasses) {
+                doCreate(relativeClass, config, compiler, cg);
+            }
+        } catch (Exception e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Generate and compile codec class then create its instance.
+     *
+     * @param <T> the generic type
+     * @param cls the cls
+     * @param config the config
+     * @param compiler the compiler
+     * @param cg the cg
+     * @return the codec
+     */
+    private static <T> Codec<T> createCodec(Class<T> cls, ProtobufProxyConfig config, Compiler compiler,
+            ICodeGenerator cg) {
+        if (config.isCacheEnabled()) {
+            Codec<T> codec = getCached(cls);
             if (codec != null) {
                 return codec;
             }
         }
 
         // crate code generator
+        boolean debug = config.isDebug();
         cg.setDebug(debug);
-        File path = OUTPUT_PATH.get();
+        File path = config.getOutputPath();
         cg.setOutputPath(path);
 
         // try to load first
         String className = cg.getFullClassName();
-        Codec<T> codec = loadCompiledClass(uniClsName, className);
+        Codec<T> codec = loadCompiledClass(cls, className, config);
         if (codec != null) {
             return codec;
         }
@@ -241,18 +517,8 @@ public final class ProtobufProxy {
 
         FileOutputStream fos = null;
         if (path != null && path.isDirectory()) {
-            String pkg = "";
-            if (className.indexOf('.') != -1) {
-                pkg = StringUtils.substringBeforeLast(className, ".");
-            }
-
-            // mkdirs
-            String dir = path + File.separator + pkg.replace('.', File.separatorChar);
-            File f = new File(dir);
-            f.mkdirs();
-
             try {
-                fos = new FileOutputStream(new File(f, cg.getClassName() + ".class"));
+                fos = new FileOutputStream(getClassFile(path, className));
             } catch (Exception e) {
                 throw new RuntimeException(e.getMessage(), e);
             }
@@ -260,7 +526,7 @@ public final class ProtobufProxy {
         }
 
         if (compiler == null) {
-            compiler = JDKCompilerHelper.getJdkCompiler();
+            compiler = JDKCompilerHelper.getJdkCompiler(cls);
         }
         Class<?> newClass;
 
@@ -282,32 +548,493 @@ public final class ProtobufProxy {
             }
         }
 
+        return newCodec(cls, newClass, config);
+    }
+
+    /**
+     * To create protobuf proxy classes for target classes and all their dependent message classes. Sources of codecs
+     * not created yet are generated first and then compiled together in one compilation task for each class loader,
+     * which saves the start up cost of compiling them one by one. If cache is enabled, the creations join the single
+     * flight of {@link #create(Class)}, so codecs being created by other threads are waited for instead of compiled
+     * again, and other threads creating codecs of these classes wait for this compilation.
+     *
+     * @param classes target classes
+     * @return codec instances by class, includes dependent message classes
+     */
+    public static Map<Class<?>, Codec<?>> createAll(Collection<Class<?>> classes) {
+        if (classes == null) {
+            throw new NullPointerException("Param 'classes' is null.");
+        }
+        final ProtobufProxyConfig config = getConfig();
+
+        // walk dependency closure
+        final Map<Class<?>, ICodeGenerator> generators = new LinkedHashMap<Class<?>, ICodeGenerator>();
+        for (Class<?> cls : classes) {
+            if (generators.containsKey(cls) || cls.getAnnotation(Ignore.class) != null) {
+                continue;
+            }
+            ICodeGenerator cg = getCodeGenerator(cls);
+            generators.put(cls, cg);
+            if (cg instanceof AbstractCodeGenerator) {
+                Set<Class> dependencies = new LinkedHashSet<Class>();
+                ((AbstractCodeGenerator) cg).getAllDependenciesClasses(dependencies);
+                for (Class<?> dependency : dependencies) {
+                    if (isMessageClass(dependency) && !generators.containsKey(dependency)) {
+                        generators.put(dependency, null);
+                    }
+                }
+            }
+        }
+
+        Map<Class<?>, Codec<?>> ret = new LinkedHashMap<Class<?>, Codec<?>>();
+        List<Class<?>> compiling = new ArrayList<Class<?>>();
+        for (Class<?> cls : generators.keySet()) {
+            Codec<?> codec = config.isCacheEnabled() ? getCached(cls) : null;
+            if (codec == null) {
+                codec = loadCompiledClass(cls, getFullClassName(cls), config);
+            }
+            if (codec != null) {
+                ret.put(cls, codec);
+            } else {
+                compiling.add(cls);
+            }
+        }
+        if (!config.isCacheEnabled()) {
+            ret.putAll(compileAll(compiling, generators, config));
+            return ret;
+        }
+
+        // register single flight tasks first, the classes registered by this call are compiled by one batch
+        final Set<Class<?>> owned = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+        final FutureTask<Map<Class<?>, Codec<?>>> batch = new FutureTask<Map<Class<?>, Codec<?>>>(
+                () -> compileAll(new ArrayList<Class<?>>(owned), generators, config));
+        Map<Class<?>, FutureTask<Codec>> tasks = new LinkedHashMap<Class<?>, FutureTask<Codec>>();
+        for (final Class<?> cls : compiling) {
+            FutureTask<Codec> task = new FutureTask<Codec>(() -> {
+                Codec codec = runTask(batch, cls).get(cls);
+                if (codec != null) {
+                    return codec;
+                }
+                // registered after the batch was started by another thread
+                ICodeGenerator cg = generators.get(cls) != null ? generators.get(cls) : getCodeGenerator(cls);
+                return createCodec(cls, config, null, cg);
+            });
+            FutureTask<Codec> running = CREATING.putIfAbsent(cls, task);
+            if (running == null) {
+                owned.add(cls);
+            }
+            tasks.put(cls, running != null ? running : task);
+        }
+
+        List<Class<?>> entered = new ArrayList<Class<?>>();
         try {
-            Codec<T> newInstance = (Codec<T>)newClass.getDeclaredConstructor(new Class[0]).newInstance(new Object[0]);
-            if (!CACHED.containsKey(uniClsName)) {
-                CACHED.put(uniClsName, newInstance);
+            for (Class<?> cls : tasks.keySet()) {
+                enterInFlight(cls);
+                entered.add(cls);
+            }
+            for (Map.Entry<Class<?>, FutureTask<Codec>> entry : tasks.entrySet()) {
+                ret.put(entry.getKey(), runTask(entry.getValue(), entry.getKey()));
             }
+        } finally {
+            for (Map.Entry<Class<?>, FutureTask<Codec>> entry : tasks.entrySet()) {
+                CREATING.remove(entry.getKey(), entry.getValue());
+            }
+            for (Class<?> cls : entered) {
+                exitInFlight(cls);
+            }
+        }
+        return ret;
+    }
 
-            try {
-                // try to eagle load
-                Set<Class<?>> relativeProxyClasses = cg.getRelativeProxyClasses();
-                for (Class<?> relativeClass : relativeProxyClasses) {
-                    ProtobufProxy.create(relativeClass, debug, path, compiler, cg);
+    /**
+     * Generate codec sources of target classes and compile them in one compilation task for each class loader. Class
+     * files are written to the output path if it is a directory.
+     *
+     * @param classes the target classes
+     * @param generators the code generators by class, null value if not created yet
+     * @param config the config
+     * @return the codecs by class
+     */
+    private static Map<Class<?>, Codec<?>> compileAll(List<Class<?>> classes,
+            Map<Class<?>, ICodeGenerator> generators, ProtobufProxyConfig config) {
+        boolean debug = config.isDebug();
+        File path = config.getOutputPath();
+        Map<ClassLoader, Map<String, String>> sources = new LinkedHashMap<ClassLoader, Map<String, String>>();
+        Map<String, Class<?>> targets = new HashMap<String, Class<?>>();
+        for (Class<?> cls : classes) {
+            ICodeGenerator cg = generators.get(cls) != null ? generators.get(cls) : getCodeGenerator(cls);
+            cg.setDebug(debug);
+            cg.setOutputPath(path);
+            String code = cg.getCode();
+            if (debug) {
+                CodePrinter.printCode(code, "generate protobuf proxy code");
+            }
+            String className = cg.getFullClassName();
+            Map<String, String> loaderSources = sources.get(cls.getClassLoader());
+            if (loaderSources == null) {
+                loaderSources = new LinkedHashMap<String, String>();
+                sources.put(cls.getClassLoader(), loaderSources);
+            }
+            loaderSources.put(className, code);
+            targets.put(className, cls);
+        }
+
+        Map<Class<?>, Codec<?>> ret = new LinkedHashMap<Class<?>, Codec<?>>();
+        for (Map.Entry<ClassLoader, Map<String, String>> entry : sources.entrySet()) {
+            Map<String, Class<?>> compiled = compileAll(entry.getValue(), entry.getKey(), path);
+            for (Map.Entry<String, Class<?>> c : compiled.entrySet()) {
+                Class<?> cls = targets.get(c.getKey());
+                ret.put(cls, newCodec(cls, c.getValue(), config));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Compile codec sources of classes loaded by the same class loader. The compiler is chosen by visibility of target
+     * classes up front and compilation errors are thrown as is, as compiling the batch again by another compiler
+     * fails the same way.
+     *
+     * @param sources the sources by full class name
+     * @param loader the class loader of target classes
+     * @param path the output path
+     * @return the compiled classes by full class name
+     */
+    private static Map<String, Class<?>> compileAll(Map<String, String> sources, ClassLoader loader, File path) {
+        // compiler of the class loader is used if target classes are not visible to default compiler
+        Compiler compiler = JDKCompilerHelper.getJdkCompiler();
+        if (loader != null && !isVisible(loader, JDKCompilerHelper.class.getClassLoader())) {
+            compiler = JDKCompilerHelper.getJdkCompiler(loader);
+        }
+        Map<String, Class<?>> compiled = compiler.compile(sources, loader);
+        if (path != null && path.isDirectory()) {
+            for (String className : compiled.keySet()) {
+                byte[] bytes = compiler.loadBytes(className);
+                if (bytes == null) {
+                    continue;
                 }
-            } catch (Exception e) {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug(e.getMessage(), e);
+                try (FileOutputStream fos = new FileOutputStream(getClassFile(path, className))) {
+                    fos.write(bytes);
+                } catch (IOException e) {
+                    throw new RuntimeException(e.getMessage(), e);
                 }
             }
+        }
+        return compiled;
+    }
 
-            return newInstance;
-        } catch (IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        } catch (InstantiationException e) {
+    /**
+     * Gets the class file of the class under the output path, parent directories are created if absent.
+     *
+     * @param path the output path
+     * @param className the full class name
+     * @return the class file
+     */
+    private static File getClassFile(File path, String className) {
+        String pkg = "";
+        String simpleName = className;
+        if (className.indexOf('.') != -1) {
+            pkg = StringUtils.substringBeforeLast(className, ".");
+            simpleName = StringUtils.substringAfterLast(className, ".");
+        }
+
+        // mkdirs
+        File dir = new File(path + File.separator + pkg.replace('.', File.separatorChar));
+        dir.mkdirs();
+        return new File(dir, simpleName + ".class");
+    }
+
+    /**
+     * Checks if classes of the class loader are visible from another class loader, that is the same or its ancestor.
+     *
+     * @param loader the class loader
+     * @param from the class loader to check from
+     * @return true, if is visible
+     */
+    private static boolean isVisible(ClassLoader loader, ClassLoader from) {
+        for (ClassLoader cl = from; cl != null; cl = cl.getParent()) {
+            if (cl == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create codec instance of compiled class with the config and put into cache if enabled, returns the one cached
+     * already if present. Codecs generated by earlier versions have no constructor of config, and capture the config
+     * of current thread instead.
+     *
+     * @param <T> the generic type
+     * @param cls the target class
+     * @param codecClass the codec class
+     * @param config the config
+     * @return the codec
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Codec<T> newCodec(Class<?> cls, Class<?> codecClass, ProtobufProxyConfig config) {
+        Codec<T> codec;
+        try {
+            Constructor<?> constructor;
+            try {
+                constructor = codecClass.getConstructor(ProtobufProxyConfig.class);
+            } catch (NoSuchMethodException e) {
+                constructor = null;
+            }
+            codec = (Codec<T>) (constructor != null ? constructor.newInstance(config)
+                    : codecClass.getDeclaredConstructor(new Class[0]).newInstance(new Object[0]));
+        } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e.getMessage(), e);
-        } catch (IllegalAccessException e) {
+        }
+        return config.isCacheEnabled() ? putCached(cls, codec) : codec;
+    }
+
+    /**
+     * Checks if dependency class is a message class which needs codec.
+     *
+     * @param cls the dependency class
+     * @return true, if is message class
+     */
+    private static boolean isMessageClass(Class<?> cls) {
+        return CodedConstant.getMapElementFieldType(cls) == FieldType.OBJECT && cls != Object.class
+                && !cls.isInterface() && !cls.isArray() && !Modifier.isAbstract(cls.getModifiers())
+                && !cls.getName().startsWith("java.") && cls.getAnnotation(Ignore.class) == null;
+    }
+
+    /**
+     * To create codecs in background for classes under target packages, which are marked by {@link ProtobufClass} or
+     * have fields marked by {@link Protobuf}, so that the first encode or decode of them does not pay the generation
+     * and compile cost.
+     *
+     * @param packages the package names to scan
+     * @return the future of created codecs by class, includes dependent message classes
+     * @see #warmUp(ClassLoader, int, WarmUpListener, String...)
+     */
+    public static CompletableFuture<Map<Class<?>, Codec<?>>> warmUp(String... packages) {
+        ClassLoader classLoader = getClassLoader();
+        if (classLoader == null) {
+            classLoader = ProtobufProxy.class.getClassLoader();
+        }
+        return warmUp(classLoader, DEFAULT_WARM_UP_THREADS, null, packages);
+    }
+
+    /**
+     * To create codecs in background for classes under target packages, which are marked by {@link ProtobufClass} or
+     * have fields marked by {@link Protobuf}. Classes are scanned and created by {@link #createAll(Collection)} in
+     * batches on a fixed size pool of daemon threads, which is shut down once completed. Classes of a failed batch are
+     * created one by one, so one bad class does not fail the others.
+     *
+     * @param classLoader the class loader to scan and load classes
+     * @param threads the thread count
+     * @param listener the progress listener, could be null
+     * @param packages the package names to scan
+     * @return the future of created codecs by class, includes dependent message classes. it completes exceptionally
+     *         only if scan failed, failures of classes are reported to listener
+     */
+    public static CompletableFuture<Map<Class<?>, Codec<?>>> warmUp(final ClassLoader classLoader, int threads,
+            final WarmUpListener listener, final String... packages) {
+        if (classLoader == null) {
+            throw new NullPointerException("Param 'classLoader' is null.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Param 'threads' should be positive. threads=" + threads);
+        }
+        final ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), r -> {
+                    Thread t = new Thread(r, "jprotobuf-warmup-" + WARM_UP_THREAD_SEQ.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        final long start = System.currentTimeMillis();
+        CompletableFuture<Map<Class<?>, Codec<?>>> future = CompletableFuture
+                .supplyAsync(() -> scanWarmUpClasses(classLoader, packages), executor).thenCompose(classes -> {
+                    Map<Class<?>, Codec<?>> ret = new ConcurrentHashMap<Class<?>, Codec<?>>();
+                    AtomicInteger completed = new AtomicInteger();
+                    List<CompletableFuture<Void>> batches = new ArrayList<CompletableFuture<Void>>();
+                    for (int i = 0; i < classes.size(); i += WARM_UP_BATCH_SIZE) {
+                        List<Class<?>> batch = classes.subList(i, Math.min(i + WARM_UP_BATCH_SIZE, classes.size()));
+                        batches.add(CompletableFuture.runAsync(
+                                () -> warmUpBatch(batch, ret, completed, classes.size(), listener), executor));
+                    }
+                    return CompletableFuture.allOf(batches.toArray(new CompletableFuture[batches.size()]))
+                            .thenApply(v -> ret);
+                });
+        return future.whenComplete((ret, e) -> {
+            executor.shutdown();
+            if (ret != null) {
+                LOGGER.info("Warm up " + ret.size() + " codecs in " + (System.currentTimeMillis() - start) + " ms.");
+            }
+        });
+    }
+
+    /**
+     * To warm up just in time compilation of all cached codecs, encode, decode and size of them are called with
+     * synthesized sample objects until {@link CodecWarmer#DEFAULT_ITERATIONS} or the time budget is used up. It is
+     * opt-in and runs in current thread, usually after {@link #warmUp(String...)} completed.
+     *
+     * @param budgetMillis the time budget in milliseconds
+     * @return the classes which codecs are warmed
+     */
+    public static Set<Class<?>> warmUpJit(long budgetMillis) {
+        Map<Class<?>, Codec<?>> codecs = new LinkedHashMap<Class<?>, Codec<?>>();
+        Class<?>[] classes;
+        synchronized (CACHED_CLASSES) {
+            classes = CACHED_CLASSES.toArray(new Class<?>[CACHED_CLASSES.size()]);
+        }
+        for (Class<?> cls : classes) {
+            Codec<?> codec = getCached(cls);
+            if (codec != null) {
+                codecs.put(cls, codec);
+            }
+        }
+        return CodecWarmer.warm(codecs, CodecWarmer.DEFAULT_ITERATIONS, budgetMillis);
+    }
+
+    /**
+     * To warm up just in time compilation of codecs of target classes, codecs are created if absent.
+     *
+     * @param classes the target classes
+     * @param budgetMillis the time budget in milliseconds
+     * @return the classes which codecs are warmed
+     * @see #warmUpJit(long)
+     */
+    public static Set<Class<?>> warmUpJit(Collection<Class<?>> classes, long budgetMillis) {
+        return warmUpJit(classes, CodecWarmer.DEFAULT_ITERATIONS, budgetMillis);
+    }
+
+    /**
+     * To warm up just in time compilation of codecs of target classes by the iterations, codecs are created if absent.
+     *
+     * @param classes the target classes
+     * @param iterations the iterations of each codec
+     * @param budgetMillis the time budget in milliseconds
+     * @return the classes which codecs are warmed
+     * @see #warmUpJit(long)
+     */
+    public static Set<Class<?>> warmUpJit(Collection<Class<?>> classes, int iterations, long budgetMillis) {
+        if (classes == null) {
+            throw new NullPointerException("Param 'classes' is null.");
+        }
+        Map<Class<?>, Codec<?>> codecs = new LinkedHashMap<Class<?>, Codec<?>>();
+        for (Class<?> cls : classes) {
+            codecs.put(cls, create(cls));
+        }
+        return CodecWarmer.warm(codecs, iterations, budgetMillis);
+    }
+
+    /**
+     * Scan classes to warm up.
+     *
+     * @param classLoader the class loader
+     * @param packages the package names
+     * @return the classes
+     */
+    private static List<Class<?>> scanWarmUpClasses(ClassLoader classLoader, String... packages) {
+        Set<String> names;
+        try {
+            names = ClassScanner.scan(classLoader, packages);
+        } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
+        List<Class<?>> ret = new ArrayList<Class<?>>();
+        for (String name : names) {
+            Class<?> cls;
+            try {
+                cls = Class.forName(name, false, classLoader);
+            } catch (Throwable e) {
+                continue;
+            }
+            if (isWarmUpClass(cls)) {
+                ret.add(cls);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks if class is a message class to warm up, which is marked by {@link ProtobufClass} or has fields marked by
+     * {@link Protobuf}.
+     *
+     * @param cls the class
+     * @return true, if is warm up class
+     */
+    private static boolean isWarmUpClass(Class<?> cls) {
+        try {
+            if (cls.isEnum() || cls.isInterface() || cls.isAnonymousClass() || cls.isLocalClass()
+                    || Modifier.isAbstract(cls.getModifiers()) || cls.getAnnotation(Ignore.class) != null) {
+                return false;
+            }
+            if (cls.isMemberClass() && !Modifier.isStatic(cls.getModifiers())) {
+                return false;
+            }
+            if (cls.getAnnotation(ProtobufClass.class) == null
+                    && FieldUtils.findMatchedFields(cls, Protobuf.class).isEmpty()) {
+                return false;
+            }
+            cls.getConstructor(new Class<?>[0]);
+            return true;
+        } catch (Throwable e) {
+            // no default constructor or linkage error
+            return false;
+        }
+    }
+
+    /**
+     * Create codecs of one batch of scanned classes.
+     *
+     * @param batch the classes of batch
+     * @param ret the created codecs
+     * @param completed the completed count
+     * @param total the total count
+     * @param listener the listener
+     */
+    private static void warmUpBatch(List<Class<?>> batch, Map<Class<?>, Codec<?>> ret, AtomicInteger completed,
+            int total, WarmUpListener listener) {
+        try {
+            ret.putAll(createAll(batch));
+            for (Class<?> cls : batch) {
+                onWarmUpProgress(listener, cls, null, completed.incrementAndGet(), total);
+            }
+            return;
+        } catch (Throwable e) {
+            LOGGER.warn("Warm up batch of " + batch.size() + " classes failed, create them one by one. cause: "
+                    + e.getMessage());
+        }
+        for (Class<?> cls : batch) {
+            Throwable error = null;
+            try {
+                ret.put(cls, create(cls));
+            } catch (Throwable e) {
+                error = e;
+            }
+            onWarmUpProgress(listener, cls, error, completed.incrementAndGet(), total);
+        }
+    }
+
+    /**
+     * Report warm up progress.
+     *
+     * @param listener the listener, log only if null
+     * @param cls the class
+     * @param error the error
+     * @param completed the completed count
+     * @param total the total count
+     */
+    private static void onWarmUpProgress(WarmUpListener listener, Class<?> cls, Throwable error, int completed,
+            int total) {
+        if (error != null) {
+            LOGGER.warn("Warm up codec of class '" + cls.getName() + "' failed. cause: " + error.getMessage());
+        } else if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Warm up codec of class '" + cls.getName() + "' " + completed + "/" + total);
+        }
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onProgress(cls, error, completed, total);
+        } catch (Throwable e) {
+            LOGGER.warn("Warm up listener failed. cause: " + e.getMessage());
+        }
     }
 
     /**
@@ -356,6 +1083,28 @@ public final class ProtobufProxy {
         CACHE_ENABLED.set(enabled);
     }
 
+    /**
+     * Sets the default encode strategy. It is applied when codec is generated, so codecs already created or cached are
+     * not affected.
+     *
+     * @param strategy the new encode strategy
+     */
+    public static void setEncodeStrategy(EncodeStrategy strategy) {
+        if (strategy == null) {
+            throw new NullPointerException("Param 'strategy' is null.");
+        }
+        encodeStrategy = strategy;
+    }
+
+    /**
+     * Gets the default encode strategy.
+     *
+     * @return the encode strategy
+     */
+    public static EncodeStrategy getEncodeStrategy() {
+        return encodeStrategy;
+    }
+
     /**
      * Gets the class loader.
      *
@@ -421,14 +1170,22 @@ public final class ProtobufProxy {
         return b;
     }
 
+    /**
+     * Gets the snapshot of settings of current thread.
+     *
+     * @return the config
+     */
+    public static ProtobufProxyConfig getConfig() {
+        return newConfig(isDebugEnabled(), isCacheEnabled(), OUTPUT_PATH.get());
+    }
+
     /**
      * Checks if is debug enabled.
      *
      * @return true, if is debug enabled
      */
     public static boolean isDebugEnabled() {
-        String debugEnv = System.getenv(DEBUG_CONTROL);
-        if (debugEnv != null && Boolean.parseBoolean(debugEnv)) {
+        if (ProtobufProxyConfig.DEBUG_ENV) {
             return true;
         }
 
@@ -441,41 +1198,46 @@ public final class ProtobufProxy {
     }
 
     /**
-     * Load compiled class.
+     * Load compiled class from class loader of target class only. A codec class of the same name found by another
+     * class loader, e.g. context class loader, may be compiled for another class with the same name, and fails with
+     * {@link ClassCastException} once used.
      *
      * @param <T> the generic type
-     * @param uniClsName the uni cls name
-     * @param className the class name
+     * @param cls the target class
+     * @param className the codec class name
+     * @param config the config
      * @return the codec
      */
-    private static <T> Codec<T> loadCompiledClass(String uniClsName, String className) {
-        Class<?> c = null;
+    private static <T> Codec<T> loadCompiledClass(Class<T> cls, String className, ProtobufProxyConfig config) {
+        Class<?> c;
         try {
-            c = Class.forName(className, true, getClassLoader());
-        } catch (ClassNotFoundException e1) {
-            try {
-                c = Class.forName(className, true, ProtobufProxy.class.getClassLoader());
-            } catch (ClassNotFoundException e2) {
-                // if class not found so should generate a new java source class.
-                c = null;
-            }
+            c = Class.forName(className, true, cls.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            // if class not found so should generate a new java source class.
+            c = null;
         }
 
         if (c != null) {
-            try {
-                Codec<T> newInstance = (Codec<T>) c.newInstance();
-                if (!CACHED.containsKey(uniClsName)) {
-                    CACHED.put(uniClsName, newInstance);
-                }
-                return newInstance;
-            } catch (InstantiationException e) {
-                throw new RuntimeException(e.getMessage(), e);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e.getMessage(), e);
-            }
+            return newCodec(cls, c, config);
         }
 
         return null;
     }
 
+    /**
+     * Holder of cached {@link Codec} of each class.
+     */
+    private static final class CodecClassValue extends ClassValue<AtomicReference<Codec<?>>> {
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected AtomicReference<Codec<?>> computeValue(Class<?> type) {
+            return new AtomicReference<Codec<?>>();
+        }
+    }
+
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * Immutable settings of {@link ProtobufProxy} to create {@link Codec}.
+ *
+ * <p>
+ * Settings of {@link ProtobufProxy} are kept in thread locals, a snapshot is captured once when a codec is built, so
+ * codecs of nested messages are looked up on encode and decode paths by final fields only.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public final class ProtobufProxyConfig implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** Whether debug is enabled by environment, read once as environment of process never changes. */
+    static final boolean DEBUG_ENV = Boolean.parseBoolean(System.getenv(ProtobufProxy.DEBUG_CONTROL));
+
+    /** The config with debug disabled, cache enabled and no output path. */
+    private static final ProtobufProxyConfig NO_DEBUG = new ProtobufProxyConfig(false, true, null);
+
+    /** The config with debug enabled, cache enabled and no output path. */
+    private static final ProtobufProxyConfig DEBUG = new ProtobufProxyConfig(true, true, null);
+
+    /** The default config with cache enabled, debug is enabled only by environment. */
+    public static final ProtobufProxyConfig DEFAULT = DEBUG_ENV ? DEBUG : NO_DEBUG;
+
+    /** The debug. */
+    private final boolean debug;
+
+    /** The cache enabled. */
+    private final boolean cacheEnabled;
+
+    /** The output path of generated source code. */
+    private final File outputPath;
+
+    /**
+     * Instantiates a new config.
+     *
+     * @param debug true will print generated java source code
+     * @param cacheEnabled whether to look up and put created codec into cache
+     * @param outputPath the output path of generated source code, or null
+     */
+    public ProtobufProxyConfig(boolean debug, boolean cacheEnabled, File outputPath) {
+        this.debug = debug || DEBUG_ENV;
+        this.cacheEnabled = cacheEnabled;
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * Gets the config with cache enabled. Shared instance is returned if no output path.
+     *
+     * @param debug true will print generated java source code
+     * @param outputPath the output path of generated source code, or null
+     * @return the config
+     */
+    public static ProtobufProxyConfig of(boolean debug, File outputPath) {
+        if (outputPath == null) {
+            return debug || DEBUG_ENV ? DEBUG : NO_DEBUG;
+        }
+        return new ProtobufProxyConfig(debug, true, outputPath);
+    }
+
+    /**
+     * Checks if is debug.
+     *
+     * @return true, if is debug
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Checks if is cache enabled.
+     *
+     * @return true, if is cache enabled
+     */
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Gets the output path.
+     *
+     * @return the output path
+     */
+    public File getOutputPath() {
+        return outputPath;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ProtobufProxyConfig [debug=" + debug + ", cacheEnabled=" + cacheEnabled + ", outputPath=" + outputPath
+                + "]";
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf;
+
+/**
+ * Listener of codec warm up progress started by {@link ProtobufProxy#warmUp(ClassLoader, int, WarmUpListener, String...)}.
+ * It is called from warm up threads.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public interface WarmUpListener {
+
+    /**
+     * Called once codec of a scanned class is created or failed to create.
+     *
+     * @param cls the scanned class
+     * @param error the error if failed, otherwise null
+     * @param completed the count of scanned classes completed so far
+     * @param total the total count of scanned classes
+     */
+    void onProgress(Class<?> cls, Throwable error, int completed, int total);
+}
@@ -23,7 +23,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -62,6 +64,12 @@ public abstract class AbstractCodeGenerator implements ICodeGenerator {
     /** The fields. */
     protected List<FieldInfo> fields;
 
+    /** The fields read through bound getter handles, mapped to index of handle. */
+    protected Map<Field, Integer> fieldGetters = new LinkedHashMap<Field, Integer>();
+
+    /** The fields written through bound setter handles, mapped to index of handle. */
+    protected Map<Field, Integer> fieldSetters = new LinkedHashMap<Field, Integer>();
+
     /**
      * Instantiates a new abstract code generator.
      *
@@ -328,6 +336,10 @@ public abstract class AbstractCodeGenerator implements ICodeGenerator {
      */
     protected void checkType(FieldType type, Field field) {
         Class<?> cls = field.getType();
+        if (FieldInfo.isPrimitiveArrayType(cls)) {
+            // check element type of primitive array
+            cls = cls.getComponentType();
+        }
 
         if (type == FieldType.OBJECT || type == FieldType.ENUM) {
             return;
@@ -393,11 +405,41 @@ public abstract class AbstractCodeGenerator implements ICodeGenerator {
             type = "byte[]";
         }
 
-        // use reflection to get value
+        // use bound getter handle to get value
         String code = "(" + FieldUtils.toObjectType(type) + ") ";
-        code += "FieldUtils.getField(" + target + ", \"" + field.getName() + "\")";
+        code += "FieldUtils.getField(" + getFieldGetterName(field) + ", " + target + ")";
 
         return code;
     }
 
+    /**
+     * Gets the static field name of getter handle bound to the field.
+     *
+     * @param field the field
+     * @return the handle field name
+     */
+    protected String getFieldGetterName(Field field) {
+        Integer index = fieldGetters.get(field);
+        if (index == null) {
+            index = fieldGetters.size();
+            fieldGetters.put(field, index);
+        }
+        return "fieldGetter" + index;
+    }
+
+    /**
+     * Gets the static field name of setter handle bound to the field.
+     *
+     * @param field the field
+     * @return the handle field name
+     */
+    protected String getFieldSetterName(Field field) {
+        Integer index = fieldSetters.get(field);
+        if (index == null) {
+            index = fieldSetters.size();
+            fieldSetters.put(field, index);
+        }
+        return "fieldSetter" + index;
+    }
+
 }
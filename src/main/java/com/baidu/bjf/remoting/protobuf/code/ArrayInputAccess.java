@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * Read only access to the buffer of {@link CodedInputStream} created from a byte array. Packed repeated field payload
+ * is scanned in place by it to count elements before decode. If the internal fields are not accessible, e.g. protobuf
+ * is loaded as a named module or its implementation changed, access is disabled and callers fall back to decode
+ * without scan.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+final class ArrayInputAccess {
+
+    /** The class of {@link CodedInputStream} decoding from a byte array. */
+    private static final Class<?> ARRAY_DECODER_CLASS;
+
+    /** The getter of buffer. */
+    private static final MethodHandle BUFFER;
+
+    /** The getter of read position. */
+    private static final MethodHandle POS;
+
+    /** The getter of end position of buffer bounded by current limit. */
+    private static final MethodHandle LIMIT;
+
+    static {
+        Class<?> cls = null;
+        MethodHandle buffer = null;
+        MethodHandle pos = null;
+        MethodHandle limit = null;
+        try {
+            cls = Class.forName(CodedInputStream.class.getName() + "$ArrayDecoder");
+            buffer = getter(cls, "buffer", byte[].class);
+            pos = getter(cls, "pos", int.class);
+            limit = getter(cls, "limit", int.class);
+        } catch (Exception e) {
+            cls = null;
+        } catch (LinkageError e) {
+            cls = null;
+        }
+        ARRAY_DECODER_CLASS = cls;
+        BUFFER = buffer;
+        POS = pos;
+        LIMIT = limit;
+    }
+
+    private ArrayInputAccess() {
+    }
+
+    /**
+     * Bind getter handle of the declared field, adapted to type <code>(CodedInputStream)type</code>.
+     *
+     * @param cls the class
+     * @param name the field name
+     * @param type the field type
+     * @return the getter handle
+     * @throws Exception if field is absent or not accessible
+     */
+    private static MethodHandle getter(Class<?> cls, String name, Class<?> type) throws Exception {
+        Field field = cls.getDeclaredField(name);
+        if (field.getType() != type) {
+            throw new NoSuchFieldException(name);
+        }
+        field.setAccessible(true);
+        return MethodHandles.lookup().unreflectGetter(field)
+                .asType(MethodType.methodType(type, CodedInputStream.class));
+    }
+
+    /**
+     * Count varints of the payload from current position to current limit by the bytes terminating a varint, which
+     * have the most significant bit clear.
+     *
+     * @param input the input with the limit of payload pushed
+     * @return the count, or -1 if input is not backed by an accessible byte array, or the payload is truncated
+     */
+    static int countVarints(CodedInputStream input) {
+        if (ARRAY_DECODER_CLASS == null || input.getClass() != ARRAY_DECODER_CLASS) {
+            return -1;
+        }
+        try {
+            byte[] buffer = (byte[]) BUFFER.invokeExact(input);
+            int pos = (int) POS.invokeExact(input);
+            int limit = (int) LIMIT.invokeExact(input);
+            if (limit - pos != input.getBytesUntilLimit()) {
+                // payload exceeds the buffer
+                return -1;
+            }
+            int count = 0;
+            for (int i = pos; i < limit; i++) {
+                if (buffer[i] >= 0) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the bytes of the payload available from current position to current limit.
+     *
+     * @param input the input with the limit of payload pushed
+     * @return the available bytes, or -1 if input is not backed by an accessible byte array
+     */
+    static int available(CodedInputStream input) {
+        if (ARRAY_DECODER_CLASS == null || input.getClass() != ARRAY_DECODER_CLASS) {
+            return -1;
+        }
+        try {
+            return (int) LIMIT.invokeExact(input) - (int) POS.invokeExact(input);
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+}
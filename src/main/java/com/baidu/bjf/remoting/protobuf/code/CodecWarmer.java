@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.utils.FieldInfo;
+import com.baidu.bjf.remoting.protobuf.utils.ProtobufProxyUtils;
+
+/**
+ * To warm up just in time compilation of codecs. Sample objects of target classes are synthesized from
+ * {@link FieldInfo} with bounded random values, then encode, decode and size of each codec are called round by round
+ * until all codecs reach target iterations or the time budget is used up.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class CodecWarmer {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodecWarmer.class.getName());
+
+    /** The default iterations, above the invocation threshold of C2 compilation. */
+    public static final int DEFAULT_ITERATIONS = 20000;
+
+    /** The count of samples of each class. */
+    private static final int SAMPLE_COUNT = 8;
+
+    /** The iterations of each codec per round. */
+    private static final int ROUND_ITERATIONS = 500;
+
+    /** The max nested depth of message fields to fill. */
+    private static final int MAX_DEPTH = 3;
+
+    /** The max size of filled collections, maps, arrays, strings and bytes. */
+    private static final int MAX_SIZE = 4;
+
+    /** The random seed, fixed to make samples repeatable. */
+    private static final long SEED = 0x6A70726FL;
+
+    /** Sink of results to keep them from being eliminated. */
+    private static volatile long sink;
+
+    /**
+     * Warm up codecs.
+     *
+     * @param codecs the codecs by target class
+     * @param iterations the target iterations of each codec
+     * @param budgetMillis the time budget in milliseconds
+     * @return the classes which codecs reached target iterations
+     */
+    public static Set<Class<?>> warm(Map<Class<?>, Codec<?>> codecs, int iterations, long budgetMillis) {
+        if (codecs == null) {
+            throw new NullPointerException("Param 'codecs' is null.");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Param 'iterations' should be positive. iterations=" + iterations);
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        Random random = new Random(SEED);
+
+        List<Target> targets = new ArrayList<Target>();
+        for (Map.Entry<Class<?>, Codec<?>> entry : codecs.entrySet()) {
+            Object[] samples = new Object[SAMPLE_COUNT];
+            try {
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = newSample(entry.getKey(), random);
+                    // verify sample is supported before looping
+                    Codec codec = entry.getValue();
+                    codec.decode(codec.encode(samples[i]));
+                }
+            } catch (Throwable e) {
+                LOGGER.warn("Skip warm up of class '" + entry.getKey().getName() + "'. cause: " + e.getMessage());
+                continue;
+            }
+            targets.add(new Target(entry.getKey(), entry.getValue(), samples));
+        }
+
+        Set<Class<?>> ret = new LinkedHashSet<Class<?>>();
+        long acc = 0;
+        boolean running = true;
+        while (running && System.nanoTime() < deadline) {
+            running = false;
+            for (Target target : targets) {
+                if (target.iterations >= iterations || target.failed) {
+                    continue;
+                }
+                try {
+                    acc += target.run(Math.min(ROUND_ITERATIONS, iterations - target.iterations));
+                } catch (Throwable e) {
+                    target.failed = true;
+                    LOGGER.warn("Warm up of class '" + target.cls.getName() + "' failed. cause: " + e.getMessage());
+                    continue;
+                }
+                if (target.iterations >= iterations) {
+                    ret.add(target.cls);
+                } else {
+                    running = true;
+                }
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+        }
+        sink = acc;
+
+        LOGGER.info("Warm up " + ret.size() + " of " + codecs.size() + " codecs with " + iterations + " iterations in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        return ret;
+    }
+
+    /**
+     * Create a sample object of message class, fields are filled with random values.
+     *
+     * @param <T> the generic type
+     * @param cls the message class
+     * @param random the random
+     * @return the sample object
+     */
+    public static <T> T newSample(Class<T> cls, Random random) {
+        return newSample(cls, random, 0);
+    }
+
+    /**
+     * Create a sample object of message class.
+     *
+     * @param <T> the generic type
+     * @param cls the message class
+     * @param random the random
+     * @param depth the nested depth
+     * @return the sample object
+     */
+    private static <T> T newSample(Class<T> cls, Random random, int depth) {
+        T ret = newInstance(cls);
+        for (FieldInfo info : ProtobufProxyUtils.fetchFieldInfos(cls, true)) {
+            Field field = info.getField();
+            if (Modifier.isFinal(field.getModifiers())) {
+                continue;
+            }
+            Object value;
+            if (info.isMap()) {
+                value = newMap(field.getType(), info.getGenericKeyType(), info.getGenericeValueType(), random,
+                        depth);
+            } else if (info.isArray()) {
+                value = newArray(field.getType().getComponentType(), random);
+            } else if (info.isList()) {
+                value = newCollection(field, info.getGenericKeyType(), random, depth);
+            } else {
+                value = newValue(field.getType(), random, depth);
+            }
+            if (value == null) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                field.set(ret, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Create random value of single field or element.
+     *
+     * @param type the type
+     * @param random the random
+     * @param depth the nested depth
+     * @return the value, null if type is not supported or nested too deep
+     */
+    private static Object newValue(Class<?> type, Random random, int depth) {
+        if (type == null) {
+            return null;
+        }
+        if (type == int.class || type == Integer.class) {
+            return random.nextInt();
+        } else if (type == long.class || type == Long.class) {
+            return random.nextLong();
+        } else if (type == short.class || type == Short.class) {
+            return (short) random.nextInt();
+        } else if (type == byte.class || type == Byte.class) {
+            return (byte) random.nextInt();
+        } else if (type == boolean.class || type == Boolean.class) {
+            return random.nextBoolean();
+        } else if (type == float.class || type == Float.class) {
+            return random.nextFloat();
+        } else if (type == double.class || type == Double.class) {
+            return random.nextDouble();
+        } else if (type == String.class) {
+            return newString(random);
+        } else if (type == byte[].class) {
+            byte[] bytes = new byte[random.nextInt(MAX_SIZE * 4 + 1)];
+            random.nextBytes(bytes);
+            return bytes;
+        } else if (type == Byte[].class) {
+            Byte[] bytes = new Byte[random.nextInt(MAX_SIZE * 4 + 1)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) random.nextInt();
+            }
+            return bytes;
+        } else if (type == Date.class) {
+            return new Date(random.nextInt(Integer.MAX_VALUE) * 1000L);
+        } else if (type == BigDecimal.class) {
+            return BigDecimal.valueOf(random.nextInt(), random.nextInt(8));
+        } else if (type == BigInteger.class) {
+            return BigInteger.valueOf(random.nextLong());
+        } else if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants.length == 0 ? null : constants[random.nextInt(constants.length)];
+        }
+        if (depth >= MAX_DEPTH || type.isInterface() || type.isArray() || Modifier.isAbstract(type.getModifiers())
+                || type.getName().startsWith("java.")) {
+            return null;
+        }
+        return newSample(type, random, depth + 1);
+    }
+
+    /**
+     * Create random string.
+     *
+     * @param random the random
+     * @return the string
+     */
+    private static String newString(Random random) {
+        char[] chars = new char[random.nextInt(MAX_SIZE * 4 + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            // mix of ascii and chinese characters to cover both utf-8 paths
+            chars[i] = random.nextInt(4) == 0 ? (char) (0x4E00 + random.nextInt(0x100))
+                    : (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Create random primitive array.
+     *
+     * @param componentType the component type
+     * @param random the random
+     * @return the array
+     */
+    private static Object newArray(Class<?> componentType, Random random) {
+        int size = random.nextInt(MAX_SIZE + 1);
+        Object array = Array.newInstance(componentType, size);
+        for (int i = 0; i < size; i++) {
+            Array.set(array, i, newValue(componentType, random, MAX_DEPTH));
+        }
+        return array;
+    }
+
+    /**
+     * Create random collection of list or set field.
+     *
+     * @param field the field
+     * @param elementType the element type
+     * @param random the random
+     * @param depth the nested depth
+     * @return the collection, null if element type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Field field, Class<?> elementType, Random random, int depth) {
+        Collection<Object> ret;
+        Class<?> type = field.getType();
+        if (type.isAssignableFrom(ArrayList.class)) {
+            ret = new ArrayList<Object>();
+        } else if (type.isAssignableFrom(HashSet.class)) {
+            ret = new HashSet<Object>();
+        } else if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            ret = (Collection<Object>) newInstance(type);
+        } else {
+            return null;
+        }
+        int size = random.nextInt(MAX_SIZE + 1);
+        for (int i = 0; i < size; i++) {
+            Object value = newValue(elementType, random, depth);
+            if (value == null) {
+                break;
+            }
+            ret.add(value);
+        }
+        return ret;
+    }
+
+    /**
+     * Create random map.
+     *
+     * @param type the declared type
+     * @param keyType the key type
+     * @param valueType the value type
+     * @param random the random
+     * @param depth the nested depth
+     * @return the map, null if key or value type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> type, Class<?> keyType, Class<?> valueType, Random random,
+            int depth) {
+        Map<Object, Object> ret;
+        if (type.isAssignableFrom(HashMap.class)) {
+            ret = new HashMap<Object, Object>();
+        } else if (type.isAssignableFrom(LinkedHashMap.class)) {
+            ret = new LinkedHashMap<Object, Object>();
+        } else if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            ret = (Map<Object, Object>) newInstance(type);
+        } else {
+            return null;
+        }
+        int size = random.nextInt(MAX_SIZE + 1);
+        for (int i = 0; i < size; i++) {
+            Object key = newValue(keyType, random, depth);
+            Object value = newValue(valueType, random, depth);
+            if (key == null || value == null) {
+                break;
+            }
+            ret.put(key, value);
+        }
+        return ret;
+    }
+
+    /**
+     * New instance by default constructor.
+     *
+     * @param <T> the generic type
+     * @param cls the cls
+     * @return the instance
+     */
+    private static <T> T newInstance(Class<T> cls) {
+        try {
+            Constructor<T> constructor = cls.getDeclaredConstructor(new Class[0]);
+            constructor.setAccessible(true);
+            return constructor.newInstance(new Object[0]);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Codec to warm up with its samples.
+     */
+    private static final class Target {
+
+        /** The target class. */
+        private final Class<?> cls;
+
+        /** The codec. */
+        private final Codec codec;
+
+        /** The samples. */
+        private final Object[] samples;
+
+        /** The iterations done. */
+        private int iterations;
+
+        /** The failed. */
+        private boolean failed;
+
+        /**
+         * Instantiates a new target.
+         *
+         * @param cls the cls
+         * @param codec the codec
+         * @param samples the samples
+         */
+        Target(Class<?> cls, Codec<?> codec, Object[] samples) {
+            this.cls = cls;
+            this.codec = codec;
+            this.samples = samples;
+        }
+
+        /**
+         * Run encode, decode and size.
+         *
+         * @param count the iterations to run
+         * @return accumulated result
+         * @throws Exception the exception
+         */
+        @SuppressWarnings("unchecked")
+        long run(int count) throws Exception {
+            long acc = 0;
+            for (int i = 0; i < count; i++) {
+                Object sample = samples[(iterations + i) % samples.length];
+                byte[] bytes = codec.encode(sample);
+                acc += bytes.length + codec.size(sample);
+                acc += codec.decode(bytes) == null ? 0 : 1;
+            }
+            iterations += count;
+            return acc;
+        }
+    }
+}
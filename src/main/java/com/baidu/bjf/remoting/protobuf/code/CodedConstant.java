@@ -37,6 +37,7 @@ import com.baidu.bjf.remoting.protobuf.FieldType;
 import com.baidu.bjf.remoting.protobuf.ProtobufIDLGenerator;
 import com.baidu.bjf.remoting.protobuf.ProtobufIDLProxy;
 import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxyConfig;
 import com.baidu.bjf.remoting.protobuf.descriptor.DescriptorProtoPOJO;
 import com.baidu.bjf.remoting.protobuf.descriptor.EnumDescriptorProtoPOJO;
 import com.baidu.bjf.remoting.protobuf.descriptor.EnumOptionsPOJO;
@@ -97,6 +98,9 @@ public class CodedConstant {
     private static final String WIREFORMAT_CLSNAME =
             ClassHelper.getInternalName(com.google.protobuf.WireFormat.FieldType.class.getCanonicalName());
 
+    /** The max count of elements reserved ahead by the untrusted length of packed repeated field payload. */
+    private static final int MAX_PACKED_RESERVE_COUNT = 8192;
+
     /**
      * get field name.
      *
@@ -118,13 +122,28 @@ public class CodedConstant {
      * @return the int
      */
     public static int computeElementSize(final WireFormat.FieldType type, final int number, final Object value) {
+        return computeElementSize(type, number, value, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Compute the number of bytes that would be needed to encode a single tag/value pair of arbitrary type, codecs of
+     * message values are looked up by the config.
+     *
+     * @param type The field's type.
+     * @param number The field's number.
+     * @param value Object representing the field's value.
+     * @param config the config to look up codecs of message values
+     * @return the int
+     */
+    public static int computeElementSize(final WireFormat.FieldType type, final int number, final Object value,
+            ProtobufProxyConfig config) {
         int tagSize = CodedOutputStream.computeTagSize(number);
         if (type == WireFormat.FieldType.GROUP) {
             // Only count the end group tag for proto2 messages as for proto1 the end
             // group tag will be counted as a part of getSerializedSize().
             tagSize *= 2;
         }
-        return tagSize + computeElementSizeNoTag(type, value);
+        return tagSize + computeElementSizeNoTag(type, value, config);
     }
 
     /**
@@ -189,6 +208,32 @@ public class CodedConstant {
 
     }
 
+    /**
+     * Checks if the field is a single value field of primitive java type, such field is encoded from primitive local
+     * variable without boxing.
+     *
+     * @param field the field
+     * @return true, if is primitive field
+     */
+    public static boolean isPrimitiveField(FieldInfo field) {
+        return !field.isList() && !field.isMap() && !field.isArray() && field.getField().getType().isPrimitive()
+                && field.getFieldType().isPrimitive();
+    }
+
+    /**
+     * Gets the primitive java type name of field type, e.g. "int" for {@link FieldType#INT32}.
+     *
+     * @param type the field type, must be primitive
+     * @return the primitive type name
+     */
+    public static String getPrimitiveType(FieldType type) {
+        String javaType = type.getJavaType();
+        if (Integer.class.getSimpleName().equals(javaType)) {
+            return int.class.getName();
+        }
+        return javaType.toLowerCase();
+    }
+
     /**
      * Gets the write value to field.
      *
@@ -215,18 +260,32 @@ public class CodedConstant {
      */
     public static String getMappedTypeSize(FieldInfo field, int order, FieldType type, boolean isList, boolean isMap,
             boolean debug, File path) {
-        String fieldName = getFieldName(order);
+        return getMappedTypeSize(field, order, type, isList, isMap, debug, path, null, null);
+    }
 
-        String spath = "null";
-        if (path != null) {
-            spath = "ProtobufProxy.OUTPUT_PATH.get()";
-        }
+    /**
+     * Gets the mapped type size.
+     *
+     * @param field field
+     * @param order field order
+     * @param type field type
+     * @param isList is field type is a {@link List}
+     * @param isMap the is map
+     * @param debug debug mode if true enable debug.
+     * @param path the path
+     * @param codecGetter method name of generated class to get the bound {@link Codec} of message type, or null
+     * @param codecType message type of the bound {@link Codec}
+     * @return full java expression
+     */
+    public static String getMappedTypeSize(FieldInfo field, int order, FieldType type, boolean isList, boolean isMap,
+            boolean debug, File path, String codecGetter, Class<?> codecType) {
+        String fieldName = getFieldName(order);
 
         String typeString = type.getType().toUpperCase();
         if (isList) {
             return "CodedConstant.computeListSize(" + order + ", " + fieldName + ", " + FieldType.class.getName() + "."
-                    + typeString + ", " + Boolean.valueOf(debug) + ", " + spath + ","
-                    + Boolean.valueOf(field.isPacked()) + ")" + ICodeGenerator.JAVA_LINE_BREAK;
+                    + typeString + ", " + Boolean.valueOf(field.isPacked())
+                    + getBoundCodecArguments(codecGetter, codecType) + ")" + ICodeGenerator.JAVA_LINE_BREAK;
         } else if (isMap) {
 
             String joinedSentence = getMapFieldGenericParameterString(field);
@@ -236,7 +295,7 @@ public class CodedConstant {
 
         if (type == FieldType.OBJECT) {
             return "CodedConstant.computeSize(" + order + "," + fieldName + ", " + FieldType.class.getName() + "."
-                    + typeString + "," + Boolean.valueOf(debug) + "," + spath + ")" + ICodeGenerator.JAVA_LINE_BREAK;
+                    + typeString + getBoundCodecArguments(codecGetter, codecType) + ")" + ICodeGenerator.JAVA_LINE_BREAK;
         }
 
         String t = type.getType();
@@ -257,7 +316,7 @@ public class CodedConstant {
                 enumSpecial = true;
             }
         }
-        if (!enumSpecial) {
+        if (!enumSpecial && !isPrimitiveField(field)) {
             fieldName = fieldName + type.getToPrimitiveType();
         }
 
@@ -265,6 +324,22 @@ public class CodedConstant {
                 + ICodeGenerator.JAVA_LINE_BREAK;
     }
 
+    /**
+     * Gets the trailing arguments to pass the bound {@link Codec} of message type and the
+     * {@link ProtobufProxyConfig} captured by generated class to look up codecs of other message types.
+     *
+     * @param codecGetter method name of generated class to get the bound {@link Codec}, or null
+     * @param codecType message type of the bound {@link Codec}
+     * @return the arguments string
+     */
+    private static String getBoundCodecArguments(String codecGetter, Class<?> codecType) {
+        if (codecGetter == null || codecType == null) {
+            return ", null, null, config";
+        }
+        return ", " + codecGetter + "(), " + ClassHelper.getInternalName(codecType.getCanonicalName())
+                + ".class, config";
+    }
+
     /**
      * Gets the map field generic parameter string.
      *
@@ -272,73 +347,70 @@ public class CodedConstant {
      * @return the map field generic parameter string
      */
     public static String getMapFieldGenericParameterString(FieldInfo field) {
-        FieldType fieldType = ProtobufProxyUtils.TYPE_MAPPING.get(field.getGenericKeyType());
-        String keyClass;
-        String defaultKeyValue;
-        if (fieldType == null) {
-            // may be object or enum
-            if (Enum.class.isAssignableFrom(field.getGenericKeyType())) {
-                keyClass = WIREFORMAT_CLSNAME + ".ENUM";
-                Class<?> declaringClass = field.getGenericKeyType();
-                Field[] fields = declaringClass.getFields();
-                if (fields != null && fields.length > 0) {
-                    defaultKeyValue = ClassHelper.getInternalName(field.getGenericKeyType().getCanonicalName()) + "."
-                            + fields[0].getName();
-                } else {
-                    defaultKeyValue = "0";
-                }
+        return getMapElementParameterString(field.getGenericKeyType()) + ","
+                + getMapElementParameterString(field.getGenericeValueType());
+    }
 
-            } else {
-                keyClass = WIREFORMAT_CLSNAME + ".MESSAGE";
-                // check constructor
-                boolean hasDefaultConstructor = ClassHelper.hasDefaultConstructor(field.getGenericKeyType());
-                if (!hasDefaultConstructor) {
-                    throw new IllegalArgumentException("Class '" + field.getGenericKeyType().getCanonicalName()
-                            + "' must has default constructor method with no parameters.");
-                }
-                defaultKeyValue =
-                        "new " + ClassHelper.getInternalName(field.getGenericKeyType().getCanonicalName()) + "()";
-            }
+    /**
+     * Gets the wire format type and default value parameter string of map key or value.
+     *
+     * @param cls the declared class of map key or value
+     * @return the parameter string
+     */
+    private static String getMapElementParameterString(Class<?> cls) {
+        FieldType type = getMapElementFieldType(cls);
+        String wireType;
+        if (type == FieldType.ENUM) {
+            wireType = "ENUM";
+        } else if (type == FieldType.OBJECT) {
+            wireType = "MESSAGE";
         } else {
-            keyClass = WIREFORMAT_CLSNAME + "." + fieldType.toString();
-            // check type
-
-            defaultKeyValue = fieldType.getDefaultValue();
-        }
-
-        fieldType = ProtobufProxyUtils.TYPE_MAPPING.get(field.getGenericeValueType());
-        String valueClass;
-        String defaultValueValue;
-        if (fieldType == null) {
-            // may be object or enum
-            if (Enum.class.isAssignableFrom(field.getGenericeValueType())) {
-                valueClass = WIREFORMAT_CLSNAME + ".ENUM";
-                Class<?> declaringClass = field.getGenericeValueType();
-                Field[] fields = declaringClass.getFields();
-                if (fields != null && fields.length > 0) {
-                    defaultValueValue = ClassHelper.getInternalName(field.getGenericeValueType().getCanonicalName())
-                            + "." + fields[0].getName();
-                } else {
-                    defaultValueValue = "0";
-                }
+            wireType = type.toString();
+        }
+        return WIREFORMAT_CLSNAME + "." + wireType + "," + getMapElementDefaultValue(cls);
+    }
 
-            } else {
-                valueClass = WIREFORMAT_CLSNAME + ".MESSAGE";
-                // check constructor
-                boolean hasDefaultConstructor = ClassHelper.hasDefaultConstructor(field.getGenericeValueType());
-                if (!hasDefaultConstructor) {
-                    throw new IllegalArgumentException("Class '" + field.getGenericeValueType().getCanonicalName()
-                            + "' must has default constructor method with no parameters.");
-                }
-                defaultValueValue =
-                        "new " + ClassHelper.getInternalName(field.getGenericeValueType().getCanonicalName()) + "()";
+    /**
+     * Gets the field type of map key or value.
+     *
+     * @param cls the declared class of map key or value
+     * @return the field type, {@link FieldType#OBJECT} if it is a message type
+     */
+    public static FieldType getMapElementFieldType(Class<?> cls) {
+        FieldType type = ProtobufProxyUtils.TYPE_MAPPING.get(cls);
+        if (type != null) {
+            return type;
+        }
+        if (Enum.class.isAssignableFrom(cls)) {
+            return FieldType.ENUM;
+        }
+        return FieldType.OBJECT;
+    }
+
+    /**
+     * Gets the java expression of default value of map key or value which is absent from map entry.
+     *
+     * @param cls the declared class of map key or value
+     * @return the java expression
+     */
+    public static String getMapElementDefaultValue(Class<?> cls) {
+        FieldType type = getMapElementFieldType(cls);
+        if (type == FieldType.ENUM) {
+            Field[] fields = cls.getFields();
+            if (fields != null && fields.length > 0) {
+                return ClassHelper.getInternalName(cls.getCanonicalName()) + "." + fields[0].getName();
             }
-        } else {
-            valueClass = WIREFORMAT_CLSNAME + "." + fieldType.toString();
-            defaultValueValue = fieldType.getDefaultValue();
+            return "0";
+        } else if (type == FieldType.OBJECT) {
+            // check constructor
+            boolean hasDefaultConstructor = ClassHelper.hasDefaultConstructor(cls);
+            if (!hasDefaultConstructor) {
+                throw new IllegalArgumentException("Class '" + cls.getCanonicalName()
+                        + "' must has default constructor method with no parameters.");
+            }
+            return "new " + ClassHelper.getInternalName(cls.getCanonicalName()) + "()";
         }
-        String joinedSentence = keyClass + "," + defaultKeyValue + "," + valueClass + "," + defaultValueValue;
-        return joinedSentence;
+        return type.getDefaultValue();
     }
 
     /**
@@ -385,6 +457,60 @@ public class CodedConstant {
      */
     public static int computeListSize(int order, Collection list, FieldType type, boolean debug, File path,
             boolean packed, boolean sizeOnly) {
+        return computeListSize(order, list, type, packed, sizeOnly, null, null, ProtobufProxyConfig.of(debug, path));
+    }
+
+    /**
+     * Compute list size with the bound {@link Codec} of message type.
+     *
+     * @param order the order
+     * @param list the list
+     * @param type the type
+     * @param debug the debug
+     * @param path the path
+     * @param packed the packed
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
+     * @return the int
+     */
+    public static int computeListSize(int order, Collection list, FieldType type, boolean debug, File path,
+            boolean packed, Codec codec, Class<?> codecType) {
+        return computeListSize(order, list, type, packed, false, codec, codecType, ProtobufProxyConfig.of(debug, path));
+    }
+
+    /**
+     * Compute list size with the bound {@link Codec} of message type, codecs of other message types are looked up by
+     * the config.
+     *
+     * @param order the order
+     * @param list the list
+     * @param type the type
+     * @param packed the packed
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @return the int
+     */
+    public static int computeListSize(int order, Collection list, FieldType type, boolean packed, Codec codec,
+            Class<?> codecType, ProtobufProxyConfig config) {
+        return computeListSize(order, list, type, packed, false, codec, codecType, config);
+    }
+
+    /**
+     * Compute list size.
+     *
+     * @param order the order
+     * @param list the list
+     * @param type the type
+     * @param packed the packed
+     * @param sizeOnly the size only if true will not include order size and tag size
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
+     * @param config the config to look up codecs of other message types
+     * @return the int
+     */
+    private static int computeListSize(int order, Collection list, FieldType type, boolean packed, boolean sizeOnly,
+            Codec codec, Class<?> codecType, ProtobufProxyConfig config) {
         int size = 0;
         if (list == null || list.isEmpty()) {
             return size;
@@ -392,7 +518,7 @@ public class CodedConstant {
 
         int dataSize = 0;
         for (Object object : list) {
-            dataSize += computeSize(order, object, type, debug, path);
+            dataSize += computeSize(order, object, type, codec, codecType, config);
         }
         size += dataSize;
         if (type != FieldType.OBJECT) {
@@ -424,11 +550,30 @@ public class CodedConstant {
      */
     public static <K, V> int computeMapSize(int order, Map<K, V> map, com.google.protobuf.WireFormat.FieldType keyType,
             K defaultKey, com.google.protobuf.WireFormat.FieldType valueType, V defalutValue) {
+        return computeMapSize(order, map, keyType, defaultKey, valueType, defalutValue, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Compute map size, codecs of message values are looked up by the config.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param order the order
+     * @param map the map
+     * @param keyType the key type
+     * @param defaultKey the default key
+     * @param valueType the value type
+     * @param defalutValue the defalut value
+     * @param config the config to look up codecs of message values
+     * @return the int
+     */
+    public static <K, V> int computeMapSize(int order, Map<K, V> map, com.google.protobuf.WireFormat.FieldType keyType,
+            K defaultKey, com.google.protobuf.WireFormat.FieldType valueType, V defalutValue,
+            ProtobufProxyConfig config) {
         int size = 0;
+        com.baidu.bjf.remoting.protobuf.MapEntry<K, V> valuesDefaultEntry = com.baidu.bjf.remoting.protobuf.MapEntry
+                .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue, config);
         for (java.util.Map.Entry<K, V> entry : map.entrySet()) {
-            com.baidu.bjf.remoting.protobuf.MapEntry<K, V> valuesDefaultEntry = com.baidu.bjf.remoting.protobuf.MapEntry
-                    .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue);
-
             com.baidu.bjf.remoting.protobuf.MapEntry<K, V> values =
                     valuesDefaultEntry.newBuilderForType().setKey(entry.getKey()).setValue(entry.getValue()).build();
 
@@ -470,8 +615,32 @@ public class CodedConstant {
             com.google.protobuf.WireFormat.FieldType keyType, K defaultKey,
             com.google.protobuf.WireFormat.FieldType valueType, V defalutValue, EnumHandler<K> keyHandler, EnumHandler<V> valHandler)
             throws IOException {
+        putMapValue(input, map, keyType, defaultKey, valueType, defalutValue, keyHandler, valHandler,
+                ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Put map value, codecs of message values are looked up by the config.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param input the input
+     * @param map the map
+     * @param keyType the key type
+     * @param defaultKey the default key
+     * @param valueType the value type
+     * @param defalutValue the defalut value
+     * @param keyHandler the handler of enum key, or null
+     * @param valHandler the handler of enum value, or null
+     * @param config the config to look up codecs of message values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static <K, V> void putMapValue(CodedInputStream input, Map<K, V> map,
+            com.google.protobuf.WireFormat.FieldType keyType, K defaultKey,
+            com.google.protobuf.WireFormat.FieldType valueType, V defalutValue, EnumHandler<K> keyHandler,
+            EnumHandler<V> valHandler, ProtobufProxyConfig config) throws IOException {
         com.baidu.bjf.remoting.protobuf.MapEntry<K, V> valuesDefaultEntry = com.baidu.bjf.remoting.protobuf.MapEntry
-                .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue);
+                .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue, config);
 
         com.baidu.bjf.remoting.protobuf.MapEntry<K, V> values =
                 input.readMessage(valuesDefaultEntry.getParserForType(), null);
@@ -505,8 +674,30 @@ public class CodedConstant {
     public static <K, V> void writeToMap(CodedOutputStream output, int order, Map<K, V> map,
             com.google.protobuf.WireFormat.FieldType keyType, K defaultKey,
             com.google.protobuf.WireFormat.FieldType valueType, V defalutValue) throws IOException {
+        writeToMap(output, order, map, keyType, defaultKey, valueType, defalutValue, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Write to map, codecs of message values are looked up by the config.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param output the output
+     * @param order the order
+     * @param map the map
+     * @param keyType the key type
+     * @param defaultKey the default key
+     * @param valueType the value type
+     * @param defalutValue the defalut value
+     * @param config the config to look up codecs of message values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static <K, V> void writeToMap(CodedOutputStream output, int order, Map<K, V> map,
+            com.google.protobuf.WireFormat.FieldType keyType, K defaultKey,
+            com.google.protobuf.WireFormat.FieldType valueType, V defalutValue, ProtobufProxyConfig config)
+            throws IOException {
         com.baidu.bjf.remoting.protobuf.MapEntry<K, V> valuesDefaultEntry = com.baidu.bjf.remoting.protobuf.MapEntry
-                .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue);
+                .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue, config);
         for (java.util.Map.Entry<K, V> entry : map.entrySet()) {
             com.baidu.bjf.remoting.protobuf.MapEntry<K, V> values =
                     valuesDefaultEntry.newBuilderForType().setKey(entry.getKey()).setValue(entry.getValue()).build();
@@ -528,6 +719,80 @@ public class CodedConstant {
         return computeSize(order, o, type, false, debug, path);
     }
 
+    /**
+     * Gets the {@link Codec} of target class. The bound codec is used if target class is exactly the message type it
+     * bound to, otherwise codec is looked up from {@link ProtobufProxy}.
+     *
+     * @param cls the target class
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
+     * @param config the config to look up codec
+     * @return the codec
+     */
+    private static Codec getCodec(Class cls, Codec codec, Class<?> codecType, ProtobufProxyConfig config) {
+        if (codec != null && cls == codecType) {
+            return codec;
+        }
+        return ProtobufProxy.create(cls, config);
+    }
+
+    /**
+     * Gets the size of message without tag and length prefix. The size is memorized by the encode session of current
+     * thread, so ask it once for each message and pass it to
+     * {@link #writeMessage(CodedOutputStream, int, Object, int, Codec, Class, ProtobufProxyConfig)}.
+     *
+     * @param o the message object
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @return the size, 0 if message is null
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static int computeMessageSizeNoTag(Object o, Codec codec, Class<?> codecType, ProtobufProxyConfig config)
+            throws IOException {
+        if (o == null) {
+            return 0;
+        }
+        return EncodeSession.size(getCodec(o.getClass(), codec, codecType, config), o);
+    }
+
+    /**
+     * Gets the size of message with tag and length prefix from the size of message itself.
+     *
+     * @param order the order
+     * @param o the message object
+     * @param size the size returned by {@link #computeMessageSizeNoTag(Object, Codec, Class, ProtobufProxyConfig)}
+     * @return the size, 0 if message is null
+     */
+    public static int computeMessageSize(int order, Object o, int size) {
+        if (o == null) {
+            return 0;
+        }
+        return CodedOutputStream.computeTagSize(order) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    /**
+     * Write message with tag and length prefix of the size already computed.
+     *
+     * @param out the out
+     * @param order the order
+     * @param o the message object, do nothing if null
+     * @param size the size returned by {@link #computeMessageSizeNoTag(Object, Codec, Class, ProtobufProxyConfig)}
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeMessage(CodedOutputStream out, int order, Object o, int size, Codec codec,
+            Class<?> codecType, ProtobufProxyConfig config) throws IOException {
+        if (o == null) {
+            return;
+        }
+        out.writeUInt32NoTag(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED));
+        out.writeUInt32NoTag(size);
+        getCodec(o.getClass(), codec, codecType, config).writeTo(o, out);
+    }
+
     /**
      * Compute object size no tag.
      *
@@ -535,13 +800,24 @@ public class CodedConstant {
      * @return the int
      */
     public static int computeObjectSizeNoTag(Object o) {
+        return computeObjectSizeNoTag(o, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Compute object size no tag, codec of object is looked up by the config.
+     *
+     * @param o the o
+     * @param config the config to look up codec of object
+     * @return the int
+     */
+    public static int computeObjectSizeNoTag(Object o, ProtobufProxyConfig config) {
         int size = 0;
         if (o == null) {
             return size;
         }
 
         Class cls = o.getClass();
-        Codec target = ProtobufProxy.create(cls, ProtobufProxy.isDebugEnabled());
+        Codec target = ProtobufProxy.create(cls, config);
         try {
             size = target.size(o);
             size = size + CodedOutputStream.computeRawVarint32Size(size);
@@ -563,6 +839,40 @@ public class CodedConstant {
      * @return the int
      */
     public static int computeSize(int order, Object o, FieldType type, boolean list, boolean debug, File path) {
+        return computeSize(order, o, type, debug, path, null, null);
+    }
+
+    /**
+     * get object size by {@link FieldType} with the bound {@link Codec} of message type.
+     *
+     * @param order the order
+     * @param o the o
+     * @param type the type
+     * @param debug the debug
+     * @param path the path
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
+     * @return the int
+     */
+    public static int computeSize(int order, Object o, FieldType type, boolean debug, File path, Codec codec,
+            Class<?> codecType) {
+        return computeSize(order, o, type, codec, codecType, ProtobufProxyConfig.of(debug, path));
+    }
+
+    /**
+     * get object size by {@link FieldType} with the bound {@link Codec} of message type, codecs of other message types
+     * are looked up by the config.
+     *
+     * @param order the order
+     * @param o the o
+     * @param type the type
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @return the int
+     */
+    public static int computeSize(int order, Object o, FieldType type, Codec codec, Class<?> codecType,
+            ProtobufProxyConfig config) {
         int size = 0;
         if (o == null) {
             return size;
@@ -570,9 +880,9 @@ public class CodedConstant {
 
         if (type == FieldType.OBJECT) {
             Class cls = o.getClass();
-            Codec target = ProtobufProxy.create(cls, debug, path);
+            Codec target = getCodec(cls, codec, codecType, config);
             try {
-                size = target.size(o);
+                size = EncodeSession.size(target, o);
                 size = size + CodedOutputStream.computeRawVarint32Size(size);
                 return size + CodedOutputStream.computeTagSize(order);
             } catch (IOException e) {
@@ -591,12 +901,20 @@ public class CodedConstant {
             size = CodedOutputStream.computeDoubleSizeNoTag(Double.valueOf(o.toString()));
         } else if (type == FieldType.FIXED32 || type == FieldType.SFIXED32) {
             size = CodedOutputStream.computeFixed32SizeNoTag(Integer.valueOf(o.toString()));
-        } else if (type == FieldType.INT32 || type == FieldType.SINT32 || type == FieldType.UINT32) {
+        } else if (type == FieldType.INT32) {
             size = CodedOutputStream.computeInt32SizeNoTag(Integer.valueOf(o.toString()));
+        } else if (type == FieldType.SINT32) {
+            size = CodedOutputStream.computeSInt32SizeNoTag(Integer.valueOf(o.toString()));
+        } else if (type == FieldType.UINT32) {
+            size = CodedOutputStream.computeUInt32SizeNoTag(Integer.valueOf(o.toString()));
         }else if (type == FieldType.FIXED64|| type == FieldType.SFIXED64) {
             size = CodedOutputStream.computeSFixed64SizeNoTag(Long.valueOf(o.toString()));
-        }   else if (type == FieldType.INT64 || type == FieldType.SINT64 || type == FieldType.UINT64) {
+        } else if (type == FieldType.INT64) {
             size = CodedOutputStream.computeInt64SizeNoTag(Long.valueOf(o.toString()));
+        } else if (type == FieldType.SINT64) {
+            size = CodedOutputStream.computeSInt64SizeNoTag(Long.valueOf(o.toString()));
+        } else if (type == FieldType.UINT64) {
+            size = CodedOutputStream.computeUInt64SizeNoTag(Long.valueOf(o.toString()));
         } else if (type == FieldType.FLOAT) {
             size = CodedOutputStream.computeFloatSizeNoTag(Float.valueOf(o.toString()));
         } else if (type == FieldType.ENUM) {
@@ -623,15 +941,40 @@ public class CodedConstant {
      */
     public static String getMappedWriteCode(FieldInfo field, String prefix, int order, FieldType type, boolean isList,
             boolean isMap) {
+        return getMappedWriteCode(field, prefix, order, type, isList, isMap, null, null);
+    }
+
+    /**
+     * get mapped object byte write java expression.
+     *
+     * @param field the field
+     * @param prefix the prefix
+     * @param order field order
+     * @param type field type
+     * @param isList the is list
+     * @param isMap the is map
+     * @param codecGetter method name of generated class to get the bound {@link Codec} of message type, or null
+     * @param codecType message type of the bound {@link Codec}
+     * @return full java expression
+     */
+    public static String getMappedWriteCode(FieldInfo field, String prefix, int order, FieldType type, boolean isList,
+            boolean isMap, String codecGetter, Class<?> codecType) {
         String fieldName = getFieldName(order);
         StringBuilder ret = new StringBuilder();
-        ret.append("if (").append(fieldName).append(" != null){").append(ICodeGenerator.LINE_BREAK);
+        boolean primitive = isPrimitiveField(field);
+        if (primitive) {
+            // primitive local is never null
+            ret.append("{").append(ICodeGenerator.LINE_BREAK);
+        } else {
+            ret.append("if (").append(fieldName).append(" != null){").append(ICodeGenerator.LINE_BREAK);
+        }
 
         if (isList) {
             String typeString = type.getType().toUpperCase();
             ret.append("CodedConstant.writeToList(").append(prefix).append(",");
             ret.append(order).append(",").append(FieldType.class.getName()).append(".").append(typeString);
-            ret.append(",").append(fieldName).append(",").append(Boolean.valueOf(field.isPacked())).append(")")
+            ret.append(",").append(fieldName).append(",").append(Boolean.valueOf(field.isPacked()))
+                    .append(getBoundCodecArguments(codecGetter, codecType)).append(")")
                     .append(ICodeGenerator.JAVA_LINE_BREAK).append("}").append(ICodeGenerator.LINE_BREAK);
             return ret.toString();
         } else if (isMap) {
@@ -654,7 +997,7 @@ public class CodedConstant {
                     enumSpecial = true;
                 }
             }
-            if (!enumSpecial) {
+            if (!enumSpecial && !primitive) {
                 fieldName = fieldName + type.getToPrimitiveType();
             }
         }
@@ -663,8 +1006,9 @@ public class CodedConstant {
             String typeString = type.getType().toUpperCase();
             ret.append("CodedConstant.writeObject(").append(prefix).append(",");
             ret.append(order).append(",").append(FieldType.class.getName()).append(".").append(typeString);
-            ret.append(",").append(fieldName).append(", false)").append(ICodeGenerator.JAVA_LINE_BREAK).append("}")
-                    .append(ICodeGenerator.LINE_BREAK);
+            ret.append(",").append(fieldName).append(", false, true")
+                    .append(getBoundCodecArguments(codecGetter, codecType));
+            ret.append(")").append(ICodeGenerator.JAVA_LINE_BREAK).append("}").append(ICodeGenerator.LINE_BREAK);
             return ret.toString();
         }
 
@@ -692,55 +1036,871 @@ public class CodedConstant {
     }
 
     /**
-     * Write to list.
+     * Checks if repeated field of the type is encoded by type specialized code which unboxes elements directly.
+     *
+     * @param type the field type
+     * @return true, if is specialized list type
+     */
+    public static boolean isSpecializedListType(FieldType type) {
+        return type.isPrimitive() || type.isEnum() || type == FieldType.STRING || type == FieldType.BYTES;
+    }
+
+    /**
+     * Gets the fixed encoded size of one element of the type.
+     *
+     * @param type the field type
+     * @return the fixed size, or -1 if element size depends on value
+     */
+    private static int getFixedElementSize(FieldType type) {
+        if (type == FieldType.DOUBLE || type == FieldType.FIXED64 || type == FieldType.SFIXED64) {
+            return 8;
+        } else if (type == FieldType.FLOAT || type == FieldType.FIXED32 || type == FieldType.SFIXED32) {
+            return 4;
+        } else if (type == FieldType.BOOL) {
+            return 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the java expression of list element value named <code>__o</code>, or array element at index
+     * <code>__i</code> for primitive array field, to encode.
+     *
+     * @param field the field
+     * @param fieldName the local variable name of list
+     * @param type the field type
+     * @return the java expression
+     */
+    private static String getListElementValue(FieldInfo field, String fieldName, FieldType type) {
+        if (field.isArray()) {
+            return fieldName + "[__i]";
+        } else if (type == FieldType.STRING) {
+            return "__o.toString()";
+        } else if (type == FieldType.BYTES) {
+            return "((byte[]) __o)";
+        } else if (type == FieldType.ENUM) {
+            Class<?> cls = field.getGenericKeyType();
+            if (cls != null && EnumReadable.class.isAssignableFrom(cls)) {
+                return "((" + ClassHelper.getInternalName(cls.getCanonicalName()) + ") __o).value()";
+            }
+            return "((Enum) __o).ordinal()";
+        }
+        Class<?> cls = field.getGenericKeyType();
+        if (cls != null && cls.getName().equals("java.lang." + type.getJavaType())) {
+            return "((" + type.getJavaType() + ") __o)" + type.getToPrimitiveType();
+        }
+        // element declared as other type, e.g. List<Integer> of INT64, is converted by its string value as before
+        return type.getJavaType() + ".valueOf(String.valueOf(__o))" + type.getToPrimitiveType();
+    }
+
+    /**
+     * Gets the write method suffix of {@link CodedOutputStream} for the type.
+     *
+     * @param type the field type
+     * @return the method suffix
+     */
+    private static String getWriteMethodSuffix(FieldType type) {
+        if (type == FieldType.STRING) {
+            return "String";
+        } else if (type == FieldType.BYTES) {
+            return "ByteArray";
+        }
+        return capitalize(type.getType());
+    }
+
+    /**
+     * Gets the java expression of element count of list or primitive array.
+     *
+     * @param field the field
+     * @param fieldName the local variable name of list
+     * @return the java expression
+     */
+    private static String getListSize(FieldInfo field, String fieldName) {
+        return fieldName + (field.isArray() ? ".length" : ".size()");
+    }
+
+    /**
+     * Append loop header over elements of list or primitive array.
+     *
+     * @param ret the code to append
+     * @param field the field
+     * @param fieldName the local variable name of list
+     */
+    private static void appendListLoop(StringBuilder ret, FieldInfo field, String fieldName) {
+        if (field.isArray()) {
+            ret.append("for (int __i = 0; __i < ").append(fieldName).append(".length; __i++) {");
+        } else {
+            ret.append("for (Object __o : ").append(fieldName).append(") {");
+        }
+        ret.append(ICodeGenerator.LINE_BREAK);
+    }
+
+    /**
+     * Append java statements to compute encoded size of list elements without tags into local variable
+     * <code>__dataSize</code>.
+     *
+     * @param ret the code to append
+     * @param field the field
+     * @param fieldName the local variable name of list
+     * @param type the field type
+     */
+    private static void appendListDataSize(StringBuilder ret, FieldInfo field, String fieldName, FieldType type) {
+        int fixedSize = getFixedElementSize(type);
+        if (fixedSize > 0) {
+            ret.append("int __dataSize = ").append(getListSize(field, fieldName)).append(" * ").append(fixedSize)
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+            return;
+        }
+        String compute = type == FieldType.ENUM ? "Int32" : getWriteMethodSuffix(type);
+        ret.append("int __dataSize = 0").append(ICodeGenerator.JAVA_LINE_BREAK);
+        appendListLoop(ret, field, fieldName);
+        ret.append("__dataSize += com.google.protobuf.CodedOutputStream.compute").append(compute)
+                .append("SizeNoTag(").append(getListElementValue(field, fieldName, type)).append(")")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+    }
+
+    /**
+     * get size computing java statements of repeated field by type specialized loop. Only types accepted by
+     * {@link #isSpecializedListType(FieldType)} are supported, field could be a list or a primitive array.
+     *
+     * @param field the field
+     * @param order field order
+     * @param type field type
+     * @return java statements to add field size to local variable <code>size</code>
+     */
+    public static String getMappedListSizeCode(FieldInfo field, int order, FieldType type) {
+        String fieldName = getFieldName(order);
+        StringBuilder ret = new StringBuilder();
+        ret.append("if (").append(getListSize(field, fieldName)).append(" != 0) {").append(ICodeGenerator.LINE_BREAK);
+
+        appendListDataSize(ret, field, fieldName, type);
+
+        int tagSize = CodedOutputStream.computeTagSize(order);
+        if (field.isPacked()) {
+            ret.append("size += __dataSize + ")
+                    .append("com.google.protobuf.CodedOutputStream.computeUInt32SizeNoTag(__dataSize) + ")
+                    .append(tagSize).append(ICodeGenerator.JAVA_LINE_BREAK);
+        } else {
+            ret.append("size += __dataSize + ").append(getListSize(field, fieldName)).append(" * ").append(tagSize)
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+        }
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        return ret.toString();
+    }
+
+    /**
+     * get write java statements of repeated field by type specialized loop. Only types accepted by
+     * {@link #isSpecializedListType(FieldType)} are supported, field could be a list or a primitive array.
+     *
+     * @param field the field
+     * @param prefix the prefix
+     * @param order field order
+     * @param type field type
+     * @return java statements to write field to output named by prefix
+     */
+    public static String getMappedListWriteCode(FieldInfo field, String prefix, int order, FieldType type) {
+        String fieldName = getFieldName(order);
+        StringBuilder ret = new StringBuilder();
+        ret.append("if (").append(fieldName).append(" != null){").append(ICodeGenerator.LINE_BREAK);
+        if (field.isPacked()) {
+            // payload size is computed first so elements are written straight to output after tag and length
+            ret.append("if (").append(getListSize(field, fieldName)).append(" != 0) {")
+                    .append(ICodeGenerator.LINE_BREAK);
+            appendListDataSize(ret, field, fieldName, type);
+            ret.append(prefix).append(".writeUInt32NoTag(")
+                    .append(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED)).append(")")
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+            ret.append(prefix).append(".writeUInt32NoTag(__dataSize)").append(ICodeGenerator.JAVA_LINE_BREAK);
+            appendListLoop(ret, field, fieldName);
+            ret.append(prefix).append(".write").append(getWriteMethodSuffix(type)).append("NoTag(")
+                    .append(getListElementValue(field, fieldName, type)).append(")")
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+            ret.append("}").append(ICodeGenerator.LINE_BREAK);
+            ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        } else {
+            appendListLoop(ret, field, fieldName);
+            ret.append(prefix).append(".write").append(getWriteMethodSuffix(type)).append("(").append(order)
+                    .append(", ").append(getListElementValue(field, fieldName, type)).append(")")
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+            ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        }
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        return ret.toString();
+    }
+
+    /**
+     * get reverse write java statements of primitive array field for {@link ReverseCodedOutput}. Elements are written
+     * from the last one, and packed payload is followed by its length and tag.
+     *
+     * @param field the field
+     * @param prefix the prefix
+     * @param order field order
+     * @param type field type
+     * @return java statements to write field to reverse output named by prefix
+     */
+    public static String getMappedArrayReverseWriteCode(FieldInfo field, String prefix, int order, FieldType type) {
+        String fieldName = getFieldName(order);
+        StringBuilder ret = new StringBuilder();
+        ret.append("if (").append(fieldName).append(".length != 0) {").append(ICodeGenerator.LINE_BREAK);
+        if (field.isPacked()) {
+            ret.append("int __end = ").append(prefix).append(".getTotalBytesWritten()")
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+        }
+        ret.append("for (int __i = ").append(fieldName).append(".length - 1; __i >= 0; __i--) {")
+                .append(ICodeGenerator.LINE_BREAK);
+        if (field.isPacked()) {
+            ret.append(prefix).append(".write").append(getWriteMethodSuffix(type)).append("NoTag(")
+                    .append(fieldName).append("[__i])").append(ICodeGenerator.JAVA_LINE_BREAK);
+        } else {
+            ret.append(prefix).append(".write").append(getWriteMethodSuffix(type)).append("(").append(order)
+                    .append(", ").append(fieldName).append("[__i])").append(ICodeGenerator.JAVA_LINE_BREAK);
+        }
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        if (field.isPacked()) {
+            ret.append(prefix).append(".writeUInt32NoTag(").append(prefix).append(".getTotalBytesWritten() - __end)")
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+            ret.append(prefix).append(".writeUInt32NoTag(")
+                    .append(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED)).append(")")
+                    .append(ICodeGenerator.JAVA_LINE_BREAK);
+        }
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        return ret.toString();
+    }
+
+    /**
+     * Gets the java expression of map key or value to encode.
+     *
+     * @param cls the declared class of map key or value
+     * @param type the field type of map key or value
+     * @param express the java expression of map key or value object
+     * @return the java expression
+     */
+    private static String getMapElementValue(Class<?> cls, FieldType type, String express) {
+        if (type == FieldType.ENUM) {
+            if (EnumReadable.class.isAssignableFrom(cls)) {
+                return "((" + ClassHelper.getInternalName(cls.getCanonicalName()) + ") " + express + ").value()";
+            }
+            return "((Enum) " + express + ").ordinal()";
+        } else if (cls == Byte[].class) {
+            return "CodedConstant.toByteArray((Byte[]) " + express + ")";
+        } else if (type == FieldType.BYTES) {
+            return "((byte[]) " + express + ")";
+        }
+        return "((" + type.getJavaType() + ") " + express + ")" + type.getToPrimitiveType();
+    }
+
+    /**
+     * Gets the trailing arguments of the bound {@link Codec} of map key or value of message type.
+     *
+     * @param cls the declared class of map key or value
+     * @param codecGetter method name of generated class to get the bound {@link Codec}, or null
+     * @return the arguments string
+     */
+    private static String getMapElementCodecArguments(Class<?> cls, String codecGetter) {
+        return getBoundCodecArguments(codecGetter, codecGetter == null ? null : cls);
+    }
+
+    /**
+     * Gets the java expression of encoded size with tag of map key or value.
+     *
+     * @param cls the declared class of map key or value
+     * @param number field number in map entry
+     * @param express the java expression of map key or value object
+     * @param debug the debug
+     * @param path the path
+     * @param codecGetter method name of generated class to get the bound {@link Codec} of message type, or null
+     * @param sizeVar local variable holding size of message without tag, or null to compute the size in place
+     * @return the java expression
+     */
+    private static String getMapElementSize(Class<?> cls, int number, String express, boolean debug, File path,
+            String codecGetter, String sizeVar) {
+        FieldType type = getMapElementFieldType(cls);
+        if (type == FieldType.OBJECT && sizeVar != null) {
+            return "CodedConstant.computeMessageSize(" + number + ", " + express + ", " + sizeVar + ")";
+        } else if (type == FieldType.OBJECT) {
+            return "CodedConstant.computeSize(" + number + ", " + express + ", " + FieldType.class.getName()
+                    + ".OBJECT" + getMapElementCodecArguments(cls, codecGetter) + ")";
+        }
+        return "com.google.protobuf.CodedOutputStream.compute" + getWriteMethodSuffix(type) + "Size(" + number + ", "
+                + getMapElementValue(cls, type, express) + ")";
+    }
+
+    /**
+     * Gets the java statement to write map key or value with tag.
+     *
+     * @param cls the declared class of map key or value
+     * @param prefix the output
+     * @param number field number in map entry
+     * @param express the java expression of map key or value object
+     * @param codecGetter method name of generated class to get the bound {@link Codec} of message type, or null
+     * @param sizeVar local variable holding size of message without tag, or null to compute the size in place
+     * @return the java statement
+     */
+    private static String getMapElementWrite(Class<?> cls, String prefix, int number, String express,
+            String codecGetter, String sizeVar) {
+        FieldType type = getMapElementFieldType(cls);
+        if (type == FieldType.OBJECT && sizeVar != null) {
+            return "CodedConstant.writeMessage(" + prefix + ", " + number + ", " + express + ", " + sizeVar
+                    + getMapElementCodecArguments(cls, codecGetter) + ")" + ICodeGenerator.JAVA_LINE_BREAK;
+        } else if (type == FieldType.OBJECT) {
+            return "CodedConstant.writeObject(" + prefix + ", " + number + ", " + FieldType.class.getName()
+                    + ".OBJECT, " + express + ", false, true" + getMapElementCodecArguments(cls, codecGetter) + ")"
+                    + ICodeGenerator.JAVA_LINE_BREAK;
+        }
+        return prefix + ".write" + getWriteMethodSuffix(type) + "(" + number + ", "
+                + getMapElementValue(cls, type, express) + ")" + ICodeGenerator.JAVA_LINE_BREAK;
+    }
+
+    /**
+     * Append java statement to compute encoded size of map entry <code>__e</code> without tag and length into local
+     * variable <code>__entrySize</code>. If presized, size of key or value of message type is kept in local variable
+     * <code>__kSize</code> or <code>__vSize</code> to write it without asking the size again.
+     *
+     * @param ret the code to append
+     * @param field the field
+     * @param debug the debug
+     * @param path the path
+     * @param keyCodecGetter method name to get the bound {@link Codec} of key of message type, or null
+     * @param valueCodecGetter method name to get the bound {@link Codec} of value of message type, or null
+     * @param presized whether to keep size of key or value of message type in local variable
+     */
+    private static void appendMapEntrySize(StringBuilder ret, FieldInfo field, boolean debug, File path,
+            String keyCodecGetter, String valueCodecGetter, boolean presized) {
+        String keySizeVar = presized ? appendMessageSize(ret, field.getGenericKeyType(), "__kSize", "__e.getKey()",
+                keyCodecGetter) : null;
+        String valueSizeVar = presized ? appendMessageSize(ret, field.getGenericeValueType(), "__vSize",
+                "__e.getValue()", valueCodecGetter) : null;
+        ret.append("int __entrySize = ")
+                .append(getMapElementSize(field.getGenericKeyType(), 1, "__e.getKey()", debug, path, keyCodecGetter,
+                        keySizeVar))
+                .append(" + ").append(getMapElementSize(field.getGenericeValueType(), 2, "__e.getValue()", debug,
+                        path, valueCodecGetter, valueSizeVar))
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+    }
+
+    /**
+     * Append java statement to keep size of map key or value of message type in local variable.
+     *
+     * @param ret the code to append
+     * @param cls the declared class of map key or value
+     * @param sizeVar the local variable name
+     * @param express the java expression of map key or value object
+     * @param codecGetter method name of generated class to get the bound {@link Codec} of message type, or null
+     * @return the local variable name, or null if not message type
+     */
+    private static String appendMessageSize(StringBuilder ret, Class<?> cls, String sizeVar, String express,
+            String codecGetter) {
+        if (getMapElementFieldType(cls) != FieldType.OBJECT) {
+            return null;
+        }
+        ret.append("int ").append(sizeVar).append(" = CodedConstant.computeMessageSizeNoTag(").append(express)
+                .append(getMapElementCodecArguments(cls, codecGetter)).append(")")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        return sizeVar;
+    }
+
+    /**
+     * get size computing java statements of map field. Each entry is sized by its key and value directly without
+     * building a map entry message.
+     *
+     * @param field the field
+     * @param order field order
+     * @param debug the debug
+     * @param path the path
+     * @param keyCodecGetter method name to get the bound {@link Codec} of key of message type, or null
+     * @param valueCodecGetter method name to get the bound {@link Codec} of value of message type, or null
+     * @return java statements to add field size to local variable <code>size</code>
+     */
+    public static String getMappedMapSizeCode(FieldInfo field, int order, boolean debug, File path,
+            String keyCodecGetter, String valueCodecGetter) {
+        String fieldName = getFieldName(order);
+        StringBuilder ret = new StringBuilder();
+        ret.append("for (Object __o : ").append(fieldName).append(".entrySet()) {").append(ICodeGenerator.LINE_BREAK);
+        ret.append("java.util.Map.Entry __e = (java.util.Map.Entry) __o").append(ICodeGenerator.JAVA_LINE_BREAK);
+        appendMapEntrySize(ret, field, debug, path, keyCodecGetter, valueCodecGetter, false);
+        ret.append("size += ").append(CodedOutputStream.computeTagSize(order))
+                .append(" + com.google.protobuf.CodedOutputStream.computeUInt32SizeNoTag(__entrySize) + __entrySize")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        return ret.toString();
+    }
+
+    /**
+     * get write java statements of map field. Each entry is written as tag, length, key and value directly without
+     * building a map entry message.
+     *
+     * @param field the field
+     * @param prefix the prefix
+     * @param order field order
+     * @param debug the debug
+     * @param path the path
+     * @param keyCodecGetter method name to get the bound {@link Codec} of key of message type, or null
+     * @param valueCodecGetter method name to get the bound {@link Codec} of value of message type, or null
+     * @return java statements to write field to output named by prefix
+     */
+    public static String getMappedMapWriteCode(FieldInfo field, String prefix, int order, boolean debug, File path,
+            String keyCodecGetter, String valueCodecGetter) {
+        String fieldName = getFieldName(order);
+        StringBuilder ret = new StringBuilder();
+        ret.append("for (Object __o : ").append(fieldName).append(".entrySet()) {").append(ICodeGenerator.LINE_BREAK);
+        ret.append("java.util.Map.Entry __e = (java.util.Map.Entry) __o").append(ICodeGenerator.JAVA_LINE_BREAK);
+        appendMapEntrySize(ret, field, debug, path, keyCodecGetter, valueCodecGetter, true);
+        ret.append(prefix).append(".writeUInt32NoTag(").append(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED))
+                .append(")").append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append(prefix).append(".writeUInt32NoTag(__entrySize)").append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append(getMapElementWrite(field.getGenericKeyType(), prefix, 1, "__e.getKey()", keyCodecGetter,
+                "__kSize"));
+        ret.append(getMapElementWrite(field.getGenericeValueType(), prefix, 2, "__e.getValue()", valueCodecGetter,
+                "__vSize"));
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        return ret.toString();
+    }
+
+    /**
+     * get reverse write java statements of map field for {@link ReverseCodedOutput}. Entries are written from the last
+     * one, each as value, key, length and tag.
+     *
+     * @param field the field
+     * @param prefix the prefix
+     * @param order field order
+     * @param keyCodecGetter method name to get the bound {@link Codec} of key of message type, or null
+     * @param valueCodecGetter method name to get the bound {@link Codec} of value of message type, or null
+     * @return java statements to write field to reverse output named by prefix
+     */
+    public static String getMappedMapReverseWriteCode(FieldInfo field, String prefix, int order,
+            String keyCodecGetter, String valueCodecGetter) {
+        String fieldName = getFieldName(order);
+        StringBuilder ret = new StringBuilder();
+        ret.append("Object[] __entries = ").append(fieldName).append(".entrySet().toArray()")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append("for (int __i = __entries.length - 1; __i >= 0; __i--) {").append(ICodeGenerator.LINE_BREAK);
+        ret.append("java.util.Map.Entry __e = (java.util.Map.Entry) __entries[__i]")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append("int __end = ").append(prefix).append(".getTotalBytesWritten()")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append(getMapElementWrite(field.getGenericeValueType(), prefix, 2, "__e.getValue()", valueCodecGetter,
+                null));
+        ret.append(getMapElementWrite(field.getGenericKeyType(), prefix, 1, "__e.getKey()", keyCodecGetter, null));
+        ret.append(prefix).append(".writeUInt32NoTag(").append(prefix).append(".getTotalBytesWritten() - __end)")
+                .append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append(prefix).append(".writeUInt32NoTag(").append(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED))
+                .append(")").append(ICodeGenerator.JAVA_LINE_BREAK);
+        ret.append("}").append(ICodeGenerator.LINE_BREAK);
+        return ret.toString();
+    }
+
+    /**
+     * Write to list.
+     *
+     * @param out the out
+     * @param order the order
+     * @param type the type
+     * @param list the list
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeToList(CodedOutputStream out, int order, FieldType type, Collection list)
+            throws IOException {
+        writeToList(out, order, type, list, false);
+    }
+
+    /**
+     * write list to {@link CodedOutputStream} object.
+     *
+     * @param out target output stream to write
+     * @param order field order
+     * @param type field type
+     * @param list target list object to be serialized
+     * @param packed the packed
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeToList(CodedOutputStream out, int order, FieldType type, Collection list, boolean packed)
+            throws IOException {
+        writeToList(out, order, type, list, packed, null, null);
+    }
+
+    /**
+     * write list to {@link CodedOutputStream} object with the bound {@link Codec} of message type.
+     *
+     * @param out target output stream to write
+     * @param order field order
+     * @param type field type
+     * @param list target list object to be serialized
+     * @param packed the packed
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeToList(CodedOutputStream out, int order, FieldType type, Collection list, boolean packed,
+            Codec codec, Class<?> codecType) throws IOException {
+        writeToList(out, order, type, list, packed, codec, codecType, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * write list to {@link CodedOutputStream} object with the bound {@link Codec} of message type, codecs of other
+     * message types are looked up by the config.
+     *
+     * @param out target output stream to write
+     * @param order field order
+     * @param type field type
+     * @param list target list object to be serialized
+     * @param packed the packed
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeToList(CodedOutputStream out, int order, FieldType type, Collection list, boolean packed,
+            Codec codec, Class<?> codecType, ProtobufProxyConfig config) throws IOException {
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+
+        if (!packed) {
+            // each element carries its own tag, so write them straight to target stream
+            for (Object object : list) {
+                if (object == null) {
+                    throw new NullPointerException("List can not include Null value.");
+                }
+                writeObject(out, order, type, object, true, true, codec, codecType, config);
+            }
+            return;
+        }
+
+        // packed elements have no tag, so payload size is known without a temporary buffer
+        int dataSize = 0;
+        for (Object object : list) {
+            if (object == null) {
+                throw new NullPointerException("List can not include Null value.");
+            }
+            dataSize += computeSize(order, object, type, codec, codecType, config);
+        }
+
+        out.writeUInt32NoTag(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED));
+        out.writeUInt32NoTag(dataSize);
+        for (Object object : list) {
+            writeObject(out, order, type, object, true, false, codec, codecType, config);
+        }
+
+    }
+
+    /**
+     * Write object.
+     *
+     * @param out the out
+     * @param order the order
+     * @param type the type
+     * @param o the o
+     * @param list the list
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeObject(CodedOutputStream out, int order, FieldType type, Object o, boolean list)
+            throws IOException {
+        writeObject(out, order, type, o, list, true);
+    }
+
+    /**
+     * Write object to byte array by {@link FieldType}.
+     *
+     * @param out the out
+     * @param order the order
+     * @param type the type
+     * @param o the o
+     * @param list the list
+     * @param withTag the with tag
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeObject(CodedOutputStream out, int order, FieldType type, Object o, boolean list,
+            boolean withTag) throws IOException {
+        writeObject(out, order, type, o, list, withTag, null, null);
+    }
+
+    /**
+     * Write object to byte array by {@link FieldType} with the bound {@link Codec} of message type.
+     *
+     * @param out the out
+     * @param order the order
+     * @param type the type
+     * @param o the o
+     * @param list the list
+     * @param withTag the with tag
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeObject(CodedOutputStream out, int order, FieldType type, Object o, boolean list,
+            boolean withTag, Codec codec, Class<?> codecType) throws IOException {
+        writeObject(out, order, type, o, list, withTag, codec, codecType, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Write object to byte array by {@link FieldType} with the bound {@link Codec} of message type, codecs of other
+     * message types are looked up by the config.
+     *
+     * @param out the out
+     * @param order the order
+     * @param type the type
+     * @param o the o
+     * @param list the list
+     * @param withTag the with tag
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeObject(CodedOutputStream out, int order, FieldType type, Object o, boolean list,
+            boolean withTag, Codec codec, Class<?> codecType, ProtobufProxyConfig config) throws IOException {
+        if (o == null) {
+            return;
+        }
+
+        if (type == FieldType.OBJECT) {
+
+            Class cls = o.getClass();
+            Codec target = getCodec(cls, codec, codecType, config);
+
+            if (withTag) {
+                out.writeUInt32NoTag(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED));
+            }
+
+            // write length prefix then the message itself to avoid copy from a temporary buffer
+            out.writeUInt32NoTag(EncodeSession.size(target, o));
+            target.writeTo(o, out);
+
+            return;
+        }
+
+        if (type == FieldType.BOOL) {
+            if (withTag) {
+                out.writeBool(order, (Boolean) o);
+            } else {
+                out.writeBoolNoTag((Boolean) o);
+            }
+        } else if (type == FieldType.BYTES) {
+            byte[] bb = (byte[]) o;
+            if (withTag) {
+                out.writeBytes(order, ByteString.copyFrom(bb));
+            } else {
+                out.writeBytesNoTag(ByteString.copyFrom(bb));
+            }
+        } else if (type == FieldType.DOUBLE) {
+            if (withTag) {
+                out.writeDouble(order, (Double) o);
+            } else {
+                out.writeDoubleNoTag((Double) o);
+            }
+        } else if (type == FieldType.FIXED32) {
+            if (withTag) {
+                out.writeFixed32(order, (Integer) o);
+            } else {
+                out.writeFixed32NoTag((Integer) o);
+            }
+        } else if (type == FieldType.FIXED64) {
+            if (withTag) {
+                out.writeFixed64(order, (Long) o);
+            } else {
+                out.writeFixed64NoTag((Long) o);
+            }
+        } else if (type == FieldType.FLOAT) {
+            if (withTag) {
+                out.writeFloat(order, (Float) o);
+            } else {
+                out.writeFloatNoTag((Float) o);
+            }
+        } else if (type == FieldType.INT32) {
+            if (withTag) {
+                out.writeInt32(order, (Integer) o);
+            } else {
+                out.writeInt32NoTag((Integer) o);
+            }
+        } else if (type == FieldType.INT64) {
+            if (withTag) {
+                out.writeInt64(order, (Long) o);
+            } else {
+                out.writeInt64NoTag((Long) o);
+            }
+        } else if (type == FieldType.SFIXED32) {
+            if (withTag) {
+                out.writeSFixed32(order, (Integer) o);
+            } else {
+                out.writeSFixed32NoTag((Integer) o);
+            }
+        } else if (type == FieldType.SFIXED64) {
+            if (withTag) {
+                out.writeSFixed64(order, (Long) o);
+            } else {
+                out.writeSFixed64NoTag((Long) o);
+            }
+        } else if (type == FieldType.SINT32) {
+            if (withTag) {
+                out.writeSInt32(order, (Integer) o);
+            } else {
+                out.writeSInt32NoTag((Integer) o);
+            }
+        } else if (type == FieldType.SINT64) {
+            if (withTag) {
+                out.writeSInt64(order, (Long) o);
+            } else {
+                out.writeSInt64NoTag((Long) o);
+            }
+        } else if (type == FieldType.STRING) {
+            if (withTag) {
+                out.writeBytes(order, ByteString.copyFromUtf8(String.valueOf(o)));
+            } else {
+                out.writeBytesNoTag(ByteString.copyFromUtf8(String.valueOf(o)));
+            }
+        } else if (type == FieldType.UINT32) {
+            if (withTag) {
+                out.writeUInt32(order, (Integer) o);
+            } else {
+                out.writeUInt32NoTag((Integer) o);
+            }
+        } else if (type == FieldType.UINT64) {
+            if (withTag) {
+                out.writeUInt64(order, (Long) o);
+            } else {
+                out.writeUInt64NoTag((Long) o);
+            }
+        } else if (type == FieldType.ENUM) {
+            int value = 0;
+            if (o instanceof EnumReadable) {
+                value = ((EnumReadable) o).value();
+            } else if (o instanceof Enum) {
+                value = ((Enum) o).ordinal();
+            }
+            if (withTag) {
+                out.writeEnum(order, value);
+
+            } else {
+                out.writeEnumNoTag(value);
+            }
+        }
+    }
+
+    /**
+     * Write map to {@link ReverseCodedOutput}. Entries are written in reverse order so the result is the same as
+     * {@link #writeToMap(CodedOutputStream, int, Map, com.google.protobuf.WireFormat.FieldType, Object,
+     * com.google.protobuf.WireFormat.FieldType, Object)}.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param output the output
+     * @param order the order
+     * @param map the map
+     * @param keyType the key type
+     * @param defaultKey the default key
+     * @param valueType the value type
+     * @param defalutValue the defalut value
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static <K, V> void writeToMap(ReverseCodedOutput output, int order, Map<K, V> map,
+            com.google.protobuf.WireFormat.FieldType keyType, K defaultKey,
+            com.google.protobuf.WireFormat.FieldType valueType, V defalutValue) throws IOException {
+        writeToMap(output, order, map, keyType, defaultKey, valueType, defalutValue, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Write map entries from back to front into {@link ReverseCodedOutput}, codecs of message values are looked up by
+     * the config.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param output the output
+     * @param order the order
+     * @param map the map
+     * @param keyType the key type
+     * @param defaultKey the default key
+     * @param valueType the value type
+     * @param defalutValue the defalut value
+     * @param config the config to look up codecs of message values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static <K, V> void writeToMap(ReverseCodedOutput output, int order, Map<K, V> map,
+            com.google.protobuf.WireFormat.FieldType keyType, K defaultKey,
+            com.google.protobuf.WireFormat.FieldType valueType, V defalutValue, ProtobufProxyConfig config)
+            throws IOException {
+        com.baidu.bjf.remoting.protobuf.MapEntry<K, V> valuesDefaultEntry = com.baidu.bjf.remoting.protobuf.MapEntry
+                .<K, V> newDefaultInstance(null, keyType, defaultKey, valueType, defalutValue, config);
+        Object[] entries = map.entrySet().toArray();
+        for (int i = entries.length - 1; i >= 0; i--) {
+            java.util.Map.Entry<K, V> entry = (java.util.Map.Entry<K, V>) entries[i];
+            com.baidu.bjf.remoting.protobuf.MapEntry<K, V> values =
+                    valuesDefaultEntry.newBuilderForType().setKey(entry.getKey()).setValue(entry.getValue()).build();
+            output.writeByteArray(order, values.toByteArray());
+        }
+    }
+
+    /**
+     * write list to {@link ReverseCodedOutput} object.
+     *
+     * @param out target output to write
+     * @param order field order
+     * @param type field type
+     * @param list target list object to be serialized
+     * @param packed the packed
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeToList(ReverseCodedOutput out, int order, FieldType type, Collection list, boolean packed)
+            throws IOException {
+        writeToList(out, order, type, list, packed, null, null);
+    }
+
+    /**
+     * write list to {@link ReverseCodedOutput} object with the bound {@link Codec} of message type. Elements are
+     * written from the last one, packed elements are followed by their length prefix and tag.
      *
-     * @param out the out
-     * @param order the order
-     * @param type the type
-     * @param list the list
+     * @param out target output to write
+     * @param order field order
+     * @param type field type
+     * @param list target list object to be serialized
+     * @param packed the packed
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
      * @throws IOException Signals that an I/O exception has occurred.
      */
-    public static void writeToList(CodedOutputStream out, int order, FieldType type, Collection list)
-            throws IOException {
-        writeToList(out, order, type, list, false);
+    public static void writeToList(ReverseCodedOutput out, int order, FieldType type, Collection list, boolean packed,
+            Codec codec, Class<?> codecType) throws IOException {
+        writeToList(out, order, type, list, packed, codec, codecType, ProtobufProxy.getConfig());
     }
 
     /**
-     * write list to {@link CodedOutputStream} object.
+     * write list to {@link ReverseCodedOutput} object with the bound {@link Codec} of message type, codecs of other
+     * message types are looked up by the config.
      *
-     * @param out target output stream to write
+     * @param out target output to write
      * @param order field order
      * @param type field type
      * @param list target list object to be serialized
      * @param packed the packed
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
      * @throws IOException Signals that an I/O exception has occurred.
      */
-    public static void writeToList(CodedOutputStream out, int order, FieldType type, Collection list, boolean packed)
-            throws IOException {
+    public static void writeToList(ReverseCodedOutput out, int order, FieldType type, Collection list, boolean packed,
+            Codec codec, Class<?> codecType, ProtobufProxyConfig config) throws IOException {
         if (list == null || list.isEmpty()) {
             return;
         }
 
-        CodecOutputByteArray output = CodecOutputByteArray.get();
-        for (Object object : list) {
+        Object[] objects = list.toArray();
+        int end = out.getTotalBytesWritten();
+        for (int i = objects.length - 1; i >= 0; i--) {
+            Object object = objects[i];
             if (object == null) {
                 throw new NullPointerException("List can not include Null value.");
             }
-            writeObject(output.getCodedOutputStream(), order, type, object, true, !packed);
+            writeObject(out, order, type, object, true, !packed, codec, codecType, config);
         }
-        byte[] byteArray = output.getData();
 
         if (packed) {
-            out.writeUInt32NoTag(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED));
-            out.writeUInt32NoTag(byteArray.length);
+            out.writeUInt32NoTag(out.getTotalBytesWritten() - end);
+            out.writeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED);
         }
-
-        out.write(byteArray, 0, byteArray.length);
-
     }
 
     /**
-     * Write object.
+     * Write object to {@link ReverseCodedOutput} by {@link FieldType}.
      *
      * @param out the out
      * @param order the order
@@ -749,13 +1909,14 @@ public class CodedConstant {
      * @param list the list
      * @throws IOException Signals that an I/O exception has occurred.
      */
-    public static void writeObject(CodedOutputStream out, int order, FieldType type, Object o, boolean list)
+    public static void writeObject(ReverseCodedOutput out, int order, FieldType type, Object o, boolean list)
             throws IOException {
-        writeObject(out, order, type, o, list, true);
+        writeObject(out, order, type, o, list, true, null, null);
     }
 
     /**
-     * Write object to byte array by {@link FieldType}.
+     * Write object to {@link ReverseCodedOutput} by {@link FieldType} with the bound {@link Codec} of message type.
+     * Value is written before its tag.
      *
      * @param out the out
      * @param order the order
@@ -763,121 +1924,73 @@ public class CodedConstant {
      * @param o the o
      * @param list the list
      * @param withTag the with tag
+     * @param codec the bound codec of message type
+     * @param codecType the message type of bound codec
      * @throws IOException Signals that an I/O exception has occurred.
      */
-    public static void writeObject(CodedOutputStream out, int order, FieldType type, Object o, boolean list,
-            boolean withTag) throws IOException {
+    public static void writeObject(ReverseCodedOutput out, int order, FieldType type, Object o, boolean list,
+            boolean withTag, Codec codec, Class<?> codecType) throws IOException {
+        writeObject(out, order, type, o, list, withTag, codec, codecType, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Write object to {@link ReverseCodedOutput} by {@link FieldType} with the bound {@link Codec} of message type,
+     * codecs of other message types are looked up by the config. Value is written before its tag.
+     *
+     * @param out the out
+     * @param order the order
+     * @param type the type
+     * @param o the o
+     * @param list the list
+     * @param withTag the with tag
+     * @param codec the bound codec of message type, or null
+     * @param codecType the message type of bound codec, or null
+     * @param config the config to look up codecs of other message types
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeObject(ReverseCodedOutput out, int order, FieldType type, Object o, boolean list,
+            boolean withTag, Codec codec, Class<?> codecType, ProtobufProxyConfig config) throws IOException {
         if (o == null) {
             return;
         }
 
+        int wireType = type.getInternalFieldType().getWireType();
         if (type == FieldType.OBJECT) {
-
             Class cls = o.getClass();
-            Codec target = ProtobufProxy.create(cls, ProtobufProxy.isDebugEnabled());
-
-            if (withTag) {
-                out.writeUInt32NoTag(makeTag(order, WireFormat.WIRETYPE_LENGTH_DELIMITED));
-            }
-
-            byte[] byteArray = CodecOutputByteArray.getData(target, o);
-            out.writeUInt32NoTag(byteArray.length);
-            out.write(byteArray, 0, byteArray.length);
-
-            return;
-        }
+            Codec target = getCodec(cls, codec, codecType, config);
 
-        if (type == FieldType.BOOL) {
-            if (withTag) {
-                out.writeBool(order, (Boolean) o);
+            // message body goes first, its length is known once it is written
+            int end = out.getTotalBytesWritten();
+            if (target instanceof ReverseEncoder) {
+                ((ReverseEncoder) target).writeReverse(o, out);
             } else {
-                out.writeBoolNoTag((Boolean) o);
+                out.writeRawBytes(target.encode(o));
             }
+            out.writeUInt32NoTag(out.getTotalBytesWritten() - end);
+        } else if (type == FieldType.BOOL) {
+            out.writeBoolNoTag((Boolean) o);
         } else if (type == FieldType.BYTES) {
-            byte[] bb = (byte[]) o;
-            if (withTag) {
-                out.writeBytes(order, ByteString.copyFrom(bb));
-            } else {
-                out.writeBytesNoTag(ByteString.copyFrom(bb));
-            }
+            out.writeByteArrayNoTag((byte[]) o);
         } else if (type == FieldType.DOUBLE) {
-            if (withTag) {
-                out.writeDouble(order, (Double) o);
-            } else {
-                out.writeDoubleNoTag((Double) o);
-            }
-        } else if (type == FieldType.FIXED32) {
-            if (withTag) {
-                out.writeFixed32(order, (Integer) o);
-            } else {
-                out.writeFixed32NoTag((Integer) o);
-            }
-        } else if (type == FieldType.FIXED64) {
-            if (withTag) {
-                out.writeFixed64(order, (Long) o);
-            } else {
-                out.writeFixed64NoTag((Long) o);
-            }
+            out.writeDoubleNoTag((Double) o);
+        } else if (type == FieldType.FIXED32 || type == FieldType.SFIXED32) {
+            out.writeFixed32NoTag((Integer) o);
+        } else if (type == FieldType.FIXED64 || type == FieldType.SFIXED64) {
+            out.writeFixed64NoTag((Long) o);
         } else if (type == FieldType.FLOAT) {
-            if (withTag) {
-                out.writeFloat(order, (Float) o);
-            } else {
-                out.writeFloatNoTag((Float) o);
-            }
+            out.writeFloatNoTag((Float) o);
         } else if (type == FieldType.INT32) {
-            if (withTag) {
-                out.writeInt32(order, (Integer) o);
-            } else {
-                out.writeInt32NoTag((Integer) o);
-            }
-        } else if (type == FieldType.INT64) {
-            if (withTag) {
-                out.writeInt64(order, (Long) o);
-            } else {
-                out.writeInt64NoTag((Long) o);
-            }
-        } else if (type == FieldType.SFIXED32) {
-            if (withTag) {
-                out.writeSFixed32(order, (Integer) o);
-            } else {
-                out.writeSFixed32NoTag((Integer) o);
-            }
-        } else if (type == FieldType.SFIXED64) {
-            if (withTag) {
-                out.writeSFixed64(order, (Long) o);
-            } else {
-                out.writeSFixed64NoTag((Long) o);
-            }
+            out.writeInt32NoTag((Integer) o);
+        } else if (type == FieldType.INT64 || type == FieldType.UINT64) {
+            out.writeUInt64NoTag((Long) o);
         } else if (type == FieldType.SINT32) {
-            if (withTag) {
-                out.writeSInt32(order, (Integer) o);
-            } else {
-                out.writeSInt32NoTag((Integer) o);
-            }
+            out.writeSInt32NoTag((Integer) o);
         } else if (type == FieldType.SINT64) {
-            if (withTag) {
-                out.writeSInt64(order, (Long) o);
-            } else {
-                out.writeSInt64NoTag((Long) o);
-            }
+            out.writeSInt64NoTag((Long) o);
         } else if (type == FieldType.STRING) {
-            if (withTag) {
-                out.writeBytes(order, ByteString.copyFromUtf8(String.valueOf(o)));
-            } else {
-                out.writeBytesNoTag(ByteString.copyFromUtf8(String.valueOf(o)));
-            }
+            out.writeStringNoTag(String.valueOf(o));
         } else if (type == FieldType.UINT32) {
-            if (withTag) {
-                out.writeUInt32(order, (Integer) o);
-            } else {
-                out.writeUInt32NoTag((Integer) o);
-            }
-        } else if (type == FieldType.UINT64) {
-            if (withTag) {
-                out.writeUInt64(order, (Long) o);
-            } else {
-                out.writeUInt64NoTag((Long) o);
-            }
+            out.writeUInt32NoTag((Integer) o);
         } else if (type == FieldType.ENUM) {
             int value = 0;
             if (o instanceof EnumReadable) {
@@ -885,12 +1998,13 @@ public class CodedConstant {
             } else if (o instanceof Enum) {
                 value = ((Enum) o).ordinal();
             }
-            if (withTag) {
-                out.writeEnum(order, value);
+            out.writeInt32NoTag(value);
+        } else {
+            return;
+        }
 
-            } else {
-                out.writeEnumNoTag(value);
-            }
+        if (withTag) {
+            out.writeTag(order, wireType);
         }
     }
 
@@ -935,6 +2049,16 @@ public class CodedConstant {
         return o == null;
     }
 
+    /**
+     * check boolean is null.
+     *
+     * @param o to check
+     * @return true if is null
+     */
+    public static boolean isNull(boolean o) {
+        return false;
+    }
+
     /**
      * check double is null.
      *
@@ -1015,6 +2139,195 @@ public class CodedConstant {
         return Arrays.asList(value);
     }
 
+    /**
+     * Ensure the int array to decode into could hold more elements. Capacity is doubled on grow.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @param required the count of values to append
+     * @return the array with enough capacity
+     */
+    public static int[] growArray(int[] values, int count, int required) {
+        if (values != null && count + required <= values.length) {
+            return values;
+        }
+        int[] ret = new int[values == null ? required : Math.max(count + required, values.length << 1)];
+        if (values != null) {
+            System.arraycopy(values, 0, ret, 0, count);
+        }
+        return ret;
+    }
+
+    /**
+     * Ensure the long array to decode into could hold more elements. Capacity is doubled on grow.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @param required the count of values to append
+     * @return the array with enough capacity
+     */
+    public static long[] growArray(long[] values, int count, int required) {
+        if (values != null && count + required <= values.length) {
+            return values;
+        }
+        long[] ret = new long[values == null ? required : Math.max(count + required, values.length << 1)];
+        if (values != null) {
+            System.arraycopy(values, 0, ret, 0, count);
+        }
+        return ret;
+    }
+
+    /**
+     * Ensure the float array to decode into could hold more elements. Capacity is doubled on grow.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @param required the count of values to append
+     * @return the array with enough capacity
+     */
+    public static float[] growArray(float[] values, int count, int required) {
+        if (values != null && count + required <= values.length) {
+            return values;
+        }
+        float[] ret = new float[values == null ? required : Math.max(count + required, values.length << 1)];
+        if (values != null) {
+            System.arraycopy(values, 0, ret, 0, count);
+        }
+        return ret;
+    }
+
+    /**
+     * Ensure the double array to decode into could hold more elements. Capacity is doubled on grow.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @param required the count of values to append
+     * @return the array with enough capacity
+     */
+    public static double[] growArray(double[] values, int count, int required) {
+        if (values != null && count + required <= values.length) {
+            return values;
+        }
+        double[] ret = new double[values == null ? required : Math.max(count + required, values.length << 1)];
+        if (values != null) {
+            System.arraycopy(values, 0, ret, 0, count);
+        }
+        return ret;
+    }
+
+    /**
+     * Ensure the boolean array to decode into could hold more elements. Capacity is doubled on grow.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @param required the count of values to append
+     * @return the array with enough capacity
+     */
+    public static boolean[] growArray(boolean[] values, int count, int required) {
+        if (values != null && count + required <= values.length) {
+            return values;
+        }
+        boolean[] ret = new boolean[values == null ? required : Math.max(count + required, values.length << 1)];
+        if (values != null) {
+            System.arraycopy(values, 0, ret, 0, count);
+        }
+        return ret;
+    }
+
+    /**
+     * Trim the decoded int array to its element count.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @return the array of exactly count elements
+     */
+    public static int[] toArray(int[] values, int count) {
+        if (values == null) {
+            return new int[0];
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Trim the decoded long array to its element count.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @return the array of exactly count elements
+     */
+    public static long[] toArray(long[] values, int count) {
+        if (values == null) {
+            return new long[0];
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Trim the decoded float array to its element count.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @return the array of exactly count elements
+     */
+    public static float[] toArray(float[] values, int count) {
+        if (values == null) {
+            return new float[0];
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Trim the decoded double array to its element count.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @return the array of exactly count elements
+     */
+    public static double[] toArray(double[] values, int count) {
+        if (values == null) {
+            return new double[0];
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Trim the decoded boolean array to its element count.
+     *
+     * @param values the decoded values, may be null
+     * @param count the count of decoded values
+     * @return the array of exactly count elements
+     */
+    public static boolean[] toArray(boolean[] values, int count) {
+        if (values == null) {
+            return new boolean[0];
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Gets the count of elements to reserve for packed repeated field payload, called once the limit of payload is
+     * pushed. If input is backed by a byte array holding the whole payload, the count is exact: fixed width elements
+     * are counted by length and varints are counted by scanning the payload in place. Otherwise the length prefix is not
+     * trusted until the payload is read, so the reservation is bounded and larger payloads grow the array as they are
+     * read.
+     *
+     * @param input the input with the limit of payload pushed
+     * @param elementSize the encoded size of fixed width element, or 1 for varint
+     * @return the count of elements to reserve
+     */
+    public static int getPackedCount(CodedInputStream input, int elementSize) {
+        int length = input.getBytesUntilLimit();
+        if (elementSize == 1) {
+            int count = ArrayInputAccess.countVarints(input);
+            if (count >= 0) {
+                return count;
+            }
+        } else if (ArrayInputAccess.available(input) == length) {
+            return length / elementSize;
+        }
+        return Math.min(length / elementSize, MAX_PACKED_RESERVE_COUNT);
+    }
+
     /**
      * <p>
      * Capitalizes a String changing the first letter to title case as per {@link Character#toTitleCase(char)}. No other
@@ -1186,13 +2499,28 @@ public class CodedConstant {
      */
     public static void writeElement(final CodedOutputStream output, final WireFormat.FieldType type, final int number,
             final Object value) throws IOException {
+        writeElement(output, type, number, value, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Write a single tag-value pair to the stream, codecs of message values are looked up by the config.
+     *
+     * @param output The output stream.
+     * @param type The field's type.
+     * @param number The field's number.
+     * @param value Object representing the field's value.
+     * @param config the config to look up codecs of message values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeElement(final CodedOutputStream output, final WireFormat.FieldType type, final int number,
+            final Object value, ProtobufProxyConfig config) throws IOException {
         // Special case for groups, which need a start and end tag; other fields
         // can just use writeTag() and writeFieldNoTag().
         if (type == WireFormat.FieldType.GROUP) {
             output.writeGroup(number, (MessageLite) value);
         } else {
             output.writeTag(number, getWireFormatForFieldType(type, false));
-            writeElementNoTag(output, type, value);
+            writeElementNoTag(output, type, value, config);
         }
     }
 
@@ -1212,7 +2540,13 @@ public class CodedConstant {
         }
     }
 
-    static byte[] toByteArray(Byte[] bb) {
+    /**
+     * To byte array.
+     *
+     * @param bb the bb
+     * @return the byte[]
+     */
+    public static byte[] toByteArray(Byte[] bb) {
         byte[] ret = new byte[bb.length];
         int i = 0;
         for (Byte b : bb) {
@@ -1232,6 +2566,21 @@ public class CodedConstant {
      */
     public static void writeElementNoTag(final CodedOutputStream output, final WireFormat.FieldType type,
             final Object value) throws IOException {
+        writeElementNoTag(output, type, value, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Write a field of arbitrary type, without its tag, to the stream, codecs of message values are looked up by the
+     * config.
+     *
+     * @param output The output stream.
+     * @param type The field's type.
+     * @param value Object representing the field's value.
+     * @param config the config to look up codecs of message values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeElementNoTag(final CodedOutputStream output, final WireFormat.FieldType type,
+            final Object value, ProtobufProxyConfig config) throws IOException {
         switch (type) {
             case DOUBLE:
                 output.writeDoubleNoTag((Double) value);
@@ -1263,7 +2612,7 @@ public class CodedConstant {
             // group not support yet
             // case GROUP : output.writeGroupNoTag ((MessageLite) value); break;
             case MESSAGE:
-                writeObject(output, 0, FieldType.OBJECT, value, false, false);
+                writeObject(output, 0, FieldType.OBJECT, value, false, false, null, null, config);
                 break;
             case BYTES:
                 if (value instanceof ByteString) {
@@ -1331,6 +2680,20 @@ public class CodedConstant {
      * @return the int
      */
     public static int computeElementSizeNoTag(final WireFormat.FieldType type, final Object value) {
+        return computeElementSizeNoTag(type, value, ProtobufProxy.getConfig());
+    }
+
+    /**
+     * Compute the number of bytes that would be needed to encode a particular value of arbitrary type, excluding tag,
+     * codecs of message values are looked up by the config.
+     *
+     * @param type The field's type.
+     * @param value Object representing the field's value.
+     * @param config the config to look up codecs of message values
+     * @return the int
+     */
+    public static int computeElementSizeNoTag(final WireFormat.FieldType type, final Object value,
+            ProtobufProxyConfig config) {
         switch (type) {
             // Note: Minor violation of 80-char limit rule here because this would
             // actually be harder to read if we wrapped the lines.
@@ -1378,7 +2741,7 @@ public class CodedConstant {
                 if (value instanceof LazyField) {
                     return CodedOutputStream.computeLazyFieldSizeNoTag((LazyField) value);
                 } else {
-                    return computeObjectSizeNoTag(value);
+                    return computeObjectSizeNoTag(value, config);
                 }
 
             case ENUM:
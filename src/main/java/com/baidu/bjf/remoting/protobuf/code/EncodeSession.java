@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+
+/**
+ * Thread scope session of one encode pass which memorizes size of each nested message.
+ *
+ * <p>
+ * Nested messages are sized and written in the same traversal order, so sizes are recorded into a reusable array by
+ * traversal order and taken back one by one during write. Each record is keyed by object identity, if the write
+ * traversal does not match the record it falls back to compute the size again.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class EncodeSession {
+
+    /** The session of current thread. */
+    private static final ThreadLocal<EncodeSession> SESSION = ThreadLocal.withInitial(EncodeSession::new);
+
+    /** The initial capacity of record arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The max capacity of record arrays to retain after session closed. */
+    private static final int MAX_RETAIN_CAPACITY = 4096;
+
+    /** The recorded objects. */
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+
+    /** The recorded sizes. */
+    private int[] sizes = new int[INITIAL_CAPACITY];
+
+    /** The count of records. */
+    private int count;
+
+    /** The position of next record to take. */
+    private int cursor;
+
+    /** The max count of records ever used in this session. */
+    private int used;
+
+    /** The depth of size computing in progress. */
+    private int sizing;
+
+    /** The active. */
+    private boolean active;
+
+    private EncodeSession() {
+    }
+
+    /**
+     * Open session for current thread.
+     *
+     * @return the session opened, or null if current thread already has an active session
+     */
+    public static EncodeSession open() {
+        EncodeSession session = SESSION.get();
+        if (session.active) {
+            return null;
+        }
+        session.active = true;
+        return session;
+    }
+
+    /**
+     * Close the session returned by {@link #open()}.
+     *
+     * @param session the session, do nothing if null
+     */
+    public static void close(EncodeSession session) {
+        if (session != null) {
+            session.reset();
+        }
+    }
+
+    /**
+     * Begin size pass of root message. Nested sizes computed until {@link #endSize(EncodeSession)} are memorized for
+     * the write pass followed.
+     *
+     * @param session the session returned by {@link #open()}, do nothing if null
+     */
+    public static void beginSize(EncodeSession session) {
+        if (session != null) {
+            session.sizing++;
+        }
+    }
+
+    /**
+     * End size pass of root message and rewind to the first record for the write pass.
+     *
+     * @param session the session returned by {@link #open()}, do nothing if null
+     */
+    public static void endSize(EncodeSession session) {
+        if (session != null) {
+            session.sizing--;
+            session.cursor = 0;
+        }
+    }
+
+    /**
+     * Gets the size of nested message. The size is memorized if current thread has an active session. Required fields
+     * are not checked in a session, as encode and write do not check them.
+     *
+     * @param codec the codec of message
+     * @param o the message object
+     * @return the size
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static int size(Codec codec, Object o) throws IOException {
+        EncodeSession session = SESSION.get();
+        if (!session.active) {
+            return codec.size(o);
+        }
+        return session.computeSize(codec, o);
+    }
+
+    /**
+     * Compute size.
+     *
+     * @param codec the codec
+     * @param o the o
+     * @return the int
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int computeSize(Codec codec, Object o) throws IOException {
+        if (cursor < count && objects[cursor] == o) {
+            return sizes[cursor++];
+        }
+
+        // records after cursor no longer match the traversal
+        count = cursor;
+        int index = count++;
+        cursor = count;
+        ensureCapacity(count);
+        used = Math.max(used, count);
+        objects[index] = o;
+
+        int size;
+        sizing++;
+        try {
+            size = sizeUnchecked(codec, o);
+        } finally {
+            sizing--;
+        }
+        sizes[index] = size;
+
+        // nested messages of this object are recorded right after it. if called from write pass, they will be taken
+        // while writing this object, otherwise skip them to continue sizing
+        cursor = sizing == 0 ? index + 1 : count;
+        return size;
+    }
+
+    /**
+     * Compute size of message without required field check if supported by codec.
+     *
+     * @param codec the codec
+     * @param o the message object
+     * @return the size
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static int sizeUnchecked(Codec codec, Object o) throws IOException {
+        if (codec instanceof MessageSizer) {
+            return ((MessageSizer) codec).doSize(o, false);
+        }
+        return codec.size(o);
+    }
+
+    /**
+     * Ensure capacity.
+     *
+     * @param capacity the capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > objects.length) {
+            int newCapacity = Math.max(capacity, objects.length << 1);
+            objects = Arrays.copyOf(objects, newCapacity);
+            sizes = Arrays.copyOf(sizes, newCapacity);
+        }
+    }
+
+    /**
+     * Reset.
+     */
+    private void reset() {
+        if (objects.length > MAX_RETAIN_CAPACITY) {
+            objects = new Object[INITIAL_CAPACITY];
+            sizes = new int[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(objects, 0, used, null);
+        }
+        count = 0;
+        cursor = 0;
+        used = 0;
+        sizing = 0;
+        active = false;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import com.baidu.bjf.remoting.protobuf.EnumReadable;
+
+/**
+ * Lookup table from encoded value to enum constant. Value of constant is {@link EnumReadable#value()} if implemented,
+ * otherwise its ordinal.
+ *
+ * <p>
+ * Constants are indexed by value in an array if values are small and non-negative, otherwise in an open addressing
+ * hash table. If more than one constant has the same value, the first declared one is taken.
+ * </p>
+ *
+ * @param <E> the enum type
+ * @author agent
+ * @since 1.0.0
+ */
+public final class EnumTable<E extends Enum<E>> {
+
+    /** The extra slots allowed for array index beyond count of constants. */
+    private static final int DENSE_SLACK = 64;
+
+    /** The constants indexed by value, null if hash table is used. */
+    private final Object[] dense;
+
+    /** The hash table keys. */
+    private final int[] keys;
+
+    /** The hash table values, null slot is empty. */
+    private final Object[] values;
+
+    /** The hash table mask. */
+    private final int mask;
+
+    /** The first declared constant. */
+    private final E first;
+
+    private EnumTable(E[] constants) {
+        first = constants.length == 0 ? null : constants[0];
+
+        int min = 0;
+        int max = -1;
+        for (E e : constants) {
+            int value = valueOf(e);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        if (min >= 0 && max < constants.length * 2 + DENSE_SLACK) {
+            dense = new Object[max + 1];
+            for (E e : constants) {
+                int value = valueOf(e);
+                if (dense[value] == null) {
+                    dense[value] = e;
+                }
+            }
+            keys = null;
+            values = null;
+            mask = 0;
+            return;
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(constants.length, 1) * 2) << 1;
+        dense = null;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (E e : constants) {
+            int value = valueOf(e);
+            int slot = hash(value) & mask;
+            while (values[slot] != null && keys[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                keys[slot] = value;
+                values[slot] = e;
+            }
+        }
+    }
+
+    /**
+     * Create lookup table of enum type.
+     *
+     * @param <E> the enum type
+     * @param enumType the enum type
+     * @return the enum table
+     */
+    public static <E extends Enum<E>> EnumTable<E> of(Class<E> enumType) {
+        return new EnumTable<E>(enumType.getEnumConstants());
+    }
+
+    /**
+     * Gets the enum constant of encoded value.
+     *
+     * @param value the encoded value
+     * @return the enum constant, or null if no constant has the value
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int value) {
+        Object[] dense = this.dense;
+        if (dense != null) {
+            return value >= 0 && value < dense.length ? (E) dense[value] : null;
+        }
+        int slot = hash(value) & mask;
+        Object e;
+        while ((e = values[slot]) != null) {
+            if (keys[slot] == value) {
+                return (E) e;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the first declared constant which is the default value of enum field.
+     *
+     * @return the first constant, or null if enum has no constant
+     */
+    public E first() {
+        return first;
+    }
+
+    /**
+     * Gets encoded value of enum constant.
+     *
+     * @param e the enum constant
+     * @return the value
+     */
+    private static int valueOf(Enum<?> e) {
+        if (e instanceof EnumReadable) {
+            return ((EnumReadable) e).value();
+        }
+        return e.ordinal();
+    }
+
+    /**
+     * Spread bits of value for hash table slot.
+     *
+     * @param value the value
+     * @return the hash
+     */
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
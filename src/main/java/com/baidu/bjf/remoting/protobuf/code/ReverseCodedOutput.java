@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import java.util.Arrays;
+
+import com.google.protobuf.WireFormat;
+
+/**
+ * Output buffer which is written from back to front. Fields and repeated values must be written in reverse order, a
+ * length delimited value is written before its length prefix and tag, so length of nested message is known once its
+ * body is written without a separate size pass.
+ *
+ * <p>
+ * Borrow instance by {@link #get()} and recycle it by {@link #getData()} in the same thread.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class ReverseCodedOutput {
+
+    /** The thread scope cached instance. */
+    private static final ThreadLocal<ReverseCodedOutput> CACHED = ThreadLocal.withInitial(ReverseCodedOutput::new);
+
+    /** The initial capacity of buffer. */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** The max capacity of buffer to retain after recycled. */
+    private static final int MAX_RETAIN_CAPACITY = 1024 * 1024;
+
+    /** The max bytes of a varint64. */
+    private static final int MAX_VARINT64_SIZE = 10;
+
+    /** The buffer, data is stored from position to the end. */
+    private byte[] buffer;
+
+    /** The position of first written byte. */
+    private int position;
+
+    /** The in use. */
+    private boolean inUse;
+
+    /**
+     * Instantiates a new reverse coded output.
+     */
+    public ReverseCodedOutput() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new reverse coded output.
+     *
+     * @param capacity the initial capacity
+     */
+    public ReverseCodedOutput(int capacity) {
+        buffer = new byte[Math.max(capacity, MAX_VARINT64_SIZE)];
+        position = buffer.length;
+    }
+
+    /**
+     * Borrow instance from current thread.
+     *
+     * @return the reverse coded output
+     */
+    public static ReverseCodedOutput get() {
+        ReverseCodedOutput output = CACHED.get();
+        if (output.inUse) {
+            return new ReverseCodedOutput();
+        }
+        output.inUse = true;
+        return output;
+    }
+
+    /**
+     * Gets the written data and recycle this instance.
+     *
+     * @return the data
+     */
+    public byte[] getData() {
+        byte[] data = toByteArray();
+        position = buffer.length;
+        if (inUse) {
+            inUse = false;
+            if (buffer.length > MAX_RETAIN_CAPACITY) {
+                buffer = new byte[INITIAL_CAPACITY];
+                position = buffer.length;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Gets the written data.
+     *
+     * @return the byte array
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(buffer, position, buffer.length);
+    }
+
+    /**
+     * Gets the total bytes written.
+     *
+     * @return the total bytes written
+     */
+    public int getTotalBytesWritten() {
+        return buffer.length - position;
+    }
+
+    /**
+     * Make sure there is space to write at least required bytes.
+     *
+     * @param required the required bytes
+     */
+    private void ensureCapacity(int required) {
+        if (position >= required) {
+            return;
+        }
+        int written = buffer.length - position;
+        int newLength = Math.max(buffer.length << 1, written + required);
+        byte[] newBuffer = new byte[newLength];
+        System.arraycopy(buffer, position, newBuffer, newLength - written, written);
+        buffer = newBuffer;
+        position = newLength - written;
+    }
+
+    /**
+     * Write tag.
+     *
+     * @param fieldNumber the field number
+     * @param wireType the wire type
+     */
+    public void writeTag(int fieldNumber, int wireType) {
+        writeUInt32NoTag(CodedConstant.makeTag(fieldNumber, wireType));
+    }
+
+    /**
+     * Write raw bytes.
+     *
+     * @param value the value
+     */
+    public void writeRawBytes(byte[] value) {
+        writeRawBytes(value, 0, value.length);
+    }
+
+    /**
+     * Write raw bytes.
+     *
+     * @param value the value
+     * @param offset the offset
+     * @param length the length
+     */
+    public void writeRawBytes(byte[] value, int offset, int length) {
+        ensureCapacity(length);
+        position -= length;
+        System.arraycopy(value, offset, buffer, position, length);
+    }
+
+    /**
+     * Write varint32 without tag.
+     *
+     * @param value the value
+     */
+    public void writeUInt32NoTag(int value) {
+        ensureCapacity(5);
+        if ((value & ~0x7F) == 0) {
+            buffer[--position] = (byte) value;
+            return;
+        }
+        int size = com.google.protobuf.CodedOutputStream.computeUInt32SizeNoTag(value);
+        position -= size;
+        int p = position;
+        while ((value & ~0x7F) != 0) {
+            buffer[p++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[p] = (byte) value;
+    }
+
+    /**
+     * Write varint64 without tag.
+     *
+     * @param value the value
+     */
+    public void writeUInt64NoTag(long value) {
+        ensureCapacity(MAX_VARINT64_SIZE);
+        int size = com.google.protobuf.CodedOutputStream.computeUInt64SizeNoTag(value);
+        position -= size;
+        int p = position;
+        while ((value & ~0x7FL) != 0) {
+            buffer[p++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[p] = (byte) value;
+    }
+
+    /**
+     * Write fixed32 without tag.
+     *
+     * @param value the value
+     */
+    public void writeFixed32NoTag(int value) {
+        ensureCapacity(4);
+        position -= 4;
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        buffer[position + 2] = (byte) (value >> 16);
+        buffer[position + 3] = (byte) (value >> 24);
+    }
+
+    /**
+     * Write fixed64 without tag.
+     *
+     * @param value the value
+     */
+    public void writeFixed64NoTag(long value) {
+        ensureCapacity(8);
+        position -= 8;
+        for (int i = 0; i < 8; i++) {
+            buffer[position + i] = (byte) (value >> (i * 8));
+        }
+    }
+
+    /**
+     * Write int32 without tag, negative value is written as 10 bytes varint.
+     *
+     * @param value the value
+     */
+    public void writeInt32NoTag(int value) {
+        if (value >= 0) {
+            writeUInt32NoTag(value);
+        } else {
+            writeUInt64NoTag(value);
+        }
+    }
+
+    /**
+     * Write int64 without tag.
+     *
+     * @param value the value
+     */
+    public void writeInt64NoTag(long value) {
+        writeUInt64NoTag(value);
+    }
+
+    /**
+     * Write sfixed32 without tag.
+     *
+     * @param value the value
+     */
+    public void writeSFixed32NoTag(int value) {
+        writeFixed32NoTag(value);
+    }
+
+    /**
+     * Write sfixed64 without tag.
+     *
+     * @param value the value
+     */
+    public void writeSFixed64NoTag(long value) {
+        writeFixed64NoTag(value);
+    }
+
+    /**
+     * Write enum without tag.
+     *
+     * @param value the value
+     */
+    public void writeEnumNoTag(int value) {
+        writeInt32NoTag(value);
+    }
+
+    /**
+     * Write sint32 without tag.
+     *
+     * @param value the value
+     */
+    public void writeSInt32NoTag(int value) {
+        writeUInt32NoTag((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Write sint64 without tag.
+     *
+     * @param value the value
+     */
+    public void writeSInt64NoTag(long value) {
+        writeUInt64NoTag((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Write bool without tag.
+     *
+     * @param value the value
+     */
+    public void writeBoolNoTag(boolean value) {
+        ensureCapacity(1);
+        buffer[--position] = (byte) (value ? 1 : 0);
+    }
+
+    /**
+     * Write double without tag.
+     *
+     * @param value the value
+     */
+    public void writeDoubleNoTag(double value) {
+        writeFixed64NoTag(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Write float without tag.
+     *
+     * @param value the value
+     */
+    public void writeFloatNoTag(float value) {
+        writeFixed32NoTag(Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Write UTF-8 encoded string with length prefix and without tag.
+     *
+     * @param value the value
+     */
+    public void writeStringNoTag(String value) {
+        int length = value.length();
+        // at most 3 bytes for each char
+        ensureCapacity(length * 3);
+        int end = position;
+        byte[] buf = buffer;
+        int p = position;
+        for (int i = length - 1; i >= 0; i--) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[--p] = (byte) c;
+            } else if (c < 0x800) {
+                buf[--p] = (byte) (0x80 | (0x3F & c));
+                buf[--p] = (byte) (0xC0 | (c >>> 6));
+            } else if (c < Character.MIN_SURROGATE || Character.MAX_SURROGATE < c) {
+                buf[--p] = (byte) (0x80 | (0x3F & c));
+                buf[--p] = (byte) (0x80 | (0x3F & (c >>> 6)));
+                buf[--p] = (byte) (0xE0 | (c >>> 12));
+            } else if (i > 0 && Character.isSurrogatePair(value.charAt(i - 1), c)) {
+                int codePoint = Character.toCodePoint(value.charAt(--i), c);
+                buf[--p] = (byte) (0x80 | (0x3F & codePoint));
+                buf[--p] = (byte) (0x80 | (0x3F & (codePoint >>> 6)));
+                buf[--p] = (byte) (0x80 | (0x3F & (codePoint >>> 12)));
+                buf[--p] = (byte) (0xF0 | (codePoint >>> 18));
+            } else {
+                // unpaired surrogate is replaced as String.getBytes does
+                buf[--p] = (byte) '?';
+            }
+        }
+        position = p;
+        writeUInt32NoTag(end - p);
+    }
+
+    /**
+     * Write byte array with length prefix and without tag.
+     *
+     * @param value the value
+     */
+    public void writeByteArrayNoTag(byte[] value) {
+        writeRawBytes(value);
+        writeUInt32NoTag(value.length);
+    }
+
+    /**
+     * Write double.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeDouble(int fieldNumber, double value) {
+        writeDoubleNoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED64);
+    }
+
+    /**
+     * Write float.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeFloat(int fieldNumber, float value) {
+        writeFloatNoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED32);
+    }
+
+    /**
+     * Write int64.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeInt64(int fieldNumber, long value) {
+        writeUInt64NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write uint64.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeUInt64(int fieldNumber, long value) {
+        writeUInt64NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write int32.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeInt32(int fieldNumber, int value) {
+        writeInt32NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write fixed64.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeFixed64(int fieldNumber, long value) {
+        writeFixed64NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED64);
+    }
+
+    /**
+     * Write fixed32.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeFixed32(int fieldNumber, int value) {
+        writeFixed32NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED32);
+    }
+
+    /**
+     * Write bool.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeBool(int fieldNumber, boolean value) {
+        writeBoolNoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write string.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeString(int fieldNumber, String value) {
+        writeStringNoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    }
+
+    /**
+     * Write byte array.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeByteArray(int fieldNumber, byte[] value) {
+        writeByteArrayNoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    }
+
+    /**
+     * Write uint32.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeUInt32(int fieldNumber, int value) {
+        writeUInt32NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write sfixed32.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeSFixed32(int fieldNumber, int value) {
+        writeFixed32NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED32);
+    }
+
+    /**
+     * Write sfixed64.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeSFixed64(int fieldNumber, long value) {
+        writeFixed64NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_FIXED64);
+    }
+
+    /**
+     * Write sint32.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeSInt32(int fieldNumber, int value) {
+        writeSInt32NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write sint64.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeSInt64(int fieldNumber, long value) {
+        writeSInt64NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+
+    /**
+     * Write enum.
+     *
+     * @param fieldNumber the field number
+     * @param value the value
+     */
+    public void writeEnum(int fieldNumber, int value) {
+        writeInt32NoTag(value);
+        writeTag(fieldNumber, WireFormat.WIRETYPE_VARINT);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import java.io.IOException;
+
+/**
+ * Codec which is able to write target object from back to front into {@link ReverseCodedOutput}. All generated codec
+ * classes implement this interface.
+ *
+ * @param <T> target object type
+ * @author agent
+ * @since 1.0.0
+ */
+public interface ReverseEncoder<T> {
+
+    /**
+     * Write target object from back to front.
+     *
+     * @param t target object
+     * @param output the output
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void writeReverse(T t, ReverseCodedOutput output) throws IOException;
+}
@@ -24,13 +24,19 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.EncodeStrategy;
 import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.annotation.Encoding;
 import com.baidu.bjf.remoting.protobuf.utils.ClassHelper;
 import com.baidu.bjf.remoting.protobuf.utils.FieldInfo;
 import com.baidu.bjf.remoting.protobuf.utils.MiniTemplator;
@@ -57,6 +63,12 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
     /** The relative proxy classes. */
     private Set<Class<?>> relativeProxyClasses = new HashSet<Class<?>>();
 
+    /** The dependent message classes to the index of their bound codec. */
+    private Map<Class<?>, Integer> dependentCodecs = new LinkedHashMap<Class<?>, Integer>();
+
+    /** The enum classes to decode to the index of their lookup table. */
+    private Map<Class<?>, Integer> enumTables = new LinkedHashMap<Class<?>, Integer>();
+
     /** The templator. */
     private MiniTemplator templator;
     
@@ -149,6 +161,9 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
         // create methods
         initEncodeMethodTemplateVariable();
         initDecodeMethodTemplateVariable();
+        initDependentCodecTemplateVariable();
+        initEnumTableTemplateVariable();
+        initFieldHandleTemplateVariable();
 
         StringBuilderWriter writer = new StringBuilderWriter();
         try {
@@ -164,6 +179,14 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
      */
     protected void initEncodeMethodTemplateVariable() {
 
+        if (getEncodeStrategy() == EncodeStrategy.REVERSE) {
+            templator.addBlock("encodeReverse");
+        } else {
+            templator.addBlock("encodeSizeFirst");
+        }
+
+        // reverse writer needs fields from back to front
+        LinkedList<String[]> reverseEncodeFields = new LinkedList<String[]>();
         Set<Integer> orders = new HashSet<Integer>();
         // encode method
         for (FieldInfo field : fields) {
@@ -185,41 +208,137 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
 
             String fieldName = CodedConstant.getFieldName(field.getOrder());
             String encodeFieldType = CodedConstant.getFiledType(fieldType, isList);
+            String encodeFieldDefault = "null";
+            if (field.isArray()) {
+                encodeFieldType = field.getField().getType().getSimpleName();
+            } else if (CodedConstant.isPrimitiveField(field)) {
+                // primitive field is kept in primitive local to avoid boxing
+                encodeFieldType = CodedConstant.getPrimitiveType(fieldType);
+                encodeFieldDefault = fieldType.getDefaultValue();
+            }
             templator.setVariable("encodeFieldType", encodeFieldType);
+            templator.setVariable("encodeFieldDefault", encodeFieldDefault);
             templator.setVariable("encodeFieldName", fieldName);
             templator.setVariable("encodeFieldGetter", accessByField);
             String writeValueToField = CodedConstant.getWriteValueToField(fieldType, accessByField, isList);
             templator.setVariable("writeValueToField", writeValueToField);
 
-            if (field.isRequired()) {
-                templator.setVariableOpt("checkNull",
-                        CodedConstant.getRequiredCheck(field.getOrder(), field.getField()));
+            // primitive field always has value
+            if (field.isRequired() && !CodedConstant.isPrimitiveField(field)) {
+                templator.setVariableOpt("checkNull", "if (checkRequired) {" + ClassCode.LINE_BREAK
+                        + CodedConstant.getRequiredCheck(field.getOrder(), field.getField()) + "}");
             } else {
                 templator.setVariable("checkNull", "");
             }
 
-            String calcSize = CodedConstant.getMappedTypeSize(field, field.getOrder(), field.getFieldType(), isList,
-                    isMap, debug, outputPath);
+            Class<?> dependentCls = getDependentClass(field);
+            String codecGetter = null;
+            if (dependentCls != null) {
+                codecGetter = getDependentCodecGetter(dependentCls);
+            }
+
+            // repeated scalar field is encoded by type specialized loop
+            boolean specializedList = (isList || field.isArray()) && CodedConstant.isSpecializedListType(fieldType);
+
+            // map entry is encoded by its key and value directly
+            String keyCodecGetter = null;
+            String valueCodecGetter = null;
+            if (isMap) {
+                keyCodecGetter = getMapElementCodecGetter(field.getGenericKeyType());
+                valueCodecGetter = getMapElementCodecGetter(field.getGenericeValueType());
+            }
+
+            String calcSize;
+            if (specializedList) {
+                calcSize = CodedConstant.getMappedListSizeCode(field, field.getOrder(), fieldType);
+            } else if (isMap) {
+                calcSize = CodedConstant.getMappedMapSizeCode(field, field.getOrder(), debug, outputPath,
+                        keyCodecGetter, valueCodecGetter);
+            } else {
+                calcSize = "size += " + CodedConstant.getMappedTypeSize(field, field.getOrder(), fieldType, isList,
+                        isMap, debug, outputPath, codecGetter, dependentCls);
+            }
             templator.setVariable("calcSize", calcSize);
 
             // set write to byte
-            String encodeWriteFieldValue = CodedConstant.getMappedWriteCode(field, "output", field.getOrder(),
-                    field.getFieldType(), isList, isMap);
+            String encodeWriteFieldValue;
+            String reverseEncodeWriteFieldValue;
+            if (field.isArray()) {
+                encodeWriteFieldValue = CodedConstant.getMappedListWriteCode(field, "output", field.getOrder(),
+                        fieldType);
+                reverseEncodeWriteFieldValue = CodedConstant.getMappedArrayReverseWriteCode(field, "output",
+                        field.getOrder(), fieldType);
+            } else if (isMap) {
+                encodeWriteFieldValue = CodedConstant.getMappedMapWriteCode(field, "output", field.getOrder(), debug,
+                        outputPath, keyCodecGetter, valueCodecGetter);
+                reverseEncodeWriteFieldValue = CodedConstant.getMappedMapReverseWriteCode(field, "output",
+                        field.getOrder(), keyCodecGetter, valueCodecGetter);
+            } else {
+                encodeWriteFieldValue = CodedConstant.getMappedWriteCode(field, "output", field.getOrder(), fieldType,
+                        isList, isMap, codecGetter, dependentCls);
+                reverseEncodeWriteFieldValue = encodeWriteFieldValue;
+                if (specializedList) {
+                    encodeWriteFieldValue = CodedConstant.getMappedListWriteCode(field, "output", field.getOrder(),
+                            fieldType);
+                }
+            }
             templator.setVariable("encodeWriteFieldValue", encodeWriteFieldValue);
             templator.addBlock("encodeFields");
 
+            reverseEncodeFields.addFirst(new String[] { encodeFieldType, fieldName, accessByField, writeValueToField,
+                    reverseEncodeWriteFieldValue, encodeFieldDefault });
+        }
+
+        for (String[] field : reverseEncodeFields) {
+            templator.setVariable("encodeFieldType", field[0]);
+            templator.setVariable("encodeFieldName", field[1]);
+            templator.setVariable("encodeFieldGetter", field[2]);
+            templator.setVariable("writeValueToField", field[3]);
+            templator.setVariable("encodeWriteFieldValue", field[4]);
+            templator.setVariable("encodeFieldDefault", field[5]);
+            templator.addBlock("reverseEncodeFields");
         }
     }
 
+    /**
+     * Gets the encode strategy of target class. {@link Encoding} on class takes precedence over the default one of
+     * {@link ProtobufProxy}.
+     *
+     * @return the encode strategy
+     */
+    protected EncodeStrategy getEncodeStrategy() {
+        Encoding encoding = cls.getAnnotation(Encoding.class);
+        if (encoding != null) {
+            return encoding.value();
+        }
+        return ProtobufProxy.getEncodeStrategy();
+    }
+
     /**
      * Inits the decode method template variable.
      */
     protected void initDecodeMethodTemplateVariable() {
         StringBuilder initListMapFields = new StringBuilder();
+        StringBuilder setArrayFields = new StringBuilder();
         // 执行初始化，主要针对枚举类型
         for (FieldInfo field : fields) {
             boolean isList = field.isList();
             boolean isMap = field.isMap();
+            if (field.isArray()) {
+                // primitive array is decoded into local buffer and set to field after all tags read
+                String arrayName = getDecodeArrayName(field);
+                String countName = getDecodeArrayCountName(field);
+                initListMapFields.append(field.getField().getType().getSimpleName()).append(" ").append(arrayName)
+                        .append(" = null").append(ClassCode.JAVA_LINE_BREAK);
+                initListMapFields.append("int ").append(countName).append(" = 0").append(ClassCode.JAVA_LINE_BREAK);
+                // field keeps its default value if never read
+                setArrayFields.append("if (").append(arrayName).append(" != null) {").append(ClassCode.LINE_BREAK);
+                setArrayFields.append(getSetToField("ret", field.getField(), cls,
+                        "CodedConstant.toArray(" + arrayName + ", " + countName + ")", false, false, false,
+                        field.isWildcardType())).append(ClassCode.JAVA_LINE_BREAK);
+                setArrayFields.append("}").append(ClassCode.LINE_BREAK);
+                continue;
+            }
             String e = "";
             if (isList) {
                 if (FieldInfo.isListType(field.getField())) {
@@ -238,10 +357,8 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
             }
 
             if (field.getFieldType() == FieldType.ENUM) {
-                String clsName = ClassHelper.getInternalName(field.getField().getType().getCanonicalName());
                 if (!isList) {
-                    String express =
-                            "CodedConstant.getEnumValue(" + clsName + ".class, " + clsName + ".values()[0].name())";
+                    String express = getEnumTableName(field.getField().getType()) + ".first()";
                     // add set get method
                     String setToField = getSetToField("ret", field.getField(), cls, express, isList, field.isMap(),
                             false, field.isWildcardType());
@@ -251,6 +368,7 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
             }
         }
         templator.setVariable("initListMapFields", initListMapFields.toString());
+        templator.setVariable("setArrayFields", setArrayFields.toString());
 
         StringBuilder code = new StringBuilder();
         // 处理field解析
@@ -264,27 +382,18 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
             String objectDecodeExpress = "";
             String objectDecodeExpressSuffix = "";
 
-            String decodeOrder = "-1";
-            if (field.getFieldType() != FieldType.DEFAULT) {
-                decodeOrder = CodedConstant.makeTag(field.getOrder(),
-                        field.getFieldType().getInternalFieldType().getWireType()) + "";
-            } else {
-                decodeOrder = "CodedConstant.makeTag(" + field.getOrder() + ",WireFormat."
-                        + field.getFieldType().getWireFormat() + ")";
-            }
+            // tag must be a constant value for case label of switch
+            String decodeOrder = CodedConstant.makeTag(field.getOrder(),
+                    field.getFieldType().getInternalFieldType().getWireType()) + "";
             templator.setVariable("decodeOrder", decodeOrder);
 
             // enumeration type
             if (field.getFieldType() == FieldType.ENUM) {
-                String clsName = ClassHelper.getInternalName(field.getField().getType().getCanonicalName());
-                if (isList) {
-                    if (field.getGenericKeyType() != null) {
-                        Class cls = field.getGenericKeyType();
-                        clsName = ClassHelper.getInternalName(cls.getCanonicalName());
-                    }
+                Class<?> enumCls = field.getField().getType();
+                if (isList && field.getGenericKeyType() != null) {
+                    enumCls = field.getGenericKeyType();
                 }
-                express = "CodedConstant.getEnumValue(" + clsName + ".class, CodedConstant.getEnumName(" + clsName
-                        + ".values()," + "input.read" + t + "()))";
+                express = getEnumTableName(enumCls) + ".get(input.read" + t + "())";
             } else {
                 // here is the trick way to process BigDecimal and BigInteger
                 if (field.getFieldType() == FieldType.BIGDECIMAL || field.getFieldType() == FieldType.BIGINTEGER) {
@@ -307,80 +416,16 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
                     // parse
                     // nested
                     // class
-                    code.append("codec = ProtobufProxy.create(").append(name).append(".class");
-                    if (debug) {
-                        code.append(", true");
-                    } else {
-                        code.append(", false");
-                    }
-
-                    String spath = "ProtobufProxy.OUTPUT_PATH.get()";
-                    code.append(",").append(spath);
-                    code.append(")").append(ClassCode.JAVA_LINE_BREAK);
-                    objectDecodeExpress = code.toString();
-                    code.setLength(0);
-
-                    objectDecodeExpress += "int length = input.readRawVarint32()" + ClassCode.JAVA_LINE_BREAK;
+                    objectDecodeExpress = "int length = input.readRawVarint32()" + ClassCode.JAVA_LINE_BREAK;
                     objectDecodeExpress += "final int oldLimit = input.pushLimit(length)" + ClassCode.JAVA_LINE_BREAK;
                     listTypeCheck = true;
-                    express = "(" + name + ") codec.readFrom(input)";
+                    express = "(" + name + ") " + getDependentCodecGetter(cls) + "().readFrom(input)";
 
                 }
             } else if (field.isMap()) {
-
-                String getMapCommand = getMapCommand(field);
-                
-                if (field.isEnumKeyType()) {
-                    String enumClassName = field.getGenericKeyType().getCanonicalName();
-                    code.append("EnumHandler<").append(enumClassName).append("> keyhandler");
-                    code.append("= new EnumHandler");
-                    code.append("<").append(enumClassName).append(">() {");
-                    code.append(ClassCode.LINE_BREAK);
-                    code.append("public ").append(enumClassName).append(" handle(int value) {");
-                    code.append(ClassCode.LINE_BREAK);
-                    code.append("String enumName = CodedConstant.getEnumName(").append(enumClassName)
-                            .append(".values(), value)");
-                    code.append(ClassCode.JAVA_LINE_BREAK);
-                    code.append("return ").append(enumClassName).append(".valueOf(enumName)");
-                    code.append(ClassCode.JAVA_LINE_BREAK);
-                    code.append("}}");
-                    code.append(ClassCode.JAVA_LINE_BREAK);
-                } 
-
-                if (field.isEnumValueType()) {
-                    String enumClassName = field.getGenericeValueType().getCanonicalName();
-                    code.append("EnumHandler<").append(enumClassName).append("> handler");
-                    code.append("= new EnumHandler");
-                    code.append("<").append(enumClassName).append(">() {");
-                    code.append(ClassCode.LINE_BREAK);
-                    code.append("public ").append(enumClassName).append(" handle(int value) {");
-                    code.append(ClassCode.LINE_BREAK);
-                    code.append("String enumName = CodedConstant.getEnumName(").append(enumClassName)
-                            .append(".values(), value)");
-                    code.append(ClassCode.JAVA_LINE_BREAK);
-                    code.append("return ").append(enumClassName).append(".valueOf(enumName)");
-                    code.append(ClassCode.JAVA_LINE_BREAK);
-                    code.append("}}");
-                    code.append(ClassCode.JAVA_LINE_BREAK);
-                }
-                
-                objectDecodeExpress = code.toString();
-                code.setLength(0);
-
-                express = "CodedConstant.putMapValue(input, " + getMapCommand + ",";
-                express += CodedConstant.getMapFieldGenericParameterString(field);
-                if (field.isEnumKeyType()) {
-                    express += ", keyhandler";
-                } else {
-                    express += ", null";
-                }
-                if (field.isEnumValueType()) {
-                    express += ", handler";
-                } else {
-                    express += ", null";
-                }
-                express += ")";
-
+                // parse map entry inline into key and value
+                objectDecodeExpress = getMapEntryDecode(field);
+                express = getMapCommand(field) + ".put(__k, __v)";
             } else if (field.getFieldType() == FieldType.OBJECT) { // if object
                 // message
                 // type
@@ -391,39 +436,31 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
                 // parse
                 // nested
                 // class
-                code.append("codec = ProtobufProxy.create(").append(name).append(".class");
-                if (debug) {
-                    code.append(", true");
-                } else {
-                    code.append(", false");
-                }
-
-                String spath = "ProtobufProxy.OUTPUT_PATH.get()";
-                code.append(",").append(spath);
-                code.append(")").append(ClassCode.JAVA_LINE_BREAK);
-                objectDecodeExpress = code.toString();
-                code.setLength(0);
-
-                objectDecodeExpress += "int length = input.readRawVarint32()" + ClassCode.JAVA_LINE_BREAK;
+                objectDecodeExpress = "int length = input.readRawVarint32()" + ClassCode.JAVA_LINE_BREAK;
                 objectDecodeExpress += "final int oldLimit = input.pushLimit(length)" + ClassCode.JAVA_LINE_BREAK;
 
                 listTypeCheck = true;
-                express = "(" + name + ") codec.readFrom(input)";
+                express = "(" + name + ") " + getDependentCodecGetter(cls) + "().readFrom(input)";
             }
 
             if (field.getFieldType() == FieldType.BYTES) {
                 express += ".toByteArray()";
             }
 
-            String decodeFieldSetValue = getSetToField("ret", field.getField(), cls, express, isList, field.isMap(),
-                    false, field.isWildcardType()) + ClassCode.JAVA_LINE_BREAK;
+            String decodeFieldSetValue;
+            if (field.isArray()) {
+                decodeFieldSetValue = getArrayAppend(field, 1, express);
+            } else {
+                decodeFieldSetValue = getSetToField("ret", field.getField(), cls, express, isList, field.isMap(),
+                        false, field.isWildcardType()) + ClassCode.JAVA_LINE_BREAK;
+            }
 
             if (listTypeCheck) {
                 objectDecodeExpressSuffix += "input.checkLastTagWas(0)" + ClassCode.JAVA_LINE_BREAK;
                 objectDecodeExpressSuffix += "input.popLimit(oldLimit)" + ClassCode.JAVA_LINE_BREAK;
             }
 
-            if (field.isRequired()) {
+            if (field.isRequired() && !field.isArray()) {
                 templator.setVariable("deocdeCheckNull", CodedConstant.getRetRequiredCheck(
                         getAccessByField("ret", field.getField(), cls, field.isWildcardType()), field.getField()));
             } else {
@@ -432,12 +469,14 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
 
             String objectPackedDecodeExpress = "";
             // read packed type
-            if (isList) {
+            if (field.isArray()) {
+                objectPackedDecodeExpress = getPackedArrayDecode(field, t);
+            } else if (isList) {
                 FieldType fieldType = field.getFieldType();
                 if (fieldType.isPrimitive() || fieldType.isEnum()) {
-                    code.append("if (tag == ")
+                    code.append("case ")
                             .append(CodedConstant.makeTag(field.getOrder(), WireFormat.WIRETYPE_LENGTH_DELIMITED));
-                    code.append(") {").append(ClassCode.LINE_BREAK);
+                    code.append(": {").append(ClassCode.LINE_BREAK);
 
                     code.append("int length = input.readRawVarint32()").append(ClassCode.JAVA_LINE_BREAK);
                     code.append("int limit = input.pushLimit(length)").append(ClassCode.JAVA_LINE_BREAK);
@@ -451,6 +490,7 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
                     code.append("}").append(ClassCode.LINE_BREAK);
 
                     objectPackedDecodeExpress = code.toString();
+                    code.setLength(0);
                 }
             }
             templator.setVariable("objectPackedDecodeExpress", objectPackedDecodeExpress);
@@ -461,6 +501,183 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
         }
     }
 
+    /**
+     * Gets the local variable name of primitive array buffer during decode.
+     *
+     * @param field the field
+     * @return the variable name
+     */
+    private String getDecodeArrayName(FieldInfo field) {
+        return "__a" + field.getOrder();
+    }
+
+    /**
+     * Gets the local variable name of decoded element count of primitive array buffer.
+     *
+     * @param field the field
+     * @return the variable name
+     */
+    private String getDecodeArrayCountName(FieldInfo field) {
+        return "__n" + field.getOrder();
+    }
+
+    /**
+     * Gets java statements to reserve capacity of primitive array buffer and append one element.
+     *
+     * @param field the field
+     * @param required the count of elements to reserve
+     * @param express the express of element to append
+     * @return the java statements
+     */
+    private String getArrayAppend(FieldInfo field, int required, String express) {
+        String arrayName = getDecodeArrayName(field);
+        String countName = getDecodeArrayCountName(field);
+        return arrayName + " = CodedConstant.growArray(" + arrayName + ", " + countName + ", " + required + ")"
+                + ClassCode.JAVA_LINE_BREAK + arrayName + "[" + countName + "++] = " + express
+                + ClassCode.JAVA_LINE_BREAK;
+    }
+
+    /**
+     * Gets the case code to decode packed primitive array. Elements are read straight from input within the limit of
+     * payload into the array buffer reserved once by the element count of payload, see
+     * {@link CodedConstant#getPackedCount(com.google.protobuf.CodedInputStream, int)}.
+     *
+     * @param field the field
+     * @param t the capitalized field type name
+     * @return the case code
+     */
+    private String getPackedArrayDecode(FieldInfo field, String t) {
+        String arrayName = getDecodeArrayName(field);
+        String countName = getDecodeArrayCountName(field);
+        StringBuilder code = new StringBuilder();
+        code.append("case ").append(CodedConstant.makeTag(field.getOrder(), WireFormat.WIRETYPE_LENGTH_DELIMITED));
+        code.append(": {").append(ClassCode.LINE_BREAK);
+        code.append("int length = input.readRawVarint32()").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("int limit = input.pushLimit(length)").append(ClassCode.JAVA_LINE_BREAK);
+
+        // fixed width element is counted by payload length, varint by scanning payload
+        int wireType = field.getFieldType().getInternalFieldType().getWireType();
+        int elementSize =
+                wireType == WireFormat.WIRETYPE_FIXED64 ? 8 : (wireType == WireFormat.WIRETYPE_FIXED32 ? 4 : 1);
+        code.append(arrayName).append(" = CodedConstant.growArray(").append(arrayName).append(", ").append(countName)
+                .append(", CodedConstant.getPackedCount(input, ").append(elementSize).append("))")
+                .append(ClassCode.JAVA_LINE_BREAK);
+        code.append("while (input.getBytesUntilLimit() > 0) {").append(ClassCode.LINE_BREAK);
+        code.append(getArrayAppend(field, 1, "input.read" + t + "()"));
+        code.append("}").append(ClassCode.LINE_BREAK);
+        code.append("input.popLimit(limit)").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("continue").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("}").append(ClassCode.LINE_BREAK);
+        return code.toString();
+    }
+
+    /**
+     * Inits the dependent codec template variable. Each dependent message class has one codec field which is resolved
+     * from {@link com.baidu.bjf.remoting.protobuf.ProtobufProxy} by the config captured when codec is built on first
+     * use and reused afterwards.
+     */
+    protected void initDependentCodecTemplateVariable() {
+        for (Map.Entry<Class<?>, Integer> entry : dependentCodecs.entrySet()) {
+            templator.setVariable("dependentClassName",
+                    ClassHelper.getInternalName(entry.getKey().getCanonicalName()));
+            templator.setVariable("dependentCodecName", "codec" + entry.getValue());
+            templator.setVariable("dependentCodecGetter", "getCodec" + entry.getValue());
+            templator.addBlock("dependentCodecs");
+        }
+    }
+
+    /**
+     * Inits the enum table template variable. Each enum class to decode has one static {@link EnumTable} field.
+     */
+    protected void initEnumTableTemplateVariable() {
+        for (Map.Entry<Class<?>, Integer> entry : enumTables.entrySet()) {
+            templator.setVariable("enumClassName", ClassHelper.getInternalName(entry.getKey().getCanonicalName()));
+            templator.setVariable("enumTableName", "enumTable" + entry.getValue());
+            templator.addBlock("enumTables");
+        }
+    }
+
+    /**
+     * Inits the field handle template variable. Each field without public or accessor method access has static
+     * {@link java.lang.invoke.MethodHandle} fields bound once on class initialization.
+     */
+    protected void initFieldHandleTemplateVariable() {
+        for (Map.Entry<Field, Integer> entry : fieldGetters.entrySet()) {
+            templator.setVariable("fieldHandleName", "fieldGetter" + entry.getValue());
+            templator.setVariable("fieldHandleFactory", "findGetter");
+            templator.setVariable("fieldHandleFieldName", entry.getKey().getName());
+            templator.addBlock("fieldHandles");
+        }
+        for (Map.Entry<Field, Integer> entry : fieldSetters.entrySet()) {
+            templator.setVariable("fieldHandleName", "fieldSetter" + entry.getValue());
+            templator.setVariable("fieldHandleFactory", "findSetter");
+            templator.setVariable("fieldHandleFieldName", entry.getKey().getName());
+            templator.addBlock("fieldHandles");
+        }
+    }
+
+    /**
+     * Gets the static field name of lookup table for enum class.
+     *
+     * @param enumCls the enum class
+     * @return the field name
+     */
+    protected String getEnumTableName(Class<?> enumCls) {
+        Integer index = enumTables.get(enumCls);
+        if (index == null) {
+            index = enumTables.size();
+            enumTables.put(enumCls, index);
+        }
+        return "enumTable" + index;
+    }
+
+    /**
+     * Gets the getter method name of the bound codec for dependent message class.
+     *
+     * @param dependentCls the dependent message class
+     * @return the getter method name
+     */
+    protected String getDependentCodecGetter(Class<?> dependentCls) {
+        Integer index = dependentCodecs.get(dependentCls);
+        if (index == null) {
+            index = dependentCodecs.size();
+            dependentCodecs.put(dependentCls, index);
+        }
+        return "getCodec" + index;
+    }
+
+    /**
+     * Gets the dependent message class of field.
+     *
+     * @param field the field
+     * @return the dependent message class, null if field is not message type
+     */
+    private Class<?> getDependentClass(FieldInfo field) {
+        if (field.getFieldType() != FieldType.OBJECT || field.isMap()) {
+            return null;
+        }
+        if (field.isList()) {
+            Class<?> cls = field.getGenericKeyType();
+            if (cls == null || FieldInfo.isPrimitiveType(cls) || !isConcreteType(cls)) {
+                return null;
+            }
+            return cls;
+        }
+        Class<?> cls = field.getField().getType();
+        return isConcreteType(cls) ? cls : null;
+    }
+
+    /**
+     * Checks if the declared class could be the exact class of message, so a codec could be bound to it. Otherwise
+     * such as wildcard bound to {@link Object}, codec is looked up by the class of each value.
+     *
+     * @param cls the declared class
+     * @return true, if is concrete type
+     */
+    private boolean isConcreteType(Class<?> cls) {
+        return cls != Object.class && !cls.isInterface() && !Modifier.isAbstract(cls.getModifiers());
+    }
+
     /**
      * Check object type.
      *
@@ -482,15 +699,101 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
      * @return the map command
      */
     private String getMapCommand(FieldInfo field) {
-        String keyGeneric;
-        keyGeneric = field.getGenericKeyType().getCanonicalName();
-
-        String valueGeneric;
-        valueGeneric = field.getGenericeValueType().getCanonicalName();
-        String getMapCommand = "(Map<" + keyGeneric;
-        getMapCommand = getMapCommand + ", " + valueGeneric + ">)";
-        getMapCommand = getMapCommand + getAccessByField("ret", field.getField(), cls, field.isWildcardType());
-        return getMapCommand;
+        return "((Map) " + getAccessByField("ret", field.getField(), cls, field.isWildcardType()) + ")";
+    }
+
+    /**
+     * Gets the getter method name of the bound codec of map key or value.
+     *
+     * @param cls the declared class of map key or value
+     * @return the getter method name, or null if not a message type
+     */
+    private String getMapElementCodecGetter(Class<?> cls) {
+        if (CodedConstant.getMapElementFieldType(cls) != FieldType.OBJECT || !isConcreteType(cls)) {
+            return null;
+        }
+        return getDependentCodecGetter(cls);
+    }
+
+    /**
+     * Gets the java statements to read map key or value into local variable.
+     *
+     * @param cls the declared class of map key or value
+     * @param target the local variable name
+     * @return the java statements
+     */
+    private String getMapElementRead(Class<?> cls, String target) {
+        FieldType type = CodedConstant.getMapElementFieldType(cls);
+        if (type == FieldType.OBJECT) {
+            StringBuilder code = new StringBuilder();
+            code.append("int __length = input.readRawVarint32()").append(ClassCode.JAVA_LINE_BREAK);
+            code.append("int __limit = input.pushLimit(__length)").append(ClassCode.JAVA_LINE_BREAK);
+            code.append(target).append(" = ").append(getDependentCodecGetter(cls)).append("().readFrom(input)")
+                    .append(ClassCode.JAVA_LINE_BREAK);
+            code.append("input.checkLastTagWas(0)").append(ClassCode.JAVA_LINE_BREAK);
+            code.append("input.popLimit(__limit)").append(ClassCode.JAVA_LINE_BREAK);
+            return code.toString();
+        }
+
+        String express;
+        if (type == FieldType.ENUM) {
+            express = getEnumTableName(cls) + ".get(input.readEnum())";
+        } else if (type == FieldType.STRING) {
+            express = "input.readStringRequireUtf8()";
+        } else if (type == FieldType.BYTES) {
+            express = "input.readByteArray()";
+        } else if (type == FieldType.DATE) {
+            express = "new Date(input.readInt64())";
+        } else if (type == FieldType.BIGDECIMAL || type == FieldType.BIGINTEGER) {
+            express = "new " + type.getJavaType() + "(input.readString())";
+        } else {
+            express = "input.read" + CodedConstant.capitalize(type.getType()) + "()";
+        }
+        return target + " = " + express + ClassCode.JAVA_LINE_BREAK;
+    }
+
+    /**
+     * Gets the java statements to parse one map entry into local variables <code>__k</code> and <code>__v</code>.
+     * Absent key or value takes the default value.
+     *
+     * @param field the field
+     * @return the java statements
+     */
+    private String getMapEntryDecode(FieldInfo field) {
+        Class<?> keyCls = field.getGenericKeyType();
+        Class<?> valueCls = field.getGenericeValueType();
+        int keyTag = CodedConstant.makeTag(1,
+                CodedConstant.getMapElementFieldType(keyCls).getInternalFieldType().getWireType());
+        int valueTag = CodedConstant.makeTag(2,
+                CodedConstant.getMapElementFieldType(valueCls).getInternalFieldType().getWireType());
+
+        StringBuilder code = new StringBuilder();
+        code.append("int length = input.readRawVarint32()").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("final int oldLimit = input.pushLimit(length)").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("Object __k = null").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("Object __v = null").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("while (true) {").append(ClassCode.LINE_BREAK);
+        code.append("int __tag = input.readTag()").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("if (__tag == 0) {").append(ClassCode.LINE_BREAK);
+        code.append("break").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("} else if (__tag == ").append(keyTag).append(") {").append(ClassCode.LINE_BREAK);
+        code.append(getMapElementRead(keyCls, "__k"));
+        code.append("} else if (__tag == ").append(valueTag).append(") {").append(ClassCode.LINE_BREAK);
+        code.append(getMapElementRead(valueCls, "__v"));
+        code.append("} else if (!input.skipField(__tag)) {").append(ClassCode.LINE_BREAK);
+        code.append("break").append(ClassCode.JAVA_LINE_BREAK);
+        code.append("}").append(ClassCode.LINE_BREAK);
+        code.append("}").append(ClassCode.LINE_BREAK);
+        code.append("input.popLimit(oldLimit)").append(ClassCode.JAVA_LINE_BREAK);
+        // default value is only created for the absent key or value
+        code.append("if (__k == null) {").append(ClassCode.LINE_BREAK);
+        code.append("__k = ").append(CodedConstant.getMapElementDefaultValue(keyCls)).append(ClassCode.JAVA_LINE_BREAK);
+        code.append("}").append(ClassCode.LINE_BREAK);
+        code.append("if (__v == null) {").append(ClassCode.LINE_BREAK);
+        code.append("__v = ").append(CodedConstant.getMapElementDefaultValue(valueCls))
+                .append(ClassCode.JAVA_LINE_BREAK);
+        code.append("}").append(ClassCode.LINE_BREAK);
+        return code.toString();
     }
 
     /**
@@ -501,6 +804,7 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
         imports.add("java.util.*");
         imports.add("java.io.IOException");
         imports.add("java.lang.reflect.*");
+        imports.add("java.lang.invoke.MethodHandle");
         imports.add("com.baidu.bjf.remoting.protobuf.FieldType"); // fix the class ambiguous of FieldType
         imports.add("com.baidu.bjf.remoting.protobuf.code.*");
         imports.add("com.baidu.bjf.remoting.protobuf.utils.*");
@@ -630,8 +934,8 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
         if (isList) {
             ret.append(collectionType).append(" __list = ").append(collectionTypetoCreate)
                     .append(ClassCode.JAVA_LINE_BREAK);
-            ret.append("FieldUtils.setField(").append(target).append(", \"").append(field.getName())
-                    .append("\", __list)").append(ClassCode.JAVA_LINE_BREAK).append("}").append(ClassCode.LINE_BREAK);
+            ret.append("FieldUtils.setField(").append(getFieldSetterName(field)).append(", ").append(target)
+                    .append(", __list)").append(ClassCode.JAVA_LINE_BREAK).append("}").append(ClassCode.LINE_BREAK);
             if (express != null) {
                 if (packed) {
                     ret.append("while (input.getBytesUntilLimit() > 0) {").append(ClassCode.LINE_BREAK);
@@ -645,12 +949,12 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
             return ret.toString();
         } else if (isMap) {
             ret.append("Map __map = new HashMap()").append(ClassCode.JAVA_LINE_BREAK);
-            ret.append("FieldUtils.setField(").append(target).append(", \"").append(field.getName())
-                    .append("\", __map)").append(ClassCode.JAVA_LINE_BREAK).append("}").append(ClassCode.LINE_BREAK);
+            ret.append("FieldUtils.setField(").append(getFieldSetterName(field)).append(", ").append(target)
+                    .append(", __map)").append(ClassCode.JAVA_LINE_BREAK).append("}").append(ClassCode.LINE_BREAK);
             return ret + express;
         }
 
-        // use reflection to get value
+        // use bound setter handle to set value
         String code = "";
         if (express != null) {
             // if date type
@@ -658,7 +962,7 @@ public class TemplateCodeGenerator extends AbstractCodeGenerator {
                 express = "new Date(" + express + ")";
             }
 
-            code = "FieldUtils.setField(" + target + ", \"" + field.getName() + "\", " + express + ")"
+            code = "FieldUtils.setField(" + getFieldSetterName(field) + ", " + target + ", " + express + ")"
                     + ClassCode.LINE_BREAK;
         }
         return code;
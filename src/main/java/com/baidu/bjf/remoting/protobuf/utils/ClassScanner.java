@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A utility class to scan class names under packages from class path directories and jar files of a class loader.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class ClassScanner {
+
+    /** The class file suffix. */
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Scan class names under target packages and their sub packages. Inner classes are included, package-info and
+     * module-info are excluded. Packages are located as class path resources, so jar files without directory entries
+     * are not scanned.
+     *
+     * @param classLoader the class loader to find class path resources from
+     * @param packages the package names, empty name means all classes on class path directories
+     * @return the class names found
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static Set<String> scan(ClassLoader classLoader, String... packages) throws IOException {
+        if (classLoader == null) {
+            throw new NullPointerException("Param 'classLoader' is null.");
+        }
+        Set<String> ret = new LinkedHashSet<String>();
+        if (packages == null) {
+            return ret;
+        }
+        for (String pkg : packages) {
+            if (pkg == null) {
+                continue;
+            }
+            String path = pkg.trim().replace('.', '/');
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    scanDirectory(toFile(url), path, ret);
+                } else if ("jar".equals(url.getProtocol())) {
+                    scanJar(url, path, ret);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Scan directory recursively.
+     *
+     * @param dir the directory
+     * @param path the resource path of directory
+     * @param ret the class names found
+     */
+    private static void scanDirectory(File dir, String path, Set<String> ret) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        String prefix = path.isEmpty() ? "" : path + "/";
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                scanDirectory(file, prefix + name, ret);
+            } else {
+                addClassName(prefix + name, ret);
+            }
+        }
+    }
+
+    /**
+     * Scan entries of jar file under path.
+     *
+     * @param url the jar url of path
+     * @param path the resource path
+     * @param ret the class names found
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void scanJar(URL url, String path, Set<String> ret) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            return;
+        }
+        JarURLConnection jarConnection = (JarURLConnection) connection;
+        jarConnection.setUseCaches(false);
+        JarFile jarFile = jarConnection.getJarFile();
+        try {
+            String prefix = path.isEmpty() ? "" : path + "/";
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                    addClassName(entry.getName(), ret);
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+    }
+
+    /**
+     * Adds the class name of class file resource.
+     *
+     * @param resource the resource name
+     * @param ret the class names found
+     */
+    private static void addClassName(String resource, Set<String> ret) {
+        if (!resource.endsWith(CLASS_SUFFIX)) {
+            return;
+        }
+        String name = resource.substring(0, resource.length() - CLASS_SUFFIX.length()).replace('/', '.');
+        if (name.endsWith("package-info") || name.endsWith("module-info")) {
+            return;
+        }
+        ret.add(name);
+    }
+
+    /**
+     * To file of url.
+     *
+     * @param url the file url
+     * @return the file
+     */
+    private static File toFile(URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getFile());
+        }
+    }
+}
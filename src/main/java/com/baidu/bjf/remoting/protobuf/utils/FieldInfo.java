@@ -74,6 +74,9 @@ public class FieldInfo {
     /** The is map. */
     private boolean isMap;
 
+    /** The is primitive array. */
+    private boolean isArray;
+
     /** The packed. */
     private boolean packed;
 
@@ -136,6 +139,12 @@ public class FieldInfo {
      */
     private void checkListMapType(Field field) {
         Class<?> cls = field.getType();
+        if (isPrimitiveArrayType(cls)) {
+            // element type of primitive array is used as list generic type
+            isArray = true;
+            genericKeyType = cls.getComponentType();
+            return;
+        }
         boolean needCheckGenericType = false;
         if (List.class.isAssignableFrom(cls) || Set.class.isAssignableFrom(cls)) {
             // if check is list ignore check
@@ -289,6 +298,24 @@ public class FieldInfo {
         this.isMap = isMap;
     }
 
+    /**
+     * Checks if field type is a primitive array which is encoded as repeated field.
+     *
+     * @return true, if is primitive array
+     */
+    public boolean isArray() {
+        return isArray;
+    }
+
+    /**
+     * Sets the primitive array.
+     *
+     * @param isArray the new primitive array
+     */
+    public void setArray(boolean isArray) {
+        this.isArray = isArray;
+    }
+
     /**
      * get the field.
      *
@@ -487,6 +514,18 @@ public class FieldInfo {
         return false;
     }
 
+    /**
+     * Checks if is primitive array type supported as repeated field. <code>byte[]</code> is not included as it is
+     * mapped to bytes type.
+     *
+     * @param c the c
+     * @return true, if is int[], long[], float[], double[] or boolean[]
+     */
+    public static boolean isPrimitiveArrayType(Class<?> c) {
+        return c == int[].class || c == long[].class || c == float[].class || c == double[].class
+                || c == boolean[].class;
+    }
+
     /**
      * Checks if is list type.
      *
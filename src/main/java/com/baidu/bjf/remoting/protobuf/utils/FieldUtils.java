@@ -20,6 +20,9 @@ package com.baidu.bjf.remoting.protobuf.utils;
 
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -59,6 +62,12 @@ public final class FieldUtils {
      * Logger for this class
      */
     private static final Logger LOGGER = Logger.getLogger(FieldUtils.class.getName());
+
+    /** The erased type of getter handles returned by {@link #findGetter(Class, String)}. */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** The erased type of setter handles returned by {@link #findSetter(Class, String)}. */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
     
     public static String toObjectType(String primitiveType) {
         if (PRIMITIVE_TYPE_MAPPING.containsKey(primitiveType)) {
@@ -125,6 +134,104 @@ public final class FieldUtils {
         }
     }
 
+    /**
+     * Bind a getter handle of the named field, the field is searched on the supplied class and all its superclasses.
+     * The handle is adapted to type <code>(Object)Object</code> to be invoked by {@link #getField(MethodHandle, Object)}.
+     * 
+     * @param clazz
+     *            the class to introspect
+     * @param name
+     *            the name of the field
+     * @return the getter handle
+     */
+    public static MethodHandle findGetter(Class clazz, String name) {
+        Field field = findAccessibleField(clazz, name);
+        try {
+            return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bind a setter handle of the named field, the field is searched on the supplied class and all its superclasses.
+     * The handle is adapted to type <code>(Object,Object)void</code> to be invoked by
+     * {@link #setField(MethodHandle, Object, Object)}.
+     * 
+     * @param clazz
+     *            the class to introspect
+     * @param name
+     *            the name of the field
+     * @return the setter handle
+     */
+    public static MethodHandle findSetter(Class clazz, String name) {
+        Field field = findAccessibleField(clazz, name);
+        try {
+            return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the field value by getter handle from {@link #findGetter(Class, String)}. If the handle is a constant, such
+     * as a static final field, invocation is inlined as plain field read once compiled.
+     * 
+     * @param getter
+     *            the getter handle
+     * @param t
+     *            the target object from which to get the field
+     * @return the field's current value
+     */
+    public static Object getField(MethodHandle getter, Object t) {
+        try {
+            return getter.invokeExact(t);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Set the field value by setter handle from {@link #findSetter(Class, String)}. If the handle is a constant, such
+     * as a static final field, invocation is inlined as plain field write once compiled.
+     * 
+     * @param setter
+     *            the setter handle
+     * @param t
+     *            the target object on which to set the field
+     * @param value
+     *            the value to set
+     */
+    public static void setField(MethodHandle setter, Object t, Object value) {
+        try {
+            setter.invokeExact(t, value);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find the named field and make it accessible.
+     * 
+     * @param clazz
+     *            the class to introspect
+     * @param name
+     *            the name of the field
+     * @return the accessible field
+     */
+    private static Field findAccessibleField(Class clazz, String name) {
+        Field field = findField(clazz, name);
+        if (field == null) {
+            throw new IllegalArgumentException("No field '" + name + "' found on class " + clazz.getName());
+        }
+        field.setAccessible(true);
+        return field;
+    }
+
     /**
      * Attempt to find a {@link Field field} on the supplied {@link Class} with
      * the supplied <code>name</code>. Searches all superclasses up to
@@ -18,7 +18,10 @@
  */
 package com.baidu.bjf.remoting.protobuf.utils;
 
+import java.io.File;
+
 import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.FileCacheableJdkCompiler;
 import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
 
 /**
@@ -29,8 +32,32 @@ import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
  */
 public class JDKCompilerHelper {
 
+    /** The system property of directory to cache compiled byte code by {@link FileCacheableJdkCompiler}. */
+    public static final String CACHE_DIR_PROPERTY = "jprotobuf.cache.dir";
+
+    /** The system property of max bytes of cached byte code. */
+    public static final String CACHE_MAX_BYTES_PROPERTY = "jprotobuf.cache.maxBytes";
+
     /** singleton instance for {@link JdkCompiler}. */
-    public static Compiler COMPILER = new JdkCompiler(JdkCompiler.class.getClassLoader());
+    public static Compiler COMPILER = createCompiler();
+
+    /** The parent of child compilers if default compiler is not a {@link JdkCompiler}. */
+    private static JdkCompiler parentCompiler;
+
+    /**
+     * Creates the default compiler, cacheable if {@link #CACHE_DIR_PROPERTY} is set.
+     *
+     * @return the compiler
+     */
+    private static Compiler createCompiler() {
+        Compiler compiler = new JdkCompiler(JdkCompiler.class.getClassLoader());
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        if (dir == null || dir.trim().isEmpty()) {
+            return compiler;
+        }
+        long maxBytes = Long.getLong(CACHE_MAX_BYTES_PROPERTY, FileCacheableJdkCompiler.DEFAULT_MAX_BYTES);
+        return new FileCacheableJdkCompiler(compiler, new File(dir.trim()), maxBytes);
+    }
 
     /**
      * Gets the jdk compiler.
@@ -41,6 +68,37 @@ public class JDKCompilerHelper {
         return COMPILER;
     }
 
+    /**
+     * Gets the compiler to compile codec of the class. Classes compiled by a child {@link JdkCompiler} are only
+     * visible to that compiler, so it is used instead of the default one.
+     *
+     * @param cls the class
+     * @return the compiler
+     */
+    public static Compiler getJdkCompiler(Class<?> cls) {
+        JdkCompiler compiler = JdkCompiler.getCompiler(cls);
+        if (compiler != null && compiler.isChild()) {
+            return compiler;
+        }
+        return COMPILER;
+    }
+
+    /**
+     * Creates a child of default jdk compiler, see {@link JdkCompiler#newChild()}.
+     *
+     * @return the child jdk compiler
+     */
+    public static synchronized JdkCompiler newChildJdkCompiler() {
+        Compiler compiler = COMPILER;
+        if (compiler instanceof JdkCompiler) {
+            return ((JdkCompiler) compiler).newChild();
+        }
+        if (parentCompiler == null) {
+            parentCompiler = new JdkCompiler(JdkCompiler.class.getClassLoader());
+        }
+        return parentCompiler.newChild();
+    }
+
     /**
      * Sets the compiler.
      *
@@ -186,10 +186,11 @@ public class ProtobufProxyUtils {
             }
 
             // check field is support for protocol buffer
-            // any array except byte array is not support
+            // any array except byte array and int, long, float, double, boolean array is not support
             String simpleName = field.getType().getName();
             if (simpleName.startsWith("[")) {
-                if ((!simpleName.equals(byte[].class.getName())) && (!simpleName.equals(Byte[].class.getName()))) {
+                if ((!simpleName.equals(byte[].class.getName())) && (!simpleName.equals(Byte[].class.getName()))
+                        && !FieldInfo.isPrimitiveArrayType(field.getType())) {
                     throw new RuntimeException("Array type of field '" + fName + "' on class '"
                             + field.getDeclaringClass().getName() + "' is not support,  please use List instead.");
                 }
@@ -213,7 +214,7 @@ public class ProtobufProxyUtils {
                 Class fieldTypeClass = field.getType();
 
                 // if list
-                boolean isList = fieldInfo.isList();
+                boolean isList = fieldInfo.isList() || fieldInfo.isArray();
                 if (isList) {
                     fieldTypeClass = fieldInfo.getGenericKeyType();
                 }
@@ -263,7 +264,8 @@ public class ProtobufProxyUtils {
                 unorderFields.add(fieldInfo);
             }
 
-            if (fieldInfo.isList() && (fieldInfo.getFieldType().isPrimitive() || fieldInfo.getFieldType().isEnum())) {
+            if ((fieldInfo.isList() || fieldInfo.isArray())
+                    && (fieldInfo.getFieldType().isPrimitive() || fieldInfo.getFieldType().isEnum())) {
                 Packed packed = field.getAnnotation(Packed.class);
                 if (packed == null) {
                     fieldInfo.setPacked(true);
@@ -18,7 +18,10 @@
  */
 package com.baidu.bjf.remoting.protobuf.utils.compiler;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.baidu.bjf.remoting.protobuf.utils.ClassHelper;
 
@@ -63,25 +66,123 @@ public abstract class CacheableJdkCompiler implements Compiler {
         }
 
         // to check cache
-        byte[] bytes = cached(className, timestamp);
+        byte[] bytes = cached(className, code, timestamp);
         // if has cached and timestamp is not changed will return a not null byte array
         if (bytes != null) {
-            LoadableClassLoader loadableClassLoader = new LoadableClassLoader(classLoader);
-            loadableClassLoader.defineNewClass(className, bytes, 0, bytes.length);
-
-            try {
-                return loadableClassLoader.loadClass(className);
-            } catch (ClassNotFoundException e) {
-                // ignore this exception
+            cls = defineCached(className, bytes, classLoader);
+            if (cls != null) {
+                write(os, bytes);
+                return cls;
             }
         }
 
         cls = compiler.compile(className, code, classLoader, os, timestamp);
 
-        cache(className, compiler.loadBytes(className), timestamp);
+        cache(className, code, compiler.loadBytes(className), timestamp);
         return cls;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler#compile(java.util.Map, java.lang.ClassLoader)
+     */
+    @Override
+    public Map<String, Class<?>> compile(Map<String, String> sources, ClassLoader classLoader) {
+        Map<String, Class<?>> ret = new LinkedHashMap<String, Class<?>>();
+        Map<String, String> missed = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            String className = source.getKey();
+            byte[] bytes = cached(className, source.getValue(), 0);
+            Class<?> cls = bytes != null ? defineCached(className, bytes, classLoader) : null;
+            if (cls != null) {
+                ret.put(className, cls);
+            } else {
+                missed.put(className, source.getValue());
+            }
+        }
+        if (missed.isEmpty()) {
+            return ret;
+        }
+
+        // compile the others in one pass
+        Map<String, Class<?>> compiled = compiler.compile(missed, classLoader);
+        for (Map.Entry<String, String> source : missed.entrySet()) {
+            String className = source.getKey();
+            cache(className, source.getValue(), compiler.loadBytes(className), 0);
+        }
+        ret.putAll(compiled);
+        return ret;
+    }
+
+    /**
+     * Define class from cached byte code. If the compiler is a {@link JdkCompiler}, class is defined by it so java
+     * sources compiled later can refer to the cached class.
+     *
+     * @param className the class name
+     * @param bytes the cached byte code
+     * @param classLoader the parent class loader
+     * @return the class, null if failed to define
+     */
+    protected Class<?> defineCached(String className, byte[] bytes, ClassLoader classLoader) {
+        try {
+            if (compiler instanceof JdkCompiler) {
+                return ((JdkCompiler) compiler).defineClass(className, bytes);
+            }
+            LoadableClassLoader loadableClassLoader = new LoadableClassLoader(classLoader);
+            loadableClassLoader.defineNewClass(className, bytes, 0, bytes.length);
+            return loadableClassLoader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            // ignore this exception
+        } catch (LinkageError e) {
+            // cached byte code is broken or incompatible, will compile again
+        }
+        return null;
+    }
+
+    /**
+     * Write cached byte code to output stream of compiled class file.
+     *
+     * @param os the output stream, could be null
+     * @param bytes the bytes
+     */
+    private void write(OutputStream os, byte[] bytes) {
+        if (os == null) {
+            return;
+        }
+        try {
+            os.write(bytes);
+            os.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cached byte code of generated source. Delegates to {@link #cached(String, long)} by default, implementation may
+     * key the cache by the source instead of timestamp.
+     *
+     * @param className the class name
+     * @param code the java source code
+     * @param timestamp the timestamp
+     * @return the byte[]
+     */
+    protected byte[] cached(String className, String code, long timestamp) {
+        return cached(className, timestamp);
+    }
+
+    /**
+     * Cache byte code of generated source. Delegates to {@link #cache(String, byte[], long)} by default.
+     *
+     * @param className the class name
+     * @param code the java source code
+     * @param bytes the bytes, could be null if compiler does not retain it
+     * @param timestamp the timestamp
+     */
+    protected void cache(String className, String code, byte[] bytes, long timestamp) {
+        cache(className, bytes, timestamp);
+    }
+
     /**
      * Cached.
      *
@@ -19,6 +19,8 @@
 package com.baidu.bjf.remoting.protobuf.utils.compiler;
 
 import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Compiler.
@@ -47,4 +49,20 @@ public interface Compiler {
      * @return byte code as byte array 
      */
     byte[] loadBytes(String className);
+
+    /**
+     * do compile java sources of multiple classes. Compiles one by one by default, implementation may compile them
+     * together in one pass.
+     *
+     * @param sources Java source code by full class name
+     * @param classLoader current classloader
+     * @return Compiled classes by full class name
+     */
+    default Map<String, Class<?>> compile(Map<String, String> sources, ClassLoader classLoader) {
+        Map<String, Class<?>> classes = new LinkedHashMap<String, Class<?>>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            classes.put(source.getKey(), compile(source.getKey(), source.getValue(), classLoader, null, 0));
+        }
+        return classes;
+    }
 }
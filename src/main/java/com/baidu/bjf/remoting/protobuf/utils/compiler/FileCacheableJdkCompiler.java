@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.utils.compiler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * File system backed {@link CacheableJdkCompiler}. Byte code is cached under a directory and keyed by hash of the
+ * generated source, jprotobuf version and java version, so a restarted process defines cached classes directly without
+ * compilation, and any change of source misses the cache. Files are written to a temporary file and renamed atomically,
+ * so concurrent processes never see partial files. Total size of cached files is bounded, least recently used files
+ * are evicted first.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class FileCacheableJdkCompiler extends CacheableJdkCompiler {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileCacheableJdkCompiler.class.getName());
+
+    /** The default max bytes of cached files. */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** The cached file suffix. */
+    private static final String SUFFIX = ".class";
+
+    /** The temporary file suffix. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The age of temporary files left by crashed writers to remove. */
+    private static final long TEMP_EXPIRE_MILLIS = 10L * 60 * 1000;
+
+    /** The version of jprotobuf and java, part of cache key. */
+    private static final String VERSION = getVersion();
+
+    /** The utf-8 charset. */
+    private static final Charset UTF_8 = Charset.forName("utf-8");
+
+    /** The cache directory. */
+    private final File dir;
+
+    /** The max bytes of cached files. */
+    private final long maxBytes;
+
+    /**
+     * Instantiates a new file cacheable jdk compiler with default max bytes.
+     *
+     * @param compiler the compiler to compile if cache missed
+     * @param dir the cache directory
+     */
+    public FileCacheableJdkCompiler(Compiler compiler, File dir) {
+        this(compiler, dir, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Instantiates a new file cacheable jdk compiler.
+     *
+     * @param compiler the compiler to compile if cache missed
+     * @param dir the cache directory, created if absent
+     * @param maxBytes the max bytes of cached files
+     */
+    public FileCacheableJdkCompiler(Compiler compiler, File dir, long maxBytes) {
+        super(compiler);
+        if (compiler == null) {
+            throw new NullPointerException("Param 'compiler' is null.");
+        }
+        if (dir == null) {
+            throw new NullPointerException("Param 'dir' is null.");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Param 'maxBytes' should be positive. maxBytes=" + maxBytes);
+        }
+        dir.mkdirs();
+        if (!dir.isDirectory()) {
+            throw new IllegalArgumentException("Param 'dir' value should be a path directory. path=" + dir);
+        }
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler#loadBytes(java.lang.String)
+     */
+    @Override
+    public byte[] loadBytes(String className) {
+        return compiler.loadBytes(className);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.CacheableJdkCompiler#cached(java.lang.String,
+     * java.lang.String, long)
+     */
+    @Override
+    protected byte[] cached(String className, String code, long timestamp) {
+        File file = getFile(className, code);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            // mark as recently used
+            file.setLastModified(System.currentTimeMillis());
+            return bytes;
+        } catch (IOException e) {
+            // evicted or removed by other process
+            return null;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.CacheableJdkCompiler#cache(java.lang.String,
+     * java.lang.String, byte[], long)
+     */
+    @Override
+    protected void cache(String className, String code, byte[] bytes, long timestamp) {
+        if (bytes == null) {
+            return;
+        }
+        File file = getFile(className, code);
+        File temp = null;
+        try {
+            temp = File.createTempFile(file.getName(), TEMP_SUFFIX, dir);
+            OutputStream os = new FileOutputStream(temp);
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to cache class '" + className + "' to " + file + ". cause: " + e.getMessage());
+            if (temp != null) {
+                temp.delete();
+            }
+            return;
+        }
+        evict();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.CacheableJdkCompiler#defineCached(java.lang.String, byte[],
+     * java.lang.ClassLoader)
+     */
+    @Override
+    protected Class<?> defineCached(String className, byte[] bytes, ClassLoader classLoader) {
+        Class<?> cls = super.defineCached(className, bytes, classLoader);
+        if (cls == null) {
+            LOGGER.warn("Cached byte code of class '" + className + "' is invalid, will compile again.");
+        }
+        return cls;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.CacheableJdkCompiler#cached(java.lang.String, long)
+     */
+    @Override
+    protected byte[] cached(String className, long timestamp) {
+        // keyed by source only
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.bjf.remoting.protobuf.utils.compiler.CacheableJdkCompiler#cache(java.lang.String, byte[], long)
+     */
+    @Override
+    protected void cache(String className, byte[] bytes, long timestamp) {
+        // keyed by source only
+    }
+
+    /**
+     * Gets the cache directory.
+     *
+     * @return the directory
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * Evict least recently used files until total size is not greater than max bytes, and remove expired temporary
+     * files.
+     */
+    private void evict() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                total += file.length();
+            } else if (file.getName().endsWith(TEMP_SUFFIX) && now - file.lastModified() > TEMP_EXPIRE_MILLIS) {
+                file.delete();
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        final long[] lastModified = new long[files.length];
+        Integer[] indexes = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(lastModified[o1], lastModified[o2]);
+            }
+        });
+        for (Integer i : indexes) {
+            File file = files[i];
+            if (!file.getName().endsWith(SUFFIX)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+            if (total <= maxBytes) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the cached file of source.
+     *
+     * @param className the class name
+     * @param code the java source code
+     * @return the file
+     */
+    private File getFile(String className, String code) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        digest.update(VERSION.getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(className.getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(code.getBytes(UTF_8));
+        byte[] hash = digest.digest();
+
+        StringBuilder name = new StringBuilder(className.length() + 34);
+        name.append(className).append('-');
+        for (int i = 0; i < 16; i++) {
+            name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return new File(dir, name.append(SUFFIX).toString());
+    }
+
+    /**
+     * Gets the version of jprotobuf and java. Falls back to the location and modify time of jprotobuf classes if no
+     * implementation version in manifest.
+     *
+     * @return the version
+     */
+    private static String getVersion() {
+        String version = ProtobufProxy.class.getPackage() == null ? null
+                : ProtobufProxy.class.getPackage().getImplementationVersion();
+        if (version == null) {
+            CodeSource codeSource = ProtobufProxy.class.getProtectionDomain().getCodeSource();
+            URL location = codeSource == null ? null : codeSource.getLocation();
+            version = location == null ? "unknown" : location + "@" + new File(location.getFile()).lastModified();
+        }
+        return version + "/" + System.getProperty("java.version");
+    }
+}
@@ -36,6 +36,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,15 +53,13 @@ import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.IOFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.baidu.bjf.remoting.protobuf.code.ICodeGenerator;
 import com.baidu.bjf.remoting.protobuf.utils.ClassHelper;
 import com.baidu.bjf.remoting.protobuf.utils.OS;
 import com.baidu.bjf.remoting.protobuf.utils.StringUtils;
-import com.baidu.bjf.remoting.protobuf.utils.ZipUtils;
 
 /**
  * JdkCompiler. (SPI, Singleton, ThreadSafe)
@@ -76,23 +75,26 @@ public class JdkCompiler extends AbstractCompiler {
     /** The compiler. */
     private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
 
-    /** The class loader. */
+    /** The class loader of compiled classes which may be referenced by java sources compiled later. */
     private final ClassLoaderImpl classLoader;
 
+    /** The classes compiled by the last compilation task, kept for {@link #loadBytes(String)}. */
+    private volatile Map<String, JavaFileObjectImpl> lastCompiled = Collections.emptyMap();
+
     /** The java file manager. */
     private final JavaFileManagerImpl javaFileManager;
 
     /** The options. */
     private volatile List<String> options;
 
-    /** The Constant DEFAULT_JDK_VERSION. */
-    private static final String DEFAULT_JDK_VERSION = "1.8";
+    /** The lock of compilation tasks, shared with child compilers as they share the java file manager. */
+    private final Object lock;
 
-    private static final String BOOT_INF_CLASSES = "BOOT-INF/classes/";
+    /** Whether this is a child compiler. */
+    private final boolean child;
 
-    /** The Constant TEMP_PATH. */
-    private static final String TEMP_PATH =
-            System.getProperty("java.io.tmpdir") + File.separator + "JPROTOBUF_CACHE_DIR";
+    /** The Constant DEFAULT_JDK_VERSION. */
+    private static final String DEFAULT_JDK_VERSION = "1.8";
 
     /**
      * Instantiates a new jdk compiler.
@@ -124,6 +126,7 @@ public class JdkCompiler extends AbstractCompiler {
         DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<JavaFileObject>();
         StandardJavaFileManager manager =
                 compiler.getStandardFileManager(diagnosticCollector, null, Charset.forName("utf-8"));
+        JavaFileManager fileManager = manager;
         if (loader instanceof URLClassLoader
                 && (!loader.getClass().getName().equals("sun.misc.Launcher$AppClassLoader"))) {
             try {
@@ -164,9 +167,8 @@ public class JdkCompiler extends AbstractCompiler {
 
                 }
                 if (isInternalJar && rootJar != null) {
-                    ZipUtils.unZip(new File(rootJar), TEMP_PATH);
-                    listFiles(TEMP_PATH, files, fileNames);
-                    files.add(new File(TEMP_PATH, BOOT_INF_CLASSES));
+                    // serve classes of fat jar from its entries instead of extracting it
+                    fileManager = new NestedJarFileManager(manager, new File(rootJar), fileNames, loader);
                 }
 
                 manager.setLocation(StandardLocation.CLASS_PATH, files);
@@ -175,13 +177,58 @@ public class JdkCompiler extends AbstractCompiler {
             }
         }
 
-        classLoader = AccessController.doPrivileged(new PrivilegedAction<ClassLoaderImpl>() {
-            public ClassLoaderImpl run() {
-                return new ClassLoaderImpl(loader);
-            }
-        });
+        classLoader = newClassLoader(loader, false);
+
+        javaFileManager = new JavaFileManagerImpl(fileManager, classLoader);
+        lock = new Object();
+        child = false;
+    }
+
+    /**
+     * Instantiates a new child jdk compiler.
+     *
+     * @param parent the parent compiler
+     */
+    private JdkCompiler(JdkCompiler parent) {
+        options = parent.options;
+        classLoader = newClassLoader(parent.classLoader.getParent(), false);
+        javaFileManager = new JavaFileManagerImpl(parent.javaFileManager.getDelegate(), classLoader);
+        lock = parent.lock;
+        child = true;
+    }
+
+    /**
+     * Creates a child compiler which shares class path and options of this compiler but defines compiled classes by
+     * its own class loaders. Classes compiled by the child are not visible to this compiler, and are unloaded once
+     * the child and its classes are no longer referenced.
+     *
+     * @return the child compiler
+     */
+    public JdkCompiler newChild() {
+        return new JdkCompiler(this);
+    }
+
+    /**
+     * Checks if is child compiler created by {@link #newChild()}.
+     *
+     * @return true, if is child
+     */
+    public boolean isChild() {
+        return child;
+    }
 
-        javaFileManager = new JavaFileManagerImpl(manager, classLoader);
+    /**
+     * Gets the compiler which compiled the class.
+     *
+     * @param cls the class
+     * @return the compiler, or null if class is not compiled by a {@link JdkCompiler}
+     */
+    public static JdkCompiler getCompiler(Class<?> cls) {
+        ClassLoader loader = cls.getClassLoader();
+        if (loader instanceof ClassLoaderImpl) {
+            return ((ClassLoaderImpl) loader).getCompiler();
+        }
+        return null;
     }
 
     /*
@@ -191,7 +238,22 @@ public class JdkCompiler extends AbstractCompiler {
      * java.lang.String, java.io.OutputStream)
      */
     @Override
-    public synchronized Class<?> doCompile(String name, String sourceCode, OutputStream os) throws Throwable {
+    public Class<?> doCompile(String name, String sourceCode, OutputStream os) throws Throwable {
+        synchronized (lock) {
+            return compileClass(name, sourceCode, os);
+        }
+    }
+
+    /**
+     * Compile class of java source.
+     *
+     * @param name the full class name
+     * @param sourceCode the source code
+     * @param os the output stream to write byte code, may be null
+     * @return the compiled class
+     * @throws Throwable the throwable
+     */
+    private Class<?> compileClass(String name, String sourceCode, OutputStream os) throws Throwable {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Begin to compile source code: class is '{}'", name);
         }
@@ -203,12 +265,21 @@ public class JdkCompiler extends AbstractCompiler {
         javaFileManager.putFileForInput(StandardLocation.SOURCE_PATH, packageName,
                 className + ClassUtils.JAVA_EXTENSION, javaFileObject);
 
-        DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<JavaFileObject>();
-        Boolean result = compiler.getTask(null, javaFileManager, diagnosticCollector, options, null,
-                Arrays.asList(new JavaFileObject[] { javaFileObject })).call();
-        if (result == null || !result.booleanValue()) {
-            throw new IllegalStateException(
-                    "Compilation failed. class: " + name + ", diagnostics: " + diagnosticCollector.getDiagnostics());
+        ClassLoaderImpl loader;
+        try {
+            DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<JavaFileObject>();
+            Boolean result = compiler.getTask(null, javaFileManager, diagnosticCollector, options, null,
+                    Arrays.asList(new JavaFileObject[] { javaFileObject })).call();
+            if (result == null || !result.booleanValue()) {
+                throw new IllegalStateException("Compilation failed. class: " + name + ", diagnostics: "
+                        + diagnosticCollector.getDiagnostics());
+            }
+            loader = takeCompiled();
+        } finally {
+            // source is no longer required once compiled, and outputs of failed compilation are discarded
+            javaFileManager.removeFileForInput(StandardLocation.SOURCE_PATH, packageName,
+                    className + ClassUtils.JAVA_EXTENSION);
+            javaFileManager.takeOutputs();
         }
 
         if (LOGGER.isDebugEnabled()) {
@@ -216,13 +287,13 @@ public class JdkCompiler extends AbstractCompiler {
             LOGGER.debug("loading class '{}'", name);
         }
 
-        Class<?> retClass = classLoader.loadClass(name);
+        Class<?> retClass = loader.loadClass(name);
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("loading class done  '{}'", name);
         }
 
         if (os != null) {
-            byte[] bytes = classLoader.loadClassBytes(name);
+            byte[] bytes = loadBytes(name);
             if (bytes != null) {
                 os.write(bytes);
                 os.flush();
@@ -231,6 +302,87 @@ public class JdkCompiler extends AbstractCompiler {
         return retClass;
     }
 
+    /**
+     * Compile java sources of multiple classes in one compilation task, classes not referable by later sources are
+     * loaded by one class loader of this task.
+     *
+     * @param sources Java source code by full class name
+     * @param loader the class loader to check if class is already loaded
+     * @return Compiled classes by full class name
+     */
+    @Override
+    public Map<String, Class<?>> compile(Map<String, String> sources, ClassLoader loader) {
+        synchronized (lock) {
+            return compileClasses(sources, loader);
+        }
+    }
+
+    /**
+     * Compile java sources of multiple classes in one compilation task.
+     *
+     * @param sources Java source code by full class name
+     * @param loader the class loader to check if class is already loaded
+     * @return Compiled classes by full class name
+     */
+    private Map<String, Class<?>> compileClasses(Map<String, String> sources, ClassLoader loader) {
+        Map<String, Class<?>> ret = new LinkedHashMap<String, Class<?>>();
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            String name = source.getKey();
+            try {
+                ret.put(name, Class.forName(name, true, loader));
+                continue;
+            } catch (ClassNotFoundException e) {
+                // need compile
+            }
+            int i = name.lastIndexOf('.');
+            String packageName = i < 0 ? "" : name.substring(0, i);
+            String className = i < 0 ? name : name.substring(i + 1);
+            JavaFileObjectImpl javaFileObject = new JavaFileObjectImpl(className, source.getValue().trim());
+            javaFileManager.putFileForInput(StandardLocation.SOURCE_PATH, packageName,
+                    className + ClassUtils.JAVA_EXTENSION, javaFileObject);
+            units.add(javaFileObject);
+            ret.put(name, null);
+        }
+        if (units.isEmpty()) {
+            return ret;
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Begin to compile {} source codes in one task", units.size());
+        }
+        ClassLoaderImpl taskClassLoader;
+        try {
+            DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<JavaFileObject>();
+            Boolean result = compiler.getTask(null, javaFileManager, diagnosticCollector, options, null, units).call();
+            if (result == null || !result.booleanValue()) {
+                throw new IllegalStateException("Compilation failed. classes: " + sources.keySet() + ", diagnostics: "
+                        + diagnosticCollector.getDiagnostics());
+            }
+            taskClassLoader = takeCompiled();
+        } finally {
+            for (String name : ret.keySet()) {
+                if (ret.get(name) == null) {
+                    int i = name.lastIndexOf('.');
+                    javaFileManager.removeFileForInput(StandardLocation.SOURCE_PATH, i < 0 ? "" : name.substring(0, i),
+                            (i < 0 ? name : name.substring(i + 1)) + ClassUtils.JAVA_EXTENSION);
+                }
+            }
+            javaFileManager.takeOutputs();
+        }
+
+        for (Map.Entry<String, Class<?>> entry : ret.entrySet()) {
+            if (entry.getValue() == null) {
+                try {
+                    entry.setValue(taskClassLoader.loadClass(entry.getKey()));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+        }
+        return ret;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -238,10 +390,109 @@ public class JdkCompiler extends AbstractCompiler {
      */
     @Override
     public byte[] loadBytes(String className) {
+        JavaFileObjectImpl file = lastCompiled.get(className);
+        if (file != null) {
+            return file.getByteCode();
+        }
         byte[] bytes = classLoader.loadClassBytes(className);
         return bytes;
     }
 
+    /**
+     * Define class from byte code compiled before, e.g. by a byte code cache. Like compiled classes, referable classes
+     * are added to the class loader of this compiler so java sources compiled later can refer to them, the others are
+     * loaded by a new class loader.
+     *
+     * @param className the class name
+     * @param bytes the byte code
+     * @return the class
+     * @throws ClassNotFoundException if class is not found by the byte code
+     */
+    public Class<?> defineClass(String className, byte[] bytes) throws ClassNotFoundException {
+        synchronized (lock) {
+            if (classLoader.loadClassBytes(className) != null) {
+                // already compiled or defined
+                return classLoader.loadClass(className);
+            }
+            JavaFileObjectImpl file = new JavaFileObjectImpl(className, Kind.CLASS);
+            try {
+                OutputStream os = file.openOutputStream();
+                os.write(bytes);
+                os.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+
+            if (!isReferable(className)) {
+                ClassLoaderImpl taskClassLoader = newClassLoader(classLoader, true);
+                taskClassLoader.add(className, file);
+                return taskClassLoader.loadClass(className);
+            }
+            classLoader.add(className, file);
+            try {
+                return classLoader.loadClass(className);
+            } catch (ClassNotFoundException e) {
+                classLoader.remove(className);
+                throw e;
+            } catch (LinkageError e) {
+                // broken byte code should not be seen by java compiler
+                classLoader.remove(className);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Checks if compiled class may be referenced by java sources compiled later. Byte code of such classes is retained
+     * for java compiler, the others are loaded by a class loader of their compilation task and their byte code is
+     * released once defined, so they are unloaded along with the task class loader. Codec classes are never referenced
+     * by other generated sources.
+     *
+     * @param className the class name
+     * @return true, if is referable
+     */
+    protected boolean isReferable(String className) {
+        return className.indexOf(ICodeGenerator.DEFAULT_SUFFIX_CLASSNAME) == -1;
+    }
+
+    /**
+     * Take classes compiled by current compilation task. Referable classes are added to the class loader of this
+     * compiler, the others to a new class loader of this task.
+     *
+     * @return the class loader to load compiled classes
+     */
+    private ClassLoaderImpl takeCompiled() {
+        Map<String, JavaFileObjectImpl> outputs = javaFileManager.takeOutputs();
+        ClassLoaderImpl taskClassLoader = null;
+        for (Map.Entry<String, JavaFileObjectImpl> entry : outputs.entrySet()) {
+            if (isReferable(entry.getKey())) {
+                classLoader.add(entry.getKey(), entry.getValue());
+            } else {
+                if (taskClassLoader == null) {
+                    taskClassLoader = newClassLoader(classLoader, true);
+                }
+                taskClassLoader.add(entry.getKey(), entry.getValue());
+            }
+        }
+        lastCompiled = outputs;
+        return taskClassLoader != null ? taskClassLoader : classLoader;
+    }
+
+    /**
+     * New class loader.
+     *
+     * @param parent the parent class loader
+     * @param release whether to release byte code once class is defined
+     * @return the class loader
+     */
+    private ClassLoaderImpl newClassLoader(final ClassLoader parent, final boolean release) {
+        return AccessController.doPrivileged(new PrivilegedAction<ClassLoaderImpl>() {
+            public ClassLoaderImpl run() {
+                return new ClassLoaderImpl(parent, release);
+            }
+        });
+    }
+
     /**
      * The Class ClassLoaderImpl.
      */
@@ -250,13 +501,18 @@ public class JdkCompiler extends AbstractCompiler {
         /** The classes. */
         private final Map<String, JavaFileObject> classes = new HashMap<String, JavaFileObject>();
 
+        /** Whether to release byte code once class is defined. */
+        private final boolean release;
+
         /**
          * Instantiates a new class loader impl.
          *
          * @param parentClassLoader the parent class loader
+         * @param release whether to release byte code once class is defined
          */
-        ClassLoaderImpl(final ClassLoader parentClassLoader) {
+        ClassLoaderImpl(final ClassLoader parentClassLoader, boolean release) {
             super(parentClassLoader);
+            this.release = release;
         }
 
         /**
@@ -268,6 +524,15 @@ public class JdkCompiler extends AbstractCompiler {
             return Collections.unmodifiableCollection(classes.values());
         }
 
+        /**
+         * Gets the compiler.
+         *
+         * @return the compiler which defines classes by this class loader
+         */
+        JdkCompiler getCompiler() {
+            return JdkCompiler.this;
+        }
+
         /**
          * Load class bytes.
          *
@@ -293,7 +558,11 @@ public class JdkCompiler extends AbstractCompiler {
             JavaFileObject file = classes.get(qualifiedClassName);
             if (file != null) {
                 byte[] bytes = ((JavaFileObjectImpl) file).getByteCode();
-                return defineClass(qualifiedClassName, bytes, 0, bytes.length);
+                Class<?> cls = defineClass(qualifiedClassName, bytes, 0, bytes.length);
+                if (release) {
+                    classes.remove(qualifiedClassName);
+                }
+                return cls;
             }
             try {
                 return ClassHelper.forNameWithCallerClassLoader(qualifiedClassName, getClass());
@@ -312,6 +581,15 @@ public class JdkCompiler extends AbstractCompiler {
             classes.put(qualifiedClassName, javaFile);
         }
 
+        /**
+         * Removes the.
+         *
+         * @param qualifiedClassName the qualified class name
+         */
+        void remove(final String qualifiedClassName) {
+            classes.remove(qualifiedClassName);
+        }
+
         /*
          * (non-Javadoc)
          * 
@@ -443,6 +721,9 @@ public class JdkCompiler extends AbstractCompiler {
         /** The file objects. */
         private final Map<URI, JavaFileObject> fileObjects = new HashMap<URI, JavaFileObject>();
 
+        /** The classes compiled by current compilation task. */
+        private Map<String, JavaFileObjectImpl> outputs = new LinkedHashMap<String, JavaFileObjectImpl>();
+
         /**
          * Instantiates a new java file manager impl.
          *
@@ -454,6 +735,15 @@ public class JdkCompiler extends AbstractCompiler {
             this.classLoader = classLoader;
         }
 
+        /**
+         * Gets the delegate file manager.
+         *
+         * @return the delegate file manager
+         */
+        JavaFileManager getDelegate() {
+            return fileManager;
+        }
+
         /*
          * (non-Javadoc)
          * 
@@ -483,6 +773,31 @@ public class JdkCompiler extends AbstractCompiler {
             fileObjects.put(uri(location, packageName, relativeName), file);
         }
 
+        /**
+         * Removes the file for input.
+         *
+         * @param location the location
+         * @param packageName the package name
+         * @param relativeName the relative name
+         */
+        public void removeFileForInput(StandardLocation location, String packageName, String relativeName) {
+            fileObjects.remove(uri(location, packageName, relativeName));
+        }
+
+        /**
+         * Take classes compiled by current compilation task.
+         *
+         * @return the compiled classes by class name
+         */
+        public Map<String, JavaFileObjectImpl> takeOutputs() {
+            if (outputs.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, JavaFileObjectImpl> ret = outputs;
+            outputs = new LinkedHashMap<String, JavaFileObjectImpl>();
+            return ret;
+        }
+
         /**
          * Uri.
          *
@@ -504,8 +819,8 @@ public class JdkCompiler extends AbstractCompiler {
         @Override
         public JavaFileObject getJavaFileForOutput(Location location, String qualifiedName, Kind kind,
                 FileObject outputFile) throws IOException {
-            JavaFileObject file = new JavaFileObjectImpl(qualifiedName, kind);
-            classLoader.add(qualifiedName, file);
+            JavaFileObjectImpl file = new JavaFileObjectImpl(qualifiedName, kind);
+            outputs.put(qualifiedName, file);
             return file;
         }
 
@@ -569,48 +884,4 @@ public class JdkCompiler extends AbstractCompiler {
             return files;
         }
     }
-
-    /**
-     * List URL files.
-     *
-     * @param classesPath the classes path
-     * @param ext the ext
-     * @param list the list
-     */
-    private static void listFiles(String classesPath, final List<File> list,  final Set<String> filters) {
-        Collection listFiles = FileUtils.listFiles(new File(classesPath), new IOFileFilter() {
-            
-            @Override
-            public boolean accept(File dir, String name) {
-                return filters.contains(name);
-            }
-            
-            @Override
-            public boolean accept(File file) {
-                return filters.contains(file.getName());
-            }
-        }, new IOFileFilter() {
-            
-            @Override
-            public boolean accept(File dir, String name) {
-                return true;
-            }
-            
-            @Override
-            public boolean accept(File file) {
-                return true;
-            }
-        });
-        
-        if (listFiles != null) {
-            for (Object f : listFiles) {
-                try {
-                    File file = (File) f;
-                    list.add(file); // add jar file
-                } catch (Exception e) {
-                    LOGGER.warn(e.getMessage());
-                }
-            }
-        }
-    }
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.utils.compiler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link JavaFileManager} serves classes of spring boot style fat jar to class path of java compiler. Classes under
+ * <code>BOOT-INF/classes/</code> are read from the application jar directly, and classes of nested jars under
+ * <code>BOOT-INF/lib/</code> are read from the class loader which owns these nested jars, so nothing is extracted to
+ * disk. Class entries are indexed by package on first use.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class NestedJarFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NestedJarFileManager.class.getName());
+
+    /** The classes directory in application jar. */
+    public static final String BOOT_INF_CLASSES = "BOOT-INF/classes/";
+
+    /** The nested jars directory in application jar. */
+    public static final String BOOT_INF_LIB = "BOOT-INF/lib/";
+
+    /** The class file extension. */
+    private static final String CLASS_EXTENSION = Kind.CLASS.extension;
+
+    /** The application jar. */
+    private final File rootJar;
+
+    /** The file names of nested jars to index, or null to index all. */
+    private final Set<String> jarNames;
+
+    /** The class loader to read classes of nested jars. */
+    private final ClassLoader loader;
+
+    /** The opened application jar. */
+    private ZipFile zipFile;
+
+    /** The class files by package name, built on first use. */
+    private volatile Map<String, List<JavaFileObject>> packages;
+
+    /**
+     * Instantiates a new nested jar file manager.
+     *
+     * @param fileManager the file manager to serve other classes
+     * @param rootJar the application jar
+     * @param jarNames the file names of nested jars to index, or null to index all
+     * @param loader the class loader to read classes of nested jars
+     */
+    public NestedJarFileManager(JavaFileManager fileManager, File rootJar, Set<String> jarNames, ClassLoader loader) {
+        super(fileManager);
+        if (rootJar == null) {
+            throw new NullPointerException("Param 'rootJar' is null.");
+        }
+        if (loader == null) {
+            throw new NullPointerException("Param 'loader' is null.");
+        }
+        this.rootJar = rootJar;
+        this.jarNames = jarNames;
+        this.loader = loader;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.tools.ForwardingJavaFileManager#list(javax.tools.JavaFileManager.Location, java.lang.String,
+     * java.util.Set, boolean)
+     */
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<Kind> kinds, boolean recurse)
+            throws IOException {
+        Iterable<JavaFileObject> result = super.list(location, packageName, kinds, recurse);
+        if (location != StandardLocation.CLASS_PATH || !kinds.contains(Kind.CLASS)) {
+            return result;
+        }
+
+        Map<String, List<JavaFileObject>> index = getPackages();
+        List<JavaFileObject> files = new ArrayList<JavaFileObject>();
+        for (JavaFileObject file : result) {
+            files.add(file);
+        }
+        List<JavaFileObject> classes = index.get(packageName);
+        if (classes != null) {
+            files.addAll(classes);
+        }
+        if (recurse) {
+            String prefix = packageName.isEmpty() ? "" : packageName + ".";
+            for (Map.Entry<String, List<JavaFileObject>> entry : index.entrySet()) {
+                if (entry.getKey().length() > prefix.length() && entry.getKey().startsWith(prefix)) {
+                    files.addAll(entry.getValue());
+                }
+            }
+        }
+        return files;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.tools.ForwardingJavaFileManager#getJavaFileForInput(javax.tools.JavaFileManager.Location,
+     * java.lang.String, javax.tools.JavaFileObject.Kind)
+     */
+    @Override
+    public JavaFileObject getJavaFileForInput(Location location, String className, Kind kind) throws IOException {
+        JavaFileObject file = super.getJavaFileForInput(location, className, kind);
+        if (file != null || location != StandardLocation.CLASS_PATH || kind != Kind.CLASS) {
+            return file;
+        }
+
+        int i = className.lastIndexOf('.');
+        List<JavaFileObject> classes = getPackages().get(i < 0 ? "" : className.substring(0, i));
+        if (classes != null) {
+            for (JavaFileObject o : classes) {
+                if (((NestedClassFileObject) o).binaryName.equals(className)) {
+                    return o;
+                }
+            }
+        }
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.tools.ForwardingJavaFileManager#inferBinaryName(javax.tools.JavaFileManager.Location,
+     * javax.tools.JavaFileObject)
+     */
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof NestedClassFileObject) {
+            return ((NestedClassFileObject) file).binaryName;
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.tools.ForwardingJavaFileManager#close()
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            synchronized (this) {
+                if (zipFile != null) {
+                    zipFile.close();
+                    zipFile = null;
+                    packages = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the class files by package name, index is built on first call.
+     *
+     * @return the class files by package name
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Map<String, List<JavaFileObject>> getPackages() throws IOException {
+        Map<String, List<JavaFileObject>> index = packages;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (packages == null) {
+                packages = buildIndex();
+            }
+            return packages;
+        }
+    }
+
+    /**
+     * Index class entries of application classes and nested jars by package name.
+     *
+     * @return the class files by package name
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Map<String, List<JavaFileObject>> buildIndex() throws IOException {
+        long time = System.currentTimeMillis();
+        if (zipFile == null) {
+            zipFile = new ZipFile(rootJar);
+        }
+        Map<String, List<JavaFileObject>> index = new HashMap<String, List<JavaFileObject>>();
+        String rootUri = rootJar.toURI().toString();
+        int count = 0;
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (name.startsWith(BOOT_INF_CLASSES)) {
+                String resource = name.substring(BOOT_INF_CLASSES.length());
+                if (addClass(index, rootUri + "!/" + BOOT_INF_CLASSES, resource, entry)) {
+                    count++;
+                }
+            } else if (name.startsWith(BOOT_INF_LIB) && name.endsWith(".jar") && isIndexed(name)) {
+                count += indexNestedJar(index, rootUri + "!/" + name + "!/", entry);
+            }
+        }
+        for (Map.Entry<String, List<JavaFileObject>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Indexed {} classes of {} packages from '{}' in {} ms", count, index.size(), rootJar,
+                    System.currentTimeMillis() - time);
+        }
+        return index;
+    }
+
+    /**
+     * Checks if the nested jar is on class path of the class loader.
+     *
+     * @param name the entry name of nested jar
+     * @return true, if is indexed
+     */
+    private boolean isIndexed(String name) {
+        return jarNames == null || jarNames.contains(name.substring(name.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * Index class entries of nested jar by reading it through once.
+     *
+     * @param index the index
+     * @param base the uri prefix of classes in nested jar
+     * @param jarEntry the entry of nested jar
+     * @return the count of classes indexed
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int indexNestedJar(Map<String, List<JavaFileObject>> index, String base, ZipEntry jarEntry)
+            throws IOException {
+        int count = 0;
+        ZipInputStream in = new ZipInputStream(zipFile.getInputStream(jarEntry));
+        try {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (!entry.isDirectory() && addClass(index, base, entry.getName(), null)) {
+                    count++;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return count;
+    }
+
+    /**
+     * Adds the class file to index.
+     *
+     * @param index the index
+     * @param base the uri prefix of class file
+     * @param resource the resource name of class file relative to class path root
+     * @param entry the entry in application jar, or null if it is in nested jar
+     * @return true, if it is a class file of named package
+     */
+    private boolean addClass(Map<String, List<JavaFileObject>> index, String base, String resource, ZipEntry entry) {
+        if (!resource.endsWith(CLASS_EXTENSION) || resource.startsWith("META-INF/")) {
+            return false;
+        }
+        String binaryName = resource.substring(0, resource.length() - CLASS_EXTENSION.length()).replace('/', '.');
+        int i = binaryName.lastIndexOf('.');
+        String simpleName = binaryName.substring(i + 1);
+        if (simpleName.equals("module-info") || simpleName.equals("package-info")) {
+            return false;
+        }
+        String packageName = i < 0 ? "" : binaryName.substring(0, i);
+        List<JavaFileObject> classes = index.get(packageName);
+        if (classes == null) {
+            classes = new ArrayList<JavaFileObject>();
+            index.put(packageName, classes);
+        }
+        classes.add(new NestedClassFileObject(URI.create(base + resource), binaryName, resource, entry));
+        return true;
+    }
+
+    /**
+     * Class file in application jar or its nested jars.
+     */
+    private final class NestedClassFileObject extends SimpleJavaFileObject {
+
+        /** The binary name. */
+        private final String binaryName;
+
+        /** The resource name relative to class path root. */
+        private final String resource;
+
+        /** The entry in application jar, or null if it is in nested jar. */
+        private final ZipEntry entry;
+
+        /**
+         * Instantiates a new nested class file object.
+         *
+         * @param uri the uri
+         * @param binaryName the binary name
+         * @param resource the resource name relative to class path root
+         * @param entry the entry in application jar, or null if it is in nested jar
+         */
+        NestedClassFileObject(URI uri, String binaryName, String resource, ZipEntry entry) {
+            super(uri, Kind.CLASS);
+            this.binaryName = binaryName;
+            this.resource = resource;
+            this.entry = entry;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see javax.tools.SimpleJavaFileObject#openInputStream()
+         */
+        @Override
+        public InputStream openInputStream() throws IOException {
+            InputStream in;
+            if (entry != null) {
+                ZipFile zip;
+                synchronized (NestedJarFileManager.this) {
+                    zip = zipFile;
+                }
+                if (zip == null) {
+                    throw new IOException("File manager of '" + rootJar + "' is closed.");
+                }
+                in = zip.getInputStream(entry);
+            } else {
+                in = loader.getResourceAsStream(resource);
+            }
+            if (in == null) {
+                throw new FileNotFoundException(toUri().toString());
+            }
+            return in;
+        }
+    }
+}
@@ -5,14 +5,57 @@ import java.io.Serializable;
 import ${importPackage};
 <!-- $EndBlock imports -->
 
-public class ${className} implements ${codecClassName}<${targetProxyClassName}>, Serializable {
+public class ${className} implements ${codecClassName}<${targetProxyClassName}>, ReverseEncoder<${targetProxyClassName}>, MessageSizer<${targetProxyClassName}>, Serializable {
 	public static final long serialVersionUID = 1L;
     private ${descriptorClsName} descriptor;
+    private final ProtobufProxyConfig config;
+    <!-- $BeginBlock enumTables -->
+    private static final EnumTable<${enumClassName}> ${enumTableName} = EnumTable.of(${enumClassName}.class);
+    <!-- $EndBlock enumTables -->
+    <!-- $BeginBlock fieldHandles -->
+    private static final MethodHandle ${fieldHandleName} = FieldUtils.${fieldHandleFactory}(${targetProxyClassName}.class, "${fieldHandleFieldName}");
+    <!-- $EndBlock fieldHandles -->
+    <!-- $BeginBlock dependentCodecs -->
+    private transient Codec<${dependentClassName}> ${dependentCodecName};
+
+    private Codec<${dependentClassName}> ${dependentCodecGetter}() {
+        Codec<${dependentClassName}> codec = this.${dependentCodecName};
+        if (codec == null) {
+            codec = ProtobufProxy.create(${dependentClassName}.class, config);
+            this.${dependentCodecName} = codec;
+        }
+        return codec;
+    }
+    <!-- $EndBlock dependentCodecs -->
+
+    public ${className}() {
+        this(ProtobufProxy.getConfig());
+    }
+
+    public ${className}(ProtobufProxyConfig config) {
+        this.config = config;
+    }
 
     public byte[] encode(${targetProxyClassName} t) throws IOException {
-        CodecOutputByteArray output = CodecOutputByteArray.get();
-        doWriteTo(t, output.getCodedOutputStream());
+        <!-- $BeginBlock encodeSizeFirst -->
+        EncodeSession session = EncodeSession.open();
+        try {
+            EncodeSession.beginSize(session);
+            byte[] bytes = new byte[doSize(t, false)];
+            EncodeSession.endSize(session);
+            CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+            doWriteTo(t, output);
+            output.checkNoSpaceLeft();
+            return bytes;
+        } finally {
+            EncodeSession.close(session);
+        }
+        <!-- $EndBlock encodeSizeFirst -->
+        <!-- $BeginBlock encodeReverse -->
+        ReverseCodedOutput output = ReverseCodedOutput.get();
+        writeReverse(t, output);
         return output.getData();
+        <!-- $EndBlock encodeReverse -->
     }
 
     public ${targetProxyClassName} decode(byte[] bb) throws IOException {
@@ -21,12 +64,16 @@ public class ${className} implements ${codecClassName}<${targetProxyClassName}>,
     }
 
     public int size(${targetProxyClassName} t) throws IOException {
+        return doSize(t, true);
+    }
+
+    public int doSize(${targetProxyClassName} t, boolean checkRequired) throws IOException {
         int size = 0;
         <!-- $BeginBlock encodeFields -->
-        ${encodeFieldType} ${encodeFieldName} = null;
+        ${encodeFieldType} ${encodeFieldName} = ${encodeFieldDefault};
         if (!CodedConstant.isNull(${encodeFieldGetter})) {
             ${encodeFieldName} = ${writeValueToField};  
-            size += ${calcSize}
+            ${calcSize}
         }
         ${checkNull}
         <!-- $EndBlock encodeFields -->
@@ -36,7 +83,7 @@ public class ${className} implements ${codecClassName}<${targetProxyClassName}>,
     public void doWriteTo(${targetProxyClassName} t, CodedOutputStream output)
             throws IOException {
          <!-- $BeginBlock encodeFields -->
-        ${encodeFieldType} ${encodeFieldName} = null;
+        ${encodeFieldType} ${encodeFieldName} = ${encodeFieldDefault};
         if (!CodedConstant.isNull(${encodeFieldGetter})) {
             ${encodeFieldName} = ${writeValueToField};
             ${encodeWriteFieldValue}  
@@ -46,7 +93,23 @@ public class ${className} implements ${codecClassName}<${targetProxyClassName}>,
  
     public void writeTo(${targetProxyClassName} t, CodedOutputStream output)
             throws IOException {
-        doWriteTo(t, output);
+        EncodeSession session = EncodeSession.open();
+        try {
+            doWriteTo(t, output);
+        } finally {
+            EncodeSession.close(session);
+        }
+    }
+
+    public void writeReverse(${targetProxyClassName} t, ReverseCodedOutput output)
+            throws IOException {
+        <!-- $BeginBlock reverseEncodeFields -->
+        ${encodeFieldType} ${encodeFieldName} = ${encodeFieldDefault};
+        if (!CodedConstant.isNull(${encodeFieldGetter})) {
+            ${encodeFieldName} = ${writeValueToField};
+            ${encodeWriteFieldValue}
+        }
+        <!-- $EndBlock reverseEncodeFields -->
     }
  
     public ${targetProxyClassName} readFrom(CodedInputStream input) throws IOException {
@@ -59,14 +122,14 @@ public class ${className} implements ${codecClassName}<${targetProxyClassName}>,
         <!-- $EndBlock enumFields -->
         try {
             boolean done = false;
-            Codec codec = null;
             while (!done) {
                 int tag = input.readTag();
                 if (tag == 0) {
                     break;
                 }
+                switch (tag) {
                 <!-- $BeginBlock decodeFields -->
-                if (tag == ${decodeOrder}) {
+                case ${decodeOrder}: {
                     ${objectDecodeExpress}
                     ${decodeFieldSetValue}
                     ${objectDecodeExpressSuffix}
@@ -75,15 +138,16 @@ public class ${className} implements ${codecClassName}<${targetProxyClassName}>,
                 }
                 ${objectPackedDecodeExpress}
                 <!-- $EndBlock decodeFields -->               
-                
-                input.skipField(tag);
+                default:
+                    input.skipField(tag);
+                }
             }
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
             throw e;
         } catch (java.io.IOException e) {
             throw e;
         }
-
+        ${setArrayFields}
         return ret;       
         
     } 
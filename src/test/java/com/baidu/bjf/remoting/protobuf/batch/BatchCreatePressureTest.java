@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.TemplateCodeGenerator;
+import com.baidu.bjf.remoting.protobuf.utils.JDKCompilerHelper;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
+
+/**
+ * Performance test for start up of a graph of message types, created one by one or together by
+ * {@link ProtobufProxy#createAll(java.util.Collection)}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class BatchCreatePressureTest {
+
+    /**
+     * Message classes generated. The test is skipped unless it is set, e.g. -Djprotobuf.test.batchClasses=200 which
+     * takes about half a minute.
+     */
+    Integer count = Integer.getInteger("jprotobuf.test.batchClasses");
+
+    /**
+     * Generate message classes each refers to the next one, so the first one depends on all others.
+     *
+     * @param dir the directory
+     * @return the class loader of generated classes
+     */
+    private ClassLoader generateClasses(File dir) throws IOException {
+        File src = new File(dir, "src");
+        File classes = new File(dir, "classes");
+        classes.mkdirs();
+        List<String> args = new ArrayList<String>();
+        args.add("-nowarn");
+        args.add("-cp");
+        args.add(System.getProperty("java.class.path"));
+        args.add("-d");
+        args.add(classes.getPath());
+        for (int i = 0; i < count; i++) {
+            StringBuilder code = new StringBuilder();
+            code.append("package batchgen;\n");
+            code.append("import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;\n");
+            code.append("public class M").append(i).append(" {\n");
+            code.append("    @Protobuf(order = 1) public String name;\n");
+            code.append("    @Protobuf(order = 2) public Long id;\n");
+            if (i + 1 < count) {
+                code.append("    @Protobuf(order = 3) public M").append(i + 1).append(" next;\n");
+            }
+            code.append("}\n");
+            File file = new File(src, "batchgen/M" + i + ".java");
+            FileUtils.writeStringToFile(file, code.toString(), Charset.forName("utf-8"));
+            args.add(file.getPath());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertEquals(0, compiler.run(null, null, null, args.toArray(new String[args.size()])));
+
+        List<URL> urls = new ArrayList<URL>();
+        urls.add(classes.toURI().toURL());
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            urls.add(new File(path).toURI().toURL());
+        }
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]), getClass().getClassLoader());
+    }
+
+    @Test
+    public void testStartup() throws Exception {
+        Assume.assumeTrue("set -Djprotobuf.test.batchClasses to run", count != null);
+        ProtobufProxy.clearCache();
+        File dir = new File(System.getProperty("java.io.tmpdir"), "jprotobuf-batch-" + System.nanoTime());
+        try {
+            // load separately so no codec is cached
+            ClassLoader loader = generateClasses(dir);
+            ClassLoader batchLoader = new URLClassLoader(((URLClassLoader) loader).getURLs(), loader.getParent());
+
+            Compiler compiler = JDKCompilerHelper.getJdkCompiler(loader);
+            long time = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                Class<?> cls = loader.loadClass("batchgen.M" + i);
+                ProtobufProxy.create(cls, compiler, new TemplateCodeGenerator(cls));
+            }
+            System.out.println("create " + count + " codecs one by one total time:"
+                    + (System.currentTimeMillis() - time) + " ms");
+
+            // classes of another class loader have their own codecs
+            time = System.currentTimeMillis();
+            List<Class<?>> classes = new ArrayList<Class<?>>();
+            classes.add(batchLoader.loadClass("batchgen.M0"));
+            Map<Class<?>, Codec<?>> codecs = ProtobufProxy.createAll(classes);
+            System.out.println("create " + count + " codecs by createAll total time:"
+                    + (System.currentTimeMillis() - time) + " ms");
+            Assert.assertEquals(count.intValue(), codecs.size());
+            // codecs are loaded by class loader of their compilation task under the compiler of batch loader
+            ClassLoader codecLoader = codecs.get(classes.get(0)).getClass().getClassLoader();
+            Assert.assertSame(batchLoader, codecLoader.getParent().getParent());
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.complexList.AddressBookProtosPOJO;
+import com.baidu.bjf.remoting.protobuf.complexList.PersonPOJO;
+import com.baidu.bjf.remoting.protobuf.complexList.TypeDefEnum;
+import com.baidu.bjf.remoting.protobuf.inlinemap.InlineMapPOJO;
+import com.baidu.bjf.remoting.protobuf.inlinemap.InlineMapValuePOJO;
+import com.baidu.bjf.remoting.protobuf.utils.JDKCompilerHelper;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
+
+/**
+ * Test codecs of classes and their dependencies created together by {@link ProtobufProxy#createAll(java.util.Collection)}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class BatchCreateTest {
+
+    /**
+     * Compiler counts compiled classes.
+     */
+    static class CountingCompiler implements Compiler {
+
+        final Compiler compiler;
+
+        final AtomicInteger count = new AtomicInteger();
+
+        CountingCompiler(Compiler compiler) {
+            this.compiler = compiler;
+        }
+
+        @Override
+        public Class<?> compile(String className, String code, ClassLoader classLoader, OutputStream os,
+                long timestamp) {
+            count.incrementAndGet();
+            return compiler.compile(className, code, classLoader, os, timestamp);
+        }
+
+        @Override
+        public Map<String, Class<?>> compile(Map<String, String> sources, ClassLoader classLoader) {
+            count.addAndGet(sources.size());
+            return compiler.compile(sources, classLoader);
+        }
+
+        @Override
+        public byte[] loadBytes(String className) {
+            return compiler.loadBytes(className);
+        }
+    }
+
+    @Test
+    public void testCreateAll() throws IOException {
+        ProtobufProxy.clearCache();
+        Map<Class<?>, Codec<?>> codecs = ProtobufProxy
+                .createAll(Arrays.<Class<?>> asList(AddressBookProtosPOJO.class, InlineMapPOJO.class));
+
+        // dependent message classes are included, enum and java types are not
+        Assert.assertEquals(4, codecs.size());
+        Assert.assertTrue(codecs.containsKey(PersonPOJO.class));
+        Assert.assertTrue(codecs.containsKey(InlineMapValuePOJO.class));
+        Assert.assertFalse(codecs.containsKey(TypeDefEnum.class));
+        Assert.assertSame(codecs.get(PersonPOJO.class), ProtobufProxy.create(PersonPOJO.class));
+        Assert.assertSame(codecs.get(InlineMapPOJO.class), ProtobufProxy.create(InlineMapPOJO.class));
+
+        // compiled in one task, so loaded by the same class loader
+        Assert.assertSame(codecs.get(PersonPOJO.class).getClass().getClassLoader(),
+                codecs.get(InlineMapValuePOJO.class).getClass().getClassLoader());
+
+        Codec<InlineMapPOJO> codec = ProtobufProxy.create(InlineMapPOJO.class);
+        InlineMapPOJO pojo = new InlineMapPOJO();
+        pojo.values = new HashMap<String, InlineMapValuePOJO>();
+        pojo.values.put("a", new InlineMapValuePOJO(1, "one"));
+        Assert.assertEquals("one", codec.decode(codec.encode(pojo)).values.get("a").name);
+    }
+
+    @Test
+    public void testCreateAllCached() {
+        Codec<PersonPOJO> codec = ProtobufProxy.create(PersonPOJO.class);
+        Map<Class<?>, Codec<?>> codecs = ProtobufProxy.createAll(Arrays.<Class<?>> asList(PersonPOJO.class));
+        Assert.assertSame(codec, codecs.get(PersonPOJO.class));
+    }
+
+    @Test
+    public void testCreateAllJoinsSingleFlight() throws Exception {
+        ProtobufProxy.clearCache();
+        Compiler old = JDKCompilerHelper.getJdkCompiler();
+        CountingCompiler compiler = new CountingCompiler(old);
+        JDKCompilerHelper.setCompiler(compiler);
+        int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Codec<?>>> futures = new ArrayList<Future<Codec<?>>>();
+            for (int i = 0; i < threads; i++) {
+                final boolean batch = i % 2 == 0;
+                futures.add(executor.submit(new Callable<Codec<?>>() {
+                    @Override
+                    public Codec<?> call() throws Exception {
+                        start.await();
+                        if (batch) {
+                            return ProtobufProxy.createAll(Arrays.<Class<?>> asList(PersonPOJO.class))
+                                    .get(PersonPOJO.class);
+                        }
+                        return ProtobufProxy.create(PersonPOJO.class);
+                    }
+                }));
+            }
+            start.countDown();
+            Codec<?> codec = futures.get(0).get();
+            for (Future<Codec<?>> future : futures) {
+                Assert.assertSame(codec, future.get());
+            }
+            Assert.assertEquals(1, compiler.count.get());
+        } finally {
+            executor.shutdown();
+            JDKCompilerHelper.setCompiler(old);
+        }
+    }
+
+    @Test
+    public void testCreateAllOutputPath() throws IOException {
+        ProtobufProxy.clearCache();
+        File path = Files.createTempDirectory("jprotobuf-batch").toFile();
+        ProtobufProxy.OUTPUT_PATH.set(path);
+        try {
+            ProtobufProxy.createAll(Arrays.<Class<?>> asList(PersonPOJO.class));
+        } finally {
+            ProtobufProxy.OUTPUT_PATH.remove();
+        }
+        String className = ProtobufProxy.getFullClassName(PersonPOJO.class);
+        File file = new File(path, className.replace('.', File.separatorChar) + ".class");
+        Assert.assertTrue(file.isFile());
+        Assert.assertTrue(file.length() > 0);
+    }
+
+    @Test
+    public void testJdkCompilerCompileSources() {
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        sources.put("batch.gen.A", "package batch.gen; public class A { public B b = new B(); }");
+        sources.put("batch.gen.B", "package batch.gen; public class B { }");
+
+        Map<String, Class<?>> classes =
+                new JdkCompiler(JdkCompiler.class.getClassLoader()).compile(sources, getClass().getClassLoader());
+        Assert.assertEquals(sources.keySet(), classes.keySet());
+        Assert.assertSame(classes.get("batch.gen.A").getClassLoader(), classes.get("batch.gen.B").getClassLoader());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.simplerepeat.RequrieRepeatedDojoClassWithLargeIndex;
+import com.baidu.bjf.remoting.protobuf.simplerepeat.RequrieRepeatedTypeWithLargeIndex;
+import com.baidu.bjf.remoting.protobuf.simpletypes.AllTypes;
+import com.baidu.bjf.remoting.protobuf.simpletypes.AllTypesDojoClassWithDefault;
+import com.google.protobuf.ByteString;
+
+/**
+ * JMH benchmark of decoding {@link AllTypes} and {@link RequrieRepeatedTypeWithLargeIndex} messages by jprotobuf
+ * codecs and by protobuf-java. Run it with profile benchmark:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.baidu.bjf.remoting.protobuf.benchmark.DecodeBenchmark
+ * </pre>
+ *
+ * To compare generated code of two revisions, run it on both of them and compare the scores of jprotobuf decoding.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+    private Codec<AllTypesDojoClassWithDefault> allTypesCodec;
+
+    private Codec<RequrieRepeatedDojoClassWithLargeIndex> largeIndexCodec;
+
+    private byte[] allTypesBytes;
+
+    private byte[] largeIndexBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        allTypesCodec = ProtobufProxy.create(AllTypesDojoClassWithDefault.class);
+        largeIndexCodec = ProtobufProxy.create(RequrieRepeatedDojoClassWithLargeIndex.class);
+
+        allTypesBytes = AllTypes.InterClassName.newBuilder().setBoolF(true)
+                .setBytesF(ByteString.copyFrom(new byte[] { 1, 2 })).setDoubleF(202D).setFixed32F(1).setFixed64F(2L)
+                .setFloatF(303F).setInt32F(4).setInt64F(5L).setSfixed32F(6).setSfixed64F(7L).setSint32F(8)
+                .setSint64F(9L).setStringF("world").setUint32F(10).setUint64F(11L).build().toByteArray();
+
+        RequrieRepeatedTypeWithLargeIndex.InterClassName.Builder builder =
+                RequrieRepeatedTypeWithLargeIndex.InterClassName.newBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.addList("hello" + i);
+        }
+        largeIndexBytes = builder.build().toByteArray();
+    }
+
+    @Benchmark
+    public AllTypesDojoClassWithDefault decodeAllTypes() throws IOException {
+        return allTypesCodec.decode(allTypesBytes);
+    }
+
+    @Benchmark
+    public AllTypes.InterClassName parseAllTypes() throws IOException {
+        return AllTypes.InterClassName.parseFrom(allTypesBytes);
+    }
+
+    @Benchmark
+    public RequrieRepeatedDojoClassWithLargeIndex decodeLargeIndex() throws IOException {
+        return largeIndexCodec.decode(largeIndexBytes);
+    }
+
+    @Benchmark
+    public RequrieRepeatedTypeWithLargeIndex.InterClassName parseLargeIndex() throws IOException {
+        return RequrieRepeatedTypeWithLargeIndex.InterClassName.parseFrom(largeIndexBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DecodeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
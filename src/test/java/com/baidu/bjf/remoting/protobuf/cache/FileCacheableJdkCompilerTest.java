@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.TemplateCodeGenerator;
+import com.baidu.bjf.remoting.protobuf.inlinemap.InlineMapValuePOJO;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.FileCacheableJdkCompiler;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
+
+/**
+ * Test byte code cached on file system by {@link FileCacheableJdkCompiler}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class FileCacheableJdkCompilerTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("jprotobuf-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        CountingCompiler counting = new CountingCompiler();
+        Class<?> cls = new FileCacheableJdkCompiler(counting, dir).compile("cache.gen.A",
+                "package cache.gen; public class A { public String toString() { return \"a\"; } }",
+                getClass().getClassLoader(), null, 0);
+        Assert.assertEquals(1, counting.count.get());
+        Assert.assertEquals(1, cachedFiles().length);
+
+        // restarted process
+        counting = new CountingCompiler();
+        Class<?> cached = new FileCacheableJdkCompiler(counting, dir).compile("cache.gen.A",
+                "package cache.gen; public class A { public String toString() { return \"a\"; } }",
+                getClass().getClassLoader(), null, 0);
+        Assert.assertEquals(0, counting.count.get());
+        Assert.assertNotSame(cls, cached);
+        Assert.assertEquals("a", cached.newInstance().toString());
+    }
+
+    @Test
+    public void testCacheHitReferable() throws Exception {
+        ClassLoader loader = getClass().getClassLoader();
+        String source = "package cache.gen; public class G { public String toString() { return \"g\"; } }";
+        new FileCacheableJdkCompiler(new JdkCompiler(loader), dir).compile("cache.gen.G", source, loader, null, 0);
+
+        // restarted process, cached class is referred by source compiled later
+        FileCacheableJdkCompiler compiler = new FileCacheableJdkCompiler(new JdkCompiler(loader), dir);
+        Class<?> cached = compiler.compile("cache.gen.G", source, loader, null, 0);
+        Class<?> cls = compiler.compile("cache.gen.H",
+                "package cache.gen; public class H { public G g = new G(); }", loader, null, 0);
+        Assert.assertSame(cached, cls.getField("g").getType());
+        Assert.assertEquals("g", cls.getField("g").get(cls.newInstance()).toString());
+    }
+
+    @Test
+    public void testSourceChanged() {
+        CountingCompiler counting = new CountingCompiler();
+        new FileCacheableJdkCompiler(counting, dir).compile("cache.gen.B", "package cache.gen; public class B { }",
+                getClass().getClassLoader(), null, 0);
+        new FileCacheableJdkCompiler(counting, dir).compile("cache.gen.B",
+                "package cache.gen; public class B { int i; }", getClass().getClassLoader(), null, 0);
+        Assert.assertEquals(2, counting.count.get());
+        Assert.assertEquals(2, cachedFiles().length);
+    }
+
+    @Test
+    public void testBrokenFile() throws IOException {
+        CountingCompiler counting = new CountingCompiler();
+        new FileCacheableJdkCompiler(counting, dir).compile("cache.gen.C", "package cache.gen; public class C { }",
+                getClass().getClassLoader(), null, 0);
+        File file = cachedFiles()[0];
+        Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+
+        Class<?> cls = new FileCacheableJdkCompiler(counting, dir).compile("cache.gen.C",
+                "package cache.gen; public class C { }", getClass().getClassLoader(), null, 0);
+        Assert.assertEquals("cache.gen.C", cls.getName());
+        Assert.assertEquals(2, counting.count.get());
+        Assert.assertTrue(file.length() > 3);
+    }
+
+    @Test
+    public void testEviction() {
+        CountingCompiler counting = new CountingCompiler();
+        FileCacheableJdkCompiler compiler = new FileCacheableJdkCompiler(counting, dir, 400);
+        for (int i = 0; i < 5; i++) {
+            compiler.compile("cache.gen.D" + i, "package cache.gen; public class D" + i + " { }",
+                    getClass().getClassLoader(), null, 0);
+        }
+        long total = 0;
+        for (File file : cachedFiles()) {
+            total += file.length();
+        }
+        Assert.assertTrue(total <= 400);
+        Assert.assertTrue(cachedFiles().length > 0);
+        Assert.assertTrue(cachedFiles().length < 5);
+    }
+
+    @Test
+    public void testCompileSources() {
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        sources.put("cache.gen.E", "package cache.gen; public class E { }");
+        sources.put("cache.gen.F", "package cache.gen; public class F { }");
+        CountingCompiler counting = new CountingCompiler();
+        Map<String, Class<?>> classes = new FileCacheableJdkCompiler(counting, dir).compile(sources,
+                getClass().getClassLoader());
+        Assert.assertEquals(sources.keySet(), classes.keySet());
+        Assert.assertEquals(1, counting.batches.get());
+        Assert.assertEquals(2, cachedFiles().length);
+
+        counting = new CountingCompiler();
+        classes = new FileCacheableJdkCompiler(counting, dir).compile(sources, getClass().getClassLoader());
+        Assert.assertEquals(sources.keySet(), classes.keySet());
+        Assert.assertEquals(0, counting.batches.get());
+    }
+
+    @Test
+    public void testCodec() throws IOException {
+        CountingCompiler counting = new CountingCompiler();
+        ProtobufProxy.enableCache(false);
+        try {
+            for (int i = 0; i < 2; i++) {
+                Codec<InlineMapValuePOJO> codec = ProtobufProxy.create(InlineMapValuePOJO.class,
+                        new FileCacheableJdkCompiler(counting, dir),
+                        new TemplateCodeGenerator(InlineMapValuePOJO.class));
+                Assert.assertEquals("one", codec.decode(codec.encode(new InlineMapValuePOJO(1, "one"))).name);
+            }
+        } finally {
+            ProtobufProxy.enableCache(true);
+        }
+        Assert.assertEquals(1, counting.count.get());
+    }
+
+    private File[] cachedFiles() {
+        return dir.listFiles((d, name) -> name.endsWith(".class"));
+    }
+
+    /**
+     * Compiler counts compilations, each instance compiles into a new class loader like a restarted process.
+     */
+    static class CountingCompiler implements Compiler {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        final JdkCompiler compiler = new JdkCompiler(JdkCompiler.class.getClassLoader());
+
+        @Override
+        public Class<?> compile(String className, String code, ClassLoader classLoader, OutputStream os,
+                long timestamp) {
+            count.incrementAndGet();
+            return compiler.compile(className, code, classLoader, os, timestamp);
+        }
+
+        @Override
+        public Map<String, Class<?>> compile(Map<String, String> sources, ClassLoader classLoader) {
+            batches.incrementAndGet();
+            return compiler.compile(sources, classLoader);
+        }
+
+        @Override
+        public byte[] loadBytes(String className) {
+            return compiler.loadBytes(className);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.classloader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * Test codecs cached by class, classes with the same name from different class loaders have their own codecs.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class ClassLoaderCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = new File(System.getProperty("java.io.tmpdir"), "jprotobuf-classloader-" + System.nanoTime());
+        File file = new File(dir, "src/clgen/Msg.java");
+        FileUtils.writeStringToFile(file,
+                "package clgen;\n" + "import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;\n"
+                        + "public class Msg {\n" + "    @Protobuf(order = 1) public String name;\n" + "}\n",
+                Charset.forName("utf-8"));
+        File classes = new File(dir, "classes");
+        classes.mkdirs();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertEquals(0, compiler.run(null, null, null, "-nowarn", "-cp", System.getProperty("java.class.path"),
+                "-d", classes.getPath(), file.getPath()));
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private ClassLoader newClassLoader() throws IOException {
+        // class path urls are required by java compiler of the class loader
+        List<URL> urls = new ArrayList<URL>();
+        urls.add(new File(dir, "classes").toURI().toURL());
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            urls.add(new File(path).toURI().toURL());
+        }
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]), getClass().getClassLoader());
+    }
+
+    @Test
+    public void testSameNameFromClassLoaders() throws Exception {
+        Class cls1 = newClassLoader().loadClass("clgen.Msg");
+        Class cls2 = newClassLoader().loadClass("clgen.Msg");
+        Assert.assertNotSame(cls1, cls2);
+
+        Codec codec1 = ProtobufProxy.create(cls1);
+        Codec codec2 = ProtobufProxy.create(cls2);
+        Assert.assertNotSame(codec1, codec2);
+        Assert.assertSame(codec1, ProtobufProxy.create(cls1));
+        Assert.assertSame(codec2, ProtobufProxy.create(cls2));
+
+        Object msg = cls2.newInstance();
+        cls2.getField("name").set(msg, "two");
+        Object decoded = codec2.decode(codec2.encode(msg));
+        Assert.assertSame(cls2, decoded.getClass());
+        Assert.assertEquals("two", cls2.getField("name").get(decoded));
+    }
+
+    @Test
+    public void testCompiledCodecOfOtherClassLoaderIgnored() throws Exception {
+        // precompiled codec only visible to context class loader, which has its own copy of target class
+        Class cls1 = newClassLoader().loadClass("clgen.Msg");
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ProtobufProxy.dynamicCodeGenerate(os, cls1, Charset.forName("utf-8"));
+        String className = ProtobufProxy.getFullClassName(cls1);
+        File file = new File(dir, "src/" + className.replace('.', '/') + ".java");
+        FileUtils.writeByteArrayToFile(file, os.toByteArray());
+        File codecs = new File(dir, "codecs");
+        codecs.mkdirs();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String cp = new File(dir, "classes").getPath() + File.pathSeparator + System.getProperty("java.class.path");
+        Assert.assertEquals(0, compiler.run(null, null, null, "-nowarn", "-cp", cp, "-d", codecs.getPath(),
+                file.getPath()));
+        ClassLoader contextLoader = new URLClassLoader(
+                new URL[] { codecs.toURI().toURL(), new File(dir, "classes").toURI().toURL() },
+                getClass().getClassLoader());
+        Assert.assertNotNull(contextLoader.loadClass(className));
+
+        Class cls2 = newClassLoader().loadClass("clgen.Msg");
+        ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(contextLoader);
+        Codec codec;
+        try {
+            codec = ProtobufProxy.create(cls2);
+        } finally {
+            Thread.currentThread().setContextClassLoader(old);
+        }
+        Assert.assertNotSame(contextLoader, codec.getClass().getClassLoader());
+
+        Object msg = cls2.newInstance();
+        cls2.getField("name").set(msg, "two");
+        Assert.assertEquals("two", cls2.getField("name").get(codec.decode(codec.encode(msg))));
+    }
+
+    @Test
+    public void testUnload() throws Exception {
+        WeakReference<ClassLoader> ref = createAndDrop();
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Assert.assertNull(ref.get());
+    }
+
+    private WeakReference<ClassLoader> createAndDrop() throws Exception {
+        ClassLoader loader = newClassLoader();
+        Class cls = loader.loadClass("clgen.Msg");
+        Codec codec = ProtobufProxy.create(cls);
+        Assert.assertNotNull(codec.encode(cls.newInstance()));
+        return new WeakReference<ClassLoader>(loader);
+    }
+}
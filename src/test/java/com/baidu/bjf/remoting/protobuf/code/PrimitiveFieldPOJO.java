@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.code;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/**
+ * POJO with primitive fields.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class PrimitiveFieldPOJO {
+
+    @Protobuf(order = 1, required = true)
+    public int intF;
+
+    @Protobuf(order = 2)
+    public long longF;
+
+    @Protobuf(order = 3, fieldType = FieldType.SINT32)
+    public short shortF;
+
+    @Protobuf(order = 4)
+    public double doubleF;
+
+    @Protobuf(order = 5)
+    private boolean boolF;
+
+    /**
+     * Checks if is bool F.
+     *
+     * @return the bool F
+     */
+    public boolean isBoolF() {
+        return boolF;
+    }
+
+    /**
+     * Sets the bool F.
+     *
+     * @param boolF the new bool F
+     */
+    public void setBoolF(boolean boolF) {
+        this.boolF = boolF;
+    }
+
+}
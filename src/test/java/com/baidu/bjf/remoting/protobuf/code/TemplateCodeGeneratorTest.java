@@ -73,6 +73,34 @@ public class TemplateCodeGeneratorTest {
     }
     
     
+    /**
+     * Test dependent codecs are bound once per generated class.
+     */
+    @Test
+    public void testDependentCodecBoundOnce() {
+        TemplateCodeGenerator generator = new TemplateCodeGenerator(AddressBookProtosPOJO.class);
+        String code = generator.getCode();
+        
+        Assert.assertTrue(code.contains("getCodec0().readFrom(input)"));
+        Assert.assertFalse(code.contains(") codec.readFrom(input)"));
+        Assert.assertEquals(code.indexOf("ProtobufProxy.create("), code.lastIndexOf("ProtobufProxy.create("));
+    }
+    
+    /**
+     * Test primitive fields are encoded from primitive locals.
+     */
+    @Test
+    public void testPrimitiveFieldNotBoxed() {
+        TemplateCodeGenerator generator = new TemplateCodeGenerator(PrimitiveFieldPOJO.class);
+        String code = generator.getCode();
+
+        Assert.assertTrue(code.contains("int f_1 = 0;"));
+        Assert.assertTrue(code.contains("int f_3 = 0;"));
+        Assert.assertTrue(code.contains("boolean f_5 = false;"));
+        Assert.assertFalse(code.contains("Value()"));
+        Assert.assertFalse(code.contains("f_1== null"));
+    }
+    
     /**
      * Test map and sub class dependencies.
      */
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.compiler;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
+
+/**
+ * Test {@link JdkCompiler} releases byte code of compiled codec classes and lets them be unloaded.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class JdkCompilerMemoryTest {
+
+    private static final String CODEC_SUFFIX = "$$JProtoBufClass";
+
+    private Class<?> compile(JdkCompiler compiler, String packageName, String simpleName, String body) {
+        String code = "package " + packageName + ";\npublic class " + simpleName + " {\n" + body + "}\n";
+        return compiler.compile(packageName + "." + simpleName, code, getClass().getClassLoader(), null, -1);
+    }
+
+    @Test
+    public void testReleaseBytes() {
+        JdkCompiler compiler = new JdkCompiler(getClass().getClassLoader());
+        Class<?> a = compile(compiler, "memgen", "A" + CODEC_SUFFIX, "");
+        Assert.assertNotNull(compiler.loadBytes(a.getName()));
+
+        // byte code of codec class is kept only until next compilation
+        Class<?> b = compile(compiler, "memgen", "B" + CODEC_SUFFIX, "");
+        Assert.assertNull(compiler.loadBytes(a.getName()));
+        Assert.assertNotNull(compiler.loadBytes(b.getName()));
+        Assert.assertNotSame(a.getClassLoader(), b.getClassLoader());
+    }
+
+    @Test
+    public void testReferable() throws Exception {
+        JdkCompiler compiler = new JdkCompiler(getClass().getClassLoader());
+        Class<?> pojo = compile(compiler, "memgen", "Pojo", "    public String name = \"pojo\";\n");
+        Class<?> codec = compile(compiler, "memgen", "Pojo" + CODEC_SUFFIX,
+                "    public String value() { return new memgen.Pojo().name; }\n");
+
+        // referable class is retained for java compiler and visible to codec classes
+        Assert.assertNotNull(compiler.loadBytes(pojo.getName()));
+        Assert.assertSame(pojo.getClassLoader(), codec.getClassLoader().getParent());
+        Assert.assertEquals("pojo", codec.getMethod("value").invoke(codec.newInstance()));
+    }
+
+    @Test
+    public void testUnload() throws Exception {
+        JdkCompiler compiler = new JdkCompiler(getClass().getClassLoader());
+        WeakReference<Class<?>> ref = compileAndDrop(compiler);
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Assert.assertNull(ref.get());
+
+        // compiler is still usable
+        Assert.assertNotNull(compile(compiler, "memgen", "D" + CODEC_SUFFIX, ""));
+    }
+
+    private WeakReference<Class<?>> compileAndDrop(JdkCompiler compiler) throws Exception {
+        Class<?> cls = compile(compiler, "memgen", "C" + CODEC_SUFFIX, "");
+        Assert.assertNotNull(cls.newInstance());
+        // release byte code kept for last compilation
+        compile(compiler, "memgen", "E" + CODEC_SUFFIX, "");
+        return new WeakReference<Class<?>>(cls);
+    }
+}
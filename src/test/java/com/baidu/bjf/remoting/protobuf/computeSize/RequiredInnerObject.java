@@ -0,0 +1,32 @@
+package com.baidu.bjf.remoting.protobuf.computeSize;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/***
+ * nested message with a required field
+ */
+public class RequiredInnerObject {
+
+	@Protobuf(fieldType = FieldType.STRING, order = 1, required = true)
+	private String name;
+
+	@Protobuf(fieldType = FieldType.INT32, order = 2)
+	private Integer id;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+}
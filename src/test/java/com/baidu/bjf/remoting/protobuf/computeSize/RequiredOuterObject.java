@@ -0,0 +1,39 @@
+package com.baidu.bjf.remoting.protobuf.computeSize;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/***
+ * message with a required field and a nested message
+ */
+public class RequiredOuterObject {
+
+	@Protobuf(fieldType = FieldType.OBJECT, order = 1)
+	private RequiredInnerObject inner;
+
+	@Protobuf(fieldType = FieldType.STRING, order = 2, required = true)
+	private String root;
+
+	public static RequiredOuterObject valueOf(RequiredInnerObject inner, String root){
+		RequiredOuterObject data = new RequiredOuterObject();
+		data.inner = inner;
+		data.root = root;
+		return data;
+	}
+
+	public RequiredInnerObject getInner() {
+		return inner;
+	}
+
+	public void setInner(RequiredInnerObject inner) {
+		this.inner = inner;
+	}
+
+	public String getRoot() {
+		return root;
+	}
+
+	public void setRoot(String root) {
+		this.root = root;
+	}
+}
@@ -3,9 +3,12 @@ package com.baidu.bjf.remoting.protobuf.computeSize;
 import autovalue.shaded.com.google.common.common.collect.Lists;
 import com.baidu.bjf.remoting.protobuf.Codec;
 import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UninitializedMessageException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /***
@@ -38,4 +41,58 @@ public class TestComputeSize {
 
         Assert.assertEquals(9, codec.size(nonPackedListObject));
     }
+
+    /**
+     * test zigzag list size is the same as encoded length, nested message is written with this size as length prefix
+     * @throws IOException
+     */
+    @Test
+    public void testZigZagListWithNested() throws IOException {
+        Codec<ZigZagListObject> codec = ProtobufProxy.create(ZigZagListObject.class);
+        ZigZagListObject nested = ZigZagListObject.valueOf(Lists.newArrayList(-1, -300), Lists.newArrayList(-2L), null);
+        ZigZagListObject data = ZigZagListObject.valueOf(Lists.newArrayList(-5, 7), Lists.newArrayList(-1L, 1L), nested);
+
+        byte[] bytes = codec.encode(data);
+        Assert.assertEquals(bytes.length, codec.size(data));
+
+        ZigZagListObject decoded = codec.decode(bytes);
+        Assert.assertEquals(data.getSint32s(), decoded.getSint32s());
+        Assert.assertEquals(data.getSint64s(), decoded.getSint64s());
+        Assert.assertEquals(nested.getSint32s(), decoded.getNested().getSint32s());
+        Assert.assertEquals(nested.getSint64s(), decoded.getNested().getSint64s());
+    }
+
+    /**
+     * test encode does not check required fields of nested message, while size does
+     * @throws IOException
+     */
+    @Test
+    public void testNestedRequiredNotChecked() throws IOException {
+        Codec<RequiredOuterObject> codec = ProtobufProxy.create(RequiredOuterObject.class);
+        RequiredInnerObject inner = new RequiredInnerObject();
+        inner.setId(1);
+
+        Assert.assertEquals(4, codec.encode(RequiredOuterObject.valueOf(inner, null)).length);
+        RequiredOuterObject data = RequiredOuterObject.valueOf(inner, "a");
+        byte[] bytes = codec.encode(data);
+        Assert.assertEquals(7, bytes.length);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(baos);
+        codec.writeTo(data, output);
+        output.flush();
+        Assert.assertArrayEquals(bytes, baos.toByteArray());
+
+        RequiredOuterObject decoded = codec.decode(bytes);
+        Assert.assertEquals("a", decoded.getRoot());
+        Assert.assertEquals(Integer.valueOf(1), decoded.getInner().getId());
+        Assert.assertNull(decoded.getInner().getName());
+
+        try {
+            codec.size(data);
+            Assert.fail("size should check required fields of nested message");
+        } catch (UninitializedMessageException e) {
+            Assert.assertTrue(e.getMessage().contains("name"));
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package com.baidu.bjf.remoting.protobuf.computeSize;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+import java.util.List;
+
+/***
+ * zigzag encoded list object with nested message
+ */
+public class ZigZagListObject {
+
+	@Protobuf(fieldType = FieldType.SINT32, order = 1)
+	private List<Integer> sint32s;
+
+	@Protobuf(fieldType = FieldType.SINT64, order = 2)
+	private List<Long> sint64s;
+
+	@Protobuf(fieldType = FieldType.OBJECT, order = 3)
+	private ZigZagListObject nested;
+
+	public static ZigZagListObject valueOf(List<Integer> sint32s, List<Long> sint64s, ZigZagListObject nested){
+		ZigZagListObject data = new ZigZagListObject();
+		data.sint32s = sint32s;
+		data.sint64s = sint64s;
+		data.nested = nested;
+		return data;
+	}
+
+	public List<Integer> getSint32s() {
+		return sint32s;
+	}
+
+	public void setSint32s(List<Integer> sint32s) {
+		this.sint32s = sint32s;
+	}
+
+	public List<Long> getSint64s() {
+		return sint64s;
+	}
+
+	public void setSint64s(List<Long> sint64s) {
+		this.sint64s = sint64s;
+	}
+
+	public ZigZagListObject getNested() {
+		return nested;
+	}
+
+	public void setNested(ZigZagListObject nested) {
+		this.nested = nested;
+	}
+}
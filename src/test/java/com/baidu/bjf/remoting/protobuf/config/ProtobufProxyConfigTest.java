@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxyConfig;
+import com.baidu.bjf.remoting.protobuf.config.ConfigOuterPOJO.ConfigInnerPOJO;
+
+/**
+ * Test {@link ProtobufProxyConfig} captured from settings of {@link ProtobufProxy}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class ProtobufProxyConfigTest {
+
+    @Test
+    public void testSnapshot() {
+        ProtobufProxyConfig config = ProtobufProxy.getConfig();
+        Assert.assertTrue(config.isCacheEnabled());
+        Assert.assertNull(config.getOutputPath());
+        Assert.assertSame(ProtobufProxyConfig.DEFAULT, config);
+
+        ProtobufProxy.enableCache(false);
+        try {
+            config = ProtobufProxy.getConfig();
+        } finally {
+            ProtobufProxy.enableCache(true);
+        }
+        Assert.assertFalse(config.isCacheEnabled());
+        Assert.assertTrue(ProtobufProxy.getConfig().isCacheEnabled());
+
+        File path = new File(".");
+        config = ProtobufProxyConfig.of(true, path);
+        Assert.assertTrue(config.isDebug());
+        Assert.assertTrue(config.isCacheEnabled());
+        Assert.assertSame(path, config.getOutputPath());
+    }
+
+    @Test
+    public void testCreateByConfig() throws IOException {
+        Codec<ConfigInnerPOJO> codec = ProtobufProxy.create(ConfigInnerPOJO.class);
+        Assert.assertSame(codec, ProtobufProxy.create(ConfigInnerPOJO.class, ProtobufProxyConfig.DEFAULT));
+
+        // cache disabled by config only applies to this creation
+        Codec<ConfigInnerPOJO> uncached = ProtobufProxy.create(ConfigInnerPOJO.class,
+                new ProtobufProxyConfig(false, false, null));
+        Assert.assertNotSame(codec, uncached);
+        Assert.assertTrue(ProtobufProxy.isCacheEnabled());
+
+        ConfigInnerPOJO pojo = new ConfigInnerPOJO();
+        pojo.id = 10;
+        pojo.value = "hello";
+        ConfigInnerPOJO decoded = uncached.decode(codec.encode(pojo));
+        Assert.assertEquals(pojo.id, decoded.id);
+        Assert.assertEquals(pojo.value, decoded.value);
+    }
+
+    @Test
+    public void testConfigCapturedOnCacheMiss() throws Exception {
+        ProtobufProxyConfig config = new ProtobufProxyConfig(false, false, null);
+        Boolean cacheEnabled = ProtobufProxy.CACHE_ENABLED.get();
+        Codec<ConfigOuterPOJO> codec = ProtobufProxy.create(ConfigOuterPOJO.class, config);
+
+        // built with the config argument itself, settings of current thread are not involved
+        Field field = codec.getClass().getDeclaredField("config");
+        field.setAccessible(true);
+        Assert.assertSame(config, field.get(codec));
+        Assert.assertSame(cacheEnabled, ProtobufProxy.CACHE_ENABLED.get());
+        Assert.assertNotSame(codec, ProtobufProxy.create(ConfigOuterPOJO.class, config));
+
+        ConfigOuterPOJO pojo = newOuter();
+        assertOuter(pojo, codec.decode(codec.encode(pojo)));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullConfig() {
+        ProtobufProxy.create(ConfigInnerPOJO.class, (ProtobufProxyConfig) null);
+    }
+
+    @Test
+    public void testNestedWithCacheDisabled() throws IOException, ClassNotFoundException {
+        Codec<ConfigOuterPOJO> codec = ProtobufProxy.create(ConfigOuterPOJO.class);
+        ConfigOuterPOJO pojo = newOuter();
+
+        // nested codecs are looked up by config captured when codec was built, not by settings of current thread
+        ProtobufProxy.enableCache(false);
+        byte[] bytes;
+        ConfigOuterPOJO decoded;
+        try {
+            bytes = codec.encode(pojo);
+            decoded = codec.decode(bytes);
+        } finally {
+            ProtobufProxy.enableCache(true);
+        }
+        assertOuter(pojo, decoded);
+
+        // config is kept along with serialized codec
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(codec);
+        oos.close();
+        final ClassLoader loader = codec.getClass().getClassLoader();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                return Class.forName(desc.getName(), false, loader);
+            }
+        };
+        @SuppressWarnings("unchecked")
+        Codec<ConfigOuterPOJO> copy = (Codec<ConfigOuterPOJO>) ois.readObject();
+        assertOuter(pojo, copy.decode(bytes));
+        Assert.assertArrayEquals(bytes, copy.encode(pojo));
+    }
+
+    private ConfigOuterPOJO newOuter() {
+        ConfigOuterPOJO pojo = new ConfigOuterPOJO();
+        pojo.name = "outer";
+        pojo.inner = new ConfigInnerPOJO();
+        pojo.inner.id = 1;
+        pojo.inner.value = "a";
+        pojo.list = new ArrayList<ConfigInnerPOJO>();
+        for (int i = 0; i < 3; i++) {
+            ConfigInnerPOJO inner = new ConfigInnerPOJO();
+            inner.id = i + 2;
+            inner.value = "v" + i;
+            pojo.list.add(inner);
+        }
+        return pojo;
+    }
+
+    private void assertOuter(ConfigOuterPOJO expected, ConfigOuterPOJO actual) {
+        Assert.assertEquals(expected.name, actual.name);
+        Assert.assertEquals(expected.inner.id, actual.inner.id);
+        Assert.assertEquals(expected.inner.value, actual.inner.value);
+        Assert.assertEquals(expected.list.size(), actual.list.size());
+        for (int i = 0; i < expected.list.size(); i++) {
+            Assert.assertEquals(expected.list.get(i).id, actual.list.get(i).id);
+            Assert.assertEquals(expected.list.get(i).value, actual.list.get(i).value);
+        }
+    }
+}
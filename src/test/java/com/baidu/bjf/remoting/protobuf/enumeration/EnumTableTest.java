@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.enumeration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.EnumReadable;
+import com.baidu.bjf.remoting.protobuf.code.EnumTable;
+
+/**
+ * Test {@link EnumTable} lookup of dense and sparse enum values.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class EnumTableTest {
+
+    /**
+     * Enum with sparse and negative values.
+     */
+    enum SparseEnum implements EnumReadable {
+        NEGATIVE(-5), LARGE(1 << 20), ZERO(0), SAME_AS_ZERO(0), MAX(Integer.MAX_VALUE);
+
+        private final int value;
+
+        SparseEnum(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int value() {
+            return value;
+        }
+    }
+
+    /**
+     * Enum without constant.
+     */
+    enum EmptyEnum {
+    }
+
+    @Test
+    public void testDense() {
+        EnumTable<TestEnum> table = EnumTable.of(TestEnum.class);
+        Assert.assertSame(TestEnum.A_TYPE, table.get(1));
+        Assert.assertSame(TestEnum.C_TYPE, table.get(3));
+        Assert.assertNull(table.get(0));
+        Assert.assertNull(table.get(4));
+        Assert.assertNull(table.get(-1));
+        Assert.assertSame(TestEnum.A_TYPE, table.first());
+    }
+
+    @Test
+    public void testSparse() {
+        EnumTable<SparseEnum> table = EnumTable.of(SparseEnum.class);
+        for (SparseEnum e : new SparseEnum[] { SparseEnum.NEGATIVE, SparseEnum.LARGE, SparseEnum.MAX }) {
+            Assert.assertSame(e, table.get(e.value()));
+        }
+        // first declared constant wins for duplicated value
+        Assert.assertSame(SparseEnum.ZERO, table.get(0));
+        Assert.assertNull(table.get(1));
+        Assert.assertNull(table.get(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testEmpty() {
+        EnumTable<EmptyEnum> table = EnumTable.of(EmptyEnum.class);
+        Assert.assertNull(table.get(0));
+        Assert.assertNull(table.first());
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.fatjar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.utils.compiler.JdkCompiler;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.NestedJarFileManager;
+
+/**
+ * Test classes of spring boot style fat jar served to java compiler by {@link NestedJarFileManager}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class NestedJarFileManagerTest {
+
+    private static final Charset UTF_8 = Charset.forName("utf-8");
+
+    private File dir;
+
+    private File appJar;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = new File(System.getProperty("java.io.tmpdir"), "jprotobuf-fatjar-" + System.nanoTime());
+        File depClasses = compile("fatapp/Dep.java", "package fatapp;\npublic class Dep {\n"
+                + "    public static String name() { return \"dep\"; }\n}\n", null);
+        File otherClasses = compile("fatapp/other/Other.java", "package fatapp.other;\npublic class Other {\n}\n", null);
+        File appClasses = compile("fatapp/model/AppModel.java", "package fatapp.model;\npublic class AppModel {\n"
+                + "    public String value() { return fatapp.Dep.name(); }\n}\n", depClasses);
+
+        File depJar = jar(new File(dir, "dep.jar"), depClasses, "");
+        File otherJar = jar(new File(dir, "other.jar"), otherClasses, "");
+        appJar = new File(dir, "app.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(appJar));
+        try {
+            addEntries(out, appClasses, NestedJarFileManager.BOOT_INF_CLASSES);
+            addEntry(out, NestedJarFileManager.BOOT_INF_LIB + depJar.getName(), depJar);
+            addEntry(out, NestedJarFileManager.BOOT_INF_LIB + otherJar.getName(), otherJar);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testList() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, UTF_8);
+        NestedJarFileManager manager = new NestedJarFileManager(standard, appJar,
+                Collections.singleton("dep.jar"), new FatJarClassLoader(new URL[0], appJar));
+        try {
+            Set<Kind> kinds = EnumSet.of(Kind.CLASS);
+            Assert.assertEquals(Collections.singleton("fatapp.Dep"),
+                    binaryNames(manager, manager.list(StandardLocation.CLASS_PATH, "fatapp", kinds, false)));
+            Assert.assertEquals(Collections.singleton("fatapp.model.AppModel"),
+                    binaryNames(manager, manager.list(StandardLocation.CLASS_PATH, "fatapp.model", kinds, false)));
+            Assert.assertEquals(new HashSet<String>(Arrays.asList("fatapp.Dep", "fatapp.model.AppModel")),
+                    binaryNames(manager, manager.list(StandardLocation.CLASS_PATH, "fatapp", kinds, true)));
+
+            // other.jar is not on class path of the class loader
+            Assert.assertFalse(
+                    manager.list(StandardLocation.CLASS_PATH, "fatapp.other", kinds, false).iterator().hasNext());
+            Assert.assertNull(manager.getJavaFileForInput(StandardLocation.CLASS_PATH, "fatapp.other.Other",
+                    Kind.CLASS));
+
+            JavaFileObject file =
+                    manager.getJavaFileForInput(StandardLocation.CLASS_PATH, "fatapp.model.AppModel", Kind.CLASS);
+            Assert.assertNotNull(file);
+            Assert.assertTrue(file.isNameCompatible("AppModel", Kind.CLASS));
+            Assert.assertArrayEquals(
+                    FileUtils.readFileToByteArray(new File(dir, "classes2/fatapp/model/AppModel.class")),
+                    read(file));
+
+            file = manager.getJavaFileForInput(StandardLocation.CLASS_PATH, "fatapp.Dep", Kind.CLASS);
+            Assert.assertArrayEquals(FileUtils.readFileToByteArray(new File(dir, "classes0/fatapp/Dep.class")),
+                    read(file));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        List<URL> urls = new ArrayList<URL>();
+        urls.add(new URL("jar:" + appJar.toURI() + "!/BOOT-INF/classes!/"));
+        urls.add(new URL("jar:" + appJar.toURI() + "!/BOOT-INF/lib/dep.jar!/"));
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            urls.add(new File(path).toURI().toURL());
+        }
+        FatJarClassLoader loader = new FatJarClassLoader(urls.toArray(new URL[urls.size()]), appJar);
+
+        // classes in fat jar are resolved by java compiler without extracting it
+        JdkCompiler compiler = new JdkCompiler(loader);
+        String code = "package fatgen;\npublic class UseApp {\n"
+                + "    public String value() { return new fatapp.model.AppModel().value() + fatapp.Dep.name(); }\n"
+                + "}\n";
+        Class<?> cls = compiler.compile("fatgen.UseApp", code, loader, null, -1);
+        Object value = cls.getMethod("value").invoke(cls.newInstance());
+        Assert.assertEquals("depdep", value);
+    }
+
+    private Set<String> binaryNames(NestedJarFileManager manager, Iterable<JavaFileObject> files) {
+        Set<String> names = new HashSet<String>();
+        for (JavaFileObject file : files) {
+            names.add(manager.inferBinaryName(StandardLocation.CLASS_PATH, file));
+        }
+        return names;
+    }
+
+    private byte[] read(JavaFileObject file) throws IOException {
+        InputStream in = file.openInputStream();
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private int compiled;
+
+    private File compile(String path, String code, File classPath) throws IOException {
+        File file = new File(dir, "src" + compiled + "/" + path);
+        FileUtils.writeStringToFile(file, code, UTF_8);
+        File classes = new File(dir, "classes" + compiled++);
+        classes.mkdirs();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> args = new ArrayList<String>(Arrays.asList("-nowarn", "-d", classes.getPath()));
+        if (classPath != null) {
+            args.addAll(Arrays.asList("-cp", classPath.getPath()));
+        }
+        args.add(file.getPath());
+        Assert.assertEquals(0, compiler.run(null, null, null, args.toArray(new String[args.size()])));
+        return classes;
+    }
+
+    private File jar(File jar, File classes, String prefix) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            addEntries(out, classes, prefix);
+        } finally {
+            out.close();
+        }
+        return jar;
+    }
+
+    private void addEntries(ZipOutputStream out, File classes, String prefix) throws IOException {
+        for (File file : FileUtils.listFiles(classes, null, true)) {
+            String name = classes.toURI().relativize(file.toURI()).getPath();
+            addEntry(out, prefix + name, file);
+        }
+    }
+
+    private void addEntry(ZipOutputStream out, String name, File file) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        InputStream in = new FileInputStream(file);
+        try {
+            IOUtils.copy(in, out);
+        } finally {
+            in.close();
+        }
+        out.closeEntry();
+    }
+
+    /**
+     * Class loader of fat jar which reads classes from entries of the application jar and its nested jars.
+     */
+    private static class FatJarClassLoader extends URLClassLoader {
+
+        private final File appJar;
+
+        FatJarClassLoader(URL[] urls, File appJar) {
+            super(urls, NestedJarFileManagerTest.class.getClassLoader());
+            this.appJar = appJar;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            InputStream in = getResourceAsStream(name.replace('.', '/') + ".class");
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                byte[] bytes = IOUtils.toByteArray(in);
+                in.close();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            try {
+                ZipFile zip = new ZipFile(appJar);
+                try {
+                    ZipEntry entry = zip.getEntry(NestedJarFileManager.BOOT_INF_CLASSES + name);
+                    if (entry != null) {
+                        return new ByteArrayInputStream(IOUtils.toByteArray(zip.getInputStream(entry)));
+                    }
+                    entry = zip.getEntry(NestedJarFileManager.BOOT_INF_LIB + "dep.jar");
+                    ZipInputStream in = new ZipInputStream(zip.getInputStream(entry));
+                    ZipEntry nested;
+                    while ((nested = in.getNextEntry()) != null) {
+                        if (nested.getName().equals(name)) {
+                            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            IOUtils.copy(in, bytes);
+                            return new ByteArrayInputStream(bytes.toByteArray());
+                        }
+                    }
+                } finally {
+                    zip.close();
+                }
+            } catch (IOException e) {
+                return null;
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.fieldaccess;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.utils.FieldUtils;
+
+/**
+ * Test private field access through bound getter and setter handles.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class FieldAccessTest {
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        FieldAccessPOJO pojo = new FieldAccessPOJO();
+        FieldUtils.setField(pojo, "baseName", "base");
+        FieldUtils.setField(pojo, "name", "hello");
+        FieldUtils.setField(pojo, "count", 100);
+        FieldUtils.setField(pojo, "total", Long.MAX_VALUE);
+        FieldUtils.setField(pojo, "values", Arrays.asList(1, -2, 3));
+        FieldUtils.setField(pojo, "tags", Collections.singletonMap("a", 1L));
+
+        Codec<FieldAccessPOJO> codec = ProtobufProxy.create(FieldAccessPOJO.class, false);
+        FieldAccessPOJO decode = codec.decode(codec.encode(pojo));
+
+        String[] names = { "baseName", "name", "count", "total", "values", "tags" };
+        for (String name : names) {
+            Assert.assertEquals(name, FieldUtils.getField(pojo, name), FieldUtils.getField(decode, name));
+        }
+    }
+
+    @Test
+    public void testFieldHandle() {
+        FieldAccessPOJO pojo = new FieldAccessPOJO();
+        MethodHandle setter = FieldUtils.findSetter(FieldAccessPOJO.class, "count");
+        MethodHandle getter = FieldUtils.findGetter(FieldAccessPOJO.class, "count");
+        FieldUtils.setField(setter, pojo, 5);
+        Assert.assertEquals(5, FieldUtils.getField(getter, pojo));
+
+        // inherited field
+        setter = FieldUtils.findSetter(FieldAccessPOJO.class, "baseName");
+        getter = FieldUtils.findGetter(FieldAccessPOJO.class, "baseName");
+        FieldUtils.setField(setter, pojo, "base");
+        Assert.assertEquals("base", FieldUtils.getField(getter, pojo));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFieldNotFound() {
+        FieldUtils.findGetter(FieldAccessPOJO.class, "notExist");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.idlproxy;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.IDLProxyHandle;
+import com.baidu.bjf.remoting.protobuf.IDLProxyObject;
+import com.baidu.bjf.remoting.protobuf.ProtobufIDLProxy;
+
+/**
+ * Test classes of closed {@link IDLProxyHandle} are unloaded and metaspace does not grow with proxies created.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class IDLProxyHandlePressureTest {
+
+    /**
+     * Handles created, each compiles its own classes. The test is skipped unless it is set, e.g.
+     * -Djprotobuf.test.idlHandles=100 for a quick run, or 10000 for a full pressure run which takes minutes.
+     */
+    Integer times = Integer.getInteger("jprotobuf.test.idlHandles");
+
+    /** Classes allowed to stay loaded, e.g. loaded lazily by JDK, regardless of handles created. */
+    int maxLoadedGrowth = 100;
+
+    /** Metaspace allowed to grow after all proxies created, each proxy defines four classes. */
+    long maxMetaspaceGrowth = 32L * 1024 * 1024;
+
+    @Test
+    public void testMetaspace() throws Exception {
+        Assume.assumeTrue("set -Djprotobuf.test.idlHandles to run", times != null);
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+        // warm up
+        for (int i = 0; i < 20; i++) {
+            createAndClose(i);
+        }
+        gc();
+        long loaded = classLoading.getLoadedClassCount();
+        long unloaded = classLoading.getUnloadedClassCount();
+        long metaspace = getMetaspaceUsed();
+
+        for (int i = 0; i < times; i++) {
+            createAndClose(i);
+        }
+        gc();
+
+        long unloadedGrowth = classLoading.getUnloadedClassCount() - unloaded;
+        long loadedGrowth = classLoading.getLoadedClassCount() - loaded;
+        long metaspaceGrowth = getMetaspaceUsed() - metaspace;
+        Assert.assertTrue("unloaded " + unloadedGrowth, unloadedGrowth >= times);
+        Assert.assertTrue("loaded " + loadedGrowth, loadedGrowth < times / 10 + maxLoadedGrowth);
+        Assert.assertTrue("metaspace " + metaspaceGrowth, metaspaceGrowth < maxMetaspaceGrowth);
+    }
+
+    private void createAndClose(int i) throws Exception {
+        IDLProxyHandle handle = ProtobufIDLProxy.createHandle(IDLProxyHandleTest.PROTO_CONTENT);
+        try {
+            IDLProxyObject object = handle.getProxyObject("Person");
+            object.put("name", "hello" + i);
+            object.put("address.city", "beijing");
+
+            IDLProxyObject newObject = object.decode(object.encode());
+            Assert.assertEquals("hello" + i, newObject.get("name"));
+            Assert.assertEquals("beijing", newObject.get("address.city"));
+        } finally {
+            handle.close();
+        }
+    }
+
+    private void gc() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+    }
+
+    private long getMetaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+}
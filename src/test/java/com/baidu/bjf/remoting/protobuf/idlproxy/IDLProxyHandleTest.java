@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.idlproxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.IDLProxyHandle;
+import com.baidu.bjf.remoting.protobuf.IDLProxyObject;
+import com.baidu.bjf.remoting.protobuf.ProtobufIDLProxy;
+
+/**
+ * Test class for {@link IDLProxyHandle}
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class IDLProxyHandleTest {
+
+    static final String PROTO_CONTENT = "package mypackage.handle; "
+            + "message Person { "
+            + "  required string name = 1;"
+            + "  optional Address address = 2;"
+            + "  message Address { optional string city = 1; } }";
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        IDLProxyHandle handle = ProtobufIDLProxy.createHandle(PROTO_CONTENT);
+        try {
+            IDLProxyObject object = handle.getProxyObject("Person");
+            object.put("name", "hello");
+            object.put("address.city", "beijing");
+
+            IDLProxyObject newObject = object.decode(object.encode());
+            Assert.assertEquals("hello", newObject.get("name"));
+            Assert.assertEquals("beijing", newObject.get("address.city"));
+        } finally {
+            handle.close();
+        }
+    }
+
+    @Test
+    public void testIsolated() throws Exception {
+        IDLProxyHandle handle1 = ProtobufIDLProxy.createHandle(PROTO_CONTENT);
+        IDLProxyHandle handle2 = ProtobufIDLProxy.createHandle(PROTO_CONTENT);
+        try {
+            // same class names are defined by class loader of each handle
+            Class<?> cls1 = handle1.getProxyObject("Person").newInstnace().getTarget().getClass();
+            Class<?> cls2 = handle2.getProxyObject("Person").newInstnace().getTarget().getClass();
+            Assert.assertEquals(cls1.getName(), cls2.getName());
+            Assert.assertNotSame(cls1, cls2);
+        } finally {
+            handle1.close();
+            handle2.close();
+        }
+    }
+
+    @Test
+    public void testClose() {
+        IDLProxyHandle handle = ProtobufIDLProxy.createHandle(PROTO_CONTENT);
+        Assert.assertFalse(handle.isClosed());
+        handle.close();
+        Assert.assertTrue(handle.isClosed());
+        try {
+            handle.getProxyObjects();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testProxyObjectUsableAfterClose() throws Exception {
+        IDLProxyHandle handle = ProtobufIDLProxy.createHandle(PROTO_CONTENT);
+        IDLProxyObject object = handle.getProxyObject("Person");
+        handle.close();
+
+        // close does not invalidate proxy objects got before, they keep classes of the handle loaded
+        object.put("name", "hello");
+        IDLProxyObject newObject = object.decode(object.encode());
+        Assert.assertEquals("hello", newObject.get("name"));
+    }
+}
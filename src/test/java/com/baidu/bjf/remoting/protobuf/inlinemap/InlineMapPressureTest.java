@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.inlinemap;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * Performance test for encode and decode of large map fields.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class InlineMapPressureTest {
+    int times = 200;
+
+    int count = 20000;
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        InlineMapPOJO pojo = new InlineMapPOJO();
+        pojo.tablets = new HashMap<Long, Long>(count * 2);
+        for (int i = 0; i < count; i++) {
+            pojo.tablets.put(10000000L + i * 31L, (long) i);
+        }
+        Codec<InlineMapPOJO> codec = ProtobufProxy.create(InlineMapPOJO.class);
+        // warm up
+        byte[] bb = null;
+        for (int i = 0; i < times; i++) {
+            bb = codec.encode(pojo);
+            codec.decode(bb);
+        }
+
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < times; i++) {
+            bb = codec.encode(pojo);
+        }
+        System.out.println("map encode total time:" + (System.currentTimeMillis() - time) + " ms for " + times
+                + " times");
+
+        time = System.currentTimeMillis();
+        Map<Long, Long> tablets = null;
+        for (int i = 0; i < times; i++) {
+            tablets = codec.decode(bb).tablets;
+        }
+        System.out.println("map decode total time:" + (System.currentTimeMillis() - time) + " ms for " + times
+                + " times");
+        Assert.assertEquals(pojo.tablets, tablets);
+    }
+}
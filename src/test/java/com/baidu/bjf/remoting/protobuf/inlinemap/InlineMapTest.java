@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.inlinemap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.CodedConstant;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Test map fields encoded inline have the same result as map entry messages.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class InlineMapTest {
+
+    private InlineMapPOJO create() {
+        InlineMapPOJO pojo = new InlineMapPOJO();
+        pojo.names = new LinkedHashMap<Long, String>();
+        pojo.names.put(1L, "a");
+        pojo.names.put(-1L, "");
+        pojo.names.put(Long.MAX_VALUE, "中文");
+        pojo.tablets = new LinkedHashMap<Long, Long>();
+        pojo.tablets.put(10001L, 20002L);
+        pojo.tablets.put(0L, 0L);
+        return pojo;
+    }
+
+    @Test
+    public void testEncodeSameAsMapEntry() throws IOException {
+        Codec<InlineMapPOJO> codec = ProtobufProxy.create(InlineMapPOJO.class);
+        InlineMapPOJO pojo = create();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        CodedConstant.writeToMap(output, 1, pojo.names, WireFormat.FieldType.INT64, 0L, WireFormat.FieldType.STRING,
+                "");
+        CodedConstant.writeToMap(output, 2, pojo.tablets, WireFormat.FieldType.INT64, 0L,
+                WireFormat.FieldType.INT64, 0L);
+        output.flush();
+
+        byte[] data = codec.encode(pojo);
+        Assert.assertArrayEquals(bytes.toByteArray(), data);
+        Assert.assertEquals(codec.size(pojo), data.length);
+    }
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        Codec<InlineMapPOJO> codec = ProtobufProxy.create(InlineMapPOJO.class);
+        InlineMapPOJO pojo = create();
+        pojo.values = new LinkedHashMap<String, InlineMapValuePOJO>();
+        pojo.values.put("x", new InlineMapValuePOJO(1, "one"));
+        pojo.values.put("y", new InlineMapValuePOJO());
+
+        InlineMapPOJO decoded = codec.decode(codec.encode(pojo));
+        Assert.assertEquals(pojo.names, decoded.names);
+        Assert.assertEquals(pojo.tablets, decoded.tablets);
+        Assert.assertEquals(2, decoded.values.size());
+        Assert.assertEquals("one", decoded.values.get("x").name);
+        Assert.assertNull(decoded.values.get("y").name);
+    }
+
+    @Test
+    public void testDecodeDefaultKeyValue() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        // entry without key
+        output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(CodedOutputStream.computeStringSize(2, "v"));
+        output.writeString(2, "v");
+        // entry without value and unknown field
+        output.writeTag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(CodedOutputStream.computeInt64Size(1, 5L) + CodedOutputStream.computeInt32Size(9, 1));
+        output.writeInt64(1, 5L);
+        output.writeInt32(9, 1);
+        output.flush();
+
+        InlineMapPOJO decoded = ProtobufProxy.create(InlineMapPOJO.class).decode(bytes.toByteArray());
+        Assert.assertEquals("v", decoded.names.get(0L));
+        Assert.assertEquals(Long.valueOf(0L), decoded.tablets.get(5L));
+    }
+
+    @Test
+    public void testNestedMessageValues() throws IOException {
+        Codec<InlineMapCountedPOJO> codec = ProtobufProxy.create(InlineMapCountedPOJO.class);
+        InlineMapCountedPOJO pojo = new InlineMapCountedPOJO();
+        pojo.values = new LinkedHashMap<Integer, InlineMapCountedValuePOJO>();
+        for (int i = 0; i < 5; i++) {
+            pojo.values.put(i, new InlineMapCountedValuePOJO(i % 2 == 0 ? "v" + i : null,
+                    i % 3 == 0 ? null : new InlineMapValuePOJO(i, "child" + i)));
+        }
+        pojo.name = "nested";
+
+        byte[] bytes = codec.encode(pojo);
+        Assert.assertEquals(codec.size(pojo), bytes.length);
+        InlineMapCountedPOJO decoded = codec.decode(bytes);
+        Assert.assertEquals(5, decoded.values.size());
+        for (int i = 0; i < 5; i++) {
+            InlineMapCountedValuePOJO value = decoded.values.get(i);
+            Assert.assertEquals(pojo.values.get(i).name, value.name);
+            if (i % 3 == 0) {
+                Assert.assertNull(value.child);
+            } else {
+                Assert.assertEquals("child" + i, value.child.name);
+            }
+        }
+        Assert.assertEquals("nested", decoded.name);
+    }
+
+    @Test
+    public void testDecodeDefaultValueCreatedOnlyIfAbsent() throws IOException {
+        Codec<InlineMapCountedPOJO> codec = ProtobufProxy.create(InlineMapCountedPOJO.class);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        // three entries with value, the last one without value
+        for (int i = 1; i <= 4; i++) {
+            int valueSize = i < 4 ? CodedOutputStream.computeStringSize(1, "v") : 0;
+            int entrySize = CodedOutputStream.computeInt32Size(1, i) + (i < 4
+                    ? CodedOutputStream.computeTagSize(2) + CodedOutputStream.computeUInt32SizeNoTag(valueSize)
+                            + valueSize
+                    : 0);
+            output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(entrySize);
+            output.writeInt32(1, i);
+            if (i < 4) {
+                output.writeTag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(valueSize);
+                output.writeString(1, "v");
+            }
+        }
+        output.flush();
+
+        int before = InlineMapCountedValuePOJO.INSTANCES.get();
+        InlineMapCountedPOJO decoded = codec.decode(bytes.toByteArray());
+        Assert.assertEquals(4, InlineMapCountedValuePOJO.INSTANCES.get() - before);
+        Assert.assertEquals("v", decoded.values.get(3).name);
+        Assert.assertNull(decoded.values.get(4).name);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.jit;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.CodecWarmer;
+import com.baidu.bjf.remoting.protobuf.complexList.AddressBookProtosPOJO;
+import com.baidu.bjf.remoting.protobuf.inlinemap.InlineMapPOJO;
+import com.baidu.bjf.remoting.protobuf.primitivearray.PrimitiveArrayPOJO;
+
+/**
+ * Test just in time compilation warm up of codecs by {@link CodecWarmer}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class CodecWarmerTest {
+
+    @Test
+    public void testNewSample() throws IOException {
+        Random random = new Random(1);
+        boolean filled = false;
+        for (int i = 0; i < 10; i++) {
+            AddressBookProtosPOJO pojo = CodecWarmer.newSample(AddressBookProtosPOJO.class, random);
+            Assert.assertNotNull(pojo.getList());
+            filled |= !pojo.getList().isEmpty();
+
+            Codec<AddressBookProtosPOJO> codec = ProtobufProxy.create(AddressBookProtosPOJO.class);
+            byte[] bytes = codec.encode(pojo);
+            Assert.assertEquals(bytes.length, codec.encode(codec.decode(bytes)).length);
+        }
+        Assert.assertTrue(filled);
+
+        InlineMapPOJO pojo = CodecWarmer.newSample(InlineMapPOJO.class, random);
+        Assert.assertNotNull(pojo.values);
+    }
+
+    @Test
+    public void testWarm() {
+        Map<Class<?>, Codec<?>> codecs = new LinkedHashMap<Class<?>, Codec<?>>();
+        codecs.put(AddressBookProtosPOJO.class, ProtobufProxy.create(AddressBookProtosPOJO.class));
+        codecs.put(InlineMapPOJO.class, ProtobufProxy.create(InlineMapPOJO.class));
+        codecs.put(PrimitiveArrayPOJO.class, ProtobufProxy.create(PrimitiveArrayPOJO.class));
+
+        Set<Class<?>> warmed = CodecWarmer.warm(codecs, 1000, 60000L);
+        Assert.assertEquals(codecs.keySet(), warmed);
+    }
+
+    @Test
+    public void testBudget() {
+        Map<Class<?>, Codec<?>> codecs = Collections.<Class<?>, Codec<?>> singletonMap(AddressBookProtosPOJO.class,
+                ProtobufProxy.create(AddressBookProtosPOJO.class));
+
+        long time = System.currentTimeMillis();
+        Set<Class<?>> warmed = CodecWarmer.warm(codecs, Integer.MAX_VALUE, 100L);
+        Assert.assertTrue(warmed.isEmpty());
+        Assert.assertTrue(System.currentTimeMillis() - time < 5000L);
+    }
+
+    @Test
+    public void testWarmUpJit() {
+        Set<Class<?>> warmed = ProtobufProxy
+                .warmUpJit(Arrays.<Class<?>> asList(InlineMapPOJO.class, PrimitiveArrayPOJO.class), 1000, 10000L);
+        Assert.assertEquals(2, warmed.size());
+        Assert.assertTrue(warmed.contains(InlineMapPOJO.class));
+        Assert.assertTrue(warmed.contains(PrimitiveArrayPOJO.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIterations() {
+        CodecWarmer.warm(Collections.<Class<?>, Codec<?>> emptyMap(), 0, 1000L);
+    }
+}
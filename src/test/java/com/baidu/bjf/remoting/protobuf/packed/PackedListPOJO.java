@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.packed;
+
+import java.util.List;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/**
+ * POJO with packed repeated fields, field numbers are the same as
+ * {@link com.baidu.bjf.remoting.protobuf.simplerepeat.RepeatedScalarDescriptors}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class PackedListPOJO {
+
+    @Protobuf(fieldType = FieldType.INT32, order = 1)
+    public List<Integer> int32F;
+
+    @Protobuf(fieldType = FieldType.SINT64, order = 6)
+    public List<Long> sint64F;
+
+    @Protobuf(fieldType = FieldType.FIXED32, order = 7)
+    public List<Integer> fixed32F;
+
+    @Protobuf(fieldType = FieldType.DOUBLE, order = 12)
+    public List<Double> doubleF;
+
+    @Protobuf(fieldType = FieldType.BOOL, order = 13)
+    public List<Boolean> boolF;
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.packed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.CodedConstant;
+import com.baidu.bjf.remoting.protobuf.simplerepeat.RepeatedScalarDescriptors;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * Test packed repeated fields written without a temporary buffer have the same size and bytes as protobuf-java.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class PackedListTest {
+
+    private static final Descriptor DESCRIPTOR = RepeatedScalarDescriptors.getDescriptor(true);
+
+    private PackedListPOJO newPOJO(int count) {
+        PackedListPOJO pojo = new PackedListPOJO();
+        pojo.int32F = new ArrayList<Integer>();
+        pojo.sint64F = new ArrayList<Long>();
+        pojo.fixed32F = new ArrayList<Integer>();
+        pojo.doubleF = new ArrayList<Double>();
+        pojo.boolF = new ArrayList<Boolean>();
+        for (int i = 0; i < count; i++) {
+            pojo.int32F.add(i % 3 == 0 ? -i : i * 1000);
+            pojo.sint64F.add(i % 2 == 0 ? -(1L << i % 63) : 1L << i % 63);
+            pojo.fixed32F.add(i * 31);
+            pojo.doubleF.add(i / 3d);
+            pojo.boolF.add(i % 2 == 0);
+        }
+        return pojo;
+    }
+
+    private DynamicMessage toMessage(PackedListPOJO pojo) {
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(DESCRIPTOR);
+        addAll(builder, 1, pojo.int32F);
+        addAll(builder, 6, pojo.sint64F);
+        addAll(builder, 7, pojo.fixed32F);
+        addAll(builder, 12, pojo.doubleF);
+        addAll(builder, 13, pojo.boolF);
+        return builder.build();
+    }
+
+    private static void addAll(DynamicMessage.Builder builder, int number, List<?> values) {
+        for (Object value : values) {
+            builder.addRepeatedField(DESCRIPTOR.findFieldByNumber(number), value);
+        }
+    }
+
+    private void assertSameAsProtobuf(PackedListPOJO pojo) throws IOException {
+        Codec<PackedListPOJO> codec = ProtobufProxy.create(PackedListPOJO.class);
+        DynamicMessage message = toMessage(pojo);
+
+        byte[] bytes = codec.encode(pojo);
+        Assert.assertArrayEquals(message.toByteArray(), bytes);
+        Assert.assertEquals(message.getSerializedSize(), codec.size(pojo));
+
+        PackedListPOJO decoded = codec.decode(bytes);
+        Assert.assertEquals(pojo.int32F, decoded.int32F);
+        Assert.assertEquals(pojo.sint64F, decoded.sint64F);
+        Assert.assertEquals(pojo.fixed32F, decoded.fixed32F);
+        Assert.assertEquals(pojo.doubleF, decoded.doubleF);
+        Assert.assertEquals(pojo.boolF, decoded.boolF);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        assertSameAsProtobuf(newPOJO(1));
+        assertSameAsProtobuf(newPOJO(10));
+    }
+
+    @Test
+    public void testLengthPrefixBoundary() throws IOException {
+        // payload of 127 bytes has one byte length prefix, 128 bytes needs two
+        PackedListPOJO pojo = new PackedListPOJO();
+        pojo.boolF = new ArrayList<Boolean>();
+        for (int i = 0; i < 127; i++) {
+            pojo.boolF.add(i % 2 == 0);
+        }
+        pojo.int32F = new ArrayList<Integer>(pojo.boolF.size());
+        pojo.sint64F = new ArrayList<Long>();
+        pojo.fixed32F = new ArrayList<Integer>();
+        pojo.doubleF = new ArrayList<Double>();
+        for (int i = 0; i < 127; i++) {
+            pojo.int32F.add(i);
+        }
+        assertSameAsProtobuf(pojo);
+
+        pojo.boolF.add(true);
+        pojo.int32F.add(1);
+        assertSameAsProtobuf(pojo);
+
+        // every field over the boundary, and a payload needing three bytes of length prefix
+        assertSameAsProtobuf(newPOJO(200));
+        assertSameAsProtobuf(newPOJO(20000));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        Codec<PackedListPOJO> codec = ProtobufProxy.create(PackedListPOJO.class);
+        PackedListPOJO pojo = newPOJO(0);
+        Assert.assertEquals(0, codec.size(pojo));
+        Assert.assertEquals(0, codec.encode(pojo).length);
+        Assert.assertEquals(0, codec.encode(new PackedListPOJO()).length);
+    }
+
+    @Test
+    public void testNullElement() throws IOException {
+        Codec<PackedListPOJO> codec = ProtobufProxy.create(PackedListPOJO.class);
+        PackedListPOJO[] pojos = new PackedListPOJO[5];
+        for (int i = 0; i < pojos.length; i++) {
+            pojos[i] = new PackedListPOJO();
+        }
+        pojos[0].int32F = Arrays.asList(1, null, 2);
+        pojos[1].sint64F = Arrays.asList(1L, null);
+        pojos[2].fixed32F = Arrays.asList(null, 1);
+        pojos[3].doubleF = Arrays.asList(1d, null);
+        pojos[4].boolF = Arrays.asList(true, null);
+        for (PackedListPOJO pojo : pojos) {
+            try {
+                codec.encode(pojo);
+                Assert.fail("encode list with null element should fail");
+            } catch (NullPointerException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testWriteToList() throws IOException {
+        PackedListPOJO pojo = newPOJO(200);
+        assertWriteToList(1, FieldType.INT32, pojo.int32F);
+        assertWriteToList(6, FieldType.SINT64, pojo.sint64F);
+        assertWriteToList(7, FieldType.FIXED32, pojo.fixed32F);
+        assertWriteToList(12, FieldType.DOUBLE, pojo.doubleF);
+        assertWriteToList(13, FieldType.BOOL, pojo.boolF);
+        assertWriteToList(13, FieldType.BOOL, new ArrayList<Boolean>());
+
+        try {
+            assertWriteToList(1, FieldType.INT32, Arrays.asList(1, null));
+            Assert.fail("write list with null element should fail");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    private void assertWriteToList(int order, FieldType type, List<?> list) throws IOException {
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(DESCRIPTOR);
+        addAll(builder, order, list);
+        DynamicMessage message = builder.build();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(baos);
+        CodedConstant.writeToList(output, order, type, (Collection) list, true);
+        output.flush();
+        Assert.assertArrayEquals(message.toByteArray(), baos.toByteArray());
+        Assert.assertEquals(message.getSerializedSize(),
+                CodedConstant.computeListSize(order, list, type, false, null, true));
+    }
+}
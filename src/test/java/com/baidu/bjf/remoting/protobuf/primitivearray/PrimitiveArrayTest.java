@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.primitivearray;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufIDLGenerator;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.CodedConstant;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Test primitive array fields are encoded the same as repeated fields declared by list.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class PrimitiveArrayTest {
+
+    private static <T extends PrimitiveArrayPOJO> T fill(T pojo) {
+        pojo.ints = new int[] { 0, 1, -1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        pojo.longs = new long[] { 0L, -1L, 1L << 40, Long.MAX_VALUE };
+        pojo.sints = new long[] { -2L, 2L, Long.MIN_VALUE };
+        pojo.doubles = new double[] { 0d, -1.5d, Double.MAX_VALUE };
+        pojo.floats = new float[] { 1.25f, -0f };
+        pojo.flags = new boolean[] { true, false, true };
+        pojo.name = "array";
+        return pojo;
+    }
+
+    private static PrimitiveListPOJO fillList() {
+        PrimitiveListPOJO pojo = new PrimitiveListPOJO();
+        pojo.ints = Arrays.asList(0, 1, -1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        pojo.longs = Arrays.asList(0L, -1L, 1L << 40, Long.MAX_VALUE);
+        pojo.sints = Arrays.asList(-2L, 2L, Long.MIN_VALUE);
+        pojo.doubles = Arrays.asList(0d, -1.5d, Double.MAX_VALUE);
+        pojo.floats = Arrays.asList(1.25f, -0f);
+        pojo.flags = Arrays.asList(true, false, true);
+        pojo.name = "array";
+        return pojo;
+    }
+
+    private static void assertArrayFields(PrimitiveArrayPOJO expected, PrimitiveArrayPOJO actual) {
+        Assert.assertArrayEquals(expected.ints, actual.ints);
+        Assert.assertArrayEquals(expected.longs, actual.longs);
+        Assert.assertArrayEquals(expected.sints, actual.sints);
+        Assert.assertArrayEquals(expected.doubles, actual.doubles, 0d);
+        Assert.assertArrayEquals(expected.floats, actual.floats, 0f);
+        Assert.assertTrue(Arrays.equals(expected.flags, actual.flags));
+        Assert.assertEquals(expected.name, actual.name);
+    }
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        PrimitiveArrayPOJO pojo = fill(new PrimitiveArrayPOJO());
+
+        byte[] bytes = codec.encode(pojo);
+        Assert.assertEquals(codec.size(pojo), bytes.length);
+        assertArrayFields(pojo, codec.decode(bytes));
+    }
+
+    @Test
+    public void testSameAsList() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        Codec<PrimitiveListPOJO> listCodec = ProtobufProxy.create(PrimitiveListPOJO.class);
+        PrimitiveArrayPOJO pojo = fill(new PrimitiveArrayPOJO());
+        PrimitiveListPOJO listPOJO = fillList();
+
+        byte[] bytes = codec.encode(pojo);
+        Assert.assertArrayEquals(listCodec.encode(listPOJO), bytes);
+        Assert.assertEquals(listPOJO.ints, listCodec.decode(bytes).ints);
+        Assert.assertEquals(listPOJO.flags, listCodec.decode(bytes).flags);
+    }
+
+    @Test
+    public void testDecodeSplitPacked() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        PrimitiveArrayPOJO first = fill(new PrimitiveArrayPOJO());
+        PrimitiveArrayPOJO second = new PrimitiveArrayPOJO();
+        second.ints = new int[] { 7, 8 };
+        second.doubles = new double[] { 9d };
+        second.longs = new long[] { 10L };
+
+        // packed and unpacked chunks of the same field are concatenated
+        byte[] b1 = codec.encode(first);
+        byte[] b2 = codec.encode(second);
+        byte[] bytes = Arrays.copyOf(b1, b1.length + b2.length);
+        System.arraycopy(b2, 0, bytes, b1.length, b2.length);
+
+        PrimitiveArrayPOJO decoded = codec.decode(bytes);
+        Assert.assertArrayEquals(new int[] { 0, 1, -1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE, 7, 8 },
+                decoded.ints);
+        Assert.assertArrayEquals(new double[] { 0d, -1.5d, Double.MAX_VALUE, 9d }, decoded.doubles, 0d);
+        Assert.assertArrayEquals(new long[] { 0L, -1L, 1L << 40, Long.MAX_VALUE, 10L }, decoded.longs);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        PrimitiveArrayPOJO pojo = new PrimitiveArrayPOJO();
+        pojo.ints = new int[0];
+
+        byte[] bytes = codec.encode(pojo);
+        Assert.assertEquals(0, bytes.length);
+        PrimitiveArrayPOJO decoded = codec.decode(bytes);
+        // fields never read keep their default value
+        Assert.assertNull(decoded.ints);
+        Assert.assertNull(decoded.flags);
+    }
+
+    @Test
+    public void testKeepDefaultValue() throws IOException {
+        Codec<PrimitiveArrayDefaultPOJO> codec = ProtobufProxy.create(PrimitiveArrayDefaultPOJO.class);
+        PrimitiveArrayDefaultPOJO pojo = new PrimitiveArrayDefaultPOJO();
+        pojo.ints = null;
+        pojo.doubles = new double[] { 1d, 2d };
+
+        PrimitiveArrayDefaultPOJO decoded = codec.decode(codec.encode(pojo));
+        Assert.assertArrayEquals(new int[] { 42 }, decoded.ints);
+        Assert.assertArrayEquals(new double[] { 1d, 2d }, decoded.doubles, 0d);
+    }
+
+    @Test
+    public void testDecodeLargePacked() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        PrimitiveArrayPOJO pojo = new PrimitiveArrayPOJO();
+        pojo.ints = new int[20000];
+        pojo.doubles = new double[20000];
+        for (int i = 0; i < pojo.ints.length; i++) {
+            pojo.ints[i] = i * 31 - 10000;
+            pojo.doubles[i] = i / 3d;
+        }
+
+        PrimitiveArrayPOJO decoded = codec.decode(codec.encode(pojo));
+        Assert.assertArrayEquals(pojo.ints, decoded.ints);
+        Assert.assertArrayEquals(pojo.doubles, decoded.doubles, 0d);
+    }
+
+    @Test
+    public void testPackedCountExact() throws IOException {
+        // 20000 doubles, more than the bounded reservation of untrusted length
+        byte[] fixed = new byte[3 + 20000 * 8];
+        CodedOutputStream output = CodedOutputStream.newInstance(fixed);
+        output.writeUInt32NoTag(20000 * 8);
+        output.flush();
+        CodedInputStream input = CodedInputStream.newInstance(fixed);
+        input.pushLimit(input.readRawVarint32());
+        Assert.assertEquals(20000, CodedConstant.getPackedCount(input, 8));
+
+        // varints of 1, 2, 5 and 10 bytes
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        output = CodedOutputStream.newInstance(baos);
+        output.writeUInt32NoTag(18);
+        output.writeInt32NoTag(1);
+        output.writeInt32NoTag(300);
+        output.writeInt32NoTag(Integer.MAX_VALUE);
+        output.writeInt32NoTag(-1);
+        output.flush();
+        byte[] varints = baos.toByteArray();
+        input = CodedInputStream.newInstance(varints);
+        input.pushLimit(input.readRawVarint32());
+        Assert.assertEquals(4, CodedConstant.getPackedCount(input, 1));
+
+        // payload is not verified on stream input, reservation is bounded
+        input = CodedInputStream.newInstance(new ByteArrayInputStream(fixed));
+        input.pushLimit(input.readRawVarint32());
+        Assert.assertEquals(8192, CodedConstant.getPackedCount(input, 8));
+    }
+
+    @Test
+    public void testDecodeForgedPackedLength() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        // tag of packed doubles, then a length of about 2GB with only 8 bytes of payload
+        byte[] forged = new byte[] { 0x22, (byte) 0xF8, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0, 0, 0, 0,
+                (byte) 0xF0, 0x3F };
+        try {
+            codec.decode(forged);
+            Assert.fail("truncated packed payload should not be decoded");
+        } catch (InvalidProtocolBufferException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+
+        // the same for packed varints
+        forged[0] = 0x0A;
+        try {
+            codec.decode(forged);
+            Assert.fail("truncated packed payload should not be decoded");
+        } catch (InvalidProtocolBufferException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReverseEncode() throws IOException {
+        Codec<PrimitiveArrayPOJO> codec = ProtobufProxy.create(PrimitiveArrayPOJO.class);
+        Codec<ReversePrimitiveArrayPOJO> reverseCodec = ProtobufProxy.create(ReversePrimitiveArrayPOJO.class);
+
+        byte[] bytes = reverseCodec.encode(fill(new ReversePrimitiveArrayPOJO()));
+        Assert.assertArrayEquals(codec.encode(fill(new PrimitiveArrayPOJO())), bytes);
+    }
+
+    @Test
+    public void testIDL() {
+        String idl = ProtobufIDLGenerator.getIDL(PrimitiveArrayPOJO.class);
+        Assert.assertTrue(idl.contains("repeated int32 ints=1"));
+        Assert.assertTrue(idl.contains("repeated bool flags=6"));
+    }
+}
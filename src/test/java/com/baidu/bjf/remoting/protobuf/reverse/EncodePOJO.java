@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.reverse;
+
+import java.util.List;
+import java.util.Map;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Packed;
+import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;
+
+/**
+ * POJO encoded by default strategy.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+@ProtobufClass
+public class EncodePOJO {
+
+    public String name;
+
+    public Integer id;
+
+    public Long stamp;
+
+    public Double score;
+
+    public Boolean flag;
+
+    public byte[] data;
+
+    @Packed
+    public List<Integer> values;
+
+    public List<Long> ids;
+
+    public List<String> tags;
+
+    public EncodePOJO child;
+
+    public List<EncodePOJO> children;
+
+    public Map<String, Integer> attrs;
+}
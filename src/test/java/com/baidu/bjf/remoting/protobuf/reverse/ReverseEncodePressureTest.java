@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.reverse;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * Performance test for reverse encode compares to default encode with nested messages.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class ReverseEncodePressureTest {
+    int times = 20000;
+
+    int depth = 5;
+
+    private <T extends EncodePOJO> void doEncode(String name, Class<T> cls, T pojo) throws IOException {
+        Codec<T> codec = ProtobufProxy.create(cls);
+        // warm up
+        for (int i = 0; i < times; i++) {
+            codec.encode(pojo);
+        }
+
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < times; i++) {
+            codec.encode(pojo);
+        }
+        long total = System.currentTimeMillis() - time;
+        System.out.println(name + " encode total time:" + total + " ms for " + times + " times");
+    }
+
+    @Test
+    public void testDefaultEncode() throws IOException {
+        doEncode("default", EncodePOJO.class,
+                ReverseEncodeTest.fill(new EncodePOJO(), "hello", depth, EncodePOJO.class));
+    }
+
+    @Test
+    public void testReverseEncode() throws IOException {
+        doEncode("reverse", ReverseEncodePOJO.class,
+                ReverseEncodeTest.fill(new ReverseEncodePOJO(), "hello", depth, ReverseEncodePOJO.class));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.reverse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxyConfig;
+import com.baidu.bjf.remoting.protobuf.code.ReverseCodedOutput;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Test reverse encode strategy has the same result as default one.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class ReverseEncodeTest {
+
+    static <T extends EncodePOJO> T fill(T pojo, String name, int depth, Class<T> cls) {
+        pojo.name = name;
+        pojo.id = -depth;
+        pojo.stamp = 1L << 40;
+        pojo.score = 3.14d;
+        pojo.flag = depth % 2 == 0;
+        pojo.data = new byte[] { 1, 2, (byte) depth };
+        pojo.values = Arrays.asList(0, 127, 128, -1, Integer.MAX_VALUE);
+        pojo.ids = Arrays.asList(Long.MIN_VALUE, 300L);
+        pojo.tags = Arrays.asList("a", "", name);
+        pojo.attrs = new HashMap<String, Integer>();
+        pojo.attrs.put("k" + depth, depth);
+        pojo.attrs.put("v", -depth);
+        if (depth > 0) {
+            try {
+                pojo.child = fill(cls.newInstance(), name + depth, depth - 1, cls);
+                List<EncodePOJO> children = new ArrayList<EncodePOJO>();
+                children.add(fill(cls.newInstance(), "c" + depth, depth - 1, cls));
+                children.add(cls.newInstance());
+                pojo.children = children;
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+        return pojo;
+    }
+
+    private void assertSameBytes(String name, int depth) throws IOException {
+        Codec<EncodePOJO> codec = ProtobufProxy.create(EncodePOJO.class);
+        Codec<ReverseEncodePOJO> reverseCodec = ProtobufProxy.create(ReverseEncodePOJO.class);
+
+        byte[] expected = codec.encode(fill(new EncodePOJO(), name, depth, EncodePOJO.class));
+        ReverseEncodePOJO pojo = fill(new ReverseEncodePOJO(), name, depth, ReverseEncodePOJO.class);
+        byte[] data = reverseCodec.encode(pojo);
+
+        Assert.assertArrayEquals(expected, data);
+        Assert.assertEquals(reverseCodec.size(pojo), data.length);
+    }
+
+    @Test
+    public void testEncode() throws IOException {
+        assertSameBytes("hello", 0);
+        assertSameBytes("hello", 3);
+    }
+
+    @Test
+    public void testEncodeString() throws IOException {
+        assertSameBytes("中文", 1);
+        assertSameBytes("é😀!", 1);
+        // unpaired surrogates
+        assertSameBytes("\uD800a\uDC00", 1);
+    }
+
+    @Test
+    public void testEncodeEmpty() throws IOException {
+        Codec<ReverseEncodePOJO> codec = ProtobufProxy.create(ReverseEncodePOJO.class);
+        Assert.assertEquals(0, codec.encode(new ReverseEncodePOJO()).length);
+    }
+
+    @Test
+    public void testDecode() throws IOException {
+        Codec<ReverseEncodePOJO> codec = ProtobufProxy.create(ReverseEncodePOJO.class);
+        ReverseEncodePOJO pojo = fill(new ReverseEncodePOJO(), "hello", 2, ReverseEncodePOJO.class);
+
+        EncodePOJO decoded = ProtobufProxy.create(EncodePOJO.class).decode(codec.encode(pojo));
+        Assert.assertEquals(pojo.name, decoded.name);
+        Assert.assertEquals(pojo.values, decoded.values);
+        Assert.assertEquals(pojo.attrs, decoded.attrs);
+        Assert.assertEquals(pojo.child.child.name, decoded.child.child.name);
+        Assert.assertEquals(pojo.children.get(0).tags, decoded.children.get(0).tags);
+    }
+
+    @Test
+    public void testNestedCodecByConfig() throws IOException {
+        File dir = Files.createTempDirectory("jprotobuf-reverse").toFile();
+        try {
+            Codec<ReverseConfigPOJO> codec = ProtobufProxy.create(ReverseConfigPOJO.class,
+                    ProtobufProxyConfig.of(false, dir));
+            ReverseConfigPOJO pojo = new ReverseConfigPOJO();
+            pojo.child = fill(new ReverseConfigChildPOJO(), "child", 1, ReverseConfigChildPOJO.class);
+
+            byte[] data = codec.encode(pojo);
+
+            // codec of nested value is created by config of outer codec, so its class file is written to output path
+            String name = ReverseConfigChildPOJO.class.getName().replace('.', File.separatorChar);
+            Assert.assertTrue(new File(dir, name + "$$JProtoBufClass.class").isFile());
+            Assert.assertArrayEquals(ProtobufProxy.create(EncodePOJO.class).encode(pojo), data);
+        } finally {
+            deleteDir(dir);
+        }
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteDir(file);
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testReverseCodedOutput() throws IOException {
+        long[] values = { 0, 1, 127, 128, 16384, -1, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        CodecOutput expected = new CodecOutput();
+        ReverseCodedOutput output = new ReverseCodedOutput(1);
+        for (int i = values.length - 1; i >= 0; i--) {
+            // fields are written from back to front as well
+            output.writeFixed64(i + 1, values[i]);
+            output.writeSInt64(i + 1, values[i]);
+            output.writeInt32(i + 1, (int) values[i]);
+        }
+        for (int i = 0; i < values.length; i++) {
+            expected.out.writeInt32(i + 1, (int) values[i]);
+            expected.out.writeSInt64(i + 1, values[i]);
+            expected.out.writeFixed64(i + 1, values[i]);
+        }
+        Assert.assertArrayEquals(expected.toByteArray(), output.toByteArray());
+        Assert.assertEquals(output.getTotalBytesWritten(), output.getData().length);
+        Assert.assertEquals(0, output.getTotalBytesWritten());
+    }
+
+    /**
+     * Byte array backed {@link CodedOutputStream}.
+     */
+    private static class CodecOutput {
+        private java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        private CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+
+        private byte[] toByteArray() throws IOException {
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+}
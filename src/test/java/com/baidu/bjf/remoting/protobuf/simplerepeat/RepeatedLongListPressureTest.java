@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.simplerepeat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * Performance test for encode of large repeated long fields.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class RepeatedLongListPressureTest {
+    int times = 200;
+
+    int count = 200000;
+
+    private List<Long> createIds() {
+        List<Long> ids = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(10000000L + i * 31L);
+        }
+        return ids;
+    }
+
+    private void doEncode(String name, RepeatedLongListPOJO pojo) throws IOException {
+        Codec<RepeatedLongListPOJO> codec = ProtobufProxy.create(RepeatedLongListPOJO.class);
+        // warm up
+        for (int i = 0; i < times; i++) {
+            codec.encode(pojo);
+        }
+
+        long time = System.currentTimeMillis();
+        byte[] bb = null;
+        for (int i = 0; i < times; i++) {
+            bb = codec.encode(pojo);
+        }
+        long total = System.currentTimeMillis() - time;
+        System.out.println(name + " encode total time:" + total + " ms for " + times + " times");
+
+        RepeatedLongListPOJO decoded = codec.decode(bb);
+        Assert.assertEquals(pojo.ids, decoded.ids);
+        Assert.assertEquals(pojo.packedIds, decoded.packedIds);
+    }
+
+    @Test
+    public void testEncode() throws IOException {
+        RepeatedLongListPOJO pojo = new RepeatedLongListPOJO();
+        pojo.ids = createIds();
+        pojo.packedIds = new ArrayList<Long>();
+        doEncode("repeated", pojo);
+    }
+
+    @Test
+    public void testPackedEncode() throws IOException {
+        RepeatedLongListPOJO pojo = new RepeatedLongListPOJO();
+        pojo.ids = new ArrayList<Long>();
+        pojo.packedIds = createIds();
+        doEncode("packed", pojo);
+    }
+}
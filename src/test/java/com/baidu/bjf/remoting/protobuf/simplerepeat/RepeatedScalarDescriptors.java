@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.simplerepeat;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldOptions;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+/**
+ * Descriptor of message with a repeated field of each scalar type, to encode expected bytes by protobuf-java
+ * {@link com.google.protobuf.DynamicMessage}. Field numbers are the same as {@link RepeatedScalarListPOJO}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class RepeatedScalarDescriptors {
+
+    private static final FieldDescriptorProto.Type[] TYPES = { FieldDescriptorProto.Type.TYPE_INT32,
+            FieldDescriptorProto.Type.TYPE_INT64, FieldDescriptorProto.Type.TYPE_UINT32,
+            FieldDescriptorProto.Type.TYPE_UINT64, FieldDescriptorProto.Type.TYPE_SINT32,
+            FieldDescriptorProto.Type.TYPE_SINT64, FieldDescriptorProto.Type.TYPE_FIXED32,
+            FieldDescriptorProto.Type.TYPE_FIXED64, FieldDescriptorProto.Type.TYPE_SFIXED32,
+            FieldDescriptorProto.Type.TYPE_SFIXED64, FieldDescriptorProto.Type.TYPE_FLOAT,
+            FieldDescriptorProto.Type.TYPE_DOUBLE, FieldDescriptorProto.Type.TYPE_BOOL,
+            FieldDescriptorProto.Type.TYPE_STRING, FieldDescriptorProto.Type.TYPE_BYTES,
+            FieldDescriptorProto.Type.TYPE_INT64, FieldDescriptorProto.Type.TYPE_SINT64,
+            FieldDescriptorProto.Type.TYPE_DOUBLE };
+
+    /**
+     * Gets the descriptor, field number of each type is its index in {@link #TYPES} plus one.
+     *
+     * @param packed whether repeated numeric fields are packed
+     * @return the descriptor
+     */
+    public static Descriptor getDescriptor(boolean packed) {
+        DescriptorProto.Builder message = DescriptorProto.newBuilder().setName("RepeatedScalar");
+        for (int i = 0; i < TYPES.length; i++) {
+            FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder().setName("f" + (i + 1))
+                    .setNumber(i + 1).setLabel(FieldDescriptorProto.Label.LABEL_REPEATED).setType(TYPES[i]);
+            if (TYPES[i] != FieldDescriptorProto.Type.TYPE_STRING && TYPES[i] != FieldDescriptorProto.Type.TYPE_BYTES) {
+                field.setOptions(FieldOptions.newBuilder().setPacked(packed));
+            }
+            message.addField(field);
+        }
+        FileDescriptorProto file = FileDescriptorProto.newBuilder().setName("repeated_scalar.proto")
+                .setPackage("pkg").addMessageType(message).build();
+        try {
+            return FileDescriptor.buildFrom(file, new FileDescriptor[0]).findMessageTypeByName("RepeatedScalar");
+        } catch (DescriptorValidationException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.simplerepeat;
+
+import java.util.List;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Packed;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/**
+ * POJO with a repeated field of each scalar type, and repeated fields declared with a wider element class than the
+ * java type of their field type. Numeric fields are not packed.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class RepeatedScalarListPOJO {
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.INT32, order = 1)
+    public List<Integer> int32F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.INT64, order = 2)
+    public List<Long> int64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.UINT32, order = 3)
+    public List<Integer> uint32F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.UINT64, order = 4)
+    public List<Long> uint64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.SINT32, order = 5)
+    public List<Integer> sint32F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.SINT64, order = 6)
+    public List<Long> sint64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.FIXED32, order = 7)
+    public List<Integer> fixed32F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.FIXED64, order = 8)
+    public List<Long> fixed64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.SFIXED32, order = 9)
+    public List<Integer> sfixed32F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.SFIXED64, order = 10)
+    public List<Long> sfixed64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.FLOAT, order = 11)
+    public List<Float> floatF;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.DOUBLE, order = 12)
+    public List<Double> doubleF;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.BOOL, order = 13)
+    public List<Boolean> boolF;
+
+    @Protobuf(fieldType = FieldType.STRING, order = 14)
+    public List<String> stringF;
+
+    @Protobuf(fieldType = FieldType.BYTES, order = 15)
+    public List<byte[]> bytesF;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.INT64, order = 16)
+    public List<Number> intAsInt64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.SINT64, order = 17)
+    public List<Number> intAsSint64F;
+
+    @Packed(false)
+    @Protobuf(fieldType = FieldType.DOUBLE, order = 18)
+    public List<Number> floatAsDoubleF;
+}
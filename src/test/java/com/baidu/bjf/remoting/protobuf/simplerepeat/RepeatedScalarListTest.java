@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.simplerepeat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * Test repeated scalar fields encoded by type specialized loops have the same size and bytes as protobuf-java.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class RepeatedScalarListTest {
+
+    private static final List<Integer> INTS = Arrays.asList(0, 1, -1, 127, 128, 16384, Integer.MAX_VALUE,
+            Integer.MIN_VALUE);
+
+    private static final List<Long> LONGS = Arrays.asList(0L, 1L, -1L, 300L, 1L << 40, Long.MAX_VALUE,
+            Long.MIN_VALUE);
+
+    private static final List<Float> FLOATS = Arrays.asList(0f, -1.5f, 3.25f, Float.MAX_VALUE, Float.NaN);
+
+    private static final List<Double> DOUBLES = Arrays.asList(0d, -1.5d, Math.PI, Double.MIN_VALUE,
+            Double.NEGATIVE_INFINITY);
+
+    private static final List<Boolean> BOOLS = Arrays.asList(true, false, true);
+
+    private static final List<String> STRINGS = Arrays.asList("", "hello", "中文", "é😀!");
+
+    private static final List<byte[]> BYTES = Arrays.asList(new byte[0], new byte[] { 1, 2, -1 });
+
+    private RepeatedScalarListPOJO newPOJO() {
+        RepeatedScalarListPOJO pojo = new RepeatedScalarListPOJO();
+        pojo.int32F = INTS;
+        pojo.int64F = LONGS;
+        pojo.uint32F = INTS;
+        pojo.uint64F = LONGS;
+        pojo.sint32F = INTS;
+        pojo.sint64F = LONGS;
+        pojo.fixed32F = INTS;
+        pojo.fixed64F = LONGS;
+        pojo.sfixed32F = INTS;
+        pojo.sfixed64F = LONGS;
+        pojo.floatF = FLOATS;
+        pojo.doubleF = DOUBLES;
+        pojo.boolF = BOOLS;
+        pojo.stringF = STRINGS;
+        pojo.bytesF = BYTES;
+        return pojo;
+    }
+
+    private DynamicMessage.Builder newMessage() {
+        Descriptor descriptor = RepeatedScalarDescriptors.getDescriptor(false);
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+        for (int number : new int[] { 1, 3, 5, 7, 9 }) {
+            addAll(builder, number, INTS);
+        }
+        for (int number : new int[] { 2, 4, 6, 8, 10 }) {
+            addAll(builder, number, LONGS);
+        }
+        addAll(builder, 11, FLOATS);
+        addAll(builder, 12, DOUBLES);
+        addAll(builder, 13, BOOLS);
+        addAll(builder, 14, STRINGS);
+        for (byte[] bytes : BYTES) {
+            builder.addRepeatedField(descriptor.findFieldByNumber(15), ByteString.copyFrom(bytes));
+        }
+        return builder;
+    }
+
+    private static void addAll(DynamicMessage.Builder builder, int number, List<?> values) {
+        for (Object value : values) {
+            builder.addRepeatedField(builder.getDescriptorForType().findFieldByNumber(number), value);
+        }
+    }
+
+    @Test
+    public void testSameAsProtobuf() throws IOException {
+        Codec<RepeatedScalarListPOJO> codec = ProtobufProxy.create(RepeatedScalarListPOJO.class);
+        RepeatedScalarListPOJO pojo = newPOJO();
+        DynamicMessage message = newMessage().build();
+
+        byte[] bytes = codec.encode(pojo);
+        Assert.assertArrayEquals(message.toByteArray(), bytes);
+        Assert.assertEquals(message.getSerializedSize(), codec.size(pojo));
+
+        RepeatedScalarListPOJO decoded = codec.decode(bytes);
+        Assert.assertEquals(INTS, decoded.int32F);
+        Assert.assertEquals(LONGS, decoded.int64F);
+        Assert.assertEquals(INTS, decoded.uint32F);
+        Assert.assertEquals(LONGS, decoded.sint64F);
+        Assert.assertEquals(INTS, decoded.sfixed32F);
+        Assert.assertEquals(FLOATS, decoded.floatF);
+        Assert.assertEquals(DOUBLES, decoded.doubleF);
+        Assert.assertEquals(BOOLS, decoded.boolF);
+        Assert.assertEquals(STRINGS, decoded.stringF);
+        Assert.assertArrayEquals(BYTES.get(1), decoded.bytesF.get(1));
+    }
+
+    @Test
+    public void testElementClassNotMatchFieldType() throws IOException {
+        Codec<RepeatedScalarListPOJO> codec = ProtobufProxy.create(RepeatedScalarListPOJO.class);
+        RepeatedScalarListPOJO pojo = new RepeatedScalarListPOJO();
+        pojo.intAsInt64F = new ArrayList<Number>(INTS);
+        pojo.intAsSint64F = new ArrayList<Number>(INTS);
+        pojo.floatAsDoubleF = Arrays.<Number> asList(0f, -1.5f, 3.25f);
+
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(RepeatedScalarDescriptors.getDescriptor(false));
+        List<Long> longs = new ArrayList<Long>();
+        for (Integer i : INTS) {
+            longs.add(i.longValue());
+        }
+        addAll(builder, 16, longs);
+        addAll(builder, 17, longs);
+        addAll(builder, 18, Arrays.asList(0d, -1.5d, 3.25d));
+        DynamicMessage message = builder.build();
+
+        // elements are converted as before instead of failing with ClassCastException
+        Assert.assertEquals(message.getSerializedSize(), codec.size(pojo));
+        Assert.assertArrayEquals(message.toByteArray(), codec.encode(pojo));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        Codec<RepeatedScalarListPOJO> codec = ProtobufProxy.create(RepeatedScalarListPOJO.class);
+        RepeatedScalarListPOJO pojo = new RepeatedScalarListPOJO();
+        pojo.int32F = new ArrayList<Integer>();
+        pojo.stringF = new ArrayList<String>();
+        Assert.assertEquals(0, codec.size(pojo));
+        Assert.assertEquals(0, codec.encode(pojo).length);
+    }
+}
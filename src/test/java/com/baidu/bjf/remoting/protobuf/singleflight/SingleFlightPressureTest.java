@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.singleflight;
+
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.singleflight.SingleFlightTest.CountingCompiler;
+
+/**
+ * Performance test for codec creation latency when many threads ask for the same new codec at startup.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class SingleFlightPressureTest {
+
+    int threads = 64;
+
+    int times = 5;
+
+    @Test
+    public void testStartupLatency() throws Exception {
+        // warm up compiler
+        SingleFlightTest.createConcurrently(threads, new CountingCompiler());
+
+        long total = 0;
+        int compiled = 0;
+        for (int i = 0; i < times; i++) {
+            CountingCompiler compiler = new CountingCompiler();
+            long time = System.currentTimeMillis();
+            SingleFlightTest.createConcurrently(threads, compiler);
+            total += System.currentTimeMillis() - time;
+            compiled += compiler.count.get();
+        }
+        System.out.println("create codec with " + threads + " concurrent threads average time:" + (total / times)
+                + " ms, compiled " + compiled + " times for " + times + " times");
+    }
+}
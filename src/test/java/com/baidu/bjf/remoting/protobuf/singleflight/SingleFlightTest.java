@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.singleflight;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.TemplateCodeGenerator;
+import com.baidu.bjf.remoting.protobuf.utils.JDKCompilerHelper;
+import com.baidu.bjf.remoting.protobuf.utils.compiler.Compiler;
+
+/**
+ * Test concurrent creation of the same codec compiles it only once.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class SingleFlightTest {
+
+    int threads = 64;
+
+    /**
+     * Compiler counts compilations.
+     */
+    static class CountingCompiler implements Compiler {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Class<?> compile(String className, String code, ClassLoader classLoader, OutputStream os,
+                long timestamp) {
+            count.incrementAndGet();
+            return JDKCompilerHelper.getJdkCompiler().compile(className, code, classLoader, os, timestamp);
+        }
+
+        @Override
+        public byte[] loadBytes(String className) {
+            return JDKCompilerHelper.getJdkCompiler().loadBytes(className);
+        }
+    }
+
+    static List<Codec<SingleFlightPOJO>> createConcurrently(int threads, final Compiler compiler) throws Exception {
+        ProtobufProxy.clearCache();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Codec<SingleFlightPOJO>>> futures = new ArrayList<Future<Codec<SingleFlightPOJO>>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Codec<SingleFlightPOJO>>() {
+                    @Override
+                    public Codec<SingleFlightPOJO> call() throws Exception {
+                        start.await();
+                        return ProtobufProxy.create(SingleFlightPOJO.class, compiler,
+                                new TemplateCodeGenerator(SingleFlightPOJO.class));
+                    }
+                }));
+            }
+            start.countDown();
+            List<Codec<SingleFlightPOJO>> codecs = new ArrayList<Codec<SingleFlightPOJO>>();
+            for (Future<Codec<SingleFlightPOJO>> future : futures) {
+                codecs.add(future.get());
+            }
+            return codecs;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompileOnce() throws Exception {
+        CountingCompiler compiler = new CountingCompiler();
+        List<Codec<SingleFlightPOJO>> codecs = createConcurrently(threads, compiler);
+
+        Assert.assertEquals(1, compiler.count.get());
+        Codec<SingleFlightPOJO> codec = codecs.get(0);
+        for (Codec<SingleFlightPOJO> c : codecs) {
+            Assert.assertSame(codec, c);
+        }
+        Assert.assertSame(codec, ProtobufProxy.create(SingleFlightPOJO.class));
+    }
+
+    @Test
+    public void testFailureNotCached() throws Exception {
+        ProtobufProxy.clearCache();
+        try {
+            ProtobufProxy.create(SingleFlightPOJO.class, new CountingCompiler(),
+                    new TemplateCodeGenerator(SingleFlightPOJO.class) {
+                        @Override
+                        public String getCode() {
+                            throw new IllegalStateException("generate failed");
+                        }
+                    });
+            Assert.fail("create should fail");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("generate failed", e.getMessage());
+        }
+
+        Codec<SingleFlightPOJO> codec = ProtobufProxy.create(SingleFlightPOJO.class, new CountingCompiler(),
+                new TemplateCodeGenerator(SingleFlightPOJO.class));
+        SingleFlightPOJO pojo = new SingleFlightPOJO();
+        pojo.name = "single";
+        Assert.assertEquals("single", codec.decode(codec.encode(pojo)).name);
+    }
+
+    static void assertReentryFails(final Compiler compiler) {
+        try {
+            ProtobufProxy.create(SingleFlightPOJO.class, compiler, new TemplateCodeGenerator(SingleFlightPOJO.class) {
+                @Override
+                public String getCode() {
+                    // same class again on the thread running its creation
+                    ProtobufProxy.create(SingleFlightPOJO.class, compiler,
+                            new TemplateCodeGenerator(SingleFlightPOJO.class));
+                    return super.getCode();
+                }
+            });
+            Assert.fail("recursive create should fail");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("already being created by current thread"));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testReentryFailsFast() throws Exception {
+        ProtobufProxy.clearCache();
+        CountingCompiler compiler = new CountingCompiler();
+        assertReentryFails(compiler);
+        Assert.assertEquals(0, compiler.count.get());
+
+        // not left in flight
+        Codec<SingleFlightPOJO> codec = ProtobufProxy.create(SingleFlightPOJO.class, compiler,
+                new TemplateCodeGenerator(SingleFlightPOJO.class));
+        Assert.assertNotNull(codec);
+    }
+
+    @Test(timeout = 60000)
+    public void testReentryFailsFastWithoutCache() throws Exception {
+        ProtobufProxy.enableCache(false);
+        try {
+            assertReentryFails(new CountingCompiler());
+        } finally {
+            ProtobufProxy.enableCache(true);
+        }
+    }
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        Codec<SingleFlightPOJO> codec = ProtobufProxy.create(SingleFlightPOJO.class);
+        SingleFlightPOJO pojo = new SingleFlightPOJO();
+        pojo.name = "single";
+        pojo.id = 1L;
+        Assert.assertEquals(pojo.id, codec.decode(codec.encode(pojo)).id);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.sizefirst;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.code.CodecOutputByteArray;
+import com.baidu.bjf.remoting.protobuf.simpletypes.AllTypes.InterClassName;
+import com.baidu.bjf.remoting.protobuf.simpletypes.AllTypesPojoClass;
+import com.baidu.bjf.remoting.protobuf.simpletypes.AllTypesWithProtobufClassDojoClass;
+import com.baidu.bjf.remoting.protobuf.simpletypes.TypeDefEnum;
+import com.google.protobuf.ByteString;
+
+/**
+ * Test encode() which sizes message first then writes into an exact-size array has the same result as writing to a
+ * growing stream.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class EncodeSizeFirstTest {
+
+    private static AllTypesPojoClass newAllTypes() {
+        AllTypesPojoClass c = new AllTypesPojoClass();
+        c.boolF = true;
+        c.bytesF = new byte[] { 1, 2 };
+        c.doubleF = 101D;
+        c.fixed32F = -1;
+        c.fixed64F = 2L;
+        c.floatF = 102F;
+        c.int32F = -3;
+        c.int64F = 1L << 40;
+        c.sfixed32F = 5;
+        c.sfixed64F = -6L;
+        c.sint32F = -7;
+        c.sint64F = 8L;
+        c.stringF = "hello 中文";
+        c.uint32F = 9;
+        c.uint64F = 10L;
+        c.typeDefEnum = TypeDefEnum.DECIMAL;
+        return c;
+    }
+
+    @Test
+    public void testAllTypes() throws IOException {
+        Codec<AllTypesPojoClass> codec = ProtobufProxy.create(AllTypesPojoClass.class);
+        AllTypesPojoClass c = newAllTypes();
+
+        byte[] bytes = codec.encode(c);
+        Assert.assertArrayEquals(CodecOutputByteArray.getData(codec, c), bytes);
+        Assert.assertEquals(codec.size(c), bytes.length);
+
+        InterClassName expected = InterClassName.newBuilder().setBoolF(true)
+                .setBytesF(ByteString.copyFrom(new byte[] { 1, 2 })).setDoubleF(101D).setFixed32F(-1).setFixed64F(2L)
+                .setFloatF(102F).setInt32F(-3).setInt64F(1L << 40).setSfixed32F(5).setSfixed64F(-6L).setSint32F(-7)
+                .setSint64F(8L).setStringF("hello 中文").setUint32F(9).setUint64F(10L)
+                .setEnumT(InterClassName.TypeDef.DECIMAL).build();
+        Assert.assertArrayEquals(expected.toByteArray(), bytes);
+
+        // all fields unset
+        Assert.assertEquals(0, codec.encode(new AllTypesPojoClass()).length);
+    }
+
+    @Test
+    public void testAllTypesNested() throws IOException {
+        Codec<AllTypesWithProtobufClassDojoClass> codec =
+                ProtobufProxy.create(AllTypesWithProtobufClassDojoClass.class);
+        AllTypesWithProtobufClassDojoClass c = new AllTypesWithProtobufClassDojoClass();
+        c.stringF = "outer";
+        c.strings = new ArrayList<String>(Arrays.asList("hello", "matthew"));
+        c.intergers = new ArrayList<Integer>(Arrays.asList(1, -2, 300));
+        c.allTypesDojoClasses = new ArrayList<AllTypesPojoClass>();
+        c.allTypesDojoClasses.add(newAllTypes());
+        c.allTypesDojoClasses.add(new AllTypesPojoClass());
+        c.allTypesDojoClasses.add(newAllTypes());
+
+        byte[] bytes = codec.encode(c);
+        Assert.assertArrayEquals(CodecOutputByteArray.getData(codec, c), bytes);
+        Assert.assertEquals(codec.size(c), bytes.length);
+    }
+
+    @Test
+    public void testMutatedBetweenEncodes() throws IOException {
+        Codec<SizeFirstParentPOJO> codec = ProtobufProxy.create(SizeFirstParentPOJO.class);
+        SizeFirstParentPOJO pojo = new SizeFirstParentPOJO();
+        pojo.name = "parent";
+        pojo.child = newChild("a", 1);
+        pojo.children = new ArrayList<SizeFirstChildPOJO>();
+        pojo.children.add(pojo.child);
+        pojo.children.add(newChild("b", 2));
+
+        byte[] first = codec.encode(pojo);
+        Assert.assertArrayEquals(CodecOutputByteArray.getData(codec, pojo), first);
+
+        // sizes of same child objects change, nothing memorized by previous encode is reused
+        pojo.child.value = new String(new char[200]).replace('\0', 'x');
+        pojo.child.values = new ArrayList<Integer>(Arrays.asList(Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE));
+        pojo.children.get(1).values = null;
+
+        byte[] second = codec.encode(pojo);
+        Assert.assertTrue(second.length > first.length);
+        Assert.assertArrayEquals(CodecOutputByteArray.getData(codec, pojo), second);
+        Assert.assertEquals(codec.size(pojo), second.length);
+
+        SizeFirstParentPOJO decoded = codec.decode(second);
+        Assert.assertEquals(pojo.child.value, decoded.child.value);
+        Assert.assertEquals(pojo.child.values, decoded.children.get(0).values);
+        Assert.assertEquals("b", decoded.children.get(1).value);
+    }
+
+    @Test
+    public void testSizeChangedBetweenPasses() throws IOException {
+        Codec<GrowingChildPOJO> codec = ProtobufProxy.create(GrowingChildPOJO.class);
+        GrowingChildPOJO pojo = new GrowingChildPOJO();
+        pojo.setChild(newChild("v", 0));
+
+        // a nested message larger on write pass than on size pass must not be silently truncated
+        for (int i = 0; i < 20; i++) {
+            byte[] bytes;
+            try {
+                bytes = codec.encode(pojo);
+            } catch (IOException e) {
+                continue;
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            Assert.fail("encode should fail but got " + bytes.length + " bytes");
+        }
+    }
+
+    private static SizeFirstChildPOJO newChild(String value, int count) {
+        SizeFirstChildPOJO child = new SizeFirstChildPOJO();
+        child.value = value;
+        child.values = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            child.values.add(i * 1000);
+        }
+        return child;
+    }
+}
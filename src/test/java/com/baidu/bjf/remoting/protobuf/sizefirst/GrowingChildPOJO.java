@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.sizefirst;
+
+import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;
+
+/**
+ * Message class whose getter returns a larger nested message on each call, so nested size changes between size pass
+ * and write pass of one encode.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+@ProtobufClass
+public class GrowingChildPOJO {
+
+    private SizeFirstChildPOJO child;
+
+    private transient int calls;
+
+    public SizeFirstChildPOJO getChild() {
+        SizeFirstChildPOJO ret = new SizeFirstChildPOJO();
+        StringBuilder value = new StringBuilder(child.value);
+        for (int i = calls++; i >= 0; i--) {
+            value.append('x');
+        }
+        ret.value = value.toString();
+        return ret;
+    }
+
+    public void setChild(SizeFirstChildPOJO child) {
+        this.child = child;
+    }
+}
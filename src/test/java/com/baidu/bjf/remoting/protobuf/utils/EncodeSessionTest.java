@@ -0,0 +1,146 @@
+package com.baidu.bjf.remoting.protobuf.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxyConfig;
+import com.baidu.bjf.remoting.protobuf.code.CodedConstant;
+import com.baidu.bjf.remoting.protobuf.code.EncodeSession;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+
+/***
+ * test EncodeSession
+ */
+public class EncodeSessionTest {
+
+    private TempNode createTree(int depth) {
+        TempNode root = new TempNode(0);
+        TempNode current = root;
+        for (int i = 1; i < depth; i++) {
+            TempNode next = new TempNode(i);
+            List<TempNode> children = new ArrayList<TempNode>();
+            children.add(new TempNode(-i));
+            children.add(new TempNode(i * 1000));
+            next.setChildren(children);
+            current.setNext(next);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * test deep message encode with memorized size
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testDeepEncode() throws IOException {
+        Codec<TempNode> codec = ProtobufProxy.create(TempNode.class);
+        TempNode root = createTree(100);
+
+        byte[] data = codec.encode(root);
+        Assert.assertEquals(codec.size(root), data.length);
+        // session is reset after encode, encode again should have the same result
+        Assert.assertArrayEquals(data, codec.encode(root));
+
+        TempNode decoded = codec.decode(data);
+        TempNode expected = root;
+        while (expected != null) {
+            Assert.assertEquals(expected.getVal(), decoded.getVal());
+            if (expected.getChildren() != null) {
+                Assert.assertEquals(expected.getChildren().size(), decoded.getChildren().size());
+                Assert.assertEquals(expected.getChildren().get(1).getVal(), decoded.getChildren().get(1).getVal());
+            }
+            expected = expected.getNext();
+            decoded = decoded.getNext();
+        }
+        Assert.assertNull(decoded);
+    }
+
+    /**
+     * test session closed after encode
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSessionClosed() throws IOException {
+        Codec<TempNode> codec = ProtobufProxy.create(TempNode.class);
+        codec.encode(createTree(3));
+
+        EncodeSession session = EncodeSession.open();
+        Assert.assertNotNull(session);
+        Assert.assertNull(EncodeSession.open());
+        EncodeSession.close(session);
+    }
+
+    /**
+     * test size of each message is computed once in size pass and taken once in write pass
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSizeTakenOnce() throws IOException {
+        final Codec<TempNode> codec = ProtobufProxy.create(TempNode.class);
+        final AtomicInteger sized = new AtomicInteger();
+        Codec<TempNode> counting = new Codec<TempNode>() {
+            public byte[] encode(TempNode t) throws IOException {
+                return codec.encode(t);
+            }
+
+            public TempNode decode(byte[] bytes) throws IOException {
+                return codec.decode(bytes);
+            }
+
+            public int size(TempNode t) throws IOException {
+                sized.incrementAndGet();
+                return codec.size(t);
+            }
+
+            public void writeTo(TempNode t, CodedOutputStream out) throws IOException {
+                codec.writeTo(t, out);
+            }
+
+            public TempNode readFrom(CodedInputStream input) throws IOException {
+                return codec.readFrom(input);
+            }
+
+            public Descriptor getDescriptor() throws IOException {
+                return codec.getDescriptor();
+            }
+        };
+        TempNode[] nodes = new TempNode[] { createTree(3), createTree(2) };
+        ProtobufProxyConfig config = ProtobufProxy.getConfig();
+
+        EncodeSession session = EncodeSession.open();
+        try {
+            EncodeSession.beginSize(session);
+            int total = 0;
+            for (TempNode node : nodes) {
+                total += CodedConstant.computeMessageSize(1, node,
+                        CodedConstant.computeMessageSizeNoTag(node, counting, TempNode.class, config));
+            }
+            EncodeSession.endSize(session);
+            Assert.assertEquals(2, sized.get());
+
+            byte[] data = new byte[total];
+            CodedOutputStream out = CodedOutputStream.newInstance(data);
+            for (TempNode node : nodes) {
+                int size = CodedConstant.computeMessageSizeNoTag(node, counting, TempNode.class, config);
+                CodedConstant.writeMessage(out, 1, node, size, counting, TempNode.class, config);
+            }
+            out.checkNoSpaceLeft();
+            Assert.assertEquals(2, sized.get());
+        } finally {
+            EncodeSession.close(session);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.baidu.bjf.remoting.protobuf.utils;
+
+import java.util.List;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.baidu.bjf.remoting.protobuf.annotation.ProtobufClass;
+
+/***
+ * recursive node for test
+ */
+@ProtobufClass
+public class TempNode {
+    @Protobuf(order = 1)
+    private int val;
+
+    @Protobuf(order = 2)
+    private TempNode next;
+
+    @Protobuf(order = 3)
+    private List<TempNode> children;
+
+    public TempNode() {}
+
+    public TempNode(int val) {
+        this.val = val;
+    }
+
+    public int getVal() {
+        return val;
+    }
+
+    public void setVal(int val) {
+        this.val = val;
+    }
+
+    public TempNode getNext() {
+        return next;
+    }
+
+    public void setNext(TempNode next) {
+        this.next = next;
+    }
+
+    public List<TempNode> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<TempNode> children) {
+        this.children = children;
+    }
+}
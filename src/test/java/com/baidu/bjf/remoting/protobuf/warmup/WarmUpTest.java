@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Baidu Inc. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.bjf.remoting.protobuf.warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.bjf.remoting.protobuf.utils.ClassScanner;
+
+/**
+ * Test codecs created in background by {@link ProtobufProxy#warmUp(String...)}.
+ *
+ * @author agent
+ * @since 1.0.0
+ */
+public class WarmUpTest {
+
+    @Test
+    public void testWarmUp() throws InterruptedException, ExecutionException, TimeoutException, IOException {
+        ProtobufProxy.clearCache();
+        final Set<Class<?>> reported = Collections.synchronizedSet(new HashSet<Class<?>>());
+        final Set<Throwable> errors = Collections.synchronizedSet(new HashSet<Throwable>());
+        final AtomicInteger total = new AtomicInteger();
+        Map<Class<?>, Codec<?>> codecs = ProtobufProxy.warmUp(getClass().getClassLoader(), 2,
+                (cls, error, completed, count) -> {
+                    if (error != null) {
+                        errors.add(error);
+                    }
+                    reported.add(cls);
+                    total.set(count);
+                }, getClass().getPackage().getName()).get(60, TimeUnit.SECONDS);
+
+        // test class itself has no protobuf annotation
+        Set<Class<?>> expected = new HashSet<Class<?>>();
+        expected.add(WarmUpPOJO.class);
+        expected.add(WarmUpFieldPOJO.class);
+        expected.add(WarmUpFieldPOJO.Inner.class);
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(expected, reported);
+        Assert.assertEquals(3, total.get());
+        Assert.assertEquals(expected, codecs.keySet());
+
+        Codec<WarmUpFieldPOJO> codec = ProtobufProxy.create(WarmUpFieldPOJO.class);
+        Assert.assertSame(codecs.get(WarmUpFieldPOJO.class), codec);
+
+        WarmUpFieldPOJO pojo = new WarmUpFieldPOJO();
+        pojo.id = 100L;
+        pojo.pojo = new WarmUpPOJO();
+        pojo.pojo.name = "warm";
+        Assert.assertEquals("warm", codec.decode(codec.encode(pojo)).pojo.name);
+    }
+
+    @Test
+    public void testWarmUpNothing() throws InterruptedException, ExecutionException {
+        Assert.assertTrue(ProtobufProxy.warmUp("com.baidu.bjf.remoting.protobuf.warmup.none").get().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreads() {
+        ProtobufProxy.warmUp(getClass().getClassLoader(), 0, null, "com.baidu");
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        Set<String> names = ClassScanner.scan(getClass().getClassLoader(), getClass().getPackage().getName());
+        Assert.assertTrue(names.contains(WarmUpFieldPOJO.Inner.class.getName()));
+
+
+        // from jar file
+        File jar = File.createTempFile("warmup", ".jar");
+        jar.deleteOnExit();
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            for (String entry : new String[] { "scan/", "scan/A.class", "scan/sub/", "scan/sub/B.class",
+                    "scan/package-info.class", "scan/a.txt", "other/", "other/C.class" }) {
+                out.putNextEntry(new JarEntry(entry));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+        try {
+            names = ClassScanner.scan(loader, "scan");
+        } finally {
+            loader.close();
+        }
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("scan.A", "scan.sub.B")), names);
+    }
+}